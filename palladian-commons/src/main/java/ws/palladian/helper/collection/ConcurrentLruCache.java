@@ -0,0 +1,182 @@
+package ws.palladian.helper.collection;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * <p>
+ * A bounded, thread-safe cache for values which are expensive to create, such as compiled patterns. In contrast to a
+ * synchronized {@link LruMap} with access order, where every read modifies the linked list and thus needs the lock,
+ * reads only go to a {@link ConcurrentHashMap} and mark the entry as used. When the cache grows beyond its maximum
+ * size, entries are evicted in insertion order, but entries which were used since the last eviction round get a
+ * second chance (the "clock" approximation of least-recently-used). Only one thread evicts at a time; the others do
+ * not wait for it.
+ * </p>
+ *
+ * <p>
+ * The number of hits and misses are counted, see {@link #getHits()} and {@link #getMisses()}.
+ * </p>
+ *
+ * @param <K> key type.
+ * @param <V> value type.
+ */
+public final class ConcurrentLruCache<K, V> {
+
+    private static final class Entry<V> {
+        final V value;
+        volatile boolean used;
+
+        Entry(V value) {
+            this.value = value;
+        }
+    }
+
+    private final int maxEntries;
+
+    private final ConcurrentHashMap<K, Entry<V>> map;
+
+    /** The keys in insertion order, for eviction. */
+    private final Queue<K> keys = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Create a new cache.
+     *
+     * @param maxEntries The maximum entries to keep, greater zero.
+     */
+    public ConcurrentLruCache(int maxEntries) {
+        Validate.isTrue(maxEntries > 0, "maxEntries must be greater zero");
+        this.maxEntries = maxEntries;
+        this.map = new ConcurrentHashMap<>(Math.min(maxEntries, 1 << 16));
+    }
+
+    /**
+     * Get a value from the cache, or create and add it, in case it is not cached.
+     *
+     * @param key     The key, not <code>null</code>.
+     * @param creator The function which creates the value for a key which is not cached; it may be invoked
+     *                concurrently for the same key by several threads, in this case the first value is kept.
+     * @return The cached or created value.
+     */
+    public V get(K key, Function<? super K, ? extends V> creator) {
+        Entry<V> entry = map.get(key);
+        if (entry != null) {
+            hits.increment();
+            if (!entry.used) {
+                entry.used = true;
+            }
+            return entry.value;
+        }
+        misses.increment();
+        // create outside of the map, so that slow creation does not block other keys in the same bin
+        Entry<V> newEntry = new Entry<>(creator.apply(key));
+        Entry<V> existing = map.putIfAbsent(key, newEntry);
+        if (existing != null) {
+            return existing.value;
+        }
+        keys.add(key);
+        if (size.incrementAndGet() > maxEntries) {
+            evict();
+        }
+        return newEntry.value;
+    }
+
+    /**
+     * Get a value from the cache, without counting a hit or miss.
+     *
+     * @param key The key.
+     * @return The value, or <code>null</code> in case it is not cached.
+     */
+    public V getIfPresent(K key) {
+        Entry<V> entry = map.get(key);
+        return entry != null ? entry.value : null;
+    }
+
+    private void evict() {
+        // in case another thread is evicting already, do not wait; it checks the size again after unlocking
+        while (size.get() > maxEntries && evictionLock.tryLock()) {
+            try {
+                while (size.get() > maxEntries) {
+                    K key = keys.poll();
+                    if (key == null) {
+                        break;
+                    }
+                    Entry<V> entry = map.get(key);
+                    if (entry == null) {
+                        continue;
+                    }
+                    if (entry.used) {
+                        entry.used = false;
+                        keys.add(key);
+                    } else if (map.remove(key, entry)) {
+                        size.decrementAndGet();
+                    }
+                }
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    /** Remove all entries; the statistics are kept. */
+    public void clear() {
+        evictionLock.lock();
+        try {
+            for (K key; (key = keys.poll()) != null; ) {
+                if (map.remove(key) != null) {
+                    size.decrementAndGet();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /** @return The number of cached entries. */
+    public int size() {
+        return map.size();
+    }
+
+    /** @return The maximum number of entries. */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /** @return The number of {@link #get(Object, Function)} calls which found a cached value. */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /** @return The number of {@link #get(Object, Function)} calls which had to create the value. */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /** @return The ratio of hits to all requests, or zero in case there were no requests. */
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total > 0 ? (double) hitCount / total : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrentLruCache [size=" + size() + ", maxEntries=" + maxEntries + ", hits=" + getHits()
+                + ", misses=" + getMisses() + "]";
+    }
+
+}
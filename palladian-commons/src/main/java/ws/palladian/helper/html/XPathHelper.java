@@ -14,6 +14,7 @@ import javax.xml.namespace.NamespaceContext;
 import javax.xml.xpath.*;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Pattern;
 
 /**
@@ -55,7 +56,24 @@ public final class XPathHelper {
     private static final Pattern XHTML_TAGGABLE = Pattern.compile("[a-zA-Z][\\w-]*|\\*");
     private static final Pattern XHTML_TAG_MASK = Pattern.compile("(preceding-sibling|following-sibling|ancestor-or-self|descendant-or-self)");
     private static final Pattern XHTML_NS = Pattern.compile("(\"[^\"]+\")|('[^']+')");
-    private static final Map<String, XPathExpression> XPATH_CACHE = Collections.synchronizedMap(LruMap.accessOrder(10000));
+
+    /** The maximum number of compiled expressions which are cached per thread. */
+    private static final int XPATH_CACHE_SIZE = 1000;
+
+    /**
+     * {@link XPathFactory} and {@link XPathExpression} are not thread-safe, so each thread has its own factory and its
+     * own cache of compiled expressions.
+     */
+    private static final ThreadLocal<XPathCache> XPATH_CACHE = ThreadLocal.withInitial(XPathCache::new);
+
+    private static final LongAdder XPATH_CACHE_HITS = new LongAdder();
+
+    private static final LongAdder XPATH_CACHE_MISSES = new LongAdder();
+
+    private static final class XPathCache {
+        final XPathFactory factory = XPathFactory.newInstance();
+        final Map<String, XPathExpression> expressions = LruMap.accessOrder(XPATH_CACHE_SIZE);
+    }
 
     private static class MyNamespaceContext implements NamespaceContext {
         private final Map<String, String> namespaces = new HashMap<>();
@@ -120,19 +138,23 @@ public final class XPathHelper {
     }
 
     private static XPathExpression compileOrGet(String xPath, Map<String, String> namespaces) throws XPathExpressionException {
+        XPathCache cache = XPATH_CACHE.get();
+        String cacheKey = xPath;
         if (namespaces != null && !namespaces.isEmpty()) {
-            return compile(xPath, namespaces);
+            cacheKey = xPath + '\u0000' + new TreeMap<>(namespaces);
         }
-        if (XPATH_CACHE.containsKey(xPath)) {
-            return XPATH_CACHE.get(xPath);
+        XPathExpression xPathExpression = cache.expressions.get(cacheKey);
+        if (xPathExpression != null) {
+            XPATH_CACHE_HITS.increment();
+            return xPathExpression;
         }
-        XPathExpression xPathExpression = compile(xPath, namespaces);
-        XPATH_CACHE.put(xPath, xPathExpression);
+        XPATH_CACHE_MISSES.increment();
+        xPathExpression = compile(cache.factory, xPath, namespaces);
+        cache.expressions.put(cacheKey, xPathExpression);
         return xPathExpression;
     }
 
-    private static XPathExpression compile(String xPath, Map<String, String> namespaces) throws XPathExpressionException {
-        XPathFactory factory = XPathFactory.newInstance();
+    private static XPathExpression compile(XPathFactory factory, String xPath, Map<String, String> namespaces) throws XPathExpressionException {
         XPath xPathObject = factory.newXPath();
 
         MyNamespaceContext namespaceContext = new MyNamespaceContext();
@@ -148,6 +170,16 @@ public final class XPathHelper {
         return xPathObject.compile(xPath);
     }
 
+    /** @return The number of XPath expressions which were taken from the per-thread caches. */
+    public static long getCacheHits() {
+        return XPATH_CACHE_HITS.sum();
+    }
+
+    /** @return The number of XPath expressions which had to be compiled. */
+    public static long getCacheMisses() {
+        return XPATH_CACHE_MISSES.sum();
+    }
+
     /**
      * <p>
      * Get a list of {@link Node}s from matching the given XPath expression.
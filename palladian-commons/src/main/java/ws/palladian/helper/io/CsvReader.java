@@ -3,17 +3,59 @@ package ws.palladian.helper.io;
 import ws.palladian.helper.collection.AbstractIterator2;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
+/**
+ * <p>
+ * Streaming reader for delimited (e.g. CSV) data, which gives the fields of each record as a list. Records end at a
+ * line break, unless the line break is within quotes; the fields are split and unquoted like
+ * {@link DelimitedStringHelper#splitLine(String, char, char, boolean)} does.
+ * </p>
+ *
+ * <p>
+ * The tokenizer works on a char buffer and looks at each character only once, also for fields which span several
+ * lines. Besides iterating over lists of strings, the current record can be accessed directly with
+ * {@link #nextRecord()}, {@link #getNumFields()}, {@link #getField(int)} and {@link #getDouble(int)}, which avoids
+ * creating strings, e.g. for numeric columns. The two ways of accessing the records must not be mixed.
+ * </p>
+ */
 public class CsvReader extends AbstractIterator2<List<String>> implements Closeable {
 
-    private final BufferedReader reader;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Powers of ten which can be represented exactly as double. */
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final Reader reader;
     private final char splitCharacter;
     private final char quoteCharacter;
     private final boolean unescapeDoubleQuotes;
 
-    private StringBuilder buffer;
+    /** Input which has been read, but not yet tokenized. */
+    private final char[] readBuffer = new char[BUFFER_SIZE];
+    private int readPosition;
+    private int readLimit;
+    private boolean endOfInput;
+    /** The last character was a carriage return, so a following line feed belongs to the same line break. */
+    private boolean skipLineFeed;
+
+    /** The characters of the current record; the fields are given by their offsets. */
+    private char[] record = new char[256];
+    private int recordLength;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private int numFields;
+
     private int lineNumber;
     private boolean closed;
 
@@ -30,45 +72,239 @@ public class CsvReader extends AbstractIterator2<List<String>> implements Closea
     }
 
     public CsvReader(BufferedReader reader, char splitCharacter, char quoteCharacter, boolean unescapeDoubleQuotes) {
+        this((Reader) reader, splitCharacter, quoteCharacter, unescapeDoubleQuotes);
+    }
+
+    public CsvReader(Reader reader, char splitCharacter, char quoteCharacter, boolean unescapeDoubleQuotes) {
         this.reader = Objects.requireNonNull(reader);
         this.splitCharacter = splitCharacter;
         this.quoteCharacter = quoteCharacter;
         this.unescapeDoubleQuotes = unescapeDoubleQuotes;
-        this.buffer = new StringBuilder();
         this.lineNumber = 0;
     }
 
     @Override
     protected List<String> getNext() {
+        if (!nextRecord()) {
+            return finished();
+        }
+        List<String> fields = new ArrayList<>(numFields);
+        for (int i = 0; i < numFields; i++) {
+            fields.add(getField(i));
+        }
+        return fields;
+    }
 
+    /**
+     * Advance to the next record.
+     *
+     * @return <code>true</code> in case there was a record, <code>false</code> at the end of the input (a record with
+     * an unclosed quote at the end of the input is dropped).
+     */
+    public boolean nextRecord() {
         if (closed) {
             throw new IllegalStateException("Already closed.");
         }
-
+        recordLength = 0;
+        numFields = 0;
+        boolean inQuotes = false;
+        boolean lineStarted = false;
+        int fieldStart = 0;
         for (; ; ) {
-
-            String line;
-            try {
-                line = reader.readLine();
-            } catch (IOException e) {
-                throw new IllegalStateException(e);
+            if (readPosition == readLimit && !fill()) {
+                if (!lineStarted || inQuotes) {
+                    return false;
+                }
+                // last line without line break
+                lineNumber++;
+                addField(fieldStart);
+                return true;
+            }
+            char c = readBuffer[readPosition++];
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if (c == '\n') {
+                    continue;
+                }
             }
-            if (line == null) {
-                return finished();
+            if (c == '\n' || c == '\r') {
+                lineNumber++;
+                skipLineFeed = c == '\r';
+                if (!inQuotes) {
+                    addField(fieldStart);
+                    return true;
+                }
+                // lines within quotes are joined with a line feed
+                append('\n');
+                continue;
+            }
+            lineStarted = true;
+            if (c == splitCharacter && !inQuotes) {
+                addField(fieldStart);
+                fieldStart = recordLength;
+            } else {
+                if (c == quoteCharacter) {
+                    inQuotes = !inQuotes;
+                }
+                append(c);
             }
+        }
+    }
 
-            lineNumber++;
-            buffer.append(line);
+    private boolean fill() {
+        if (endOfInput) {
+            return false;
+        }
+        try {
+            int read;
+            do {
+                read = reader.read(readBuffer, 0, readBuffer.length);
+            } while (read == 0);
+            if (read < 0) {
+                endOfInput = true;
+                return false;
+            }
+            readPosition = 0;
+            readLimit = read;
+            return true;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void append(char c) {
+        if (recordLength == record.length) {
+            record = Arrays.copyOf(record, record.length * 2);
+        }
+        record[recordLength++] = c;
+    }
 
-            List<String> splitLine = DelimitedStringHelper.splitLine(buffer.toString(), splitCharacter, quoteCharacter, unescapeDoubleQuotes);
-            if (splitLine != null) {
-                buffer = new StringBuilder();
-                return splitLine;
+    private void addField(int fieldStart) {
+        if (numFields == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, numFields * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, numFields * 2);
+        }
+        int fieldEnd = recordLength;
+        // remove the quotes surrounding a field
+        if (fieldEnd - fieldStart >= 2 && record[fieldStart] == quoteCharacter && record[fieldEnd - 1] == quoteCharacter) {
+            fieldStart++;
+            fieldEnd--;
+        }
+        fieldStarts[numFields] = fieldStart;
+        fieldEnds[numFields] = fieldEnd;
+        numFields++;
+    }
+
+    /** @return The number of fields of the current record. */
+    public int getNumFields() {
+        return numFields;
+    }
+
+    /**
+     * @param index The index of the field in the current record.
+     * @return The field, unquoted.
+     */
+    public String getField(int index) {
+        checkIndex(index);
+        int start = fieldStarts[index];
+        String field = new String(record, start, fieldEnds[index] - start);
+        if (unescapeDoubleQuotes && field.indexOf(quoteCharacter) != -1) {
+            field = field.replace("" + quoteCharacter + quoteCharacter, "" + quoteCharacter);
+        }
+        return field;
+    }
+
+    /**
+     * Check whether a field of the current record equals the given value, without creating a string for the field.
+     *
+     * @param index The index of the field in the current record.
+     * @param value The value to compare.
+     * @param trim  <code>true</code> to ignore whitespace at the beginning and the end of the field.
+     * @return <code>true</code> in case the field equals the value.
+     */
+    public boolean fieldEquals(int index, String value, boolean trim) {
+        checkIndex(index);
+        int start = fieldStarts[index];
+        int end = fieldEnds[index];
+        if (trim) {
+            while (start < end && record[start] <= ' ') {
+                start++;
+            }
+            while (end > start && record[end - 1] <= ' ') {
+                end--;
+            }
+        }
+        for (int i = start; i < end; i++) {
+            if (unescapeDoubleQuotes && record[i] == quoteCharacter) {
+                String field = getField(index);
+                return (trim ? field.trim() : field).equals(value);
+            }
+        }
+        if (end - start != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (record[start + i] != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parse a field of the current record as double, like {@link Double#parseDouble(String)}. Plain decimal numbers
+     * with up to 15 digits are parsed directly from the buffer; other values are parsed from the field's string.
+     *
+     * @param index The index of the field in the current record.
+     * @return The value.
+     * @throws NumberFormatException In case the field is not a number.
+     */
+    public double getDouble(int index) {
+        checkIndex(index);
+        int start = fieldStarts[index];
+        int end = fieldEnds[index];
+        while (start < end && record[start] <= ' ') {
+            start++;
+        }
+        while (end > start && record[end - 1] <= ' ') {
+            end--;
+        }
+        boolean negative = false;
+        int i = start;
+        if (i < end && (record[i] == '-' || record[i] == '+')) {
+            negative = record[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int numDigits = 0;
+        int numFractionDigits = 0;
+        boolean fraction = false;
+        for (; i < end; i++) {
+            char c = record[i];
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                numDigits++;
+                if (fraction) {
+                    numFractionDigits++;
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
             } else {
-                buffer.append('\n');
+                break;
             }
         }
+        if (i == end && numDigits > 0 && numDigits <= 15) {
+            // the mantissa and the power of ten are exact, so the division is correctly rounded
+            double value = mantissa / POWERS_OF_TEN[numFractionDigits];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(getField(index));
+    }
 
+    private void checkIndex(int index) {
+        if (index < 0 || index >= numFields) {
+            throw new IndexOutOfBoundsException("Index " + index + " for " + numFields + " fields");
+        }
     }
 
     // XXX empty lines should be skipped, right?
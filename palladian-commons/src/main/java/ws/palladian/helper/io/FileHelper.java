@@ -659,6 +659,22 @@ public final class FileHelper {
         return lineNumber;
     }
 
+    /**
+     * <p>
+     * Perform an action on every line of the provided input file with several threads. The lines are <b>not</b>
+     * processed in order and the action is invoked concurrently, so it must be thread-safe. See
+     * {@link ParallelLineProcessor} for further options.
+     * </p>
+     *
+     * @param file       The File which should be processed line by line, not <code>null</code>.
+     * @param lineAction The thread-safe line action that should be triggered on each line, not <code>null</code>.
+     * @param numThreads The number of threads, greater zero.
+     * @return The number of lines processed, <code>-1</code> in case of errors.
+     */
+    public static int performActionOnEveryLine(File file, LineAction lineAction, int numThreads) {
+        return ParallelLineProcessor.builder().setNumThreads(numThreads).create().process(file, lineAction);
+    }
+
     /**
      * <p>
      * Perform an action on every line of the provided {@link InputStream}. The input stream is <b>not</b> closed after
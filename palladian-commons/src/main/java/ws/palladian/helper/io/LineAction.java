@@ -2,7 +2,7 @@ package ws.palladian.helper.io;
 
 public abstract class LineAction {
 
-    protected boolean looping = true;
+    protected volatile boolean looping = true;
 
     /**
      * <p>
@@ -0,0 +1,397 @@
+package ws.palladian.helper.io;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ws.palladian.helper.NoProgress;
+import ws.palladian.helper.ProgressReporter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * <p>
+ * Performs a {@link LineAction} on every line of a file, like {@link FileHelper#performActionOnEveryLine(File,
+ * LineAction)}, but with several threads. The input is split into chunks of several megabytes at line breaks;
+ * uncompressed files are memory-mapped, other input is read in blocks. The chunks are decoded as UTF-8 and split into
+ * lines by a thread pool, while the calling thread keeps reading ahead. Lines are separated by line feed, carriage
+ * return, or carriage return and line feed, as with {@link java.io.BufferedReader#readLine()}.
+ * </p>
+ *
+ * <p>
+ * Per default, the {@link LineAction} is invoked concurrently by the threads of the pool, so it must be thread-safe;
+ * the line numbers are the same as with sequential processing, but the lines are not processed in order. With
+ * {@link Builder#setOrdered(boolean)}, the action is invoked by the calling thread strictly in the order of the lines,
+ * so only reading, decoding and splitting happens in parallel. {@link LineAction#breakLineLoop()} stops the processing:
+ * in the ordered mode directly after the breaking line; in the unordered mode, no further chunks are started, but the
+ * chunks which have been started already are processed completely. So all lines before the breaking one are
+ * processed, and some lines after it as well; actions which need an exact limit must check the line number.
+ * </p>
+ *
+ * <p>
+ * Gzip compressed files (detected by the file extension) are decompressed by the calling thread, as a gzip stream
+ * cannot be split; decoding, splitting and the actions are still parallel.
+ * </p>
+ *
+ */
+public final class ParallelLineProcessor {
+
+    /** The logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelLineProcessor.class);
+
+    public static final class Builder {
+        private int numThreads = Runtime.getRuntime().availableProcessors();
+        private boolean ordered = false;
+        private int chunkSize = 4 * 1024 * 1024;
+        private ProgressReporter progress = NoProgress.INSTANCE;
+
+        private Builder() {
+        }
+
+        /**
+         * @param numThreads The number of threads for processing, greater zero; default is the number of processors.
+         * @return The builder.
+         */
+        public Builder setNumThreads(int numThreads) {
+            Validate.isTrue(numThreads > 0, "numThreads must be greater zero");
+            this.numThreads = numThreads;
+            return this;
+        }
+
+        /**
+         * @param ordered <code>true</code> to invoke the {@link LineAction} by the calling thread in the order of the
+         *                lines, <code>false</code> to invoke it concurrently (default).
+         * @return The builder.
+         */
+        public Builder setOrdered(boolean ordered) {
+            this.ordered = ordered;
+            return this;
+        }
+
+        /**
+         * @param chunkSize The minimum number of bytes which are processed as one chunk, greater zero; default 4 MB.
+         * @return The builder.
+         */
+        public Builder setChunkSize(int chunkSize) {
+            Validate.isTrue(chunkSize > 0, "chunkSize must be greater zero");
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * @param progress The progress reporter, which is advanced by the processed bytes of a file, not
+         *                 <code>null</code>.
+         * @return The builder.
+         */
+        public Builder setProgress(ProgressReporter progress) {
+            Validate.notNull(progress, "progress must not be null");
+            this.progress = progress;
+            return this;
+        }
+
+        public ParallelLineProcessor create() {
+            return new ParallelLineProcessor(this);
+        }
+    }
+
+    /** Gives the input in chunks, which end with a line break (except for the last one). */
+    private interface ChunkSource {
+        /** @return The next chunk, or <code>null</code> at the end of the input. */
+        ByteBuffer next() throws IOException;
+    }
+
+    /** A chunk which is split into lines by the pool; the number of bytes is kept for the progress. */
+    private static final class PendingChunk {
+        final Future<List<String>> lines;
+        final long numBytes;
+
+        PendingChunk(Future<List<String>> lines, long numBytes) {
+            this.lines = lines;
+            this.numBytes = numBytes;
+        }
+    }
+
+    private final int numThreads;
+    private final boolean ordered;
+    private final int chunkSize;
+    private final ProgressReporter progress;
+
+    private ParallelLineProcessor(Builder builder) {
+        this.numThreads = builder.numThreads;
+        this.ordered = builder.ordered;
+        this.chunkSize = builder.chunkSize;
+        this.progress = builder.progress;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Perform an action on every line of the provided file; files with extension <tt>gz</tt> are decompressed.
+     *
+     * @param file       The file which should be processed line by line, not <code>null</code>.
+     * @param lineAction The line action that should be triggered on each line, not <code>null</code>.
+     * @return The number of lines processed, <code>-1</code> in case of errors.
+     */
+    public int process(File file, LineAction lineAction) {
+        Validate.notNull(file, "file must not be null");
+        Validate.notNull(lineAction, "lineAction must not be null");
+        try {
+            if (FileHelper.getFileType(file.getPath()).equalsIgnoreCase("gz")) {
+                // the progress is given by the compressed bytes which were read
+                try (InputStream inputStream = new GZIPInputStream(new ProgressReporterInputStream(file, progress))) {
+                    return process(streamSource(inputStream), lineAction, false);
+                }
+            }
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                progress.startTask(file.getName(), channel.size());
+                return process(mappedSource(channel), lineAction, true);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Encountered IOException for \"" + file + "\": " + e.getMessage(), e);
+            return -1;
+        } finally {
+            progress.finishTask();
+        }
+    }
+
+    /**
+     * Perform an action on every line of the provided {@link InputStream}. The input stream is <b>not</b> closed after
+     * it has been read. For progress updates, wrap the stream in a {@link ProgressReporterInputStream}.
+     *
+     * @param inputStream The input stream which should be processed line by line, not <code>null</code>.
+     * @param lineAction  The line action that should be triggered on each line, not <code>null</code>.
+     * @return The number of lines processed, <code>-1</code> in case of errors.
+     */
+    public int process(InputStream inputStream, LineAction lineAction) {
+        Validate.notNull(inputStream, "inputStream must not be null");
+        Validate.notNull(lineAction, "lineAction must not be null");
+        try {
+            return process(streamSource(inputStream), lineAction, false);
+        } catch (IOException e) {
+            LOGGER.error("Encountered IOException: " + e.getMessage(), e);
+            return -1;
+        }
+    }
+
+    private int process(ChunkSource source, LineAction lineAction, boolean reportProgress) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads, runnable -> {
+            Thread thread = new Thread(runnable, "ParallelLineProcessor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Deque<PendingChunk> pendingChunks = new ArrayDeque<>();
+        Deque<PendingChunk> pendingActions = new ArrayDeque<>();
+        AtomicInteger numLines = new AtomicInteger();
+        int lineOffset = 0;
+        boolean endOfInput = false;
+        try {
+            while (lineAction.looping) {
+                // read ahead, so that the pool is busy while the lines of the oldest chunk are processed
+                while (!endOfInput && pendingChunks.size() < 2 * numThreads) {
+                    ByteBuffer chunk = source.next();
+                    if (chunk == null) {
+                        endOfInput = true;
+                    } else {
+                        pendingChunks.add(new PendingChunk(executor.submit(() -> splitLines(chunk)), chunk.remaining()));
+                    }
+                }
+                PendingChunk pendingChunk = pendingChunks.poll();
+                if (pendingChunk == null) {
+                    break;
+                }
+                List<String> lines = getResult(pendingChunk.lines);
+                int firstLineNumber = lineOffset;
+                lineOffset += lines.size();
+                if (ordered) {
+                    performActions(lines, firstLineNumber, lineAction, numLines);
+                    if (reportProgress) {
+                        progress.increment(pendingChunk.numBytes);
+                    }
+                } else {
+                    while (pendingActions.size() >= 2 * numThreads) {
+                        finishActions(pendingActions.poll(), reportProgress);
+                    }
+                    Future<List<String>> actions = executor.submit(() -> performActions(lines, firstLineNumber, lineAction, numLines));
+                    pendingActions.add(new PendingChunk(actions, pendingChunk.numBytes));
+                }
+            }
+            while (!pendingActions.isEmpty()) {
+                finishActions(pendingActions.poll(), reportProgress);
+            }
+        } finally {
+            pendingChunks.forEach(pendingChunk -> pendingChunk.lines.cancel(true));
+            pendingActions.forEach(pendingAction -> pendingAction.lines.cancel(true));
+            executor.shutdownNow();
+        }
+        return numLines.get();
+    }
+
+    private void finishActions(PendingChunk pendingActions, boolean reportProgress) {
+        getResult(pendingActions.lines);
+        if (reportProgress) {
+            progress.increment(pendingActions.numBytes);
+        }
+    }
+
+    /**
+     * Perform the action on the lines of a chunk. In the ordered mode, the processing stops at a break; in the
+     * unordered mode, the chunk is processed completely, as the break might have been caused by a later line (i.e. the
+     * lines of this chunk come before the breaking one).
+     */
+    private List<String> performActions(List<String> lines, int firstLineNumber, LineAction lineAction, AtomicInteger numLines) {
+        for (int i = 0; i < lines.size(); i++) {
+            if (ordered && !lineAction.looping) {
+                break;
+            }
+            lineAction.performAction(lines.get(i), firstLineNumber + i);
+            numLines.incrementAndGet();
+        }
+        return lines;
+    }
+
+    private static <T> T getResult(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Decode a chunk as UTF-8 and split it into lines.
+     *
+     * @param chunk The chunk.
+     * @return The lines, without line break characters.
+     * @throws CharacterCodingException Not thrown, as malformed input is replaced.
+     */
+    static List<String> splitLines(ByteBuffer chunk) throws CharacterCodingException {
+        CharBuffer chars = StandardCharsets.UTF_8.newDecoder() //
+                .onMalformedInput(CodingErrorAction.REPLACE) //
+                .onUnmappableCharacter(CodingErrorAction.REPLACE) //
+                .decode(chunk);
+        char[] array = chars.array();
+        int offset = chars.arrayOffset() + chars.position();
+        int end = offset + chars.remaining();
+        List<String> lines = new ArrayList<>();
+        int start = offset;
+        for (int i = offset; i < end; i++) {
+            char c = array[i];
+            if (c == '\n' || c == '\r') {
+                lines.add(new String(array, start, i - start));
+                if (c == '\r' && i + 1 < end && array[i + 1] == '\n') {
+                    i++;
+                }
+                start = i + 1;
+            }
+        }
+        if (start < end) {
+            lines.add(new String(array, start, end - start));
+        }
+        return lines;
+    }
+
+    /** Map the file chunk by chunk; the chunks are cut after the last line feed. */
+    private ChunkSource mappedSource(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long[] position = {0};
+        return () -> {
+            if (position[0] >= size) {
+                return null;
+            }
+            long length = Math.min(chunkSize, size - position[0]);
+            for (; ; ) {
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position[0], length);
+                if (position[0] + length == size) {
+                    position[0] = size;
+                    return buffer;
+                }
+                for (int i = (int) length - 1; i >= 0; i--) {
+                    if (buffer.get(i) == '\n') {
+                        buffer.limit(i + 1);
+                        position[0] += i + 1;
+                        return buffer;
+                    }
+                }
+                // line longer than the chunk
+                length = Math.min(Math.min(2 * length, Integer.MAX_VALUE), size - position[0]);
+            }
+        };
+    }
+
+    /** Read the stream in blocks; the chunks are cut after the last line feed, the rest is kept for the next one. */
+    private ChunkSource streamSource(InputStream inputStream) {
+        return new ChunkSource() {
+            byte[] buffer = new byte[chunkSize];
+            int bufferLength;
+            boolean endOfInput;
+
+            @Override
+            public ByteBuffer next() throws IOException {
+                int searchStart = 0;
+                while (!endOfInput && bufferLength < buffer.length) {
+                    int read = inputStream.read(buffer, bufferLength, buffer.length - bufferLength);
+                    if (read < 0) {
+                        endOfInput = true;
+                    } else {
+                        bufferLength += read;
+                    }
+                    if (bufferLength == buffer.length && !endOfInput) {
+                        if (lastLineFeed(searchStart) >= 0) {
+                            break;
+                        }
+                        // line longer than the chunk
+                        searchStart = bufferLength;
+                        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    }
+                }
+                if (bufferLength == 0) {
+                    return null;
+                }
+                int length = endOfInput ? bufferLength : lastLineFeed(searchStart) + 1;
+                byte[] chunk = buffer;
+                int remaining = bufferLength - length;
+                buffer = new byte[Math.max(chunkSize, 2 * remaining)];
+                System.arraycopy(chunk, length, buffer, 0, remaining);
+                bufferLength = remaining;
+                return ByteBuffer.wrap(chunk, 0, length);
+            }
+
+            int lastLineFeed(int searchStart) {
+                for (int i = bufferLength - 1; i >= searchStart; i--) {
+                    if (buffer[i] == '\n') {
+                        return i;
+                    }
+                }
+                return -1;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,230 @@
+package ws.palladian.helper.nlp;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.apache.commons.lang3.Validate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Finds all occurrences of a (potentially large) set of patterns in a text with one pass over the text, independent
+ * of the number of patterns (<a href="https://en.wikipedia.org/wiki/Aho%E2%80%93Corasick_algorithm">Aho-Corasick
+ * algorithm</a>). The automaton is created with a {@link Builder} and is immutable afterwards, so it can be shared by
+ * several threads.
+ * </p>
+ *
+ * <p>
+ * The transitions of all states are kept in one primitive hash map, which keeps the memory footprint low also for
+ * tens of thousands of patterns. Optionally, the automaton matches case insensitively; in this case, each character is
+ * mapped with {@link Character#toLowerCase(char)}, so that the length of texts and patterns never changes.
+ * </p>
+ */
+public final class AhoCorasickAutomaton {
+
+    /** Callback for matches in a text. */
+    public interface MatchCallback {
+        /**
+         * Invoked for every occurrence of a pattern, in the order of the end positions.
+         *
+         * @param patternId The id of the pattern, as returned by {@link Builder#add(String)}.
+         * @param start     The start position of the occurrence in the text (inclusive).
+         * @param end       The end position of the occurrence in the text (exclusive).
+         * @return <code>true</code> to continue, <code>false</code> to stop matching.
+         */
+        boolean match(int patternId, int start, int end);
+    }
+
+    /** Builder for the {@link AhoCorasickAutomaton}. */
+    public static final class Builder {
+        private final boolean caseInsensitive;
+        private final Object2IntOpenHashMap<String> patternIds = new Object2IntOpenHashMap<>();
+        private final List<String> patterns = new ArrayList<>();
+
+        /**
+         * @param caseInsensitive <code>true</code> to match case insensitively.
+         */
+        public Builder(boolean caseInsensitive) {
+            this.caseInsensitive = caseInsensitive;
+            patternIds.defaultReturnValue(-1);
+        }
+
+        /**
+         * Add a pattern. Adding the same pattern again (after case folding, for case insensitive automata) gives the
+         * same id.
+         *
+         * @param pattern The pattern, not <code>null</code> or empty.
+         * @return The id of the pattern; ids are assigned consecutively, starting with zero.
+         */
+        public int add(String pattern) {
+            Validate.notEmpty(pattern, "pattern must not be empty");
+            String key = caseInsensitive ? toLowerCase(pattern) : pattern;
+            int id = patternIds.getInt(key);
+            if (id == -1) {
+                id = patterns.size();
+                patternIds.put(key, id);
+                patterns.add(pattern);
+            }
+            return id;
+        }
+
+        public AhoCorasickAutomaton create() {
+            return new AhoCorasickAutomaton(this);
+        }
+    }
+
+    private static final int NO_STATE = -1;
+
+    private final boolean caseInsensitive;
+
+    /** The patterns, by their id. */
+    private final String[] patterns;
+
+    /** The transitions, keyed by the source state (upper 32 bits) and the character (lower 16 bits). */
+    private final Long2IntOpenHashMap transitions;
+
+    /** The longest proper suffix of each state, which is also a state. */
+    private final int[] failure;
+
+    /** The next state on the failure path which ends a pattern, or {@link #NO_STATE}. */
+    private final int[] output;
+
+    /** The pattern which ends at a state, or -1. */
+    private final int[] patternAtState;
+
+    private AhoCorasickAutomaton(Builder builder) {
+        this.caseInsensitive = builder.caseInsensitive;
+        this.patterns = builder.patterns.toArray(new String[0]);
+        this.transitions = new Long2IntOpenHashMap();
+        this.transitions.defaultReturnValue(NO_STATE);
+
+        // build the trie; state 0 is the root
+        IntArrayList patternAtStateList = new IntArrayList();
+        patternAtStateList.add(-1);
+        List<IntArrayList> children = new ArrayList<>();
+        children.add(new IntArrayList());
+        for (int patternId = 0; patternId < patterns.length; patternId++) {
+            String pattern = patterns[patternId];
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                long key = key(state, normalize(pattern.charAt(i)));
+                int next = transitions.get(key);
+                if (next == NO_STATE) {
+                    next = patternAtStateList.size();
+                    patternAtStateList.add(-1);
+                    children.add(new IntArrayList());
+                    transitions.put(key, next);
+                    children.get(state).add(next);
+                }
+                state = next;
+            }
+            patternAtStateList.set(state, patternId);
+        }
+        int numStates = patternAtStateList.size();
+        this.patternAtState = patternAtStateList.toIntArray();
+        this.failure = new int[numStates];
+        this.output = new int[numStates];
+        output[0] = NO_STATE;
+
+        // the characters which lead to each state, for computing the failure links
+        char[] incoming = new char[numStates];
+        for (var entry : transitions.long2IntEntrySet()) {
+            incoming[entry.getIntValue()] = (char) entry.getLongKey();
+        }
+
+        // breadth first, so that the failure links of shallower states are known
+        int[] queue = new int[numStates];
+        int head = 0;
+        int tail = 0;
+        for (int child : children.get(0)) {
+            failure[child] = 0;
+            output[child] = NO_STATE;
+            queue[tail++] = child;
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            for (int child : children.get(state)) {
+                char c = incoming[child];
+                int fallback = failure[state];
+                int next;
+                while ((next = transitions.get(key(fallback, c))) == NO_STATE && fallback != 0) {
+                    fallback = failure[fallback];
+                }
+                int childFailure = next != NO_STATE ? next : 0;
+                failure[child] = childFailure;
+                output[child] = patternAtState[childFailure] != -1 ? childFailure : output[childFailure];
+                queue[tail++] = child;
+            }
+        }
+    }
+
+    private static long key(int state, char c) {
+        return (long) state << 32 | c;
+    }
+
+    private static String toLowerCase(String string) {
+        char[] chars = string.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    private char normalize(char c) {
+        return caseInsensitive ? Character.toLowerCase(c) : c;
+    }
+
+    /**
+     * Find all occurrences of the patterns in the given text, including overlapping ones.
+     *
+     * @param text     The text, not <code>null</code>.
+     * @param callback The callback which receives the matches, not <code>null</code>.
+     */
+    public void find(CharSequence text, MatchCallback callback) {
+        Validate.notNull(text, "text must not be null");
+        Validate.notNull(callback, "callback must not be null");
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = normalize(text.charAt(i));
+            int next;
+            while ((next = transitions.get(key(state, c))) == NO_STATE && state != 0) {
+                state = failure[state];
+            }
+            state = next != NO_STATE ? next : 0;
+            for (int current = patternAtState[state] != -1 ? state : output[state]; current != NO_STATE; current = output[current]) {
+                int patternId = patternAtState[current];
+                int end = i + 1;
+                if (!callback.match(patternId, end - patterns[patternId].length(), end)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param patternId The id of the pattern.
+     * @return The pattern, as it was added.
+     */
+    public String getPattern(int patternId) {
+        return patterns[patternId];
+    }
+
+    /** @return The number of distinct patterns. */
+    public int getNumPatterns() {
+        return patterns.length;
+    }
+
+    /** @return The number of states. */
+    public int getNumStates() {
+        return failure.length;
+    }
+
+    @Override
+    public String toString() {
+        return "AhoCorasickAutomaton [numPatterns=" + patterns.length + ", numStates=" + failure.length
+                + ", caseInsensitive=" + caseInsensitive + "]";
+    }
+
+}
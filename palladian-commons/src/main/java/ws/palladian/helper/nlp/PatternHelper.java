@@ -1,17 +1,17 @@
 package ws.palladian.helper.nlp;
 
-import ws.palladian.helper.collection.LruMap;
+import ws.palladian.helper.collection.ConcurrentLruCache;
 
-import java.util.Map;
 import java.util.regex.Pattern;
 
 /**
- * Compiling patterns is expensive. This helper caches frequently compiled patterns.
+ * Compiling patterns is expensive. This helper caches frequently compiled patterns. {@link Pattern}s are immutable, so
+ * the cached instances are shared by all threads.
  *
  * @author David Urbansky
  */
 public class PatternHelper {
-    private static final Map<String, Pattern> PATTERN_CACHE = LruMap.accessOrder(10000);
+    private static final ConcurrentLruCache<String, Pattern> PATTERN_CACHE = new ConcurrentLruCache<>(10000);
 
     public static Pattern compileOrGet(String string) {
         return compileOrGet(string, 0);
@@ -19,13 +19,16 @@ public class PatternHelper {
 
     public static Pattern compileOrGet(String string, int flags) {
         String cacheKey = string + "_" + flags;
-        Pattern pattern = PATTERN_CACHE.get(cacheKey);
-        if (pattern == null) {
-            pattern = Pattern.compile(string, flags);
-            synchronized (PATTERN_CACHE) {
-                PATTERN_CACHE.put(cacheKey, pattern);
-            }
-        }
-        return pattern;
+        return PATTERN_CACHE.get(cacheKey, key -> Pattern.compile(string, flags));
     }
-}
\ No newline at end of file
+
+    /** @return The number of patterns which were taken from the cache. */
+    public static long getCacheHits() {
+        return PATTERN_CACHE.getHits();
+    }
+
+    /** @return The number of patterns which had to be compiled. */
+    public static long getCacheMisses() {
+        return PATTERN_CACHE.getMisses();
+    }
+}
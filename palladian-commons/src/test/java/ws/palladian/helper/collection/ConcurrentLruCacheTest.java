@@ -0,0 +1,56 @@
+package ws.palladian.helper.collection;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentLruCacheTest {
+    @Test
+    public void testSecondChanceEviction() {
+        ConcurrentLruCache<Integer, String> cache = new ConcurrentLruCache<>(5);
+        for (int i = 1; i <= 5; i++) {
+            cache.get(i, String::valueOf);
+        }
+        // 1 was used, so 2 is evicted first
+        assertEquals("1", cache.get(1, key -> "new"));
+        cache.get(6, String::valueOf);
+        assertEquals(5, cache.size());
+        assertNotNull(cache.getIfPresent(1));
+        assertNull(cache.getIfPresent(2));
+        assertEquals(1, cache.getHits());
+        assertEquals(6, cache.getMisses());
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws InterruptedException {
+        ConcurrentLruCache<Integer, String> cache = new ConcurrentLruCache<>(100);
+        AtomicInteger errors = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int seed = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    int key = (i * 31 + seed) % 500;
+                    if (!String.valueOf(key).equals(cache.get(key, String::valueOf))) {
+                        errors.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, errors.get());
+        assertTrue(cache.size() <= 100);
+        assertEquals(80000, cache.getHits() + cache.getMisses());
+    }
+}
@@ -0,0 +1,102 @@
+package ws.palladian.helper.io;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CsvReaderTest {
+
+    private static List<List<String>> readAll(String input, boolean unescapeDoubleQuotes) {
+        List<List<String>> records = new ArrayList<>();
+        new CsvReader(new StringReader(input), ';', '"', unescapeDoubleQuotes).forEachRemaining(records::add);
+        return records;
+    }
+
+    @Test
+    public void testRead() {
+        List<List<String>> records = readAll("a;b;c\n\"d;e\";;f\r\n\r\ng;\"h\nh\";i\rj", false);
+        assertEquals(5, records.size());
+        assertEquals(Arrays.asList("a", "b", "c"), records.get(0));
+        assertEquals(Arrays.asList("d;e", "", "f"), records.get(1));
+        assertEquals(Arrays.asList(""), records.get(2));
+        assertEquals(Arrays.asList("g", "h\nh", "i"), records.get(3));
+        assertEquals(Arrays.asList("j"), records.get(4));
+
+        // no empty record for the last line break; unclosed quote at the end is dropped
+        assertEquals(1, readAll("a;b\n", false).size());
+        assertEquals(1, readAll("a;b\n\"c;d\n", false).size());
+        assertEquals(0, readAll("", false).size());
+    }
+
+    @Test
+    public void testLineNumber() {
+        CsvReader reader = new CsvReader(new StringReader("a\n\"b\nb\"\r\nc"), ';', '"', false);
+        assertTrue(reader.nextRecord());
+        assertEquals(1, reader.getLineNumber());
+        assertTrue(reader.nextRecord());
+        assertEquals(3, reader.getLineNumber());
+        assertTrue(reader.nextRecord());
+        assertEquals(4, reader.getLineNumber());
+        assertFalse(reader.nextRecord());
+    }
+
+    @Test
+    public void testRecordAccess() {
+        CsvReader reader = new CsvReader(new StringReader("1.5; -20 ;\"3\";1e3;?;x\"\"y;0.1234567890123456789"), ';', '"', true);
+        assertTrue(reader.nextRecord());
+        assertEquals(7, reader.getNumFields());
+        assertEquals(1.5, reader.getDouble(0), 0);
+        assertEquals(-20, reader.getDouble(1), 0);
+        assertEquals(3, reader.getDouble(2), 0);
+        assertEquals(1000, reader.getDouble(3), 0);
+        assertEquals(Double.parseDouble("0.1234567890123456789"), reader.getDouble(6), 0);
+        assertTrue(reader.fieldEquals(4, "?", false));
+        assertTrue(reader.fieldEquals(1, "-20", true));
+        assertFalse(reader.fieldEquals(1, "-20", false));
+        assertTrue(reader.fieldEquals(5, "x\"y", false));
+        assertEquals("x\"y", reader.getField(5));
+        try {
+            reader.getDouble(4);
+            fail();
+        } catch (NumberFormatException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testDoubleParsing() {
+        Random random = new Random(1);
+        StringBuilder input = new StringBuilder();
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String value = String.valueOf((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12)));
+            values.add(value);
+            input.append(value).append('\n');
+        }
+        CsvReader reader = new CsvReader(new StringReader(input.toString()), ';', '"', false);
+        for (String value : values) {
+            assertTrue(reader.nextRecord());
+            assertEquals(value, Double.parseDouble(value), reader.getDouble(0), 0);
+        }
+    }
+
+    @Test
+    public void testSameAsSplitLine() {
+        String[] lines = {"'a','b','c'", "'a','b,c','d'", "'test ''in quotes''','test'", "',a,''b'", "'", "a,,'',"};
+        for (String line : lines) {
+            for (boolean unescape : new boolean[]{false, true}) {
+                List<String> expected = DelimitedStringHelper.splitLine(line, ',', '\'', unescape);
+                CsvReader reader = new CsvReader(new StringReader(line), ',', '\'', unescape);
+                List<String> actual = reader.hasNext() ? reader.next() : null;
+                assertEquals(line, expected, actual);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,135 @@
+package ws.palladian.helper.io;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelLineProcessorTest {
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static String createContent() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            content.append("line ").append(i).append(" äöü €");
+            if (i % 100 == 0) {
+                // line longer than a chunk
+                content.append("x".repeat(300));
+            }
+            content.append(i % 3 == 0 ? "\r\n" : i % 5 == 0 ? "\r" : "\n");
+            if (i % 50 == 0) {
+                content.append('\n');
+            }
+        }
+        return content.append("last line without line break").toString();
+    }
+
+    private static List<String> readSequentially(File file) {
+        List<String> lines = new ArrayList<>();
+        FileHelper.performActionOnEveryLine(file.getPath(), new LineAction() {
+            @Override
+            public void performAction(String line, int lineNumber) {
+                lines.add(line);
+            }
+        });
+        return lines;
+    }
+
+    private File writeFile(String name, String content, boolean gzip) throws IOException {
+        File file = tempFolder.newFile(name);
+        try (OutputStream outputStream = gzip ? new GZIPOutputStream(new FileOutputStream(file)) : new FileOutputStream(file)) {
+            outputStream.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return file;
+    }
+
+    @Test
+    public void testOrdered() throws IOException {
+        File file = writeFile("test.txt", createContent(), false);
+        List<String> expected = readSequentially(file);
+        List<String> lines = new ArrayList<>();
+        ParallelLineProcessor processor = ParallelLineProcessor.builder().setNumThreads(3).setChunkSize(100).setOrdered(true).create();
+        int numLines = processor.process(file, new LineAction() {
+            @Override
+            public void performAction(String line, int lineNumber) {
+                assertEquals(lines.size(), lineNumber);
+                lines.add(line);
+            }
+        });
+        assertEquals(expected.size(), numLines);
+        assertEquals(expected, lines);
+    }
+
+    @Test
+    public void testUnordered() throws IOException {
+        String content = createContent();
+        for (boolean gzip : new boolean[]{false, true}) {
+            File file = writeFile(gzip ? "test.txt.gz" : "test.txt", content, gzip);
+            List<String> expected = readSequentially(file);
+            Map<Integer, String> lines = new ConcurrentHashMap<>();
+            int numLines = FileHelper.performActionOnEveryLine(file, new LineAction() {
+                @Override
+                public void performAction(String line, int lineNumber) {
+                    lines.put(lineNumber, line);
+                }
+            }, 4);
+            assertEquals(expected.size(), numLines);
+            assertEquals(expected.size(), lines.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i), lines.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testStreamAndBreak() throws IOException {
+        String content = createContent();
+        List<String> lines = new ArrayList<>();
+        ParallelLineProcessor processor = ParallelLineProcessor.builder().setNumThreads(2).setChunkSize(64).setOrdered(true).create();
+        int numLines = processor.process(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), new LineAction() {
+            @Override
+            public void performAction(String line, int lineNumber) {
+                lines.add(line);
+                if (lineNumber == 9) {
+                    breakLineLoop();
+                }
+            }
+        });
+        assertEquals(10, numLines);
+        assertTrue(lines.get(0).startsWith("line 0 äöü €xxx"));
+        assertEquals("", lines.get(1));
+    }
+
+    @Test
+    public void testUnorderedBreak() throws IOException {
+        File file = writeFile("test.txt", createContent(), false);
+        Map<Integer, String> lines = new ConcurrentHashMap<>();
+        ParallelLineProcessor processor = ParallelLineProcessor.builder().setNumThreads(4).setChunkSize(100).create();
+        int numLines = processor.process(file, new LineAction() {
+            @Override
+            public void performAction(String line, int lineNumber) {
+                lines.put(lineNumber, line);
+                if (lineNumber == 500) {
+                    breakLineLoop();
+                }
+            }
+        });
+        assertEquals(lines.size(), numLines);
+        for (int i = 0; i <= 500; i++) {
+            assertTrue(lines.containsKey(i));
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+package ws.palladian.helper.nlp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class AhoCorasickAutomatonTest {
+
+    private static List<String> findAll(AhoCorasickAutomaton automaton, String text) {
+        List<String> matches = new ArrayList<>();
+        automaton.find(text, (patternId, start, end) -> {
+            matches.add(automaton.getPattern(patternId) + "@" + start + "-" + end);
+            return true;
+        });
+        return matches;
+    }
+
+    @Test
+    public void testFind() {
+        AhoCorasickAutomaton.Builder builder = new AhoCorasickAutomaton.Builder(false);
+        assertEquals(0, builder.add("he"));
+        assertEquals(1, builder.add("she"));
+        assertEquals(2, builder.add("his"));
+        assertEquals(3, builder.add("hers"));
+        assertEquals(1, builder.add("she"));
+        AhoCorasickAutomaton automaton = builder.create();
+        assertEquals(4, automaton.getNumPatterns());
+
+        assertEquals(Arrays.asList("she@1-4", "he@2-4", "hers@2-6"), findAll(automaton, "ushers"));
+        assertEquals(Arrays.asList("his@0-3", "she@2-5", "he@3-5"), findAll(automaton, "hishe"));
+        assertEquals(Arrays.asList(), findAll(automaton, "HERS"));
+        assertEquals(Arrays.asList(), findAll(automaton, ""));
+    }
+
+    @Test
+    public void testCaseInsensitive() {
+        AhoCorasickAutomaton.Builder builder = new AhoCorasickAutomaton.Builder(true);
+        builder.add("Cheap");
+        assertEquals(0, builder.add("cheap"));
+        builder.add("aa");
+        AhoCorasickAutomaton automaton = builder.create();
+        assertEquals(Arrays.asList("Cheap@4-9"), findAll(automaton, "non-CHEAP shoes"));
+        assertEquals(Arrays.asList("aa@0-2", "aa@1-3"), findAll(automaton, "AaA"));
+    }
+
+    @Test
+    public void testStop() {
+        AhoCorasickAutomaton.Builder builder = new AhoCorasickAutomaton.Builder(false);
+        builder.add("a");
+        AhoCorasickAutomaton automaton = builder.create();
+        int[] count = new int[1];
+        automaton.find("aaaa", (patternId, start, end) -> ++count[0] < 2);
+        assertEquals(2, count[0]);
+    }
+
+}
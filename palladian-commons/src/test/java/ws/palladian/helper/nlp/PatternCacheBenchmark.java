@@ -0,0 +1,86 @@
+package ws.palladian.helper.nlp;
+
+import org.w3c.dom.Document;
+import ws.palladian.helper.StopWatch;
+import ws.palladian.helper.collection.LruMap;
+import ws.palladian.helper.html.XPathHelper;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.IntConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * Micro benchmark for the contention of the pattern and XPath caches with many threads; compares the
+ * {@link PatternHelper} cache with the previous synchronized {@link LruMap}.
+ */
+class PatternCacheBenchmark {
+
+    private static final int NUM_DISTINCT = 2000;
+
+    private static final int NUM_LOOKUPS = 200000;
+
+    private static final Map<String, Pattern> SYNCHRONIZED_CACHE = Collections.synchronizedMap(LruMap.accessOrder(10000));
+
+    private static Pattern synchronizedCompileOrGet(String string) {
+        Pattern pattern = SYNCHRONIZED_CACHE.get(string);
+        if (pattern == null) {
+            pattern = Pattern.compile(string);
+            SYNCHRONIZED_CACHE.put(string, pattern);
+        }
+        return pattern;
+    }
+
+    private static long run(int numThreads, IntConsumer lookup) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < numThreads; t++) {
+            int seed = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < NUM_LOOKUPS / numThreads; i++) {
+                    lookup.accept((seed + random.nextInt(NUM_DISTINCT)) % NUM_DISTINCT);
+                }
+                return null;
+            }));
+        }
+        StopWatch stopWatch = new StopWatch();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        return stopWatch.getElapsedTime();
+    }
+
+    public static void main(String[] args) throws Exception {
+        String xml = "<html xmlns=\"http://www.w3.org/1999/xhtml\"><body><div id=\"a\"><p>one</p><p>two</p></div></body></html>";
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document document = factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+
+        for (int numThreads : new int[]{1, 4, 16, 64}) {
+            // warm up and measure
+            for (int round = 0; round < 2; round++) {
+                long synchronizedTime = run(numThreads, i -> synchronizedCompileOrGet("pattern" + i + "\\s+\\d"));
+                long concurrentTime = run(numThreads, i -> PatternHelper.compileOrGet("pattern" + i + "\\s+\\d"));
+                long xPathTime = run(numThreads, i -> XPathHelper.getXhtmlNodes(document, "//div[@id='a']/p[" + (i % 50) + "]"));
+                if (round == 1) {
+                    System.out.println(numThreads + " threads: synchronized LruMap " + synchronizedTime
+                            + " ms, PatternHelper " + concurrentTime + " ms, XPathHelper " + xPathTime + " ms");
+                }
+            }
+        }
+        System.out.println("PatternHelper hits=" + PatternHelper.getCacheHits() + ", misses=" + PatternHelper.getCacheMisses());
+        System.out.println("XPathHelper hits=" + XPathHelper.getCacheHits() + ", misses=" + XPathHelper.getCacheMisses());
+    }
+
+}
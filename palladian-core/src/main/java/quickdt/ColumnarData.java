@@ -0,0 +1,352 @@
+package quickdt;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.Map.Entry;
+
+/**
+ * Column-major, primitive representation of a training set for the {@link HistogramTreeBuilder}. The data is read in
+ * two passes: the first pass surveys the attribute types, collects the nominal value and classification dictionaries
+ * and draws a reservoir sample per numeric attribute, from which the bin boundaries are derived; the second pass
+ * encodes every instance into bin codes (numeric attributes) or dictionary codes (nominal attributes). Afterwards, no
+ * boxed values are retained per instance.
+ */
+public final class ColumnarData {
+    private static final Logger logger = LoggerFactory.getLogger(ColumnarData.class);
+
+    /** Maximum number of bins for numeric attributes; one byte code is reserved for missing values. */
+    public static final int MAX_BINS = 255;
+
+    /** Code for missing values in a numeric column. */
+    static final int MISSING_BIN = 0xFF;
+
+    /** Code for missing values in a nominal column. */
+    static final int MISSING_VALUE = -1;
+
+    /** Size of the reservoir sample per numeric attribute from which the bin boundaries are determined. */
+    private static final int SAMPLE_SIZE = 10000;
+
+    /** A single attribute's values for all instances. */
+    public static abstract class Column {
+        public final String attribute;
+
+        Column(String attribute) {
+            this.attribute = attribute;
+        }
+
+        /** @return The number of distinct codes in this column (excluding missing values). */
+        public abstract int numCodes();
+
+        /** @return The code of the given row, or a negative value, in case the value is missing. */
+        abstract int code(int row);
+    }
+
+    /** Numeric attribute, where every value is replaced by the index of its bin. */
+    public static final class NumericColumn extends Column {
+        /** Inclusive upper boundaries of the bins; the last bin is open-ended. */
+        final double[] boundaries;
+        final byte[] bins;
+
+        NumericColumn(String attribute, double[] boundaries, int numRows) {
+            super(attribute);
+            this.boundaries = boundaries;
+            this.bins = new byte[numRows];
+        }
+
+        /** @return The bin index for the given value, i.e. the first bin whose upper boundary is >= the value. */
+        int bin(double value) {
+            int index = Arrays.binarySearch(boundaries, value);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        @Override
+        public int numCodes() {
+            return boundaries.length + 1;
+        }
+
+        @Override
+        int code(int row) {
+            int bin = bins[row] & 0xFF;
+            return bin == MISSING_BIN ? -1 : bin;
+        }
+
+        /** @return The threshold which separates bin <code>index</code> from bin <code>index + 1</code>. */
+        public double threshold(int index) {
+            return boundaries[index];
+        }
+    }
+
+    /** Nominal attribute, where every value is replaced by the index in a dictionary. */
+    public static final class NominalColumn extends Column {
+        /** Assigned after encoding, as numeric values of mixed attributes are only collected in the second pass. */
+        Serializable[] values;
+        final int[] codes;
+
+        NominalColumn(String attribute, int numRows) {
+            super(attribute);
+            this.codes = new int[numRows];
+        }
+
+        @Override
+        public int numCodes() {
+            return values.length;
+        }
+
+        @Override
+        int code(int row) {
+            return codes[row];
+        }
+
+        public Serializable value(int code) {
+            return values[code];
+        }
+    }
+
+    private final Column[] columns;
+    private final Serializable[] classifications;
+    private final int[] classes;
+    private final double[] weights;
+
+    private ColumnarData(Column[] columns, Serializable[] classifications, int[] classes, double[] weights) {
+        this.columns = columns;
+        this.classifications = classifications;
+        this.classes = classes;
+        this.weights = weights;
+    }
+
+    /**
+     * Convert the given training data into a columnar representation. The given {@link Iterable} is iterated twice.
+     *
+     * @param trainingData The training data, not <code>null</code>.
+     * @param maxBins      The maximum number of bins for numeric attributes, between 2 and {@value #MAX_BINS}.
+     * @return The columnar data.
+     */
+    public static ColumnarData create(Iterable<? extends AbstractInstance> trainingData, int maxBins) {
+        return create(trainingData, maxBins, new Random(Misc.random.nextLong()));
+    }
+
+    /**
+     * Convert the given training data into a columnar representation. The given {@link Iterable} is iterated twice.
+     *
+     * @param trainingData The training data, not <code>null</code>.
+     * @param maxBins      The maximum number of bins for numeric attributes, between 2 and {@value #MAX_BINS}.
+     * @param random       The random generator for sampling the bin boundaries, not <code>null</code>.
+     * @return The columnar data.
+     */
+    public static ColumnarData create(Iterable<? extends AbstractInstance> trainingData, int maxBins, Random random) {
+        Validate.notNull(trainingData, "trainingData must not be null");
+        Validate.notNull(random, "random must not be null");
+        Validate.inclusiveBetween(2, MAX_BINS, maxBins, "maxBins must be between 2 and " + MAX_BINS);
+        long start = System.currentTimeMillis();
+
+        // first pass: survey types, collect dictionaries and samples
+        Map<String, AttributeSurvey> surveys = new LinkedHashMap<>();
+        Object2IntMap<Serializable> classIndices = new Object2IntOpenHashMap<>();
+        classIndices.defaultReturnValue(-1);
+        List<Serializable> classifications = new ArrayList<>();
+        int numRows = 0;
+        for (AbstractInstance instance : trainingData) {
+            numRows++;
+            Serializable classification = instance.getClassification();
+            if (classIndices.getInt(classification) == -1) {
+                classIndices.put(classification, classifications.size());
+                classifications.add(classification);
+            }
+            for (Entry<String, Serializable> entry : instance.getAttributes().entrySet()) {
+                if (entry.getValue() == null) {
+                    continue;
+                }
+                AttributeSurvey survey = surveys.get(entry.getKey());
+                if (survey == null) {
+                    survey = new AttributeSurvey();
+                    surveys.put(entry.getKey(), survey);
+                }
+                survey.add(entry.getValue(), random);
+            }
+        }
+
+        Column[] columns = new Column[surveys.size()];
+        Map<String, Column> columnsByName = new HashMap<>();
+        int columnIndex = 0;
+        for (Entry<String, AttributeSurvey> entry : surveys.entrySet()) {
+            Column column = entry.getValue().createColumn(entry.getKey(), maxBins, numRows);
+            columns[columnIndex++] = column;
+            columnsByName.put(entry.getKey(), column);
+        }
+
+        // second pass: encode
+        int[] classes = new int[numRows];
+        double[] weights = new double[numRows];
+        for (Column column : columns) {
+            if (column instanceof NumericColumn) {
+                Arrays.fill(((NumericColumn) column).bins, (byte) MISSING_BIN);
+            } else {
+                Arrays.fill(((NominalColumn) column).codes, MISSING_VALUE);
+            }
+        }
+        int row = 0;
+        for (AbstractInstance instance : trainingData) {
+            Validate.validState(row < numRows, "trainingData changed between iterations");
+            classes[row] = classIndices.getInt(instance.getClassification());
+            weights[row] = instance.getWeight();
+            for (Entry<String, Serializable> entry : instance.getAttributes().entrySet()) {
+                Serializable value = entry.getValue();
+                if (value == null) {
+                    continue;
+                }
+                Column column = columnsByName.get(entry.getKey());
+                if (column instanceof NumericColumn) {
+                    NumericColumn numericColumn = (NumericColumn) column;
+                    numericColumn.bins[row] = (byte) numericColumn.bin(((Number) value).doubleValue());
+                } else {
+                    NominalColumn nominalColumn = (NominalColumn) column;
+                    nominalColumn.codes[row] = surveys.get(entry.getKey()).valueIndex(value);
+                }
+            }
+            row++;
+        }
+        Validate.validState(row == numRows, "trainingData changed between iterations");
+        for (Column column : columns) {
+            if (column instanceof NominalColumn) {
+                ((NominalColumn) column).values = surveys.get(column.attribute).values.toArray(new Serializable[0]);
+            }
+        }
+
+        logger.info("Created columnar data with {} rows, {} columns and {} classes in {} ms", numRows, columns.length,
+                classifications.size(), System.currentTimeMillis() - start);
+        return new ColumnarData(columns, classifications.toArray(new Serializable[0]), classes, weights);
+    }
+
+    /** @return The number of instances. */
+    public int numRows() {
+        return classes.length;
+    }
+
+    /** @return The number of attributes. */
+    public int numColumns() {
+        return columns.length;
+    }
+
+    /** @return The number of distinct classifications. */
+    public int numClasses() {
+        return classifications.length;
+    }
+
+    public Column getColumn(int index) {
+        return columns[index];
+    }
+
+    /** @return All distinct classifications, in order of their codes. */
+    public List<Serializable> getClassifications() {
+        return Collections.unmodifiableList(Arrays.asList(classifications));
+    }
+
+    Serializable classification(int code) {
+        return classifications[code];
+    }
+
+    int classCode(int row) {
+        return classes[row];
+    }
+
+    double weight(int row) {
+        return weights[row];
+    }
+
+    /** @return The indices of all rows. */
+    public int[] allRows() {
+        int[] rows = new int[numRows()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = i;
+        }
+        return rows;
+    }
+
+    /**
+     * @param random The random generator.
+     * @return A bootstrap sample (drawn with replacement) of row indices with the size of the data.
+     */
+    public int[] bootstrapRows(Random random) {
+        int[] rows = new int[numRows()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = random.nextInt(rows.length);
+        }
+        Arrays.sort(rows); // improves memory locality when scanning the columns
+        return rows;
+    }
+
+    /**
+     * Collects type information, nominal values and a numeric sample for one attribute during the first pass. Only
+     * non-numeric values are put into the dictionary here, so that continuous attributes do not create huge
+     * dictionaries; numeric values of mixed attributes are added on demand while encoding.
+     */
+    private static final class AttributeSurvey {
+        boolean isNumber = true;
+        final Object2IntMap<Serializable> valueIndices = new Object2IntOpenHashMap<>();
+        final List<Serializable> values = new ArrayList<>();
+        double[] sample = new double[SAMPLE_SIZE];
+        int numSeen;
+
+        AttributeSurvey() {
+            valueIndices.defaultReturnValue(MISSING_VALUE);
+        }
+
+        int valueIndex(Serializable value) {
+            int index = valueIndices.getInt(value);
+            if (index == MISSING_VALUE) {
+                index = values.size();
+                valueIndices.put(value, index);
+                values.add(value);
+            }
+            return index;
+        }
+
+        void add(Serializable value, Random random) {
+            if (!(value instanceof Number)) {
+                isNumber = false;
+                valueIndex(value);
+            } else if (isNumber) {
+                double doubleValue = ((Number) value).doubleValue();
+                if (numSeen < SAMPLE_SIZE) {
+                    sample[numSeen] = doubleValue;
+                } else {
+                    int index = random.nextInt(numSeen + 1);
+                    if (index < SAMPLE_SIZE) {
+                        sample[index] = doubleValue;
+                    }
+                }
+                numSeen++;
+            }
+        }
+
+        Column createColumn(String attribute, int maxBins, int numRows) {
+            if (!isNumber) {
+                sample = null;
+                return new NominalColumn(attribute, numRows);
+            }
+            double[] sorted = Arrays.copyOf(sample, Math.min(numSeen, SAMPLE_SIZE));
+            Arrays.sort(sorted);
+            // distinct quantiles from the sample; the maximum is omitted as the last bin is open-ended
+            double[] boundaries = new double[maxBins - 1];
+            int numBoundaries = 0;
+            for (int i = 1; i < maxBins; i++) {
+                int index = Math.min(sorted.length - 1, (int) ((long) i * sorted.length / maxBins));
+                double boundary = sorted[index];
+                if (boundary == sorted[sorted.length - 1]) {
+                    break;
+                }
+                if (numBoundaries == 0 || boundary > boundaries[numBoundaries - 1]) {
+                    boundaries[numBoundaries++] = boundary;
+                }
+            }
+            return new NumericColumn(attribute, Arrays.copyOf(boundaries, numBoundaries), numRows);
+        }
+    }
+
+}
@@ -0,0 +1,383 @@
+package quickdt;
+
+import it.unimi.dsi.fastutil.bytes.ByteArrayList;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import quickdt.randomForest.RandomForest;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Compiled, read-only inference form of a {@link Tree} or {@link RandomForest}. All nodes of all trees are flattened
+ * into contiguous arrays (node type, feature index, threshold, child offsets) in depth-first order, and the leaves'
+ * class distributions into one probability array. Inputs are resolved once into an {@link Input}, which holds the
+ * numeric value and the nominal dictionary code per feature index, so that traversing the trees needs no map lookups
+ * and no boxing. The computed probabilities are identical to those of {@link Tree#getProbability(Attributes,
+ * Serializable)} and {@link RandomForest#getProbability(Attributes, Serializable)}.
+ * <p>
+ * Instances are immutable and thread-safe; {@link Input}s must not be shared between threads.
+ */
+public final class CompiledForest implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final byte LEAF = 0;
+    private static final byte ORDINAL = 1;
+    private static final byte NOMINAL = 2;
+
+    /** Number of inputs which are processed as one unit in batch mode. */
+    private static final int BATCH_CHUNK_SIZE = 256;
+
+    private final String[] features;
+    private final Object2IntMap<String> featureIndices;
+    /** Dictionary codes of nominal values per feature; <code>null</code> for features without nominal branches. */
+    private final Object2IntMap<Serializable>[] valueCodes;
+    private final Serializable[] classes;
+    private final Object2IntMap<Serializable> classIndices;
+
+    private final int[] roots;
+    private final byte[] types;
+    private final int[] nodeFeatures;
+    private final double[] thresholds;
+    /** The true child for branches, the offset into {@link #leafProbabilities} for leaves. */
+    private final int[] trueChildren;
+    private final int[] falseChildren;
+    /** Range in {@link #setCodes} with the sorted codes of a nominal branch's values. */
+    private final int[] setStarts;
+    private final int[] setEnds;
+    private final int[] setCodes;
+    private final double[] leafProbabilities;
+
+    /** A resolved input vector; obtain via {@link CompiledForest#createInput()}. */
+    public final class Input {
+        final double[] numeric = new double[features.length];
+        final int[] nominal = new int[features.length];
+
+        private Input() {
+            clear();
+        }
+
+        /** Reset all features to missing, so that the input can be reused. */
+        public void clear() {
+            Arrays.fill(numeric, Double.NaN);
+            Arrays.fill(nominal, -1);
+        }
+
+        /**
+         * Set a feature's value.
+         *
+         * @param featureIndex The index of the feature, see {@link CompiledForest#getFeatures()}.
+         * @param value        The value, or <code>null</code> in case it is missing.
+         */
+        public void set(int featureIndex, Serializable value) {
+            if (value == null) {
+                numeric[featureIndex] = Double.NaN;
+                nominal[featureIndex] = -1;
+                return;
+            }
+            numeric[featureIndex] = value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+            Object2IntMap<Serializable> codes = valueCodes[featureIndex];
+            nominal[featureIndex] = codes != null ? codes.getInt(value) : -1;
+        }
+    }
+
+    private CompiledForest(List<Tree> trees) {
+        // collect features, nominal values and classes
+        featureIndices = new Object2IntOpenHashMap<>();
+        featureIndices.defaultReturnValue(-1);
+        classIndices = new Object2IntOpenHashMap<>();
+        classIndices.defaultReturnValue(-1);
+        List<String> featureList = new ArrayList<>();
+        List<Object2IntMap<Serializable>> valueCodeList = new ArrayList<>();
+        List<Serializable> classList = new ArrayList<>();
+        for (Tree tree : trees) {
+            collect(tree.node, featureList, valueCodeList, classList);
+        }
+        features = featureList.toArray(new String[0]);
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Object2IntMap<Serializable>[] valueCodeArray = valueCodeList.toArray(new Object2IntMap[0]);
+        valueCodes = valueCodeArray;
+        classes = classList.toArray(new Serializable[0]);
+
+        // flatten the nodes
+        NodeArrays arrays = new NodeArrays();
+        roots = new int[trees.size()];
+        for (int i = 0; i < trees.size(); i++) {
+            roots[i] = flatten(trees.get(i).node, arrays);
+        }
+        types = arrays.types.toByteArray();
+        nodeFeatures = arrays.nodeFeatures.toIntArray();
+        thresholds = arrays.thresholds.toDoubleArray();
+        trueChildren = arrays.trueChildren.toIntArray();
+        falseChildren = arrays.falseChildren.toIntArray();
+        setStarts = arrays.setStarts.toIntArray();
+        setEnds = arrays.setEnds.toIntArray();
+        setCodes = arrays.setCodes.toIntArray();
+        leafProbabilities = arrays.leafProbabilities.toDoubleArray();
+    }
+
+    /**
+     * Compile the given model.
+     *
+     * @param model The model, either a {@link Tree} or a {@link RandomForest}.
+     * @return The compiled model.
+     * @throws IllegalArgumentException In case the model type is not supported.
+     */
+    public static CompiledForest compile(PredictiveModel model) {
+        if (model instanceof Tree) {
+            return new CompiledForest(Collections.singletonList((Tree) model));
+        } else if (model instanceof RandomForest) {
+            return new CompiledForest(((RandomForest) model).trees);
+        }
+        throw new IllegalArgumentException("Unsupported model type: " + model.getClass().getName());
+    }
+
+    private void collect(Node node, List<String> featureList, List<Object2IntMap<Serializable>> valueCodeList, List<Serializable> classList) {
+        if (node instanceof Leaf) {
+            for (Serializable classification : ((Leaf) node).getClassifications()) {
+                if (classIndices.getInt(classification) == -1) {
+                    classIndices.put(classification, classList.size());
+                    classList.add(classification);
+                }
+            }
+            return;
+        }
+        Branch branch = (Branch) node;
+        int featureIndex = featureIndices.getInt(branch.attribute);
+        if (featureIndex == -1) {
+            featureIndex = featureList.size();
+            featureIndices.put(branch.attribute, featureIndex);
+            featureList.add(branch.attribute);
+            valueCodeList.add(null);
+        }
+        if (branch instanceof NominalBranch) {
+            Object2IntMap<Serializable> codes = valueCodeList.get(featureIndex);
+            if (codes == null) {
+                codes = new Object2IntOpenHashMap<>();
+                codes.defaultReturnValue(-1);
+                valueCodeList.set(featureIndex, codes);
+            }
+            for (Serializable value : ((NominalBranch) branch).inSet) {
+                if (!codes.containsKey(value)) {
+                    codes.put(value, codes.size());
+                }
+            }
+        }
+        collect(branch.trueChild, featureList, valueCodeList, classList);
+        collect(branch.falseChild, featureList, valueCodeList, classList);
+    }
+
+    /** Growable arrays used while flattening. */
+    private static final class NodeArrays {
+        final ByteArrayList types = new ByteArrayList();
+        final IntArrayList nodeFeatures = new IntArrayList();
+        final DoubleArrayList thresholds = new DoubleArrayList();
+        final IntArrayList trueChildren = new IntArrayList();
+        final IntArrayList falseChildren = new IntArrayList();
+        final IntArrayList setStarts = new IntArrayList();
+        final IntArrayList setEnds = new IntArrayList();
+        final IntArrayList setCodes = new IntArrayList();
+        final DoubleArrayList leafProbabilities = new DoubleArrayList();
+
+        int add(byte type, int feature, double threshold, int setStart, int setEnd) {
+            types.add(type);
+            nodeFeatures.add(feature);
+            thresholds.add(threshold);
+            trueChildren.add(-1);
+            falseChildren.add(-1);
+            setStarts.add(setStart);
+            setEnds.add(setEnd);
+            return types.size() - 1;
+        }
+    }
+
+    /** Depth-first, so that the true child directly follows its parent. */
+    private int flatten(Node node, NodeArrays arrays) {
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf) node;
+            int index = arrays.add(LEAF, -1, 0, 0, 0);
+            arrays.trueChildren.set(index, arrays.leafProbabilities.size());
+            for (Serializable classification : classes) {
+                arrays.leafProbabilities.add(leaf.getProbability(classification));
+            }
+            return index;
+        }
+        Branch branch = (Branch) node;
+        int featureIndex = featureIndices.getInt(branch.attribute);
+        int index;
+        if (branch instanceof OrdinalBranch) {
+            index = arrays.add(ORDINAL, featureIndex, ((OrdinalBranch) branch).threshold, 0, 0);
+        } else if (branch instanceof NominalBranch) {
+            Object2IntMap<Serializable> codes = valueCodes[featureIndex];
+            int[] sortedCodes = new int[((NominalBranch) branch).inSet.size()];
+            int i = 0;
+            for (Serializable value : ((NominalBranch) branch).inSet) {
+                sortedCodes[i++] = codes.getInt(value);
+            }
+            Arrays.sort(sortedCodes);
+            int setStart = arrays.setCodes.size();
+            arrays.setCodes.addElements(setStart, sortedCodes);
+            index = arrays.add(NOMINAL, featureIndex, 0, setStart, setStart + sortedCodes.length);
+        } else {
+            throw new IllegalArgumentException("Unsupported branch type: " + branch.getClass().getName());
+        }
+        int trueChild = flatten(branch.trueChild, arrays);
+        int falseChild = flatten(branch.falseChild, arrays);
+        arrays.trueChildren.set(index, trueChild);
+        arrays.falseChildren.set(index, falseChild);
+        return index;
+    }
+
+    /** @return The names of the features used by the model; the index of a name is its feature index. */
+    public List<String> getFeatures() {
+        return Collections.unmodifiableList(Arrays.asList(features));
+    }
+
+    /**
+     * @param feature The feature name.
+     * @return The index of the feature, or -1 in case it is not used by the model.
+     */
+    public int getFeatureIndex(String feature) {
+        return featureIndices.getInt(feature);
+    }
+
+    /** @return All classifications which occur in the leaves; the index of a classification is its class index. */
+    public List<Serializable> getClassifications() {
+        return Collections.unmodifiableList(Arrays.asList(classes));
+    }
+
+    public int getNumTrees() {
+        return roots.length;
+    }
+
+    public int getNumNodes() {
+        return types.length;
+    }
+
+    /** @return A new input with all features set to missing. */
+    public Input createInput() {
+        return new Input();
+    }
+
+    /**
+     * @param attributes The attributes.
+     * @return A new input with the values from the given attributes.
+     */
+    public Input createInput(Map<String, ? extends Serializable> attributes) {
+        Input input = new Input();
+        for (int i = 0; i < features.length; i++) {
+            Serializable value = attributes.get(features[i]);
+            if (value != null) {
+                input.set(i, value);
+            }
+        }
+        return input;
+    }
+
+    private int findLeaf(int node, Input input) {
+        while (types[node] != LEAF) {
+            int feature = nodeFeatures[node];
+            boolean decision;
+            if (types[node] == ORDINAL) {
+                // NaN, i.e. a missing value, is never greater
+                decision = input.numeric[feature] > thresholds[node];
+            } else {
+                int code = input.nominal[feature];
+                decision = code >= 0 && Arrays.binarySearch(setCodes, setStarts[node], setEnds[node], code) >= 0;
+            }
+            node = decision ? trueChildren[node] : falseChildren[node];
+        }
+        return trueChildren[node];
+    }
+
+    /**
+     * Get the probabilities of all classes, averaged over all trees.
+     *
+     * @param input The input.
+     * @return The probabilities, indexed by class index (see {@link #getClassifications()}).
+     */
+    public double[] getProbabilities(Input input) {
+        double[] probabilities = new double[classes.length];
+        for (int root : roots) {
+            addLeafProbabilities(findLeaf(root, input), probabilities);
+        }
+        for (int c = 0; c < probabilities.length; c++) {
+            probabilities[c] /= roots.length;
+        }
+        return probabilities;
+    }
+
+    /**
+     * Get the probabilities for a batch of inputs. Trees are evaluated for blocks of inputs at once, so that a tree's
+     * arrays stay in the CPU caches.
+     *
+     * @param inputs   The inputs.
+     * @param parallel <code>true</code> to distribute the blocks over the threads of the common fork/join pool.
+     * @return The probabilities for each input, in the same order as the inputs.
+     */
+    public double[][] getProbabilities(List<Input> inputs, boolean parallel) {
+        double[][] result = new double[inputs.size()][classes.length];
+        int numChunks = (inputs.size() + BATCH_CHUNK_SIZE - 1) / BATCH_CHUNK_SIZE;
+        IntStream chunks = IntStream.range(0, numChunks);
+        if (parallel) {
+            chunks = chunks.parallel();
+        }
+        chunks.forEach(chunk -> {
+            int start = chunk * BATCH_CHUNK_SIZE;
+            int end = Math.min(start + BATCH_CHUNK_SIZE, inputs.size());
+            for (int root : roots) {
+                for (int i = start; i < end; i++) {
+                    addLeafProbabilities(findLeaf(root, inputs.get(i)), result[i]);
+                }
+            }
+            for (int i = start; i < end; i++) {
+                for (int c = 0; c < classes.length; c++) {
+                    result[i][c] /= roots.length;
+                }
+            }
+        });
+        return result;
+    }
+
+    private void addLeafProbabilities(int leafOffset, double[] probabilities) {
+        for (int c = 0; c < probabilities.length; c++) {
+            probabilities[c] += leafProbabilities[leafOffset + c];
+        }
+    }
+
+    /**
+     * @param input          The input.
+     * @param classification The classification.
+     * @return The probability of the classification, averaged over all trees.
+     */
+    public double getProbability(Input input, Serializable classification) {
+        int classIndex = classIndices.getInt(classification);
+        if (classIndex == -1) {
+            return 0;
+        }
+        return getProbabilities(input)[classIndex];
+    }
+
+    /**
+     * @param input The input.
+     * @return The classification with the highest probability.
+     */
+    public Serializable getClassificationByMaxProb(Input input) {
+        double[] probabilities = getProbabilities(input);
+        int best = 0;
+        for (int c = 1; c < probabilities.length; c++) {
+            if (probabilities[c] > probabilities[best]) {
+                best = c;
+            }
+        }
+        return classes[best];
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledForest [trees=" + roots.length + ", nodes=" + types.length + ", features=" + features.length + ", classes=" + classes.length + "]";
+    }
+}
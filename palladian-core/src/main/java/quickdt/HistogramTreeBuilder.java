@@ -0,0 +1,469 @@
+package quickdt;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import quickdt.ColumnarData.Column;
+import quickdt.ColumnarData.NominalColumn;
+import quickdt.ColumnarData.NumericColumn;
+import quickdt.scorers.Scorer1;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A decision tree builder which operates on a {@link ColumnarData} representation instead of the
+ * {@link AbstractInstance}s directly. In contrast to the {@link TreeBuilder}, numeric attributes are pre-binned once
+ * (see {@link #maxBins(int)}), so that finding the best split for an attribute at a node needs only a single scan over
+ * the node's rows to build a histogram of class counts per bin, followed by a sweep over the bin boundaries. The split
+ * search over the attributes and the growing of the subtrees are forked as {@link ForkJoinTask}s for nodes with many
+ * rows, so the builder uses the {@link java.util.concurrent.ForkJoinPool} it is invoked from (e.g. the one of the
+ * {@link quickdt.randomForest.RandomForestBuilder}), or the common pool otherwise.
+ * <p>
+ * The created {@link Tree}s consist of the usual {@link OrdinalBranch}es, {@link NominalBranch}es and {@link Leaf}s and
+ * can be used interchangeably with those created by the {@link TreeBuilder}. Differences in behavior: Numeric
+ * attributes are always split by thresholds (the TreeBuilder falls back to nominal splits for small nodes), and
+ * missing values follow the false child.
+ * <p>
+ * The random decisions (sampling the bin boundaries, ignoring attributes at nodes) are drawn from a {@link Random}
+ * per node, which is seeded by its parent node; so given a seeded generator (see {@link #random(Random)}), the trees
+ * are reproducible, also when they are built in parallel.
+ */
+public final class HistogramTreeBuilder implements PredictiveModelBuilder<Tree> {
+    private static final Logger logger = LoggerFactory.getLogger(HistogramTreeBuilder.class);
+
+    public static final int DEFAULT_MAX_BINS = 64;
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 10000;
+    private final Scorer scorer;
+    private int maxDepth = Integer.MAX_VALUE;
+    private double minProbability = 1.0;
+    private int attributeExcludeDepth = 1;
+    private double ignoreAttributeAtNodeProbability = 0.0;
+    private int minNominalAttributeValueOccurances = 5;
+    private Set<String> excludeAttributes = Collections.<String>emptySet();
+    private int maxBins = DEFAULT_MAX_BINS;
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    private Random random = Misc.random;
+
+    public HistogramTreeBuilder() {
+        this(new Scorer1());
+    }
+
+    public HistogramTreeBuilder(final Scorer scorer) {
+        this.scorer = scorer;
+    }
+
+    public HistogramTreeBuilder maxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    public HistogramTreeBuilder minProbability(double minProbability) {
+        this.minProbability = minProbability;
+        return this;
+    }
+
+    public HistogramTreeBuilder attributeExcludeDepth(int depth) {
+        this.attributeExcludeDepth = depth;
+        return this;
+    }
+
+    public HistogramTreeBuilder excludeAttributes(Set<String> attributes) {
+        this.excludeAttributes = attributes;
+        return this;
+    }
+
+    public HistogramTreeBuilder ignoreAttributeAtNodeProbability(double probability) {
+        this.ignoreAttributeAtNodeProbability = probability;
+        return this;
+    }
+
+    public HistogramTreeBuilder minNominalAttributeValueOccurances(int occurances) {
+        this.minNominalAttributeValueOccurances = occurances;
+        return this;
+    }
+
+    /**
+     * @param maxBins The maximum number of bins (i.e. candidate thresholds + 1) for numeric attributes, between 2 and
+     *                {@value ColumnarData#MAX_BINS}.
+     */
+    public HistogramTreeBuilder maxBins(int maxBins) {
+        Validate.inclusiveBetween(2, ColumnarData.MAX_BINS, maxBins, "maxBins must be between 2 and " + ColumnarData.MAX_BINS);
+        this.maxBins = maxBins;
+        return this;
+    }
+
+    /**
+     * @param parallelThreshold The minimum number of rows at a node, for which the split search and the subtrees are
+     *                          computed in parallel; smaller nodes are processed in the current thread.
+     */
+    public HistogramTreeBuilder parallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+        return this;
+    }
+
+    /**
+     * @param random The random generator which seeds the random decisions for each tree, not <code>null</code>; default
+     *               is the shared {@link Misc#random}.
+     */
+    public HistogramTreeBuilder random(Random random) {
+        Validate.notNull(random, "random must not be null");
+        this.random = random;
+        return this;
+    }
+
+    public int getMaxBins() {
+        return maxBins;
+    }
+
+    @Override
+    public Tree buildPredictiveModel(final Iterable<? extends AbstractInstance> trainingData) {
+        return buildPredictiveModel(ColumnarData.create(trainingData, maxBins, new Random(random.nextLong())));
+    }
+
+    public Tree buildPredictiveModel(final ColumnarData data) {
+        return buildPredictiveModel(data, data.allRows());
+    }
+
+    /**
+     * Build a tree from a subset of the given data.
+     *
+     * @param data The columnar data.
+     * @param rows The indices of the rows to use; a row can occur multiple times (e.g. for a bootstrap sample).
+     * @return The tree.
+     */
+    public Tree buildPredictiveModel(final ColumnarData data, final int[] rows) {
+        return buildPredictiveModel(data, rows, new Random(random.nextLong()));
+    }
+
+    /**
+     * Build a tree from a subset of the given data.
+     *
+     * @param data   The columnar data.
+     * @param rows   The indices of the rows to use; a row can occur multiple times (e.g. for a bootstrap sample).
+     * @param random The random generator for this tree, which is only used by the calling thread.
+     * @return The tree.
+     */
+    public Tree buildPredictiveModel(final ColumnarData data, final int[] rows, final Random random) {
+        logger.info("Building histogram decision tree from {} rows, max depth: {}, min probability: {}, attributeExcludeDepth: {}, excludeAttributes: {}, ignoreAttributeAtNodeProb: {}, minValOcc: {}",
+                rows.length, maxDepth, minProbability, attributeExcludeDepth, excludeAttributes, ignoreAttributeAtNodeProbability, minNominalAttributeValueOccurances);
+        return new Tree(new BuildTask(data, null, rows, 0, random).invoke());
+    }
+
+    /** Grows the subtree for the given rows. */
+    private final class BuildTask extends RecursiveTask<Node> {
+        private static final long serialVersionUID = 1L;
+        private final ColumnarData data;
+        private final Node parent;
+        private final int[] rows;
+        private final int depth;
+        /** The random generator of this node, so that the decisions do not depend on the order of the tasks. */
+        private final Random random;
+
+        BuildTask(ColumnarData data, Node parent, int[] rows, int depth, Random random) {
+            this.data = data;
+            this.parent = parent;
+            this.rows = rows;
+            this.depth = depth;
+            this.random = random;
+        }
+
+        @Override
+        protected Node compute() {
+            final double[] classCounts = new double[data.numClasses()];
+            for (final int row : rows) {
+                classCounts[data.classCode(row)] += data.weight(row);
+            }
+            final Leaf thisLeaf = new Leaf(parent, createCounter(data, classCounts), depth);
+            if (depth == maxDepth || thisLeaf.getBestClassificationProbability() >= minProbability)
+                return thisLeaf;
+
+            final List<SplitTask> splitTasks = new ArrayList<>();
+            for (int columnIndex = 0; columnIndex < data.numColumns(); columnIndex++) {
+                final Column column = data.getColumn(columnIndex);
+                if (depth <= attributeExcludeDepth && excludeAttributes.contains(column.attribute)) {
+                    continue;
+                }
+                if (ignoreAttributeAtNodeProbability > 0 && random.nextDouble() < ignoreAttributeAtNodeProbability)
+                    continue;
+                splitTasks.add(new SplitTask(data, column, rows));
+            }
+            final boolean parallel = rows.length >= parallelThreshold;
+            if (parallel && splitTasks.size() > 1) {
+                ForkJoinTask.invokeAll(splitTasks);
+            } else {
+                for (final SplitTask splitTask : splitTasks) {
+                    splitTask.invoke();
+                }
+            }
+
+            Split bestSplit = null;
+            for (final SplitTask splitTask : splitTasks) {
+                final Split split = splitTask.getRawResult();
+                if (split != null && (bestSplit == null || split.score > bestSplit.score)) {
+                    bestSplit = split;
+                }
+            }
+
+            // If we were unable to find a useful branch, return the leaf
+            if (bestSplit == null)
+                return thisLeaf;
+
+            final Branch bestNode = bestSplit.createBranch(parent);
+            logger.debug("Split at depth {} with {} rows: {}", depth, rows.length, bestNode);
+
+            int numTrue = 0;
+            for (final int row : rows) {
+                if (bestSplit.decide(row)) {
+                    numTrue++;
+                }
+            }
+            final int[] trueRows = new int[numTrue];
+            final int[] falseRows = new int[rows.length - numTrue];
+            int trueIndex = 0;
+            int falseIndex = 0;
+            for (final int row : rows) {
+                if (bestSplit.decide(row)) {
+                    trueRows[trueIndex++] = row;
+                } else {
+                    falseRows[falseIndex++] = row;
+                }
+            }
+
+            final BuildTask trueTask = new BuildTask(data, bestNode, trueRows, depth + 1, new Random(random.nextLong()));
+            final BuildTask falseTask = new BuildTask(data, bestNode, falseRows, depth + 1, new Random(random.nextLong()));
+            if (parallel) {
+                trueTask.fork();
+                bestNode.falseChild = falseTask.compute();
+                bestNode.trueChild = trueTask.join();
+            } else {
+                bestNode.trueChild = trueTask.compute();
+                bestNode.falseChild = falseTask.compute();
+            }
+            return bestNode;
+        }
+    }
+
+    /** Finds the best split for one attribute at a node; the result is <code>null</code> in case there is none. */
+    private final class SplitTask extends RecursiveTask<Split> {
+        private static final long serialVersionUID = 1L;
+        private final ColumnarData data;
+        private final Column column;
+        private final int[] rows;
+
+        SplitTask(ColumnarData data, Column column, int[] rows) {
+            this.data = data;
+            this.column = column;
+            this.rows = rows;
+        }
+
+        @Override
+        protected Split compute() {
+            final int numClasses = data.numClasses();
+            final int numCodes = column.numCodes();
+            // class counts per code, row-major
+            final double[] histogram = new double[numCodes * numClasses];
+            final double[] codeTotals = new double[numCodes];
+            final double[] missingCounts = new double[numClasses];
+            double missingTotal = 0;
+            for (final int row : rows) {
+                final int code = column.code(row);
+                final double weight = data.weight(row);
+                if (code < 0) {
+                    missingCounts[data.classCode(row)] += weight;
+                    missingTotal += weight;
+                } else {
+                    histogram[code * numClasses + data.classCode(row)] += weight;
+                    codeTotals[code] += weight;
+                }
+            }
+            if (column instanceof NumericColumn) {
+                return findOrdinalSplit((NumericColumn) column, histogram, codeTotals, missingCounts, missingTotal, numClasses);
+            }
+            return findNominalSplit((NominalColumn) column, histogram, codeTotals, numClasses);
+        }
+
+        private Split findOrdinalSplit(NumericColumn column, double[] histogram, double[] codeTotals, double[] missingCounts, double missingTotal, int numClasses) {
+            // rows with missing values never satisfy "value > threshold", so they always go to the out side
+            final double[] outCounts = missingCounts.clone();
+            double outTotal = missingTotal;
+            double total = missingTotal;
+            final double[] totalCounts = missingCounts.clone();
+            for (int code = 0; code < codeTotals.length; code++) {
+                total += codeTotals[code];
+                for (int c = 0; c < numClasses; c++) {
+                    totalCounts[c] += histogram[code * numClasses + c];
+                }
+            }
+            final double[] inCounts = new double[numClasses];
+            double bestScore = 0;
+            int bestIndex = -1;
+            // threshold index k separates bins <= k (out) from bins > k (in)
+            for (int k = 0; k < codeTotals.length - 1; k++) {
+                outTotal += codeTotals[k];
+                for (int c = 0; c < numClasses; c++) {
+                    outCounts[c] += histogram[k * numClasses + c];
+                }
+                if (codeTotals[k] == 0) {
+                    continue; // same partition as the previous threshold
+                }
+                for (int c = 0; c < numClasses; c++) {
+                    inCounts[c] = totalCounts[c] - outCounts[c];
+                }
+                final double score = scorer.scoreSplit(inCounts, total - outTotal, outCounts, outTotal);
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestIndex = k;
+                }
+            }
+            return bestIndex < 0 ? null : new OrdinalSplit(column, bestIndex, bestScore);
+        }
+
+        private Split findNominalSplit(NominalColumn column, double[] histogram, double[] codeTotals, int numClasses) {
+            final int numCodes = codeTotals.length;
+            final boolean[] inSet = new boolean[numCodes];
+            final double[] inCounts = new double[numClasses];
+            final double[] outCounts = new double[numClasses];
+            double inTotal = 0;
+            double outTotal = 0;
+            for (int code = 0; code < numCodes; code++) {
+                outTotal += codeTotals[code];
+                for (int c = 0; c < numClasses; c++) {
+                    outCounts[c] += histogram[code * numClasses + c];
+                }
+            }
+            final boolean[] ignored = new boolean[numCodes];
+            if (minNominalAttributeValueOccurances > 0) {
+                for (int code = 0; code < numCodes; code++) {
+                    ignored[code] = shouldWeIgnoreThisValue(histogram, code, numClasses);
+                }
+            }
+
+            // greedily add the value to the in set which improves the score most
+            final double[] testInCounts = new double[numClasses];
+            final double[] testOutCounts = new double[numClasses];
+            double score = 0;
+            int numInSet = 0;
+            while (true) {
+                double bestScore = 0;
+                int bestCode = -1;
+                for (int code = 0; code < numCodes; code++) {
+                    if (inSet[code] || ignored[code] || codeTotals[code] == 0) {
+                        continue;
+                    }
+                    for (int c = 0; c < numClasses; c++) {
+                        final double count = histogram[code * numClasses + c];
+                        testInCounts[c] = inCounts[c] + count;
+                        testOutCounts[c] = outCounts[c] - count;
+                    }
+                    final double thisScore = scorer.scoreSplit(testInCounts, inTotal + codeTotals[code], testOutCounts, outTotal - codeTotals[code]);
+                    if (thisScore > bestScore) {
+                        bestScore = thisScore;
+                        bestCode = code;
+                    }
+                }
+                if (bestScore > score) {
+                    score = bestScore;
+                    inSet[bestCode] = true;
+                    numInSet++;
+                    for (int c = 0; c < numClasses; c++) {
+                        final double count = histogram[bestCode * numClasses + c];
+                        inCounts[c] += count;
+                        outCounts[c] -= count;
+                    }
+                    inTotal += codeTotals[bestCode];
+                    outTotal -= codeTotals[bestCode];
+                } else {
+                    break;
+                }
+            }
+            return numInSet == 0 ? null : new NominalSplit(column, inSet, score);
+        }
+
+        private boolean shouldWeIgnoreThisValue(double[] histogram, int code, int numClasses) {
+            double lowestClassificationCount = Double.MAX_VALUE;
+            for (int c = 0; c < numClasses; c++) {
+                final double count = histogram[code * numClasses + c];
+                if (count > 0 && count < lowestClassificationCount) {
+                    lowestClassificationCount = count;
+                }
+            }
+            return lowestClassificationCount < minNominalAttributeValueOccurances;
+        }
+    }
+
+    private static ClassificationCounter createCounter(ColumnarData data, double[] classCounts) {
+        final ClassificationCounter counter = new ClassificationCounter();
+        for (int c = 0; c < classCounts.length; c++) {
+            if (classCounts[c] > 0) {
+                counter.addClassification(data.classification(c), classCounts[c]);
+            }
+        }
+        return counter;
+    }
+
+    /** The best split found for one attribute. */
+    private static abstract class Split {
+        final double score;
+
+        Split(double score) {
+            this.score = score;
+        }
+
+        /** @return <code>true</code> in case the row goes to the true child; must be consistent with the branch. */
+        abstract boolean decide(int row);
+
+        abstract Branch createBranch(Node parent);
+    }
+
+    private static final class OrdinalSplit extends Split {
+        final NumericColumn column;
+        final int thresholdIndex;
+
+        OrdinalSplit(NumericColumn column, int thresholdIndex, double score) {
+            super(score);
+            this.column = column;
+            this.thresholdIndex = thresholdIndex;
+        }
+
+        @Override
+        boolean decide(int row) {
+            return column.code(row) > thresholdIndex;
+        }
+
+        @Override
+        Branch createBranch(Node parent) {
+            return new OrdinalBranch(parent, column.attribute, column.threshold(thresholdIndex));
+        }
+    }
+
+    private static final class NominalSplit extends Split {
+        final NominalColumn column;
+        final boolean[] inSet;
+
+        NominalSplit(NominalColumn column, boolean[] inSet, double score) {
+            super(score);
+            this.column = column;
+            this.inSet = inSet;
+        }
+
+        @Override
+        boolean decide(int row) {
+            final int code = column.code(row);
+            return code >= 0 && inSet[code];
+        }
+
+        @Override
+        Branch createBranch(Node parent) {
+            final Set<Serializable> values = new HashSet<>();
+            for (int code = 0; code < inSet.length; code++) {
+                if (inSet[code]) {
+                    values.add(column.value(code));
+                }
+            }
+            return new NominalBranch(parent, column.attribute, values);
+        }
+    }
+}
@@ -25,8 +25,12 @@ public class Leaf extends Node {
     protected transient volatile Map.Entry<Serializable, Double> bestClassificationEntry = null;
 
     public Leaf(Node parent, final Iterable<? extends AbstractInstance> instances, final int depth) {
+        this(parent, ClassificationCounter.countAll(instances), depth);
+    }
+
+    public Leaf(Node parent, final ClassificationCounter classificationCounts, final int depth) {
         super(parent);
-        classificationCounts = ClassificationCounter.countAll(instances);
+        this.classificationCounts = classificationCounts;
         exampleCount = classificationCounts.getTotal();
         this.depth = depth;
     }
@@ -12,8 +12,9 @@ public final class OrdinalBranch extends Branch {
 
     @Override
     protected boolean decide(final Attributes attributes) {
-        final double value = ((Number) attributes.get(attribute)).doubleValue();
-        return value > threshold;
+        // missing values follow the false child, as done by the HistogramTreeBuilder
+        final Number value = (Number) attributes.get(attribute);
+        return value != null && value.doubleValue() > threshold;
     }
 
     @Override
@@ -15,4 +15,29 @@ public interface Scorer {
      * of 0 being the lowest, and indicating no value.
      */
     public double scoreSplit(ClassificationCounter a, ClassificationCounter b);
+
+    /**
+     * Assess the quality of a separation of data given as primitive class counts, as used by the
+     * {@link HistogramTreeBuilder}. The default implementation converts the counts to {@link ClassificationCounter}s;
+     * implementations should override this with an allocation-free variant.
+     *
+     * @param a      The weighted counts per class code in split a
+     * @param aTotal The total of all counts in split a
+     * @param b      The weighted counts per class code in split b
+     * @param bTotal The total of all counts in split b
+     * @return A score, where a higher value indicates a better split.
+     */
+    default double scoreSplit(double[] a, double aTotal, double[] b, double bTotal) {
+        ClassificationCounter aCounter = new ClassificationCounter();
+        ClassificationCounter bCounter = new ClassificationCounter();
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] > 0) {
+                aCounter.addClassification(i, a[i]);
+            }
+            if (b[i] > 0) {
+                bCounter.addClassification(i, b[i]);
+            }
+        }
+        return scoreSplit(aCounter, bCounter);
+    }
 }
\ No newline at end of file
@@ -6,9 +6,10 @@ import org.slf4j.LoggerFactory;
 import quickdt.*;
 
 import java.util.List;
+import java.util.Random;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
 
 /**
@@ -21,11 +22,12 @@ import java.util.concurrent.Future;
 public class RandomForestBuilder implements PredictiveModelBuilder<RandomForest> {
     private static final Logger logger = LoggerFactory.getLogger(RandomForestBuilder.class);
 
-    private final TreeBuilder treeBuilder;
+    private final PredictiveModelBuilder<Tree> treeBuilder;
     private int numTrees = 8;
     private boolean useBagging = false;
     private int executorThreadCount = 8;
     private ExecutorService executorService;
+    private Random random = Misc.random;
 
     public RandomForestBuilder() {
         this(new TreeBuilder());
@@ -35,6 +37,17 @@ public class RandomForestBuilder implements PredictiveModelBuilder<RandomForest>
         this.treeBuilder = treeBuilder;
     }
 
+    /**
+     * Create a random forest builder which converts the training data into a {@link ColumnarData} representation once
+     * and grows all trees from it. The executor's threads are shared between building the trees and the split search
+     * within the trees.
+     *
+     * @param treeBuilder The histogram tree builder.
+     */
+    public RandomForestBuilder(HistogramTreeBuilder treeBuilder) {
+        this.treeBuilder = treeBuilder;
+    }
+
     public RandomForestBuilder numTrees(int numTrees) {
         this.numTrees = numTrees;
         return this;
@@ -50,7 +63,25 @@ public class RandomForestBuilder implements PredictiveModelBuilder<RandomForest>
         return this;
     }
 
+    /**
+     * @param random The random generator which seeds the bootstrap samples and the trees of a forest built by a
+     *               {@link HistogramTreeBuilder}; default is the shared {@link Misc#random}. As each tree gets its own
+     *               seed, a forest is reproducible for a seeded generator, independent of the number of threads.
+     */
+    public RandomForestBuilder random(Random random) {
+        this.random = random;
+        return this;
+    }
+
+    public PredictiveModelBuilder<Tree> getTreeBuilder() {
+        return treeBuilder;
+    }
+
     public RandomForest buildPredictiveModel(final Iterable<? extends AbstractInstance> trainingData) {
+        if (treeBuilder instanceof HistogramTreeBuilder) {
+            HistogramTreeBuilder histogramTreeBuilder = (HistogramTreeBuilder) treeBuilder;
+            return buildPredictiveModel(ColumnarData.create(trainingData, histogramTreeBuilder.getMaxBins(), new Random(random.nextLong())));
+        }
         initExecutorService();
         logger.info("Building random forest with {} trees, bagging {}", numTrees, useBagging);
 
@@ -73,6 +104,45 @@ public class RandomForestBuilder implements PredictiveModelBuilder<RandomForest>
         return new RandomForest(trees);
     }
 
+    /**
+     * Build the random forest from data in columnar representation; requires a {@link HistogramTreeBuilder}.
+     *
+     * @param trainingData The training data.
+     * @return The random forest.
+     */
+    public RandomForest buildPredictiveModel(final ColumnarData trainingData) {
+        if (!(treeBuilder instanceof HistogramTreeBuilder)) {
+            throw new IllegalStateException("Columnar data requires a HistogramTreeBuilder");
+        }
+        final HistogramTreeBuilder histogramTreeBuilder = (HistogramTreeBuilder) treeBuilder;
+        initExecutorService();
+        logger.info("Building random forest from columnar data with {} trees, bagging {}", numTrees, useBagging);
+
+        List<Future<Tree>> treeFutures = Lists.newArrayListWithCapacity(numTrees);
+        List<Tree> trees = Lists.newArrayListWithCapacity(numTrees);
+
+        for (int idx = 0; idx < numTrees; idx++) {
+            final int treeIndex = idx;
+            final Random treeRandom = new Random(random.nextLong());
+            treeFutures.add(executorService.submit(new Callable<Tree>() {
+                @Override
+                public Tree call() throws Exception {
+                    logger.info("Building tree {} of {}", treeIndex, numTrees);
+                    int[] rows = useBagging ? trainingData.bootstrapRows(treeRandom) : trainingData.allRows();
+                    return histogramTreeBuilder.buildPredictiveModel(trainingData, rows, treeRandom);
+                }
+            }));
+        }
+
+        for (Future<Tree> treeFuture : treeFutures) {
+            collectTreeFutures(trees, treeFuture);
+        }
+
+        executorService.shutdown();
+
+        return new RandomForest(trees);
+    }
+
     private Future<Tree> submitTreeBuild(final Iterable<? extends AbstractInstance> trainingData, final int treeIndex) {
         return executorService.submit(new Callable<Tree>() {
             @Override
@@ -83,8 +153,9 @@ public class RandomForestBuilder implements PredictiveModelBuilder<RandomForest>
     }
 
     private void initExecutorService() {
-        if (executorService == null) {
-            executorService = Executors.newFixedThreadPool(executorThreadCount);
+        if (executorService == null || executorService.isShutdown()) {
+            // a fork/join pool, so that the HistogramTreeBuilder's split search tasks run in the same pool
+            executorService = new ForkJoinPool(executorThreadCount);
         }
     }
 
@@ -38,4 +38,17 @@ public final class Scorer1 implements Scorer {
         return score;
     }
 
+    @Override
+    public double scoreSplit(double[] a, double aTotal, double[] b, double bTotal) {
+        if (aTotal <= 0 || bTotal <= 0) {
+            return 0;
+        }
+        double score = 0;
+        double minTotal = Math.min(aTotal, bTotal);
+        for (int i = 0; i < a.length; i++) {
+            score += Math.abs(a[i] / aTotal - b[i] / bTotal) * minTotal;
+        }
+        return score;
+    }
+
 }
@@ -1,9 +1,11 @@
 package ws.palladian.classification.discretization;
 
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import ws.palladian.classification.text.CountingCategoryEntriesBuilder;
+import ws.palladian.classification.discretization.ValueCategorySample.DistinctValues;
 import ws.palladian.core.CategoryEntries;
 import ws.palladian.core.Instance;
 import ws.palladian.core.value.AbstractValue;
@@ -70,21 +72,6 @@ public final class Binner implements Iterable<Binner.Interval> {
 
     }
 
-    private static final class ValueCategory implements Comparable<ValueCategory> {
-        private final double value;
-        private final String category;
-
-        ValueCategory(double value, String category) {
-            this.value = value;
-            this.category = category;
-        }
-
-        @Override
-        public int compareTo(ValueCategory o) {
-            return Double.compare(value, o.value);
-        }
-    }
-
     private final List<Double> boundaries;
 
     private final String featureName;
@@ -98,88 +85,140 @@ public final class Binner implements Iterable<Binner.Interval> {
      *
      * @param dataset     The dataset, not <code>null</code>.
      * @param featureName The name of the numeric feature for which to calculate bins.
+     * @see ContingencyStatistics for creating binners for all numeric features in one pass over the dataset.
      */
     public Binner(Iterable<? extends Instance> dataset, String featureName) {
         Validate.notNull(dataset, "dataset must not be null");
         Validate.notEmpty(featureName, "featureName must not be empty");
-        List<ValueCategory> sortedData = new ArrayList<>();
+        ValueCategorySample sample = new ValueCategorySample();
+        Object2IntMap<String> categoryIndices = new Object2IntOpenHashMap<>();
 
         for (Instance instance : dataset) {
             Value value = instance.getVector().get(featureName);
             if (!value.isNull()) {
                 double doubleValue = ((NumericValue) value).getDouble();
-                sortedData.add(new ValueCategory(doubleValue, instance.getCategory()));
+                int categoryIndex = categoryIndices.computeIfAbsent(instance.getCategory(), k -> categoryIndices.size());
+                sample.add(doubleValue, categoryIndex);
             }
         }
 
-        Collections.sort(sortedData);
-        this.boundaries = findBoundaries(sortedData, featureName);
+        sample.sort();
+        this.boundaries = findBoundaries(sample.aggregate(categoryIndices.size()));
         this.featureName = featureName;
     }
 
     /**
-     * Find all the boundary points within the provided dataset.
+     * Create a new {@link Binner} from already collected data.
      *
-     * @param dataset The dataset, not <code>null</code>.
-     * @return The values of the boundary points, each value denotes the beginning of a new bin, empty list in case no
-     * boundary points were found.
+     * @param featureName The name of the feature.
+     * @param data        The distinct values of the feature with their category counts.
      */
-    private static List<Double> findBoundaries(List<ValueCategory> data, String featureName) {
+    Binner(String featureName, DistinctValues data) {
+        this.boundaries = findBoundaries(data);
+        this.featureName = featureName;
+    }
+
+    private static List<Double> findBoundaries(DistinctValues data) {
+        List<Double> boundaries = new ArrayList<>();
+        findBoundaries(data, 0, data.values.length, boundaries);
+        return boundaries;
+    }
 
-        CountingCategoryEntriesBuilder categoryEntriesBuilder = new CountingCategoryEntriesBuilder();
-        for (ValueCategory valueCategory : data) {
-            categoryEntriesBuilder.add(valueCategory.category, 1);
+    /**
+     * Find all the boundary points within the given range of distinct values. As boundaries can only lie between
+     * distinct values, this is equivalent to checking all positions between the sorted instances.
+     *
+     * @param data       The distinct values with their category counts.
+     * @param from       The first index of the range, inclusive.
+     * @param to         The last index of the range, exclusive.
+     * @param boundaries The list to which the values of the boundary points are added in ascending order; each value
+     *                   denotes the beginning of a new bin.
+     */
+    private static void findBoundaries(DistinctValues data, int from, int to, List<Double> boundaries) {
+        int numCategories = data.numCategories;
+        int[] priorCounts = new int[numCategories];
+        for (int i = from; i < to; i++) {
+            for (int c = 0; c < numCategories; c++) {
+                priorCounts[c] += data.count(i, c);
+            }
         }
-        CategoryEntries categoryPriors = categoryEntriesBuilder.create();
-        double entS = categoryPriors.getEntropy();
-        int k = categoryPriors.size();
-        int n = data.size();
+        int n = sum(priorCounts);
+        double entS = entropy(priorCounts, n);
+        int k = numNonZero(priorCounts);
 
         double maxGain = 0;
         double currentBoundary = 0;
         int boundaryIdx = -1;
 
         // the counts which are constantly updated during the split iterations
-        CountingCategoryEntriesBuilder b1 = new CountingCategoryEntriesBuilder();
-        CountingCategoryEntriesBuilder b2 = new CountingCategoryEntriesBuilder().add(categoryPriors);
-
-        for (int i = 1; i < n; i++) {
-            ValueCategory previousInstance = data.get(i - 1);
-            String previousCategory = previousInstance.category;
-            double previousValue = previousInstance.value;
-            double currentValue = data.get(i).value;
-
-            CategoryEntries c1 = b1.add(previousCategory, 1).create();
-            CategoryEntries c2 = b2.subtract(previousCategory, 1).create();
-
-            if (previousValue < currentValue) {
-                double entS1 = c1.getEntropy();
-                double entS2 = c2.getEntropy();
-                double ent = (double) i / n * entS1 + (double) (n - i) / n * entS2;
-                double gain = entS - ent;
-                double delta = log2(pow(3, k) - 2) - (k * entS - c1.size() * entS1 - c2.size() * entS2);
-                boolean mdlpcCriterion = gain > (log2(n - 1) + delta) / n;
-
-                if (mdlpcCriterion && gain > maxGain) {
-                    maxGain = gain;
-                    currentBoundary = (previousValue + currentValue) / 2;
-                    boundaryIdx = i;
-                }
+        int[] c1 = new int[numCategories];
+        int[] c2 = priorCounts.clone();
+        int n1 = 0;
+
+        for (int i = from + 1; i < to; i++) {
+            for (int c = 0; c < numCategories; c++) {
+                int count = data.count(i - 1, c);
+                c1[c] += count;
+                c2[c] -= count;
+                n1 += count;
+            }
+            double previousValue = data.values[i - 1];
+            double currentValue = data.values[i];
+
+            double entS1 = entropy(c1, n1);
+            double entS2 = entropy(c2, n - n1);
+            double ent = (double) n1 / n * entS1 + (double) (n - n1) / n * entS2;
+            double gain = entS - ent;
+            double delta = log2(pow(3, k) - 2) - (k * entS - numNonZero(c1) * entS1 - numNonZero(c2) * entS2);
+            boolean mdlpcCriterion = gain > (log2(n - 1) + delta) / n;
+
+            if (mdlpcCriterion && gain > maxGain) {
+                maxGain = gain;
+                currentBoundary = (previousValue + currentValue) / 2;
+                boundaryIdx = i;
             }
         }
 
         if (maxGain == 0) { // stop recursion
-            return Collections.emptyList();
+            return;
         }
 
         LOGGER.debug("cut point = {} @ {}, gain = {}", currentBoundary, boundaryIdx, maxGain);
 
         // search boundaries recursive; result: find[leftSplit], currentBoundary, find[rightSplit]
-        List<Double> boundaries = new ArrayList<>();
-        boundaries.addAll(findBoundaries(data.subList(0, boundaryIdx), featureName));
+        findBoundaries(data, from, boundaryIdx, boundaries);
         boundaries.add(currentBoundary);
-        boundaries.addAll(findBoundaries(data.subList(boundaryIdx, n), featureName));
-        return boundaries;
+        findBoundaries(data, boundaryIdx, to, boundaries);
+    }
+
+    private static int sum(int[] counts) {
+        int sum = 0;
+        for (int count : counts) {
+            sum += count;
+        }
+        return sum;
+    }
+
+    private static int numNonZero(int[] counts) {
+        int numNonZero = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                numNonZero++;
+            }
+        }
+        return numNonZero;
+    }
+
+    /** Same calculation as {@link CategoryEntries#getEntropy()}, but on primitive counts. */
+    private static double entropy(int[] counts, int total) {
+        double entropy = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                double probability = (double) count / total;
+                entropy -= probability * log2(probability);
+            }
+        }
+        return entropy;
     }
 
     /**
@@ -204,7 +243,7 @@ public final class Binner implements Iterable<Binner.Interval> {
         return getBinAtIdx(index);
     }
 
-    private Interval getBinAtIdx(int index) {
+    Interval getBinAtIdx(int index) {
         double lowererBound = index == 0 ? Double.NEGATIVE_INFINITY : boundaries.get(index - 1);
         double upperBound = index == boundaries.size() ? Double.POSITIVE_INFINITY : boundaries.get(index);
         return new Interval(lowererBound, upperBound);
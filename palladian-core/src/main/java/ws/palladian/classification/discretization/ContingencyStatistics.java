@@ -0,0 +1,443 @@
+package ws.palladian.classification.discretization;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ws.palladian.classification.discretization.ValueCategorySample.DistinctValues;
+import ws.palladian.core.FeatureVector;
+import ws.palladian.core.Instance;
+import ws.palladian.core.dataset.Dataset;
+import ws.palladian.core.value.NumericValue;
+import ws.palladian.core.value.Value;
+import ws.palladian.helper.ProgressReporter;
+import ws.palladian.helper.StopWatch;
+import ws.palladian.helper.collection.Vector.VectorEntry;
+import ws.palladian.helper.io.CloseableIterator;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * <p>
+ * Feature/category contingency statistics, collected in one pass over a {@link Dataset}. For every feature, the
+ * counts of each (value, category) combination are gathered; numeric features (as given by the dataset's
+ * {@link ws.palladian.core.dataset.FeatureInformation}) are discretized using a {@link Binner}, which is fit directly
+ * on the collected and sorted primitive values, so that no second pass over a transformed dataset is necessary.
+ *
+ * <p>
+ * Rankers which previously discretized the dataset and then iterated it once per feature (like information gain) or
+ * once overall with string-keyed counters (like chi²) can compute their scores from the tables. The pass can be run
+ * with several threads: one thread reads the dataset and hands batches of instances to the workers, each worker
+ * accumulates into private counters, which are merged at the end.
+ */
+public final class ContingencyStatistics {
+
+    /** The logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContingencyStatistics.class);
+
+    /** Number of instances handed to a worker at once. */
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * Counts of the values of one feature per category. Rows are the distinct values which were present in the
+     * dataset; instances without an entry for the feature are counted separately as absent.
+     */
+    public static final class ContingencyTable {
+
+        private final String featureName;
+        private final List<Value> values;
+        private final List<int[]> counts;
+        private final int[] absentCounts;
+
+        ContingencyTable(String featureName, List<Value> values, List<int[]> counts, int[] absentCounts) {
+            this.featureName = featureName;
+            this.values = values;
+            this.counts = counts;
+            this.absentCounts = absentCounts;
+        }
+
+        public String getFeatureName() {
+            return featureName;
+        }
+
+        /** @return The number of distinct values which were present. */
+        public int numRows() {
+            return values.size();
+        }
+
+        /**
+         * @param row The row index.
+         * @return The value of the row; an {@link Binner.Interval} for numeric features.
+         */
+        public Value getValue(int row) {
+            return values.get(row);
+        }
+
+        /**
+         * @param row      The row index.
+         * @param category The index of the category, as given by {@link ContingencyStatistics#getCategories()}.
+         * @return The number of instances with the given category and the value of the given row.
+         */
+        public int getCount(int row, int category) {
+            int[] rowCounts = counts.get(row);
+            return category < rowCounts.length ? rowCounts[category] : 0;
+        }
+
+        /**
+         * @param category The index of the category.
+         * @return The number of instances with the given category which do not have an entry for this feature.
+         */
+        public int getAbsentCount(int category) {
+            return absentCounts[category];
+        }
+
+    }
+
+    private final List<String> categories;
+
+    private final int[] categoryCounts;
+
+    private final int numInstances;
+
+    private final Map<String, Binner> binners;
+
+    /** <code>null</code>, in case only numeric features were collected. */
+    private final Map<String, ContingencyTable> tables;
+
+    private ContingencyStatistics(List<String> categories, int[] categoryCounts, Map<String, Binner> binners,
+                                  Map<String, ContingencyTable> tables) {
+        this.categories = categories;
+        this.categoryCounts = categoryCounts;
+        this.numInstances = Arrays.stream(categoryCounts).sum();
+        this.binners = binners;
+        this.tables = tables;
+    }
+
+    /**
+     * Collect the statistics for all features, using as many threads as processors are available.
+     *
+     * @param dataset  The dataset, not <code>null</code>.
+     * @param progress The progress reporter, not <code>null</code>.
+     * @return The statistics.
+     */
+    public static ContingencyStatistics collect(Dataset dataset, ProgressReporter progress) {
+        return collect(dataset, false, Runtime.getRuntime().availableProcessors(), progress);
+    }
+
+    /**
+     * Collect the statistics.
+     *
+     * @param dataset     The dataset, not <code>null</code>.
+     * @param numericOnly <code>true</code> to only collect the numeric features for creating the {@link Binner}s, no
+     *                    {@link ContingencyTable}s are available then.
+     * @param numThreads  The number of threads for accumulating, greater zero.
+     * @param progress    The progress reporter, not <code>null</code>.
+     * @return The statistics.
+     */
+    public static ContingencyStatistics collect(Dataset dataset, boolean numericOnly, int numThreads,
+                                                ProgressReporter progress) {
+        Validate.notNull(dataset, "dataset must not be null");
+        Validate.isTrue(numThreads > 0, "numThreads must be greater zero");
+        Validate.notNull(progress, "progress must not be null");
+        StopWatch stopWatch = new StopWatch();
+
+        Set<String> numericFeatures = dataset.getFeatureInformation().getFeatureNamesOfType(NumericValue.class);
+        Object2IntMap<String> categoryIndices = new Object2IntOpenHashMap<>();
+        List<String> categories = new ArrayList<>();
+        int[] categoryCounts = new int[8];
+
+        progress.startTask("Collecting contingency statistics", dataset.size());
+        ExecutorService executor = numThreads > 1 ? Executors.newFixedThreadPool(numThreads) : null;
+        Accumulator accumulator;
+        try (CloseableIterator<Instance> iterator = dataset.iterator()) {
+            Batch batch = new Batch();
+            BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(2 * numThreads);
+            List<Future<Accumulator>> futures = new ArrayList<>();
+            if (executor != null) {
+                for (int i = 0; i < numThreads; i++) {
+                    futures.add(executor.submit(new Worker(queue, numericFeatures, numericOnly)));
+                }
+                accumulator = null;
+            } else {
+                accumulator = new Accumulator(numericFeatures, numericOnly);
+            }
+            while (iterator.hasNext()) {
+                Instance instance = iterator.next();
+                String category = instance.getCategory();
+                int categoryIndex = categoryIndices.computeIfAbsent(category, k -> {
+                    categories.add(category);
+                    return categories.size() - 1;
+                });
+                if (categoryIndex == categoryCounts.length) {
+                    categoryCounts = Arrays.copyOf(categoryCounts, 2 * categoryCounts.length);
+                }
+                categoryCounts[categoryIndex]++;
+                if (accumulator != null) {
+                    accumulator.add(instance.getVector(), categoryIndex);
+                } else {
+                    batch.add(instance.getVector(), categoryIndex);
+                    if (batch.size == BATCH_SIZE) {
+                        put(queue, batch, futures);
+                        batch = new Batch();
+                    }
+                }
+                progress.increment();
+            }
+            if (accumulator == null) {
+                put(queue, batch, futures);
+                for (int i = 0; i < numThreads; i++) {
+                    put(queue, Batch.END, futures);
+                }
+                for (Future<Accumulator> future : futures) {
+                    Accumulator result = getResult(future);
+                    if (accumulator == null) {
+                        accumulator = result;
+                    } else {
+                        accumulator.merge(result);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+        progress.finishTask();
+        LOGGER.debug("Collected statistics in {}", stopWatch);
+
+        int numCategories = categories.size();
+        int[] counts = Arrays.copyOf(categoryCounts, numCategories);
+        Map<String, Binner> binners = new HashMap<>();
+        Map<String, DistinctValues> distinctValues = new HashMap<>();
+        for (String featureName : numericFeatures) {
+            ValueCategorySample sample = accumulator.numericSamples.get(featureName);
+            if (sample == null) {
+                sample = new ValueCategorySample();
+            }
+            sample.sort();
+            DistinctValues data = sample.aggregate(numCategories);
+            distinctValues.put(featureName, data);
+            binners.put(featureName, new Binner(featureName, data));
+        }
+        LOGGER.debug("Created {} binners in {}", binners.size(), stopWatch);
+        if (numericOnly) {
+            return new ContingencyStatistics(categories, counts, binners, null);
+        }
+
+        Set<String> featureNames = new HashSet<>(dataset.getFeatureInformation().getFeatureNames());
+        featureNames.addAll(accumulator.nominalCounts.keySet());
+        Map<String, ContingencyTable> tables = new HashMap<>();
+        for (String featureName : featureNames) {
+            List<Value> rowValues = new ArrayList<>();
+            List<int[]> rowCounts = new ArrayList<>();
+            DistinctValues data = distinctValues.get(featureName);
+            if (data != null) {
+                addBinRows(binners.get(featureName), data, rowValues, rowCounts);
+            }
+            Map<Value, int[]> nominalCounts = accumulator.nominalCounts.get(featureName);
+            if (nominalCounts != null) {
+                for (Map.Entry<Value, int[]> entry : nominalCounts.entrySet()) {
+                    rowValues.add(entry.getKey());
+                    rowCounts.add(entry.getValue());
+                }
+            }
+            int[] absentCounts = counts.clone();
+            for (int[] row : rowCounts) {
+                for (int c = 0; c < row.length; c++) {
+                    absentCounts[c] -= row[c];
+                }
+            }
+            tables.put(featureName, new ContingencyTable(featureName, rowValues, rowCounts, absentCounts));
+        }
+        LOGGER.debug("Created {} contingency tables in {}", tables.size(), stopWatch);
+        return new ContingencyStatistics(categories, counts, binners, tables);
+    }
+
+    /** Sum up the counts of the distinct values per bin; bins without any instances are omitted. */
+    private static void addBinRows(Binner binner, DistinctValues data, List<Value> rowValues, List<int[]> rowCounts) {
+        int numCategories = data.numCategories;
+        int[][] binCounts = new int[binner.getNumBoundaryPoints() + 1][];
+        for (int i = 0; i < data.values.length; i++) {
+            int bin = binner.bin(data.values[i]);
+            if (binCounts[bin] == null) {
+                binCounts[bin] = new int[numCategories];
+            }
+            for (int c = 0; c < numCategories; c++) {
+                binCounts[bin][c] += data.count(i, c);
+            }
+        }
+        for (int bin = 0; bin < binCounts.length; bin++) {
+            if (binCounts[bin] != null) {
+                rowValues.add(binner.getBinAtIdx(bin));
+                rowCounts.add(binCounts[bin]);
+            }
+        }
+    }
+
+    private static void put(BlockingQueue<Batch> queue, Batch batch, List<Future<Accumulator>> futures) {
+        try {
+            // do not block forever in case a worker died
+            while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                for (Future<Accumulator> future : futures) {
+                    if (future.isDone()) {
+                        getResult(future);
+                        throw new IllegalStateException("Worker terminated unexpectedly");
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Accumulator getResult(Future<Accumulator> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Exception while collecting statistics", e.getCause());
+        }
+    }
+
+    /** @return The names of the categories; the position in the list gives the category's index. */
+    public List<String> getCategories() {
+        return Collections.unmodifiableList(categories);
+    }
+
+    /**
+     * @param category The index of the category.
+     * @return The number of instances with the given category.
+     */
+    public int getCategoryCount(int category) {
+        return categoryCounts[category];
+    }
+
+    /** @return The number of instances in the dataset. */
+    public int getNumInstances() {
+        return numInstances;
+    }
+
+    /** @return The binners for all numeric features. */
+    public Map<String, Binner> getBinners() {
+        return Collections.unmodifiableMap(binners);
+    }
+
+    /** @return The names of the features for which contingency tables are available. */
+    public Set<String> getFeatureNames() {
+        Validate.validState(tables != null, "only numeric features were collected");
+        return Collections.unmodifiableSet(tables.keySet());
+    }
+
+    /**
+     * @param featureName The name of the feature.
+     * @return The contingency table for the feature, or <code>null</code> in case the feature does not exist.
+     */
+    public ContingencyTable getTable(String featureName) {
+        Validate.validState(tables != null, "only numeric features were collected");
+        return tables.get(featureName);
+    }
+
+    /** Instances for a worker; the vectors with their category indices. */
+    private static final class Batch {
+        static final Batch END = new Batch();
+        final FeatureVector[] vectors = new FeatureVector[BATCH_SIZE];
+        final int[] categories = new int[BATCH_SIZE];
+        int size;
+
+        void add(FeatureVector vector, int category) {
+            vectors[size] = vector;
+            categories[size] = category;
+            size++;
+        }
+    }
+
+    private static final class Worker implements Callable<Accumulator> {
+        private final BlockingQueue<Batch> queue;
+        private final Accumulator accumulator;
+
+        Worker(BlockingQueue<Batch> queue, Set<String> numericFeatures, boolean numericOnly) {
+            this.queue = queue;
+            this.accumulator = new Accumulator(numericFeatures, numericOnly);
+        }
+
+        @Override
+        public Accumulator call() throws InterruptedException {
+            for (; ; ) {
+                Batch batch = queue.take();
+                if (batch == Batch.END) {
+                    return accumulator;
+                }
+                for (int i = 0; i < batch.size; i++) {
+                    accumulator.add(batch.vectors[i], batch.categories[i]);
+                }
+            }
+        }
+    }
+
+    /** The counts of one worker. */
+    private static final class Accumulator {
+        final Set<String> numericFeatures;
+        final boolean numericOnly;
+        final Map<String, ValueCategorySample> numericSamples = new HashMap<>();
+        final Map<String, Map<Value, int[]>> nominalCounts = new HashMap<>();
+
+        Accumulator(Set<String> numericFeatures, boolean numericOnly) {
+            this.numericFeatures = numericFeatures;
+            this.numericOnly = numericOnly;
+        }
+
+        void add(FeatureVector vector, int category) {
+            for (VectorEntry<String, Value> entry : vector) {
+                String featureName = entry.key();
+                Value value = entry.value();
+                if (value instanceof NumericValue && numericFeatures.contains(featureName)) {
+                    numericSamples.computeIfAbsent(featureName, k -> new ValueCategorySample())
+                            .add(((NumericValue) value).getDouble(), category);
+                } else if (!numericOnly) {
+                    Map<Value, int[]> valueCounts = nominalCounts.computeIfAbsent(featureName, k -> new HashMap<>());
+                    int[] counts = valueCounts.get(value);
+                    if (counts == null) {
+                        counts = new int[category + 1];
+                        valueCounts.put(value, counts);
+                    } else if (counts.length <= category) {
+                        counts = Arrays.copyOf(counts, category + 1);
+                        valueCounts.put(value, counts);
+                    }
+                    counts[category]++;
+                }
+            }
+        }
+
+        void merge(Accumulator other) {
+            for (Map.Entry<String, ValueCategorySample> entry : other.numericSamples.entrySet()) {
+                ValueCategorySample sample = numericSamples.get(entry.getKey());
+                if (sample == null) {
+                    numericSamples.put(entry.getKey(), entry.getValue());
+                } else {
+                    sample.addAll(entry.getValue());
+                }
+            }
+            for (Map.Entry<String, Map<Value, int[]>> featureEntry : other.nominalCounts.entrySet()) {
+                Map<Value, int[]> valueCounts = nominalCounts.computeIfAbsent(featureEntry.getKey(), k -> new HashMap<>());
+                for (Map.Entry<Value, int[]> valueEntry : featureEntry.getValue().entrySet()) {
+                    valueCounts.merge(valueEntry.getKey(), valueEntry.getValue(), (a, b) -> {
+                        int[] merged = Arrays.copyOf(a, Math.max(a.length, b.length));
+                        for (int c = 0; c < b.length; c++) {
+                            merged[c] += b[c];
+                        }
+                        return merged;
+                    });
+                }
+            }
+        }
+    }
+
+}
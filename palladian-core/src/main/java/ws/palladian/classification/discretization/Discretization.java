@@ -19,7 +19,6 @@ import ws.palladian.helper.collection.Vector.VectorEntry;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Set;
 
 public final class Discretization extends AbstractDatasetFeatureVectorTransformer {
 
@@ -33,16 +32,18 @@ public final class Discretization extends AbstractDatasetFeatureVectorTransforme
     }
 
     public Discretization(Dataset dataset, ProgressReporter progress) {
-        Validate.notNull(dataset, "dataset must not be null");
-        Validate.notNull(progress, "progress must not be null");
-        Set<String> numericFeatureNames = dataset.getFeatureInformation().getFeatureNamesOfType(NumericValue.class);
-        progress.startTask("Discretizing", numericFeatureNames.size());
-        for (String featureName : numericFeatureNames) {
-            LOGGER.debug("Discretizing {}", featureName);
-            binners.put(featureName, new Binner(dataset, featureName));
-            progress.increment();
-        }
-        progress.finishTask();
+        this(ContingencyStatistics.collect(dataset, true, Runtime.getRuntime().availableProcessors(), progress));
+    }
+
+    /**
+     * Create a discretization from already collected statistics, which avoids another pass over the dataset.
+     *
+     * @param statistics The statistics, not <code>null</code>.
+     */
+    public Discretization(ContingencyStatistics statistics) {
+        Validate.notNull(statistics, "statistics must not be null");
+        binners.putAll(statistics.getBinners());
+        LOGGER.debug("Discretized {} features", binners.size());
     }
 
     @Override
@@ -0,0 +1,92 @@
+package ws.palladian.classification.discretization;
+
+import it.unimi.dsi.fastutil.Arrays;
+
+/**
+ * Growable list of numeric values together with the index of their category, kept in two primitive arrays. After
+ * {@link #sort()}, runs of equal values can be aggregated into distinct values with their category counts.
+ */
+final class ValueCategorySample {
+
+    private double[] values = new double[16];
+
+    private int[] categories = new int[16];
+
+    private int size;
+
+    void add(double value, int category) {
+        if (size == values.length) {
+            int newLength = values.length * 2;
+            values = java.util.Arrays.copyOf(values, newLength);
+            categories = java.util.Arrays.copyOf(categories, newLength);
+        }
+        values[size] = value;
+        categories[size] = category;
+        size++;
+    }
+
+    void addAll(ValueCategorySample other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.values[i], other.categories[i]);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Sort by value; the categories are swapped along. */
+    void sort() {
+        Arrays.quickSort(0, size, (a, b) -> Double.compare(values[a], values[b]), (a, b) -> {
+            double tempValue = values[a];
+            values[a] = values[b];
+            values[b] = tempValue;
+            int tempCategory = categories[a];
+            categories[a] = categories[b];
+            categories[b] = tempCategory;
+        });
+    }
+
+    /**
+     * Aggregate the sorted values into distinct values and their counts per category.
+     *
+     * @param numCategories The number of categories.
+     * @return The distinct values.
+     */
+    DistinctValues aggregate(int numCategories) {
+        int numDistinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || values[i] != values[i - 1]) {
+                numDistinct++;
+            }
+        }
+        double[] distinctValues = new double[numDistinct];
+        int[] counts = new int[numDistinct * numCategories];
+        int index = -1;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || values[i] != values[i - 1]) {
+                distinctValues[++index] = values[i];
+            }
+            counts[index * numCategories + categories[i]]++;
+        }
+        return new DistinctValues(distinctValues, counts, numCategories);
+    }
+
+    /** Sorted distinct values, with the counts per category, row-major. */
+    static final class DistinctValues {
+        final double[] values;
+        final int[] counts;
+        final int numCategories;
+
+        DistinctValues(double[] values, int[] counts, int numCategories) {
+            this.values = values;
+            this.counts = counts;
+            this.numCategories = numCategories;
+        }
+
+        int count(int valueIndex, int category) {
+            return counts[valueIndex * numCategories + category];
+        }
+    }
+
+}
@@ -1,16 +1,22 @@
 package ws.palladian.classification.dt;
 
-import quickdt.Attributes;
-import quickdt.HashMapAttributes;
-import quickdt.PredictiveModel;
+import quickdt.CompiledForest;
 import ws.palladian.core.CategoryEntries;
 import ws.palladian.core.CategoryEntriesBuilder;
 import ws.palladian.core.Classifier;
 import ws.palladian.core.FeatureVector;
+import ws.palladian.core.value.NominalValue;
+import ws.palladian.core.value.NumericValue;
+import ws.palladian.core.value.Value;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * <p>
- * Classifier for models built with {@link QuickDtLearner}.
+ * Classifier for models built with {@link QuickDtLearner}. Classification is performed using the model's
+ * {@link CompiledForest} representation; the feature vectors' values are resolved once per vector.
  * </p>
  *
  * @author Philipp Katz
@@ -19,11 +25,55 @@ public class QuickDtClassifier implements Classifier<QuickDtModel> {
 
     @Override
     public CategoryEntries classify(FeatureVector featureVector, QuickDtModel model) {
-        PredictiveModel pm = model.getModel();
-        Attributes attributes = HashMapAttributes.create(QuickDtLearner.getInput(featureVector));
+        CompiledForest compiledModel = model.getCompiledModel();
+        return createCategoryEntries(compiledModel.getProbabilities(createInput(featureVector, compiledModel)), compiledModel, model);
+    }
+
+    /**
+     * Classify a batch of feature vectors.
+     *
+     * @param featureVectors The feature vectors to classify.
+     * @param model          The model.
+     * @param parallel       <code>true</code> to classify using multiple threads.
+     * @return The classification results, in the same order as the given feature vectors.
+     */
+    public List<CategoryEntries> classify(List<? extends FeatureVector> featureVectors, QuickDtModel model, boolean parallel) {
+        CompiledForest compiledModel = model.getCompiledModel();
+        List<CompiledForest.Input> inputs = new ArrayList<>(featureVectors.size());
+        for (FeatureVector featureVector : featureVectors) {
+            inputs.add(createInput(featureVector, compiledModel));
+        }
+        double[][] probabilities = compiledModel.getProbabilities(inputs, parallel);
+        List<CategoryEntries> result = new ArrayList<>(featureVectors.size());
+        for (double[] current : probabilities) {
+            result.add(createCategoryEntries(current, compiledModel, model));
+        }
+        return result;
+    }
+
+    /** Same value conversion as {@link QuickDtLearner#getInput(FeatureVector)}, but only for the model's features. */
+    private static CompiledForest.Input createInput(FeatureVector featureVector, CompiledForest compiledModel) {
+        CompiledForest.Input input = compiledModel.createInput();
+        List<String> features = compiledModel.getFeatures();
+        for (int i = 0; i < features.size(); i++) {
+            Value value = featureVector.get(features.get(i));
+            if (value instanceof NominalValue) {
+                input.set(i, ((NominalValue) value).getString());
+            } else if (value instanceof NumericValue) {
+                input.set(i, ((NumericValue) value).getDouble());
+            }
+        }
+        return input;
+    }
+
+    private static CategoryEntries createCategoryEntries(double[] probabilities, CompiledForest compiledModel, QuickDtModel model) {
         CategoryEntriesBuilder builder = new CategoryEntriesBuilder();
         for (String targetClass : model.getCategories()) {
-            builder.set(targetClass, pm.getProbability(attributes, targetClass));
+            builder.set(targetClass, 0);
+        }
+        List<Serializable> classifications = compiledModel.getClassifications();
+        for (int c = 0; c < probabilities.length; c++) {
+            builder.set((String) classifications.get(c), probabilities[c]);
         }
         return builder.create();
     }
@@ -11,6 +11,7 @@ import ws.palladian.core.dataset.Dataset;
 import ws.palladian.core.value.NominalValue;
 import ws.palladian.core.value.NumericValue;
 import ws.palladian.core.value.Value;
+import ws.palladian.helper.collection.CollectionHelper;
 import ws.palladian.helper.collection.Vector.VectorEntry;
 
 import java.io.Serializable;
@@ -63,6 +64,26 @@ public final class QuickDtLearner extends AbstractLearner<QuickDtModel> {
         return new QuickDtLearner(new TreeBuilder());
     }
 
+    /**
+     * @param numTrees The number of trees to grow, greater zero.
+     * @return A new QuickDtLearner creating a random forest with the specified number of trees, using the
+     * {@link HistogramTreeBuilder}, which is considerably faster on large datasets. Numeric features are binned into
+     * {@value HistogramTreeBuilder#DEFAULT_MAX_BINS} bins, trees and splits are built using all available cores.
+     */
+    public static QuickDtLearner histogramRandomForest(int numTrees) {
+        Validate.isTrue(numTrees > 0, "numTrees must be greater zero");
+        HistogramTreeBuilder treeBuilder = new HistogramTreeBuilder().ignoreAttributeAtNodeProbability(0.7);
+        int numThreads = Runtime.getRuntime().availableProcessors();
+        return new QuickDtLearner(new RandomForestBuilder(treeBuilder).numTrees(numTrees).executorThreadCount(numThreads));
+    }
+
+    /**
+     * @return A new QuickDtLearner creating a single tree using the {@link HistogramTreeBuilder}.
+     */
+    public static QuickDtLearner histogramTree() {
+        return new QuickDtLearner(new HistogramTreeBuilder());
+    }
+
     /**
      * <p>
      * Create a new QuickDtLearner with the specified {@link PredictiveModelBuilder}. (currently, quickdt offers a
@@ -81,6 +102,10 @@ public final class QuickDtLearner extends AbstractLearner<QuickDtModel> {
 
     @Override
     public QuickDtModel train(Dataset dataset) {
+        HistogramTreeBuilder histogramTreeBuilder = getHistogramTreeBuilder();
+        if (histogramTreeBuilder != null) {
+            return trainColumnar(dataset, histogramTreeBuilder);
+        }
         Set<Instance> trainingInstances = new HashSet<>();
         Set<String> classes = new HashSet<>();
         for (ws.palladian.core.Instance instance : dataset) {
@@ -92,6 +117,41 @@ public final class QuickDtLearner extends AbstractLearner<QuickDtModel> {
         return new QuickDtModel(tree, classes);
     }
 
+    /**
+     * Train via {@link ColumnarData}; the instances are converted on the fly, so that no quickdt instances need to be
+     * kept in memory.
+     */
+    private QuickDtModel trainColumnar(Dataset dataset, HistogramTreeBuilder histogramTreeBuilder) {
+        Iterable<AbstractInstance> trainingInstances = CollectionHelper.convert(dataset,
+                instance -> HashMapAttributes.create(getInput(instance.getVector())).classification(instance.getCategory()));
+        ColumnarData data = ColumnarData.create(trainingInstances, histogramTreeBuilder.getMaxBins());
+        PredictiveModel model;
+        if (builder instanceof RandomForestBuilder) {
+            model = ((RandomForestBuilder) builder).buildPredictiveModel(data);
+        } else {
+            model = histogramTreeBuilder.buildPredictiveModel(data);
+        }
+        Set<String> classes = new HashSet<>();
+        for (Serializable classification : data.getClassifications()) {
+            classes.add((String) classification);
+        }
+        return new QuickDtModel(model, classes);
+    }
+
+    /** @return The histogram tree builder, in case one is used directly or by a random forest, else <code>null</code>. */
+    private HistogramTreeBuilder getHistogramTreeBuilder() {
+        if (builder instanceof HistogramTreeBuilder) {
+            return (HistogramTreeBuilder) builder;
+        }
+        if (builder instanceof RandomForestBuilder) {
+            PredictiveModelBuilder<Tree> treeBuilder = ((RandomForestBuilder) builder).getTreeBuilder();
+            if (treeBuilder instanceof HistogramTreeBuilder) {
+                return (HistogramTreeBuilder) treeBuilder;
+            }
+        }
+        return null;
+    }
+
     static Serializable[] getInput(FeatureVector featureVector) {
         List<Serializable> inputs = new ArrayList<>();
         for (VectorEntry<String, Value> feature : featureVector) {
@@ -1,6 +1,7 @@
 package ws.palladian.classification.dt;
 
 import org.apache.commons.lang3.StringUtils;
+import quickdt.CompiledForest;
 import quickdt.PredictiveModel;
 import quickdt.Tree;
 import quickdt.randomForest.RandomForest;
@@ -25,6 +26,9 @@ public class QuickDtModel implements Model {
 
     private final Set<String> classes;
 
+    /** Lazily created inference form of the model, see {@link #getCompiledModel()}. */
+    private transient volatile CompiledForest compiledModel;
+
     /** Package visibility, as it is to be instantiated by the QuickDtClassifier only. */
     QuickDtModel(PredictiveModel tree, Set<String> classes) {
         this.model = tree;
@@ -35,6 +39,18 @@ public class QuickDtModel implements Model {
         return model;
     }
 
+    /**
+     * @return The model compiled into a flat array representation for fast classification; created on first access.
+     */
+    public CompiledForest getCompiledModel() {
+        CompiledForest result = compiledModel;
+        if (result == null) {
+            result = CompiledForest.compile(model);
+            compiledModel = result;
+        }
+        return result;
+    }
+
     @Override
     public Set<String> getCategories() {
         return classes;
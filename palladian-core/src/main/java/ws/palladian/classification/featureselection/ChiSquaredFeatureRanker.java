@@ -4,20 +4,17 @@ import org.apache.commons.lang3.Validate;
 import org.apache.commons.math3.util.FastMath;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import ws.palladian.classification.discretization.Discretization;
-import ws.palladian.core.FeatureVector;
-import ws.palladian.core.Instance;
+import ws.palladian.classification.discretization.ContingencyStatistics;
+import ws.palladian.classification.discretization.ContingencyStatistics.ContingencyTable;
 import ws.palladian.core.dataset.Dataset;
-import ws.palladian.core.value.Value;
 import ws.palladian.helper.NoProgress;
 import ws.palladian.helper.ProgressReporter;
-import ws.palladian.helper.collection.Bag;
-import ws.palladian.helper.collection.CollectionHelper;
-import ws.palladian.helper.collection.CountMatrix;
-import ws.palladian.helper.collection.CountMatrix.IntegerMatrixVector;
-import ws.palladian.helper.collection.Vector.VectorEntry;
 import ws.palladian.helper.math.NumericMatrix;
 
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 
 /**
@@ -69,38 +66,37 @@ public final class ChiSquaredFeatureRanker extends AbstractFeatureRanker {
 
         progress.startTask("Calculating chi² ranking", -1);
 
-        int N = CollectionHelper.count(dataset.iterator());
-        ProgressReporter cooccurrenceProgress = progress.createSubProgress(0.5);
-        cooccurrenceProgress.startTask("Counting cooccurrences.", N);
-        CountMatrix<String> termCategoryCorrelations = CountMatrix.create();
-        Bag<String> categoryCounts = new Bag<>();
+        ContingencyStatistics statistics = ContingencyStatistics.collect(dataset, progress.createSubProgress(0.5));
+        int N = statistics.getNumInstances();
+        List<String> categories = statistics.getCategories();
 
-        Discretization discretization = new Discretization(dataset, NoProgress.INSTANCE);
-        Dataset discretizedDataset = dataset.transform(discretization);
-
-        for (Instance instance : discretizedDataset) {
-            FeatureVector featureVector = instance.getVector();
-            String category = instance.getCategory();
-            for (VectorEntry<String, Value> feature : featureVector) {
-                String featureValueIdentifier = feature.key() + "###" + feature.value().toString();
-                termCategoryCorrelations.add(category, featureValueIdentifier);
+        // rows are identified by feature name and the value's string representation, as before
+        Map<String, int[]> termCategoryCorrelations = new LinkedHashMap<>();
+        for (String featureName : statistics.getFeatureNames()) {
+            ContingencyTable table = statistics.getTable(featureName);
+            for (int row = 0; row < table.numRows(); row++) {
+                String featureValueIdentifier = featureName + "###" + table.getValue(row).toString();
+                int[] counts = termCategoryCorrelations.computeIfAbsent(featureValueIdentifier,
+                        k -> new int[categories.size()]);
+                for (int c = 0; c < categories.size(); c++) {
+                    counts[c] += table.getCount(row, c);
+                }
             }
-            categoryCounts.add(category);
-            cooccurrenceProgress.increment();
         }
 
         ProgressReporter chiSquareProgress = progress.createSubProgress(0.5);
-        chiSquareProgress.startTask("Calculating chi² values.", termCategoryCorrelations.rowCount());
+        chiSquareProgress.startTask("Calculating chi² values.", termCategoryCorrelations.size());
         NumericMatrix<String> result = new NumericMatrix<String>();
-        for (IntegerMatrixVector<String> termOccurence : termCategoryCorrelations.rows()) {
-            String featureName = termOccurence.key();
-            IntegerMatrixVector<String> categoryCorrelations = termCategoryCorrelations.getRow(featureName);
-            for (Entry<String, Integer> categoryCountEntry : categoryCounts.unique()) {
-                String categoryName = categoryCountEntry.getKey();
-                Integer categoryCount = categoryCountEntry.getValue();
+        for (Entry<String, int[]> termOccurence : termCategoryCorrelations.entrySet()) {
+            String featureName = termOccurence.getKey();
+            int[] categoryCorrelations = termOccurence.getValue();
+            int sum = Arrays.stream(categoryCorrelations).sum();
+            for (int c = 0; c < categories.size(); c++) {
+                String categoryName = categories.get(c);
+                int categoryCount = statistics.getCategoryCount(c);
                 LOGGER.trace("Calculating Chi² for feature {} in class {}.", featureName, categoryName);
-                int N_10 = categoryCorrelations.getSum() - categoryCorrelations.get(categoryName);
-                int N_11 = termOccurence.get(categoryName);
+                int N_10 = sum - categoryCorrelations[c];
+                int N_11 = categoryCorrelations[c];
                 int N_01 = categoryCount - N_11;
                 int N_00 = N - (N_10 + N_01 + N_11);
                 LOGGER.trace("Using N_11 {}, N_10 {}, N_01 {}, N_00 {}", N_11, N_10, N_01, N_00);
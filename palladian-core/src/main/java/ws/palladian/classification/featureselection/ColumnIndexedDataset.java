@@ -0,0 +1,223 @@
+package ws.palladian.classification.featureselection;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import ws.palladian.core.AbstractFeatureVector;
+import ws.palladian.core.ImmutableFeatureVectorEntry;
+import ws.palladian.core.ImmutableInstance;
+import ws.palladian.core.Instance;
+import ws.palladian.core.dataset.AbstractDataset;
+import ws.palladian.core.dataset.Dataset;
+import ws.palladian.core.dataset.FeatureInformation;
+import ws.palladian.core.dataset.FeatureInformationBuilder;
+import ws.palladian.core.value.NullValue;
+import ws.palladian.core.value.Value;
+import ws.palladian.helper.collection.AbstractIterator2;
+import ws.palladian.helper.collection.Vector.VectorEntry;
+import ws.palladian.helper.io.CloseableIterator;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * An in-memory copy of a dataset, where the values are stored in arrays indexed by column. Filtering features or
+ * sampling rows creates a lightweight view on the same arrays: the name filter is evaluated once per column instead of
+ * once per feature and instance, and the underlying dataset is not read again. This is used by the
+ * {@link FeatureSelector}, which evaluates many different feature subsets on the same data.
+ */
+final class ColumnIndexedDataset extends AbstractDataset {
+
+    /** The columns, shared between the training and the validation data. */
+    static final class Columns {
+        private final String[] names;
+        private final Object2IntMap<String> indices = new Object2IntOpenHashMap<>();
+        private final FeatureInformation featureInformation;
+
+        Columns(Dataset... datasets) {
+            FeatureInformationBuilder builder = new FeatureInformationBuilder();
+            for (Dataset dataset : datasets) {
+                builder.add(dataset.getFeatureInformation());
+            }
+            featureInformation = builder.create();
+            names = featureInformation.getFeatureNames().toArray(new String[0]);
+            indices.defaultReturnValue(-1);
+            for (int i = 0; i < names.length; i++) {
+                indices.put(names[i], i);
+            }
+        }
+    }
+
+    private final Columns columns;
+    private final Value[][] rows;
+    private final String[] categories;
+    private final int[] selectedColumns;
+    private final Set<String> selectedNames;
+    private final FeatureInformation featureInformation;
+
+    ColumnIndexedDataset(Dataset dataset, Columns columns) {
+        this.columns = columns;
+        List<Value[]> rows = new ArrayList<>();
+        List<String> categories = new ArrayList<>();
+        for (Instance instance : dataset) {
+            Value[] row = new Value[columns.names.length];
+            for (VectorEntry<String, Value> entry : instance.getVector()) {
+                int index = columns.indices.getInt(entry.key());
+                if (index >= 0) {
+                    row[index] = entry.value();
+                }
+            }
+            rows.add(row);
+            categories.add(instance.getCategory());
+        }
+        this.rows = rows.toArray(new Value[0][]);
+        this.categories = categories.toArray(new String[0]);
+        int[] allColumns = new int[columns.names.length];
+        for (int i = 0; i < allColumns.length; i++) {
+            allColumns[i] = i;
+        }
+        this.selectedColumns = allColumns;
+        this.selectedNames = columns.featureInformation.getFeatureNames();
+        this.featureInformation = columns.featureInformation;
+    }
+
+    private ColumnIndexedDataset(ColumnIndexedDataset original, Value[][] rows, String[] categories,
+                                 Predicate<? super String> nameFilter) {
+        this.columns = original.columns;
+        this.rows = rows;
+        this.categories = categories;
+        List<Integer> selectedColumns = new ArrayList<>();
+        Set<String> selectedNames = new LinkedHashSet<>();
+        for (int index : original.selectedColumns) {
+            String name = columns.names[index];
+            if (nameFilter.test(name)) {
+                selectedColumns.add(index);
+                selectedNames.add(name);
+            }
+        }
+        this.selectedColumns = selectedColumns.stream().mapToInt(Integer::intValue).toArray();
+        this.selectedNames = Collections.unmodifiableSet(selectedNames);
+        this.featureInformation = new FeatureInformationBuilder().add(original.featureInformation).filter(nameFilter)
+                .create();
+    }
+
+    @Override
+    public Dataset filterFeatures(Predicate<? super String> nameFilter) {
+        Objects.requireNonNull(nameFilter, "nameFilter must not be null");
+        return new ColumnIndexedDataset(this, rows, categories, nameFilter);
+    }
+
+    @Override
+    public Dataset buffer() {
+        return this; // already buffered
+    }
+
+    /**
+     * Create a view on a random subset of the rows.
+     *
+     * @param rate   The fraction of rows to keep, between zero and one.
+     * @param random The random generator for drawing the rows.
+     * @return The sampled dataset.
+     */
+    ColumnIndexedDataset sample(double rate, Random random) {
+        int sampleSize = (int) Math.ceil(rate * rows.length);
+        int[] indices = new int[rows.length];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = i;
+        }
+        // partial Fisher-Yates shuffle; keep the original order within the sample
+        for (int i = 0; i < sampleSize; i++) {
+            int j = i + random.nextInt(indices.length - i);
+            int temp = indices[i];
+            indices[i] = indices[j];
+            indices[j] = temp;
+        }
+        int[] sample = Arrays.copyOf(indices, sampleSize);
+        Arrays.sort(sample);
+        Value[][] sampledRows = new Value[sampleSize][];
+        String[] sampledCategories = new String[sampleSize];
+        for (int i = 0; i < sampleSize; i++) {
+            sampledRows[i] = rows[sample[i]];
+            sampledCategories[i] = categories[sample[i]];
+        }
+        return new ColumnIndexedDataset(this, sampledRows, sampledCategories, name -> true);
+    }
+
+    @Override
+    public CloseableIterator<Instance> iterator() {
+        class ColumnIndexedIterator extends AbstractIterator2<Instance> implements CloseableIterator<Instance> {
+            int index = 0;
+
+            @Override
+            protected Instance getNext() {
+                if (index < rows.length) {
+                    Instance instance = new ImmutableInstance(new ColumnVector(rows[index]), categories[index]);
+                    index++;
+                    return instance;
+                }
+                return finished();
+            }
+
+            @Override
+            public void close() {
+                // nothing to close
+            }
+        }
+        return new ColumnIndexedIterator();
+    }
+
+    @Override
+    public FeatureInformation getFeatureInformation() {
+        return featureInformation;
+    }
+
+    @Override
+    public long size() {
+        return rows.length;
+    }
+
+    /** A row, exposing only the selected columns of the view. */
+    private final class ColumnVector extends AbstractFeatureVector {
+        private final Value[] values;
+
+        ColumnVector(Value[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Value get(String k) {
+            int index = columns.indices.getInt(k);
+            if (index < 0 || values[index] == null || !selectedNames.contains(k)) {
+                return NullValue.NULL;
+            }
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return selectedColumns.length;
+        }
+
+        @Override
+        public Set<String> keys() {
+            return selectedNames;
+        }
+
+        @Override
+        public Iterator<VectorEntry<String, Value>> iterator() {
+            return new AbstractIterator2<VectorEntry<String, Value>>() {
+                int position = 0;
+
+                @Override
+                protected VectorEntry<String, Value> getNext() {
+                    if (position < selectedColumns.length) {
+                        int index = selectedColumns[position++];
+                        Value value = values[index];
+                        return new ImmutableFeatureVectorEntry(columns.names[index], value != null ? value : NullValue.NULL);
+                    }
+                    return finished();
+                }
+            };
+        }
+    }
+
+}
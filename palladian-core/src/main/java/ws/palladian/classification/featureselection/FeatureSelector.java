@@ -5,6 +5,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ws.palladian.classification.dt.QuickDtClassifier;
 import ws.palladian.classification.dt.QuickDtLearner;
+import ws.palladian.classification.featureselection.ColumnIndexedDataset.Columns;
+import ws.palladian.classification.featureselection.FeatureSelectorConfig.EvaluationConfig;
 import ws.palladian.classification.utils.CsvDatasetReaderConfig;
 import ws.palladian.core.Classifier;
 import ws.palladian.core.Instance;
@@ -12,8 +14,10 @@ import ws.palladian.core.Learner;
 import ws.palladian.core.Model;
 import ws.palladian.core.dataset.Dataset;
 import ws.palladian.core.dataset.DefaultDataset;
+import ws.palladian.helper.NoProgress;
 import ws.palladian.helper.ProgressMonitor;
 import ws.palladian.helper.ProgressReporter;
+import ws.palladian.helper.StopWatch;
 import ws.palladian.helper.collection.CollectionHelper;
 import ws.palladian.helper.functional.Factories;
 import ws.palladian.helper.functional.Factory;
@@ -22,6 +26,7 @@ import ws.palladian.helper.math.ConfusionMatrix;
 
 import java.io.File;
 import java.util.*;
+import java.util.Map.Entry;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -38,6 +43,14 @@ import static ws.palladian.helper.functional.Predicates.*;
  * scores, but simple ranking values. This is because the features depend on each other.
  * </p>
  *
+ * <p>
+ * As every round trains one model per remaining candidate, the number of trainings is quadratic in the number of
+ * features. To reduce the cost, the data can be buffered in a column-indexed form (see
+ * {@link FeatureSelectorConfig.Builder#bufferData(boolean)}), and candidates can be screened with a cheaper surrogate
+ * model or on a sample of the training data, so that only the most promising candidates are evaluated with the actual
+ * model (see {@link FeatureSelectorConfig.Builder#surrogate(Factory, Factory)}).
+ * </p>
+ *
  * @param <M> Type of the model.
  * @author Philipp Katz
  */
@@ -46,6 +59,9 @@ public final class FeatureSelector extends AbstractFeatureRanker {
     /** The logger for this class. */
     private static final Logger LOGGER = LoggerFactory.getLogger(FeatureSelector.class);
 
+    /** Seed for sampling the screening data, so that results are reproducible. */
+    private static final long SCREENING_SEED = 0;
+
     private final FeatureSelectorConfig config;
 
     /** Use {@link FeatureSelectorConfig.Builder#scoreAccuracy()} instead. */
@@ -91,15 +107,18 @@ public final class FeatureSelector extends AbstractFeatureRanker {
 
     }
 
-    private final class TestRun implements Callable<TestRunResult> {
+    private static final class TestRun implements Callable<TestRunResult> {
 
+        private final EvaluationConfig<?, ?> evaluator;
         private final Dataset trainData;
         private final Dataset testData;
         private final Predicate<? super String> features;
         private final Predicate<? super String> evaluatedFeature;
         private final ProgressReporter progress;
 
-        public TestRun(Dataset trainData, Dataset testData, Predicate<? super String> features, Predicate<? super String> evaluatedFeature, ProgressReporter progress) {
+        public TestRun(EvaluationConfig<?, ?> evaluator, Dataset trainData, Dataset testData, Predicate<? super String> features,
+                Predicate<? super String> evaluatedFeature, ProgressReporter progress) {
+            this.evaluator = evaluator;
             this.trainData = trainData;
             this.testData = testData;
             this.features = features;
@@ -114,7 +133,7 @@ public final class FeatureSelector extends AbstractFeatureRanker {
             Dataset eliminatedTrainData = trainData.filterFeatures(features);
             Dataset eliminatedTestData = testData.filterFeatures(features);
 
-            Double score = config.evaluator().score(eliminatedTrainData, eliminatedTestData);
+            Double score = evaluator.score(eliminatedTrainData, eliminatedTestData);
 
             LOGGER.debug("Finished evaluation for {}, score {}", features, score);
             progress.increment();
@@ -221,16 +240,39 @@ public final class FeatureSelector extends AbstractFeatureRanker {
         LOGGER.info("# of features or feature sets: {}", allFeatureFilters.size());
         LOGGER.info("# of iterations: {}", iterations);
 
+        if (config.isBufferData()) {
+            StopWatch stopWatch = new StopWatch();
+            Columns columns = new Columns(trainSet, validationSet);
+            trainSet = new ColumnIndexedDataset(trainSet, columns);
+            validationSet = new ColumnIndexedDataset(validationSet, columns);
+            LOGGER.info("Buffered data in {}", stopWatch);
+        }
+        Dataset screeningTrainSet = trainSet;
+        if (config.screeningSampleRate() < 1) {
+            ColumnIndexedDataset bufferedTrainSet = trainSet instanceof ColumnIndexedDataset ? (ColumnIndexedDataset) trainSet
+                    : new ColumnIndexedDataset(trainSet, new Columns(trainSet));
+            screeningTrainSet = bufferedTrainSet.sample(config.screeningSampleRate(), new Random(SCREENING_SEED));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(config.numThreads());
         try {
+            // screening score of the currently selected feature set, which is the baseline for the next round; this
+            // is the score of the previous round's winner, so it need not be evaluated again
+            Double baselineScreeningScore = null;
+
             if (config.isBackward()) {
                 // run with all features
-                TestRun initialRun = new TestRun(trainSet, validationSet, Predicates.ALL, Predicates.NONE, progress);
+                TestRun initialRun = new TestRun(config.evaluator(), trainSet, validationSet, Predicates.ALL, Predicates.NONE, progress);
                 TestRunResult startScore = initialRun.call();
                 LOGGER.info("Score with all features {}", startScore.score);
+                if (config.isScreening()) {
+                    TestRun initialScreeningRun = new TestRun(config.screeningEvaluator(), screeningTrainSet, validationSet, Predicates.ALL,
+                            Predicates.NONE, NoProgress.INSTANCE);
+                    baselineScreeningScore = initialScreeningRun.call().score;
+                    LOGGER.info("Screening score with all features {}", baselineScreeningScore);
+                }
             }
 
-            ExecutorService executor = Executors.newFixedThreadPool(config.numThreads());
-
             // stepwise elimination
             for (; ; ) {
                 Set<Predicate<? super String>> featuresToCheck = new HashSet<>(allFeatureFilters);
@@ -238,18 +280,22 @@ public final class FeatureSelector extends AbstractFeatureRanker {
                 if (featuresToCheck.isEmpty()) {
                     break;
                 }
-                List<TestRun> runs = new ArrayList<>();
-
-                for (Predicate<? super String> currentFeature : featuresToCheck) {
-                    List<Predicate<? super String>> currentRunFeatures = new ArrayList<>(selectedFeatures);
-                    currentRunFeatures.add(currentFeature);
-                    Predicate<String> featureFilter = or(currentRunFeatures);
-                    if (config.isBackward()) {
-                        featureFilter = not(featureFilter);
+
+                Collection<Predicate<? super String>> candidates = featuresToCheck;
+                Map<Predicate<? super String>, Double> screeningScores = new HashMap<>();
+                if (config.isScreening() && featuresToCheck.size() > 1) {
+                    List<TestRun> screeningRuns = createRuns(config.screeningEvaluator(), screeningTrainSet, validationSet, selectedFeatures,
+                            featuresToCheck, NoProgress.INSTANCE);
+                    for (Future<TestRunResult> future : executor.invokeAll(screeningRuns)) {
+                        TestRunResult result = future.get();
+                        screeningScores.put(result.evaluatedFeature, result.score);
                     }
-                    runs.add(new TestRun(trainSet, validationSet, featureFilter, currentFeature, progress));
+                    candidates = screen(screeningScores, baselineScreeningScore);
+                    LOGGER.debug("Screened {} candidates, {} remaining", featuresToCheck.size(), candidates.size());
+                    progress.increment(featuresToCheck.size() - candidates.size());
                 }
 
+                List<TestRun> runs = createRuns(config.evaluator(), trainSet, validationSet, selectedFeatures, candidates, progress);
                 List<Future<TestRunResult>> runFutures = executor.invokeAll(runs);
                 Predicate<? super String> selectedFeature = null;
                 double highestScore = 0;
@@ -264,16 +310,59 @@ public final class FeatureSelector extends AbstractFeatureRanker {
                 LOGGER.info("Selected {}, score {}", selectedFeature, highestScore);
                 selectedFeatures.add(selectedFeature);
                 ranks.put(selectedFeature.toString(), featureIndex += config.isBackward() ? 1 : -1);
+                baselineScreeningScore = screeningScores.get(selectedFeature);
             }
 
-            executor.shutdown();
-
         } catch (Exception e) {
             throw new IllegalStateException(e);
+        } finally {
+            executor.shutdown();
         }
         return new FeatureRanking(ranks);
     }
 
+    private List<TestRun> createRuns(EvaluationConfig<?, ?> evaluator, Dataset trainSet, Dataset validationSet,
+            List<Predicate<? super String>> selectedFeatures, Collection<Predicate<? super String>> candidates, ProgressReporter progress) {
+        List<TestRun> runs = new ArrayList<>();
+        for (Predicate<? super String> currentFeature : candidates) {
+            List<Predicate<? super String>> currentRunFeatures = new ArrayList<>(selectedFeatures);
+            currentRunFeatures.add(currentFeature);
+            Predicate<String> featureFilter = or(currentRunFeatures);
+            if (config.isBackward()) {
+                featureFilter = not(featureFilter);
+            }
+            runs.add(new TestRun(evaluator, trainSet, validationSet, featureFilter, currentFeature, progress));
+        }
+        return runs;
+    }
+
+    /**
+     * Determine the candidates which are evaluated with the actual model, based on their screening scores.
+     *
+     * @param screeningScores The screening scores of all candidates.
+     * @param baselineScore   The screening score of the current feature set, or <code>null</code> if unknown.
+     * @return The best candidates, at least one.
+     */
+    private List<Predicate<? super String>> screen(Map<Predicate<? super String>, Double> screeningScores, Double baselineScore) {
+        List<Entry<Predicate<? super String>, Double>> sorted = new ArrayList<>(screeningScores.entrySet());
+        sorted.sort(Entry.<Predicate<? super String>, Double>comparingByValue().reversed());
+        double reference = sorted.get(0).getValue();
+        if (baselineScore != null) {
+            reference = Math.max(reference, baselineScore);
+        }
+        List<Predicate<? super String>> candidates = new ArrayList<>();
+        for (Entry<Predicate<? super String>, Double> entry : sorted) {
+            if (candidates.size() >= config.maxCandidates()) {
+                break;
+            }
+            if (!candidates.isEmpty() && entry.getValue() < reference - config.earlyStoppingTolerance()) {
+                break;
+            }
+            candidates.add(entry.getKey());
+        }
+        return candidates;
+    }
+
     /**
      * Check which features are matched by any of the filters, then construct
      * individual (singleton) filters for all remaining features. The result is
@@ -35,6 +35,11 @@ public class FeatureSelectorConfig {
         public double score(Dataset trainData, Dataset testData) {
             return mapper.apply(evaluator.evaluate(learnerFactory.create(), classifierFactory.create(), trainData, testData));
         }
+
+        /** Create a config with the same evaluator and mapper, but a different learner and classifier. */
+        <S extends Model> EvaluationConfig<S, R> withModel(Factory<? extends Learner<S>> learnerFactory, Factory<? extends Classifier<S>> classifierFactory) {
+            return new EvaluationConfig<>(learnerFactory, classifierFactory, evaluator, mapper);
+        }
     }
 
     public static final class Builder<M extends Model> implements Factory<FeatureSelector> {
@@ -44,6 +49,11 @@ public class FeatureSelectorConfig {
         private int numThreads = 1;
         private Collection<Predicate<? super String>> featureGroups = new HashSet<>();
         private boolean backward = true;
+        private boolean bufferData = false;
+        private Function<EvaluationConfig<M, ?>, EvaluationConfig<?, ?>> surrogate;
+        private double screeningSampleRate = 1;
+        private int maxCandidates = Integer.MAX_VALUE;
+        private double earlyStoppingTolerance = Double.POSITIVE_INFINITY;
 
         private Builder(Learner<M> learner, Classifier<M> classifier) {
             this(Factories.constant(learner), Factories.constant(classifier));
@@ -152,6 +162,77 @@ public class FeatureSelectorConfig {
             return this;
         }
 
+        /**
+         * Copy the training and validation data into memory once, indexed by column, so that the datasets are not
+         * read again and features can be filtered cheaply for every evaluation run. Disabled by default, as the data
+         * must fit into memory.
+         *
+         * @param bufferData <code>true</code> to buffer the data.
+         * @return The builder.
+         */
+        public Builder<M> bufferData(boolean bufferData) {
+            this.bufferData = bufferData;
+            return this;
+        }
+
+        /**
+         * Screen all candidates of a round with a cheaper surrogate model (e.g. Naive Bayes instead of a random
+         * forest) first, using the same evaluator and scoring as configured for the actual model. Only the candidates
+         * which survive the screening (see {@link #maxCandidates(int)} and {@link #earlyStopping(double)}) are
+         * evaluated with the actual model.
+         *
+         * @param learnerFactory    Factory for the surrogate learner, not <code>null</code>.
+         * @param classifierFactory Factory for the surrogate classifier, not <code>null</code>.
+         * @return The builder.
+         */
+        public <S extends Model> Builder<M> surrogate(Factory<? extends Learner<S>> learnerFactory, Factory<? extends Classifier<S>> classifierFactory) {
+            Validate.notNull(learnerFactory, "learnerFactory must not be null");
+            Validate.notNull(classifierFactory, "classifierFactory must not be null");
+            this.surrogate = evaluationConfig -> evaluationConfig.withModel(learnerFactory, classifierFactory);
+            return this;
+        }
+
+        /**
+         * Only use a random sample of the training data for screening the candidates. Without a
+         * {@link #surrogate(Factory, Factory)}, the actual model is trained on the sample for screening.
+         *
+         * @param screeningSampleRate The fraction of the training data to use for screening, in (0, 1].
+         * @return The builder.
+         */
+        public Builder<M> screeningSampleRate(double screeningSampleRate) {
+            Validate.isTrue(screeningSampleRate > 0 && screeningSampleRate <= 1, "screeningSampleRate must be in (0, 1]");
+            this.screeningSampleRate = screeningSampleRate;
+            return this;
+        }
+
+        /**
+         * Only evaluate the given number of best candidates from the screening with the actual model. Only effective
+         * in combination with a {@link #surrogate(Factory, Factory)} or a {@link #screeningSampleRate(double)}.
+         *
+         * @param maxCandidates The maximum number of candidates to evaluate per round, greater zero.
+         * @return The builder.
+         */
+        public Builder<M> maxCandidates(int maxCandidates) {
+            Validate.isTrue(maxCandidates > 0, "maxCandidates must be greater zero");
+            this.maxCandidates = maxCandidates;
+            return this;
+        }
+
+        /**
+         * Stop evaluating candidates which are clearly worse: a candidate whose screening score is lower than the best
+         * screening score of the round (or the round's baseline score, if higher) by more than the given tolerance is
+         * not evaluated with the actual model. Only effective in combination with a
+         * {@link #surrogate(Factory, Factory)} or a {@link #screeningSampleRate(double)}.
+         *
+         * @param tolerance The tolerance, greater/equal zero.
+         * @return The builder.
+         */
+        public Builder<M> earlyStopping(double tolerance) {
+            Validate.isTrue(tolerance >= 0, "tolerance must be greater/equal zero");
+            this.earlyStoppingTolerance = tolerance;
+            return this;
+        }
+
         @Override
         public FeatureSelector create() {
             return new FeatureSelector(createConfig());
@@ -182,14 +263,24 @@ public class FeatureSelectorConfig {
     private final int numThreads;
     private final Collection<? extends Predicate<? super String>> featureGroups;
     private final boolean backward;
+    private final boolean bufferData;
+    private final EvaluationConfig<?, ?> screeningEvaluator;
+    private final double screeningSampleRate;
+    private final int maxCandidates;
+    private final double earlyStoppingTolerance;
 
-    protected FeatureSelectorConfig(Builder<?> builder) {
+    protected <M extends Model> FeatureSelectorConfig(Builder<M> builder) {
         //		learnerFactory = builder.learnerFactory;
         //		classifierFactory = builder.classifierFactory;
         evaluator = builder.evaluator;
         numThreads = builder.numThreads;
         featureGroups = builder.featureGroups;
         backward = builder.backward;
+        bufferData = builder.bufferData;
+        screeningEvaluator = builder.surrogate != null ? builder.surrogate.apply(builder.evaluator) : builder.evaluator;
+        screeningSampleRate = builder.screeningSampleRate;
+        maxCandidates = builder.maxCandidates;
+        earlyStoppingTolerance = builder.earlyStoppingTolerance;
     }
 
     //	public Learner<M> createLearner() {
@@ -213,4 +304,32 @@ public class FeatureSelectorConfig {
     public boolean isBackward() {
         return backward;
     }
+
+    public boolean isBufferData() {
+        return bufferData;
+    }
+
+    /**
+     * @return <code>true</code>, in case candidates are screened using a surrogate model or a sample of the training
+     * data before the full evaluation.
+     */
+    public boolean isScreening() {
+        return screeningEvaluator != evaluator || screeningSampleRate < 1;
+    }
+
+    public EvaluationConfig<?, ?> screeningEvaluator() {
+        return screeningEvaluator;
+    }
+
+    public double screeningSampleRate() {
+        return screeningSampleRate;
+    }
+
+    public int maxCandidates() {
+        return maxCandidates;
+    }
+
+    public double earlyStoppingTolerance() {
+        return earlyStoppingTolerance;
+    }
 }
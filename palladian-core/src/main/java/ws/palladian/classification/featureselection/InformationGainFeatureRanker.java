@@ -3,16 +3,12 @@ package ws.palladian.classification.featureselection;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import ws.palladian.classification.discretization.Discretization;
-import ws.palladian.classification.text.CountingCategoryEntriesBuilder;
-import ws.palladian.core.CategoryEntries;
-import ws.palladian.core.CategoryEntriesBuilder;
-import ws.palladian.core.Instance;
+import ws.palladian.classification.discretization.ContingencyStatistics;
+import ws.palladian.classification.discretization.ContingencyStatistics.ContingencyTable;
 import ws.palladian.core.dataset.Dataset;
-import ws.palladian.core.dataset.statistics.DatasetStatistics;
-import ws.palladian.core.dataset.statistics.NominalValueStatistics;
-import ws.palladian.core.value.Value;
+import ws.palladian.core.value.NullValue;
 import ws.palladian.helper.ProgressReporter;
+import ws.palladian.helper.math.MathHelper;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -64,20 +60,23 @@ public final class InformationGainFeatureRanker extends AbstractFeatureRanker {
         Map<String, Double> informationGainValues = new HashMap<>();
 
         progress.startTask("Information Gain", -1);
-        LOGGER.debug("Calculating discretization");
-        Discretization discretization = new Discretization(dataset, progress.createSubProgress(0.5));
-        Dataset preparedData = dataset.transform(discretization);
+        LOGGER.debug("Collecting statistics");
+        ContingencyStatistics statistics = ContingencyStatistics.collect(dataset, progress.createSubProgress(0.5));
 
-        NominalValueStatistics categoryStatistics = new DatasetStatistics(dataset).getCategoryStatistics();
-        CategoryEntries categoryCounts = new CategoryEntriesBuilder(categoryStatistics.getMap()).create();
-        double entropy = categoryCounts.getEntropy();
+        int numCategories = statistics.getCategories().size();
+        int[] categoryCounts = new int[numCategories];
+        for (int c = 0; c < numCategories; c++) {
+            categoryCounts[c] = statistics.getCategoryCount(c);
+        }
+        int numInstances = statistics.getNumInstances();
+        double entropy = entropy(categoryCounts, numInstances);
         Set<String> featureNames = dataset.getFeatureInformation().getFeatureNames();
 
         ProgressReporter informationGainProgress = progress.createSubProgress(0.5);
         LOGGER.debug("Calculating gain");
         informationGainProgress.startTask("Calculating gain", featureNames.size());
         for (String featureName : featureNames) {
-            double gain = entropy - conditionalEntropy(featureName, preparedData);
+            double gain = entropy - conditionalEntropy(statistics.getTable(featureName), numCategories, numInstances);
             informationGainValues.put(featureName, gain);
             informationGainProgress.increment();
         }
@@ -89,43 +88,51 @@ public final class InformationGainFeatureRanker extends AbstractFeatureRanker {
      * Calculates the conditional entropy of the dataset under the consideration that we know how the provided feature
      * is distributed. This is often called H(X|Y).
      *
-     * @param featureName The name of the feature.
+     * @param table         The contingency table of the feature.
+     * @param numCategories The number of categories.
+     * @param numInstances  The number of instances.
      * @return The conditional entropy of the dataset knowing the distribution of Y.
      */
-    private static double conditionalEntropy(String featureName, Iterable<? extends Instance> dataset) {
-        CategoryEntries jointOccurrences = countJointOccurrences(dataset, featureName);
-        CategoryEntries featureOccurrences = countFeatureOccurrences(dataset, featureName);
-        return jointOccurrences.getEntropy() - featureOccurrences.getEntropy();
+    private static double conditionalEntropy(ContingencyTable table, int numCategories, int numInstances) {
+        // values are distinguished by their string representation; absent values count as NULL
+        Map<String, int[]> jointOccurrences = new HashMap<>();
+        for (int row = 0; row < table.numRows(); row++) {
+            int[] counts = jointOccurrences.computeIfAbsent(table.getValue(row).toString(), k -> new int[numCategories]);
+            for (int c = 0; c < numCategories; c++) {
+                counts[c] += table.getCount(row, c);
+            }
+        }
+        int[] nullCounts = jointOccurrences.computeIfAbsent(NullValue.NULL.toString(), k -> new int[numCategories]);
+        for (int c = 0; c < numCategories; c++) {
+            nullCounts[c] += table.getAbsentCount(c);
+        }
+        double jointEntropy = 0;
+        double featureEntropy = 0;
+        for (int[] counts : jointOccurrences.values()) {
+            int featureCount = 0;
+            for (int count : counts) {
+                jointEntropy += entropyTerm(count, numInstances);
+                featureCount += count;
+            }
+            featureEntropy += entropyTerm(featureCount, numInstances);
+        }
+        return jointEntropy - featureEntropy;
     }
 
-    /**
-     * Counts the joint occurrences of each value of the provided feature with each target class.
-     *
-     * @param featureName The name of the feature.
-     * @return A mapping from a pair of target class and feature value to the counter of their joint occurrences.
-     */
-    private static CategoryEntries countJointOccurrences(Iterable<? extends Instance> dataset, String featureName) {
-        CountingCategoryEntriesBuilder builder = new CountingCategoryEntriesBuilder();
-        for (Instance dataItem : dataset) {
-            Value value = dataItem.getVector().get(featureName);
-            builder.add(dataItem.getCategory() + "###" + value.toString(), 1);
+    private static double entropy(int[] counts, int total) {
+        double entropy = 0;
+        for (int count : counts) {
+            entropy += entropyTerm(count, total);
         }
-        return builder.create();
+        return entropy;
     }
 
-    /**
-     * Counts how often the values of the feature with the provided name occurs in the dataset handled by this object.
-     *
-     * @param featureName The name of the feature.
-     * @return A mapping from a {@link String} representation of the value to a counter of how often it occurs.
-     */
-    private static CategoryEntries countFeatureOccurrences(Iterable<? extends Instance> dataset, String featureName) {
-        CountingCategoryEntriesBuilder builder = new CountingCategoryEntriesBuilder();
-        for (Instance dataItem : dataset) {
-            Value value = dataItem.getVector().get(featureName);
-            builder.add(value.toString(), 1);
+    private static double entropyTerm(int count, int total) {
+        if (count == 0) {
+            return 0;
         }
-        return builder.create();
+        double probability = (double) count / total;
+        return -probability * MathHelper.log2(probability);
     }
 
 }
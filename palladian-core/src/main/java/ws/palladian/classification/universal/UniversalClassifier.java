@@ -16,10 +16,14 @@ import ws.palladian.classification.text.PalladianTextClassifier;
 import ws.palladian.classification.utils.NoNormalizer;
 import ws.palladian.core.*;
 import ws.palladian.core.dataset.Dataset;
+import ws.palladian.helper.StopWatch;
 
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class UniversalClassifier extends AbstractLearner<UniversalClassifierModel> implements Classifier<UniversalClassifierModel> {
 
@@ -30,6 +34,45 @@ public class UniversalClassifier extends AbstractLearner<UniversalClassifierMode
         KNN, TEXT, BAYES
     }
 
+    /**
+     * Timing information for one of the sub-models, to see which component dominates the training time or the
+     * classification latency. Classification times are accumulated over all classified instances.
+     */
+    public static final class SubModelTiming {
+
+        private volatile long trainingTime;
+        private final LongAdder classificationTime = new LongAdder();
+        private final LongAdder classificationCount = new LongAdder();
+
+        /** @return The time for the last training in milliseconds. */
+        public long getTrainingTime() {
+            return trainingTime;
+        }
+
+        /** @return The number of classified instances. */
+        public long getClassificationCount() {
+            return classificationCount.sum();
+        }
+
+        /** @return The total time spent for classification in milliseconds. */
+        public double getTotalClassificationTime() {
+            return classificationTime.sum() / 1_000_000.;
+        }
+
+        /** @return The mean time for classifying one instance in milliseconds. */
+        public double getMeanClassificationTime() {
+            long count = getClassificationCount();
+            return count > 0 ? getTotalClassificationTime() / count : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("training=%dms, classifications=%d, meanClassificationTime=%.3fms", getTrainingTime(),
+                    getClassificationCount(), getMeanClassificationTime());
+        }
+
+    }
+
     /** The text classifier which is used to classify the textual feature parts of the instances. */
     private final PalladianTextClassifier textClassifier;
 
@@ -41,52 +84,195 @@ public class UniversalClassifier extends AbstractLearner<UniversalClassifierMode
 
     private final Set<ClassifierSetting> settings;
 
+    /** The number of threads for training and classification; one means everything is done serially. */
+    private final int numThreads;
+
+    private final Map<ClassifierSetting, SubModelTiming> timings = new EnumMap<>(ClassifierSetting.class);
+
     public UniversalClassifier() {
         this(FeatureSettingBuilder.chars(3, 7).create(), ClassifierSetting.values());
     }
 
     public UniversalClassifier(FeatureSetting featureSetting, ClassifierSetting... settings) {
+        this(featureSetting, 1, settings);
+    }
+
+    /**
+     * Create a new {@link UniversalClassifier}, which trains and applies the sub-models concurrently, in case
+     * <code>numThreads</code> is greater one. For training, the dataset is read once into memory and the sub-models
+     * are trained in parallel on this copy; for classification, the sub-models are run in parallel for every batch
+     * when using {@link #classify(List, UniversalClassifierModel)}. Single vectors are always classified in the
+     * calling thread, as handing them over to other threads costs more than the classification itself.
+     *
+     * @param featureSetting The feature setting for the text classifier, not <code>null</code>.
+     * @param numThreads     The number of threads, greater zero.
+     * @param settings       The sub-models to use.
+     */
+    public UniversalClassifier(FeatureSetting featureSetting, int numThreads, ClassifierSetting... settings) {
         Validate.notNull(featureSetting, "featureSetting must not be null");
+        Validate.isTrue(numThreads > 0, "numThreads must be greater zero");
         Validate.notNull(settings, "settings must not be null");
         textClassifier = new PalladianTextClassifier(featureSetting);
         numericClassifier = new KnnClassifier(3);
         nominalClassifier = new NaiveBayesClassifier(NaiveBayesClassifier.DEFAULT_LAPLACE_CORRECTOR, false);
         this.settings = new HashSet<>(Arrays.asList(settings));
+        this.numThreads = numThreads;
+        for (ClassifierSetting setting : ClassifierSetting.values()) {
+            timings.put(setting, new SubModelTiming());
+        }
     }
 
     @Override
     public UniversalClassifierModel train(Dataset dataset) {
+        if (numThreads > 1 && settings.size() > 1) {
+            return trainConcurrently(dataset);
+        }
         NaiveBayesModel nominalModel = null;
         KnnModel numericModel = null;
         DictionaryModel textModel = null;
         if (settings.contains(ClassifierSetting.TEXT)) {
-            LOGGER.debug("training text classifier");
-            textModel = textClassifier.train(dataset);
+            textModel = timeTraining(ClassifierSetting.TEXT, () -> textClassifier.train(dataset));
         }
         if (settings.contains(ClassifierSetting.KNN)) {
-            LOGGER.debug("training knn classifier");
-            numericModel = new KnnLearner(new NoNormalizer()).train(dataset);
+            numericModel = timeTraining(ClassifierSetting.KNN, () -> new KnnLearner(new NoNormalizer()).train(dataset));
         }
         if (settings.contains(ClassifierSetting.BAYES)) {
-            LOGGER.debug("training bayes classifier");
-            nominalModel = new NaiveBayesLearner().train(dataset);
+            nominalModel = timeTraining(ClassifierSetting.BAYES, () -> new NaiveBayesLearner().train(dataset));
         }
         return new UniversalClassifierModel(nominalModel, numericModel, textModel);
     }
 
+    /** Read the dataset once and train all sub-models in parallel on the buffered copy. */
+    private UniversalClassifierModel trainConcurrently(Dataset dataset) {
+        StopWatch stopWatch = new StopWatch();
+        Dataset buffered = dataset.buffer();
+        LOGGER.debug("buffered dataset in {}", stopWatch);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, settings.size()));
+        try {
+            Future<DictionaryModel> textModel = settings.contains(ClassifierSetting.TEXT)
+                    ? executor.submit(() -> timeTraining(ClassifierSetting.TEXT, () -> textClassifier.train(buffered))) : null;
+            Future<KnnModel> numericModel = settings.contains(ClassifierSetting.KNN)
+                    ? executor.submit(() -> timeTraining(ClassifierSetting.KNN, () -> new KnnLearner(new NoNormalizer()).train(buffered))) : null;
+            Future<NaiveBayesModel> nominalModel = settings.contains(ClassifierSetting.BAYES)
+                    ? executor.submit(() -> timeTraining(ClassifierSetting.BAYES, () -> new NaiveBayesLearner().train(buffered))) : null;
+            return new UniversalClassifierModel(get(nominalModel), get(numericModel), get(textModel));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private <T> T timeTraining(ClassifierSetting setting, Supplier<T> training) {
+        LOGGER.debug("training {} classifier", setting);
+        StopWatch stopWatch = new StopWatch();
+        T model = training.get();
+        timings.get(setting).trainingTime = stopWatch.getElapsedTime();
+        LOGGER.debug("trained {} classifier in {}", setting, stopWatch);
+        return model;
+    }
+
+    private static <T> T get(Future<T> future) {
+        if (future == null) {
+            return null;
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
     @Override
     public CategoryEntries classify(FeatureVector featureVector, UniversalClassifierModel model) {
         CategoryEntriesBuilder builder = new CategoryEntriesBuilder();
         if (model.getDictionaryModel() != null) {
-            builder.add(textClassifier.classify(featureVector, model.getDictionaryModel()));
+            builder.add(timeClassification(ClassifierSetting.TEXT, () -> textClassifier.classify(featureVector, model.getDictionaryModel())));
         }
         if (model.getKnnModel() != null) {
-            builder.add(numericClassifier.classify(featureVector, model.getKnnModel()));
+            builder.add(timeClassification(ClassifierSetting.KNN, () -> numericClassifier.classify(featureVector, model.getKnnModel())));
         }
         if (model.getBayesModel() != null) {
-            builder.add(nominalClassifier.classify(featureVector, model.getBayesModel()));
+            builder.add(timeClassification(ClassifierSetting.BAYES, () -> nominalClassifier.classify(featureVector, model.getBayesModel())));
         }
         return builder.create();
     }
 
+    /**
+     * Classify a batch of feature vectors. In case the classifier was created with multiple threads, every sub-model
+     * processes the whole batch in its own task (using up to <code>numThreads</code> threads); the results are merged
+     * per vector afterwards.
+     *
+     * @param featureVectors The feature vectors to classify, not <code>null</code>.
+     * @param model          The model, not <code>null</code>.
+     * @return The classification results, in the same order as the given vectors.
+     */
+    public List<CategoryEntries> classify(List<? extends FeatureVector> featureVectors, UniversalClassifierModel model) {
+        Validate.notNull(featureVectors, "featureVectors must not be null");
+        Validate.notNull(model, "model must not be null");
+        if (numThreads == 1) {
+            return featureVectors.stream().map(vector -> classify(vector, model)).collect(Collectors.toList());
+        }
+        int numModels = (int) Stream.of(model.getDictionaryModel(), model.getKnnModel(), model.getBayesModel()).filter(Objects::nonNull).count();
+        List<List<CategoryEntries>> subResults = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(numThreads, numModels)));
+        try {
+            CompletableFuture<List<CategoryEntries>> textResults = classifyBatch(ClassifierSetting.TEXT, featureVectors,
+                    model.getDictionaryModel(), textClassifier, executor);
+            CompletableFuture<List<CategoryEntries>> numericResults = classifyBatch(ClassifierSetting.KNN, featureVectors,
+                    model.getKnnModel(), numericClassifier, executor);
+            CompletableFuture<List<CategoryEntries>> nominalResults = classifyBatch(ClassifierSetting.BAYES, featureVectors,
+                    model.getBayesModel(), nominalClassifier, executor);
+            for (CompletableFuture<List<CategoryEntries>> future : Arrays.asList(textResults, numericResults, nominalResults)) {
+                List<CategoryEntries> result = future.join();
+                if (result != null) {
+                    subResults.add(result);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        List<CategoryEntries> results = new ArrayList<>(featureVectors.size());
+        for (int i = 0; i < featureVectors.size(); i++) {
+            CategoryEntriesBuilder builder = new CategoryEntriesBuilder();
+            for (List<CategoryEntries> subResult : subResults) {
+                builder.add(subResult.get(i));
+            }
+            results.add(builder.create());
+        }
+        return results;
+    }
+
+    private <M extends Model> CompletableFuture<List<CategoryEntries>> classifyBatch(ClassifierSetting setting,
+            List<? extends FeatureVector> featureVectors, M model, Classifier<M> classifier, Executor executor) {
+        if (model == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            List<CategoryEntries> results = new ArrayList<>(featureVectors.size());
+            for (FeatureVector featureVector : featureVectors) {
+                results.add(timeClassification(setting, () -> classifier.classify(featureVector, model)));
+            }
+            return results;
+        }, executor);
+    }
+
+    private CategoryEntries timeClassification(ClassifierSetting setting, Supplier<CategoryEntries> classification) {
+        long start = System.nanoTime();
+        CategoryEntries result = classification.get();
+        SubModelTiming timing = timings.get(setting);
+        timing.classificationTime.add(System.nanoTime() - start);
+        timing.classificationCount.increment();
+        return result;
+    }
+
+    /**
+     * @return The timings of the sub-models, accumulated since creation of this classifier. Only the sub-models which
+     * are actually used contain values.
+     */
+    public Map<ClassifierSetting, SubModelTiming> getTimings() {
+        return Collections.unmodifiableMap(timings);
+    }
+
 }
@@ -10,6 +10,7 @@ import ws.palladian.core.dataset.FeatureInformation;
 import ws.palladian.core.dataset.FeatureInformationBuilder;
 import ws.palladian.core.featurevector.FlyweightVectorBuilder;
 import ws.palladian.core.featurevector.FlyweightVectorSchema;
+import ws.palladian.core.value.ImmutableDoubleValue;
 import ws.palladian.core.value.NullValue;
 import ws.palladian.core.value.Value;
 import ws.palladian.core.value.io.ValueParser;
@@ -22,12 +23,9 @@ import ws.palladian.helper.io.CsvReader;
 import ws.palladian.helper.io.FileHelper;
 import ws.palladian.helper.nlp.StringPool;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * <p>
@@ -47,6 +45,10 @@ import java.util.List;
  * {@link CsvDatasetReaderConfig.Builder#parser(String, ValueParser)} method.
  * </p>
  *
+ * <p>
+ * Big files can be parsed with multiple threads, see {@link CsvDatasetReaderConfig.Builder#numThreads(int)}.
+ * </p>
+ *
  * @author Philipp Katz
  */
 public class CsvDatasetReader extends AbstractDataset {
@@ -75,29 +77,21 @@ public class CsvDatasetReader extends AbstractDataset {
                 return finished();
             }
 
-            if (!csvReader.hasNext()) {
+            if (!csvReader.nextRecord()) {
                 LOGGER.debug("Finished reading {} instances", instanceCounter);
                 return finished();
             }
 
-            List<String> splitLine = csvReader.next();
-
             if (!didReadHeader && config.readHeader()) {
                 didReadHeader = true;
                 return next();
             }
 
-            if (splitLine.size() < 2) {
-                throw new IllegalStateException("Separator '" + config.fieldSeparator() + "' was not found, lines cannot be split ('" + csvReader.getLineNumber() + "').");
-            }
-            if (expectedColumns != splitLine.size()) {
-                throw new IllegalStateException(
-                        "Unexpected number of entries in line " + csvReader.getLineNumber() + " (" + splitLine.size() + ", but should be " + expectedColumns + ")");
-            }
+            checkColumns(csvReader, csvReader.getLineNumber());
 
             instanceCounter++;
 
-            Instance instance = parseInstance(splitLine);
+            Instance instance = parseInstance(csvReader, csvReader.getLineNumber());
             if (instanceCounter % LOG_EVERY_N_LINES == 0) {
                 LOGGER.debug("Read {} lines in {}", instanceCounter, stopWatch);
             }
@@ -105,47 +99,165 @@ public class CsvDatasetReader extends AbstractDataset {
 
         }
 
-        private Instance parseInstance(List<String> splitLine) {
-            FlyweightVectorBuilder builder = vectorSchema.builder();
-            for (int f = 0; f < splitLine.size() - (config.readClassFromLastColumn() ? 1 : 0); f++) {
-                String name = headNames[f];
-                if (name == null) {
-                    continue;
+        @Override
+        public void close() throws IOException {
+            csvReader.close();
+        }
+    }
+
+    /**
+     * Iterator which splits the input into chunks at line breaks outside of quotes. The chunks are parsed in
+     * parallel, the instances are given in the original order. At most two chunks per thread are kept in memory.
+     */
+    private final class ParallelCsvDatasetIterator extends AbstractIterator2<Instance> implements CloseableIterator<Instance> {
+        final InputStream inputStream;
+        final ExecutorService executor;
+        final Deque<Future<List<Instance>>> parsedChunks = new ArrayDeque<>();
+        final byte quoteCharacter = (byte) config.quoteCharacter();
+        final StopWatch stopWatch = new StopWatch();
+        Iterator<Instance> currentChunk = Collections.emptyIterator();
+        int instanceCounter;
+
+        /** The input which was read, but not yet split into chunks. */
+        byte[] buffer = new byte[config.chunkSize()];
+        int bufferLength;
+        /** The end of the last line in the buffer which is not within quotes. */
+        int boundary;
+        int linesBeforeBoundary;
+        int lines;
+        boolean inQuotes;
+        boolean endOfInput;
+        int lineOffset;
+        boolean firstChunk = true;
+
+        ParallelCsvDatasetIterator() {
+            try {
+                inputStream = config.openInputStream();
+            } catch (FileNotFoundException e) {
+                throw new IllegalStateException(config.filePath() + " not found.");
+            } catch (IOException e) {
+                throw new IllegalStateException("IOException for" + config.filePath());
+            }
+            executor = Executors.newFixedThreadPool(config.numThreads(), runnable -> {
+                Thread thread = new Thread(runnable, "CsvDatasetReader");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        @Override
+        protected Instance getNext() {
+
+            if (instanceCounter == config.getLimit() + 1) {
+                LOGGER.debug("Limit of {} reached, stopping", config.getLimit());
+                FileHelper.close(this);
+                return finished();
+            }
+
+            while (!currentChunk.hasNext()) {
+                while (parsedChunks.size() < 2 * config.numThreads()) {
+                    Callable<List<Instance>> chunk = nextChunk();
+                    if (chunk == null) {
+                        break;
+                    }
+                    parsedChunks.add(executor.submit(chunk));
                 }
-                String value = splitLine.get(f);
-                if (config.isTrim()) {
-                    value = value.trim();
+                Future<List<Instance>> parsedChunk = parsedChunks.poll();
+                if (parsedChunk == null) {
+                    LOGGER.debug("Finished reading {} instances", instanceCounter);
+                    FileHelper.close(this);
+                    return finished();
                 }
-                Value parsedValue;
-                if (config.isNullValue(value)) {
-                    parsedValue = NullValue.NULL;
-                } else {
-                    try {
-                        parsedValue = parsers[f].parse(value);
-                    } catch (ValueParserException e) {
-                        throw new IllegalStateException(
-                                "Could not parse value \"" + value + "\" in column \"" + name + "\", row " + csvReader.getLineNumber() + " using " + parsers[f].getClass().getName()
-                                        + ".", e);
+                currentChunk = getInstances(parsedChunk).iterator();
+            }
+
+            instanceCounter++;
+
+            if (instanceCounter % LOG_EVERY_N_LINES == 0) {
+                LOGGER.debug("Read {} lines in {}", instanceCounter, stopWatch);
+            }
+            return currentChunk.next();
+
+        }
+
+        /**
+         * Read the input up to the next line break outside of quotes after at least {@link CsvDatasetReaderConfig#chunkSize()}
+         * bytes (or up to the end of the input).
+         *
+         * @return A task which parses the chunk, or <code>null</code> at the end of the input.
+         */
+        private Callable<List<Instance>> nextChunk() {
+            try {
+                for (; ; ) {
+                    if (endOfInput) {
+                        return bufferLength > 0 ? cutChunk(bufferLength, lines) : null;
+                    }
+                    if (boundary > 0 && bufferLength >= config.chunkSize()) {
+                        return cutChunk(boundary, linesBeforeBoundary);
+                    }
+                    if (bufferLength == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    }
+                    int read = inputStream.read(buffer, bufferLength, buffer.length - bufferLength);
+                    if (read < 0) {
+                        endOfInput = true;
+                        continue;
                     }
+                    // the quote character and line feeds are ASCII, so they can be found without decoding
+                    for (int i = bufferLength; i < bufferLength + read; i++) {
+                        byte b = buffer[i];
+                        if (b == '\n') {
+                            lines++;
+                            if (!inQuotes) {
+                                boundary = i + 1;
+                                linesBeforeBoundary = lines;
+                            }
+                        } else if (b == quoteCharacter) {
+                            inQuotes = !inQuotes;
+                        }
+                    }
+                    bufferLength += read;
                 }
-                builder.set(name, parsedValue);
+            } catch (IOException e) {
+                throw new IllegalStateException("IOException for" + config.filePath());
             }
-            String targetClass;
-            if (config.readClassFromLastColumn()) {
-                String value = splitLine.get(splitLine.size() - 1);
-                if (config.isTrim()) {
-                    value = value.trim();
+        }
+
+        private Callable<List<Instance>> cutChunk(int length, int numLines) {
+            byte[] chunk = buffer;
+            int remaining = bufferLength - length;
+            buffer = new byte[Math.max(config.chunkSize(), 2 * remaining)];
+            System.arraycopy(chunk, length, buffer, 0, remaining);
+            bufferLength = remaining;
+            boundary = 0;
+            lines -= numLines;
+            int chunkLineOffset = lineOffset;
+            lineOffset += numLines;
+            boolean skipHeader = firstChunk && config.readHeader();
+            firstChunk = false;
+            return () -> parseChunk(chunk, length, chunkLineOffset, skipHeader);
+        }
+
+        private List<Instance> getInstances(Future<List<Instance>> parsedChunk) {
+            try {
+                return parsedChunk.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
                 }
-                targetClass = stringPool.get(value);
-            } else {
-                targetClass = Instance.NO_CATEGORY_DUMMY;
+                throw new IllegalStateException(e.getCause());
             }
-            return new ImmutableInstance(builder.create(), targetClass);
         }
 
         @Override
         public void close() throws IOException {
-            csvReader.close();
+            parsedChunks.forEach(parsedChunk -> parsedChunk.cancel(true));
+            parsedChunks.clear();
+            executor.shutdownNow();
+            inputStream.close();
         }
     }
 
@@ -274,6 +386,89 @@ public class CsvDatasetReader extends AbstractDataset {
         }
     }
 
+    private List<Instance> parseChunk(byte[] chunk, int length, int lineOffset, boolean skipHeader) throws IOException {
+        List<Instance> instances = new ArrayList<>();
+        Reader reader = new InputStreamReader(new ByteArrayInputStream(chunk, 0, length));
+        try (CsvReader csvReader = new CsvReader(reader, config.fieldSeparator(), config.quoteCharacter(), config.isUnescapeDoubleQuotes())) {
+            if (skipHeader) {
+                csvReader.nextRecord();
+            }
+            while (csvReader.nextRecord()) {
+                int lineNumber = lineOffset + csvReader.getLineNumber();
+                checkColumns(csvReader, lineNumber);
+                instances.add(parseInstance(csvReader, lineNumber));
+            }
+        }
+        return instances;
+    }
+
+    private void checkColumns(CsvReader csvReader, int lineNumber) {
+        int numFields = csvReader.getNumFields();
+        if (numFields < 2) {
+            throw new IllegalStateException("Separator '" + config.fieldSeparator() + "' was not found, lines cannot be split ('" + lineNumber + "').");
+        }
+        if (expectedColumns != numFields) {
+            throw new IllegalStateException(
+                    "Unexpected number of entries in line " + lineNumber + " (" + numFields + ", but should be " + expectedColumns + ")");
+        }
+    }
+
+    private Instance parseInstance(CsvReader csvReader, int lineNumber) {
+        FlyweightVectorBuilder builder = vectorSchema.builder();
+        int numFields = csvReader.getNumFields();
+        String nullValue = config.getNullValue();
+        for (int f = 0; f < numFields - (config.readClassFromLastColumn() ? 1 : 0); f++) {
+            String name = headNames[f];
+            if (name == null) {
+                continue;
+            }
+            Value parsedValue;
+            if (parsers[f] == ImmutableDoubleValue.PARSER && nullValue != null) {
+                // parse numbers directly from the reader's buffer, without creating a string first
+                if (csvReader.fieldEquals(f, nullValue, config.isTrim())) {
+                    parsedValue = NullValue.NULL;
+                } else {
+                    try {
+                        parsedValue = new ImmutableDoubleValue(csvReader.getDouble(f));
+                    } catch (NumberFormatException e) {
+                        throw parseException(csvReader.getField(f), f, lineNumber, new ValueParserException(e));
+                    }
+                }
+            } else {
+                String value = csvReader.getField(f);
+                if (config.isTrim()) {
+                    value = value.trim();
+                }
+                if (config.isNullValue(value)) {
+                    parsedValue = NullValue.NULL;
+                } else {
+                    try {
+                        parsedValue = parsers[f].parse(value);
+                    } catch (ValueParserException e) {
+                        throw parseException(value, f, lineNumber, e);
+                    }
+                }
+            }
+            builder.set(name, parsedValue);
+        }
+        String targetClass;
+        if (config.readClassFromLastColumn()) {
+            String value = csvReader.getField(numFields - 1);
+            if (config.isTrim()) {
+                value = value.trim();
+            }
+            targetClass = stringPool.get(value);
+        } else {
+            targetClass = Instance.NO_CATEGORY_DUMMY;
+        }
+        return new ImmutableInstance(builder.create(), targetClass);
+    }
+
+    private IllegalStateException parseException(String value, int column, int lineNumber, ValueParserException e) {
+        return new IllegalStateException("Could not parse value \"" + value + "\" in column \"" + headNames[column] + "\", row " + lineNumber + " using "
+                + parsers[column].getClass().getName() + ".", e);
+    }
+
     /**
      * <p>
      * Read all instances into a {@link List}. (in case the dataset is big, you should consider using an iterator
@@ -331,6 +526,9 @@ public class CsvDatasetReader extends AbstractDataset {
 
     @Override
     public CloseableIterator<Instance> iterator() {
+        if (config.numThreads() > 1 && config.fieldSeparator() < 0x80 && config.quoteCharacter() < 0x80) {
+            return new ParallelCsvDatasetIterator();
+        }
         return new CsvDatasetIterator();
     }
 
@@ -26,6 +26,8 @@ public class CsvDatasetReaderConfig {
 
         public static final String DEFAULT_NULL_VALUE = "?";
 
+        private static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
         private static final ValueParser[] DEFAULT_PARSERS = new ValueParser[]{ImmutableBooleanValue.PARSER, ImmutableDoubleValue.PARSER, ImmutableStringValue.PARSER};
 
         private final File filePath;
@@ -34,6 +36,7 @@ public class CsvDatasetReaderConfig {
         private boolean readClassFromLastColumn = true;
         private List<TargetValueParser> parsers = new ArrayList<>();
         private Predicate<? super String> nullValues = equal(DEFAULT_NULL_VALUE);
+        private String nullValue = DEFAULT_NULL_VALUE;
         private Compression compression = Compressions.NONE;
         private List<Predicate<? super String>> skipColumns = new ArrayList<>();
         private long limit = Long.MAX_VALUE;
@@ -41,6 +44,8 @@ public class CsvDatasetReaderConfig {
         private char quoteCharacter = '\u0000';
         private boolean trim = false;
         private boolean unescapeDoubleQuotes = false;
+        private int numThreads = 1;
+        private int chunkSize = DEFAULT_CHUNK_SIZE;
 
         private Builder(File filePath) {
             Validate.notNull(filePath, "filePath must not be null");
@@ -139,6 +144,7 @@ public class CsvDatasetReaderConfig {
         public Builder treatAsNullValue(String nullValue) {
             Validate.notNull(nullValue, "nullValue must not be null");
             this.nullValues = Predicates.equal(nullValue);
+            this.nullValue = nullValue;
             return this;
         }
 
@@ -151,6 +157,7 @@ public class CsvDatasetReaderConfig {
         public Builder treatAsNullValue(Predicate<? super String> nullValues) {
             Validate.notNull(nullValues, "nullValues must not be null");
             this.nullValues = nullValues;
+            this.nullValue = null;
             return this;
         }
 
@@ -257,6 +264,31 @@ public class CsvDatasetReaderConfig {
             return this;
         }
 
+        /**
+         * Parse the file with multiple threads. The input is split into chunks of several megabytes at line breaks
+         * outside of quotes, which are parsed in parallel; the order of the instances is kept. This is only
+         * effective when the field separator and the quote character are ASCII characters, else the file is
+         * parsed with one thread.
+         *
+         * @param numThreads The number of threads for parsing, default is one.
+         * @return The builder.
+         */
+        public Builder numThreads(int numThreads) {
+            Validate.isTrue(numThreads > 0, "numThreads must be greater zero");
+            this.numThreads = numThreads;
+            return this;
+        }
+
+        /**
+         * @param chunkSize The size of the chunks in bytes for parsing with multiple threads.
+         * @return The builder.
+         */
+        Builder chunkSize(int chunkSize) {
+            Validate.isTrue(chunkSize > 0, "chunkSize must be greater zero");
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
         @Override
         public CsvDatasetReader create() {
             return new CsvDatasetReader(createConfig());
@@ -308,6 +340,7 @@ public class CsvDatasetReaderConfig {
     private final boolean readClassFromLastColumn;
     private final List<TargetValueParser> parsers;
     private final Predicate<? super String> nullValues;
+    private final String nullValue;
     private final Compression compression;
     private final List<Predicate<? super String>> skipColumns;
     private final long limit;
@@ -315,6 +348,8 @@ public class CsvDatasetReaderConfig {
     private final char quoteCharacter;
     private final boolean trim;
     private final boolean unescapeDoubleQuotes;
+    private final int numThreads;
+    private final int chunkSize;
 
     private CsvDatasetReaderConfig(Builder builder) {
         this.filePath = builder.filePath;
@@ -323,6 +358,7 @@ public class CsvDatasetReaderConfig {
         this.readClassFromLastColumn = builder.readClassFromLastColumn;
         this.parsers = new ArrayList<>(builder.parsers);
         this.nullValues = builder.nullValues;
+        this.nullValue = builder.nullValue;
         this.compression = builder.compression;
         this.skipColumns = new ArrayList<>(builder.skipColumns);
         this.limit = builder.limit;
@@ -330,6 +366,8 @@ public class CsvDatasetReaderConfig {
         this.quoteCharacter = builder.quoteCharacter;
         this.trim = builder.trim;
         this.unescapeDoubleQuotes = builder.unescapeDoubleQuotes;
+        this.numThreads = builder.numThreads;
+        this.chunkSize = builder.chunkSize;
     }
 
     File filePath() {
@@ -367,6 +405,14 @@ public class CsvDatasetReaderConfig {
         return nullValues.test(value);
     }
 
+    /**
+     * @return The value which is treated as {@link NullValue}, or <code>null</code> in case a {@link Predicate} was
+     * given for the null values.
+     */
+    String getNullValue() {
+        return nullValue;
+    }
+
     public InputStream openInputStream() throws IOException {
         return compression.getInputStream(filePath());
     }
@@ -399,4 +445,12 @@ public class CsvDatasetReaderConfig {
     boolean isUnescapeDoubleQuotes() {
         return unescapeDoubleQuotes;
     }
+
+    int numThreads() {
+        return numThreads;
+    }
+
+    int chunkSize() {
+        return chunkSize;
+    }
 }
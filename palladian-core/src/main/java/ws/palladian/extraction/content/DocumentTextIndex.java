@@ -0,0 +1,200 @@
+package ws.palladian.extraction.content;
+
+import org.apache.commons.lang3.Validate;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import ws.palladian.retrieval.PageAnalyzer;
+import ws.palladian.helper.html.XPathHelper;
+
+import java.util.*;
+
+/**
+ * <p>
+ * An index over the text of a DOM document, built in one traversal, for finding the XPaths to the nodes which contain
+ * a given text. {@link PageAnalyzer#constructAllXPaths(Document, String)} traverses the whole DOM and gets the text
+ * content of every node for each text, which is slow for many texts on large documents. Here, the text of all text
+ * nodes is concatenated once and each node knows its range within the concatenation; a node contains a text, if an
+ * occurrence of the text falls within its range, so that the nodes for a text are found by searching the
+ * concatenation and walking up from the text node at each occurrence. The XPaths of the nodes are cached.
+ * </p>
+ *
+ * <p>
+ * The index reflects the document at the time of construction; it must be rebuilt after the document was modified.
+ * </p>
+ */
+public final class DocumentTextIndex {
+
+    private final Document document;
+
+    /** The node where the search starts (the nodes below it are indexed). */
+    private final Node root;
+
+    /** The concatenated values of all text nodes, which is the text content of the root. */
+    private final String text;
+
+    /** The concatenated lower-cased values of all text nodes. */
+    private final String lowerCaseText;
+
+    /** Pre-order index, start and end in the text for every node below the root. */
+    private final Map<Node, int[]> ranges = new IdentityHashMap<>();
+
+    /** The non-empty text nodes with their start in the text and their range in the lower-cased text. */
+    private final List<Node> textNodes = new ArrayList<>();
+    private final int[] textStarts;
+    private final int[] lowerCaseStarts;
+    private final int[] lowerCaseEnds;
+
+    /** Comments and processing instructions, which have a text content, but do not contribute to the parent's. */
+    private final List<Node> otherNodes = new ArrayList<>();
+
+    private final Map<Node, String> xPaths = new IdentityHashMap<>();
+
+    private final Map<String, String> namespacedXPaths = new HashMap<>();
+
+    /**
+     * Create a new index.
+     *
+     * @param document The document, not <code>null</code>.
+     */
+    public DocumentTextIndex(Document document) {
+        Validate.notNull(document, "document must not be null");
+        this.document = document;
+        this.root = document.getLastChild();
+        StringBuilder text = new StringBuilder();
+        StringBuilder lowerCaseText = new StringBuilder();
+        List<Integer> textStarts = new ArrayList<>();
+        List<Integer> lowerCaseStarts = new ArrayList<>();
+        List<Integer> lowerCaseEnds = new ArrayList<>();
+        int preOrder = 0;
+        Node node = root != null ? root.getFirstChild() : null;
+        while (node != null) {
+            ranges.put(node, new int[]{preOrder++, text.length(), -1});
+            short type = node.getNodeType();
+            if (type == Node.TEXT_NODE || type == Node.CDATA_SECTION_NODE) {
+                String value = node.getNodeValue();
+                if (!value.isEmpty()) {
+                    textNodes.add(node);
+                    textStarts.add(text.length());
+                    lowerCaseStarts.add(lowerCaseText.length());
+                    text.append(value);
+                    lowerCaseText.append(value.toLowerCase());
+                    lowerCaseEnds.add(lowerCaseText.length());
+                }
+            } else if (type == Node.COMMENT_NODE || type == Node.PROCESSING_INSTRUCTION_NODE) {
+                otherNodes.add(node);
+            }
+            if (node.getFirstChild() != null) {
+                node = node.getFirstChild();
+                continue;
+            }
+            // close the node and its ancestors without further siblings
+            while (node != root) {
+                ranges.get(node)[2] = text.length();
+                if (node.getNextSibling() != null) {
+                    break;
+                }
+                node = node.getParentNode();
+            }
+            node = node != root ? node.getNextSibling() : null;
+        }
+        this.text = text.toString();
+        this.lowerCaseText = lowerCaseText.toString();
+        this.textStarts = textStarts.stream().mapToInt(Integer::intValue).toArray();
+        this.lowerCaseStarts = lowerCaseStarts.stream().mapToInt(Integer::intValue).toArray();
+        this.lowerCaseEnds = lowerCaseEnds.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Get all XPaths to the specified text in the document; the result is the same as for
+     * {@link PageAnalyzer#constructAllXPaths(Document, String)}.
+     *
+     * @param keyword The text to search.
+     * @return The XPaths, without duplicates and without XPaths which are a prefix of the longest one.
+     */
+    public Set<String> getXPaths(String keyword) {
+        if (keyword.isEmpty()) {
+            return PageAnalyzer.constructAllXPaths(document, keyword);
+        }
+        // matching nodes, by pre-order index
+        SortedMap<Integer, Node> matches = new TreeMap<>();
+
+        // nodes which contain the keyword in their text content: the node containing an occurrence with all ancestors
+        for (int start = text.indexOf(keyword); start >= 0; start = text.indexOf(keyword, start + 1)) {
+            int end = start + keyword.length();
+            Node node = textNodes.get(floorIndex(textStarts, start));
+            while (node != root) {
+                int[] range = ranges.get(node);
+                if (range[1] <= start && end <= range[2]) {
+                    break;
+                }
+                node = node.getParentNode();
+            }
+            while (node != root && matches.put(ranges.get(node)[0], node) == null) {
+                node = node.getParentNode();
+            }
+        }
+
+        // text nodes which contain the keyword ignoring case
+        String lowerCaseKeyword = keyword.toLowerCase();
+        for (int start = lowerCaseText.indexOf(lowerCaseKeyword); start >= 0; start = lowerCaseText.indexOf(lowerCaseKeyword, start + 1)) {
+            int index = floorIndex(lowerCaseStarts, start);
+            if (start + lowerCaseKeyword.length() <= lowerCaseEnds[index]) {
+                Node node = textNodes.get(index);
+                matches.put(ranges.get(node)[0], node);
+            }
+        }
+
+        for (Node node : otherNodes) {
+            String nodeValue = node.getNodeValue();
+            if (node.getTextContent().contains(keyword) || (nodeValue != null && node.getNodeType() != Node.COMMENT_NODE && nodeValue.toLowerCase().contains(lowerCaseKeyword))) {
+                matches.put(ranges.get(node)[0], node);
+            }
+        }
+
+        Set<String> xPaths = new LinkedHashSet<>();
+        for (Node node : matches.values()) {
+            String xPath = getXPath(node);
+            if (!xPath.isEmpty()) {
+                xPaths.add(namespacedXPaths.computeIfAbsent(xPath, x -> XPathHelper.addXhtmlNsToXPath(document, x)));
+            }
+        }
+
+        // remove xPath that are more general, e.g. remove "/body" when we have "/body/div"
+        String longestXPath = "";
+        for (String xPath : xPaths) {
+            if (xPath.length() > longestXPath.length()) {
+                longestXPath = xPath;
+            }
+        }
+        Iterator<String> iterator = xPaths.iterator();
+        while (iterator.hasNext()) {
+            String xPath = iterator.next();
+            if (longestXPath.length() > xPath.length() && longestXPath.startsWith(xPath)) {
+                iterator.remove();
+            }
+        }
+        return xPaths;
+    }
+
+    /**
+     * Get the XPath of a node, see {@link PageAnalyzer#constructXPath(Node)}; the XPaths are cached.
+     *
+     * @param node The node.
+     * @return The XPath.
+     */
+    public String getXPath(Node node) {
+        return xPaths.computeIfAbsent(node, PageAnalyzer::constructXPath);
+    }
+
+    /** @return The text content of the document, i.e. the concatenated values of all text nodes. */
+    public String getText() {
+        return text;
+    }
+
+    /** Get the index of the greatest value which is less than or equal to the key. */
+    private static int floorIndex(int[] values, int key) {
+        int index = Arrays.binarySearch(values, key);
+        return index >= 0 ? index : -index - 2;
+    }
+
+}
@@ -278,7 +278,7 @@ public class PalladianContentExtractor extends WebPageContentExtractor {
             if (resultNode != null) {
                 content = HtmlHelper.documentToText(resultNode);
             } else {
-                content = HtmlHelper.documentToText(document);
+                content = fullCleanedTextContent;
             }
         }
 
@@ -289,8 +289,9 @@ public class PalladianContentExtractor extends WebPageContentExtractor {
         // build xpaths to the sentences in the text, the more sentences we find in one area, the more likely it is the
         // main content, take only first 100 sentences, otherwise it takes too long without added benefit
         List<String> uniqueSentences = CollectionHelper.getFirst(new ArrayList<>(new HashSet<>(sentences)), 100);
+        DocumentTextIndex textIndex = new DocumentTextIndex(getDocument());
         for (String sentence : uniqueSentences) {
-            Set<String> xPaths = PageAnalyzer.constructAllXPaths(getDocument(), sentence);
+            Set<String> xPaths = textIndex.getXPaths(sentence);
             for (String xPath : xPaths) {
                 xPath = PageAnalyzer.removeXPathIndicesFromLastCountNode(xPath);
                 // XXX? not really since it is better without this if (!xPath.contains("/xhtml:li") &&
@@ -0,0 +1,208 @@
+package ws.palladian.extraction.location;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ws.palladian.core.CategoryEntries;
+import ws.palladian.core.ClassifyingTagger;
+import ws.palladian.helper.StopWatch;
+import ws.palladian.helper.constants.Language;
+import ws.palladian.helper.functional.Factory;
+import ws.palladian.helper.io.FileHelper;
+import ws.palladian.helper.nlp.AhoCorasickAutomaton;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * <p>
+ * Candidate extractor which finds the names of a gazetteer in a text, as an alternative to the
+ * {@link DefaultCandidateExtractor}. The primary and alternative names of the locations in a {@link LocationSource} are
+ * compiled into an {@link AhoCorasickAutomaton}, which finds all mentions with one pass over the text, independent of
+ * the number of names. Only names which are actually in the gazetteer become candidates, so that no lookups are wasted
+ * for candidates without any location. Use it as tagger for the {@link PalladianLocationExtractor}.
+ * </p>
+ *
+ * <p>
+ * A mention must start and end at word boundaries, and by default it must start with an uppercase letter (to skip
+ * common words like "bath" or "mobile", which are also location names). In case of overlapping mentions, the leftmost
+ * longest one is taken (e.g. "Frankfurt am Main" instead of "Frankfurt"). The automaton is held in memory; for large
+ * gazetteers, restrict the names with a {@link Builder#setFilter(Predicate) filter}. The languages of the alternative
+ * names must match the ones of the lookup, so create the {@link PalladianLocationExtractor} with
+ * {@link #getLanguages()}.
+ * </p>
+ */
+public final class GazetteerCandidateExtractor implements ClassifyingTagger {
+
+    /** The logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(GazetteerCandidateExtractor.class);
+
+    public static final class Builder implements Factory<GazetteerCandidateExtractor> {
+        private final Iterator<? extends Location> locations;
+        private Set<Language> languages = EnumSet.of(Language.ENGLISH);
+        private Predicate<? super Location> filter = location -> true;
+        private int minLength = 2;
+        private boolean requireUppercase = true;
+
+        private Builder(Iterator<? extends Location> locations) {
+            this.locations = locations;
+        }
+
+        /**
+         * @param languages The languages of the alternative names to consider; alternative names without language are
+         *                  always considered. Default is English, like the lookup in the
+         *                  {@link PalladianLocationExtractor}; for other languages, create the extractor with
+         *                  {@link GazetteerCandidateExtractor#getLanguages()}.
+         * @return The builder.
+         */
+        public Builder setLanguages(Set<Language> languages) {
+            Validate.notNull(languages, "languages must not be null");
+            this.languages = languages;
+            return this;
+        }
+
+        /**
+         * @param filter Filter for the locations whose names to consider (e.g. by type or population).
+         * @return The builder.
+         */
+        public Builder setFilter(Predicate<? super Location> filter) {
+            Validate.notNull(filter, "filter must not be null");
+            this.filter = filter;
+            return this;
+        }
+
+        /**
+         * @param minLength The minimum length of names to consider, default is 2.
+         * @return The builder.
+         */
+        public Builder setMinLength(int minLength) {
+            Validate.isTrue(minLength > 0, "minLength must be greater zero");
+            this.minLength = minLength;
+            return this;
+        }
+
+        /**
+         * @param requireUppercase <code>true</code> to only accept mentions which start with an uppercase letter
+         *                         (default).
+         * @return The builder.
+         */
+        public Builder setRequireUppercase(boolean requireUppercase) {
+            this.requireUppercase = requireUppercase;
+            return this;
+        }
+
+        @Override
+        public GazetteerCandidateExtractor create() {
+            return new GazetteerCandidateExtractor(this);
+        }
+    }
+
+    /**
+     * Create a builder, which takes the names from all locations in the given source.
+     *
+     * @param locationSource The source, which must support iterating over all locations, not <code>null</code>.
+     * @return The builder.
+     * @see LocationSource#getLocations()
+     */
+    public static Builder builder(LocationSource locationSource) {
+        Validate.notNull(locationSource, "locationSource must not be null");
+        return new Builder(locationSource.getLocations());
+    }
+
+    /**
+     * Create a builder, which takes the names from the given locations.
+     *
+     * @param locations The locations, not <code>null</code>.
+     * @return The builder.
+     */
+    public static Builder builder(Iterable<? extends Location> locations) {
+        Validate.notNull(locations, "locations must not be null");
+        return new Builder(locations.iterator());
+    }
+
+    private final AhoCorasickAutomaton automaton;
+
+    private final boolean requireUppercase;
+
+    private final Set<Language> languages;
+
+    private GazetteerCandidateExtractor(Builder builder) {
+        StopWatch stopWatch = new StopWatch();
+        AhoCorasickAutomaton.Builder automatonBuilder = new AhoCorasickAutomaton.Builder(true);
+        int numLocations = 0;
+        while (builder.locations.hasNext()) {
+            Location location = builder.locations.next();
+            if (!builder.filter.test(location)) {
+                continue;
+            }
+            addName(automatonBuilder, location.getPrimaryName(), builder.minLength);
+            for (AlternativeName alternativeName : location.getAlternativeNames()) {
+                Language language = alternativeName.getLanguage();
+                if (language == null || builder.languages.contains(language)) {
+                    addName(automatonBuilder, alternativeName.getName(), builder.minLength);
+                }
+            }
+            numLocations++;
+        }
+        if (builder.locations instanceof Closeable) {
+            FileHelper.close((Closeable) builder.locations);
+        }
+        this.automaton = automatonBuilder.create();
+        this.requireUppercase = builder.requireUppercase;
+        this.languages = Collections.unmodifiableSet(new HashSet<>(builder.languages));
+        LOGGER.info("Compiled names of {} locations into {} in {}", numLocations, automaton, stopWatch);
+    }
+
+    private static void addName(AhoCorasickAutomaton.Builder automatonBuilder, String name, int minLength) {
+        if (name != null) {
+            String trimmed = name.trim();
+            if (trimmed.length() >= minLength) {
+                automatonBuilder.add(trimmed);
+            }
+        }
+    }
+
+    @Override
+    public List<ClassifiedAnnotation> getAnnotations(String text) {
+        Validate.notNull(text, "text must not be null");
+        // all valid mentions by start position and decreasing length
+        List<int[]> mentions = new ArrayList<>();
+        automaton.find(text, (patternId, start, end) -> {
+            if (isBoundary(text, start - 1) && isBoundary(text, end) && (!requireUppercase || Character.isUpperCase(text.charAt(start)))) {
+                mentions.add(new int[]{start, end});
+            }
+            return true;
+        });
+        mentions.sort(Comparator.<int[]>comparingInt(mention -> mention[0]).thenComparingInt(mention -> -mention[1]));
+        List<ClassifiedAnnotation> annotations = new ArrayList<>();
+        int lastEnd = 0;
+        for (int[] mention : mentions) {
+            if (mention[0] >= lastEnd) {
+                annotations.add(new ClassifiedAnnotation(mention[0], text.substring(mention[0], mention[1]), CategoryEntries.EMPTY));
+                lastEnd = mention[1];
+            }
+        }
+        return annotations;
+    }
+
+    private static boolean isBoundary(String text, int position) {
+        return position < 0 || position >= text.length() || !Character.isLetterOrDigit(text.charAt(position));
+    }
+
+    /** @return The number of distinct names (case insensitive) in the gazetteer. */
+    public int getNumNames() {
+        return automaton.getNumPatterns();
+    }
+
+    /** @return The languages of the alternative names, which must be used for looking up the candidates. */
+    public Set<Language> getLanguages() {
+        return languages;
+    }
+
+    @Override
+    public String toString() {
+        return "GazetteerCandidateExtractor [" + automaton + ", requireUppercase=" + requireUppercase + "]";
+    }
+
+}
@@ -1,5 +1,6 @@
 package ws.palladian.extraction.location;
 
+import org.apache.commons.lang3.Validate;
 import ws.palladian.core.ClassifyingTagger;
 import ws.palladian.extraction.entity.Annotations;
 import ws.palladian.extraction.location.disambiguation.HeuristicDisambiguation;
@@ -14,12 +15,20 @@ import ws.palladian.helper.io.FileHelper;
 import ws.palladian.persistence.DatabaseManagerFactory;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 /**
  * <p>
  * Given a text, the LocationDetector finds mentioned locations and returns annotations.
  * </p>
  *
+ * <p>
+ * For many texts, {@link #getAnnotations(List, int)} processes a batch at once: the candidate names of all texts are
+ * looked up with one query to the {@link LocationSource}, and tagging and disambiguation run on a pool of threads.
+ * </p>
+ *
  * @author David Urbansky
  * @author Philipp Katz
  */
@@ -30,14 +39,33 @@ public class PalladianLocationExtractor extends LocationExtractor {
 
     private final LocationDisambiguation disambiguation;
 
+    private final Set<Language> languages;
+
     private static final AddressTagger addressTagger = AddressTagger.INSTANCE;
 
     private static final CoordinateTagger coordinateTagger = CoordinateTagger.INSTANCE;
 
     public PalladianLocationExtractor(LocationSource locationSource, ClassifyingTagger tagger, LocationDisambiguation disambiguation) {
+        this(locationSource, tagger, disambiguation, EnumSet.of(Language.ENGLISH));
+    }
+
+    /**
+     * Create a new extractor, which looks up the candidates with the given languages of alternative names. When using
+     * a {@link GazetteerCandidateExtractor}, these should be its {@link GazetteerCandidateExtractor#getLanguages()
+     * languages}; else, names which are tagged by the extractor are not found in the lookup.
+     *
+     * @param locationSource The location source for looking up the candidates, not <code>null</code>.
+     * @param tagger         The tagger which finds the candidates, not <code>null</code>.
+     * @param disambiguation The disambiguation, not <code>null</code>.
+     * @param languages      The languages for the lookup, not <code>null</code>; default is English.
+     */
+    public PalladianLocationExtractor(LocationSource locationSource, ClassifyingTagger tagger, LocationDisambiguation disambiguation,
+            Set<Language> languages) {
+        Validate.notNull(languages, "languages must not be null");
         this.locationSource = locationSource;
         this.tagger = tagger;
         this.disambiguation = disambiguation;
+        this.languages = languages;
     }
 
     public PalladianLocationExtractor(LocationSource locationSource, LocationDisambiguation disambiguation) {
@@ -50,23 +78,116 @@ public class PalladianLocationExtractor extends LocationExtractor {
 
     @Override
     public List<LocationAnnotation> getAnnotations(String text) {
-        List<ClassifiedAnnotation> classifiedEntities = tagger.getAnnotations(text);
+        TaggedText taggedText = tagText(text);
+        MultiMap<ClassifiedAnnotation, Location> locations = fetchLocations(locationSource, taggedText.classifiedEntities, languages);
+        return disambiguate(taggedText, locations);
+    }
 
-        MultiMap<ClassifiedAnnotation, Location> locations = fetchLocations(locationSource, classifiedEntities);
+    /**
+     * Extract the locations from a batch of texts. The results are the same as when calling
+     * {@link #getAnnotations(String)} for each text, but the candidate names of all texts are deduplicated and looked
+     * up with one query to the {@link LocationSource}, and the texts are tagged and disambiguated in parallel (in this
+     * case, the tagger and the disambiguation must be thread-safe).
+     *
+     * @param texts      The texts, not <code>null</code>.
+     * @param numThreads The number of threads for tagging and disambiguation, greater zero.
+     * @return The annotations for each text in the given order, and the time spent in the stages.
+     */
+    public BatchResult getAnnotations(List<String> texts, int numThreads) {
+        Validate.notNull(texts, "texts must not be null");
+        Validate.isTrue(numThreads > 0, "numThreads must be greater zero");
+        long startTime = System.nanoTime();
+        AtomicLong taggingTime = new AtomicLong();
+        AtomicLong disambiguationTime = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<TaggedText> taggedTexts = invokeAll(executor, texts, text -> {
+                long time = System.nanoTime();
+                TaggedText taggedText = tagText(text);
+                taggingTime.addAndGet(System.nanoTime() - time);
+                return taggedText;
+            });
 
-        Annotations<LocationAnnotation> result = new Annotations<>();
+            long lookupStartTime = System.nanoTime();
+            Set<String> valuesToRetrieve = new HashSet<>();
+            for (TaggedText taggedText : taggedTexts) {
+                valuesToRetrieve.addAll(getNormalizedNames(taggedText.classifiedEntities));
+            }
+            MultiMap<String, Location> lookup = locationSource.getLocations(valuesToRetrieve, languages);
+            long lookupTime = System.nanoTime() - lookupStartTime;
 
-        List<LocationAnnotation> locationEntities = disambiguation.disambiguate(text, locations);
-        result.addAll(locationEntities);
+            List<List<LocationAnnotation>> annotations = invokeAll(executor, taggedTexts, taggedText -> {
+                long time = System.nanoTime();
+                MultiMap<ClassifiedAnnotation, Location> locations = mapLocations(lookup, taggedText.classifiedEntities);
+                List<LocationAnnotation> result = disambiguate(taggedText, locations);
+                disambiguationTime.addAndGet(System.nanoTime() - time);
+                return result;
+            });
+
+            long totalTime = System.nanoTime() - startTime;
+            return new BatchResult(annotations, valuesToRetrieve.size(), taggingTime.get(), lookupTime, disambiguationTime.get(), totalTime);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
-        // last step, recognize streets. For also extracting ZIP codes, this needs to be better integrated into above's
+    private static <I, O> List<O> invokeAll(ExecutorService executor, List<I> inputs, Function<I, O> function) {
+        List<Future<O>> futures = new ArrayList<>();
+        for (I input : inputs) {
+            futures.add(executor.submit(() -> function.apply(input)));
+        }
+        List<O> results = new ArrayList<>();
+        try {
+            for (Future<O> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while extracting locations", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Error while extracting locations", e.getCause());
+        }
+        return results;
+    }
+
+    /** The annotations of one text, before looking up the locations. */
+    private static final class TaggedText {
+        final String text;
+        final List<ClassifiedAnnotation> classifiedEntities;
+        final List<LocationAnnotation> annotatedStreets;
+        final List<LocationAnnotation> annotatedCoordinates;
+
+        TaggedText(String text, List<ClassifiedAnnotation> classifiedEntities, List<LocationAnnotation> annotatedStreets, List<LocationAnnotation> annotatedCoordinates) {
+            this.text = text;
+            this.classifiedEntities = classifiedEntities;
+            this.annotatedStreets = annotatedStreets;
+            this.annotatedCoordinates = annotatedCoordinates;
+        }
+    }
+
+    private TaggedText tagText(String text) {
+        List<ClassifiedAnnotation> classifiedEntities = tagger.getAnnotations(text);
+
+        // recognize streets. For also extracting ZIP codes, this needs to be better integrated into the
         // workflow. We should use the CITY annotations, to search for neighboring ZIP codes.
         List<LocationAnnotation> annotatedStreets = addressTagger.getAnnotations(text);
-        result.addAll(annotatedStreets);
 
         // extract explicit coordinate mentions in the text
         List<LocationAnnotation> annotatedCoordinates = coordinateTagger.getAnnotations(text);
-        result.addAll(annotatedCoordinates);
+
+        return new TaggedText(text, classifiedEntities, annotatedStreets, annotatedCoordinates);
+    }
+
+    private List<LocationAnnotation> disambiguate(TaggedText taggedText, MultiMap<ClassifiedAnnotation, Location> locations) {
+        Annotations<LocationAnnotation> result = new Annotations<>();
+
+        List<LocationAnnotation> locationEntities = disambiguation.disambiguate(taggedText.text, locations);
+        result.addAll(locationEntities);
+        result.addAll(taggedText.annotatedStreets);
+        result.addAll(taggedText.annotatedCoordinates);
 
         result.sort();
         result.removeNested();
@@ -75,12 +196,26 @@ public class PalladianLocationExtractor extends LocationExtractor {
     }
 
     public static MultiMap<ClassifiedAnnotation, Location> fetchLocations(LocationSource source, List<ClassifiedAnnotation> annotations) {
+        return fetchLocations(source, annotations, EnumSet.of(Language.ENGLISH));
+    }
+
+    public static MultiMap<ClassifiedAnnotation, Location> fetchLocations(LocationSource source, List<ClassifiedAnnotation> annotations,
+            Set<Language> languages) {
+        Set<String> valuesToRetrieve = getNormalizedNames(annotations);
+        MultiMap<String, Location> lookup = source.getLocations(valuesToRetrieve, languages);
+        return mapLocations(lookup, annotations);
+    }
+
+    private static Set<String> getNormalizedNames(List<ClassifiedAnnotation> annotations) {
         Set<String> valuesToRetrieve = new HashSet<>();
         for (ClassifiedAnnotation annotation : annotations) {
             String entityValue = LocationExtractorUtils.normalizeName(annotation.getValue()).toLowerCase();
             valuesToRetrieve.add(entityValue);
         }
-        MultiMap<String, Location> lookup = source.getLocations(valuesToRetrieve, EnumSet.of(Language.ENGLISH));
+        return valuesToRetrieve;
+    }
+
+    private static MultiMap<ClassifiedAnnotation, Location> mapLocations(MultiMap<String, Location> lookup, List<ClassifiedAnnotation> annotations) {
         MultiMap<ClassifiedAnnotation, Location> result = DefaultMultiMap.createWithSet();
         for (ClassifiedAnnotation annotation : annotations) {
             String entityValue = LocationExtractorUtils.normalizeName(annotation.getValue()).toLowerCase();
@@ -94,6 +229,63 @@ public class PalladianLocationExtractor extends LocationExtractor {
         return result;
     }
 
+    /**
+     * The result of extracting locations from a batch of texts with {@link #getAnnotations(List, int)}. The times are
+     * given in milliseconds; the tagging and disambiguation times are summed up over all threads.
+     */
+    public static final class BatchResult {
+        private final List<List<LocationAnnotation>> annotations;
+        private final int numLookedUpNames;
+        private final long taggingTime;
+        private final long lookupTime;
+        private final long disambiguationTime;
+        private final long totalTime;
+
+        BatchResult(List<List<LocationAnnotation>> annotations, int numLookedUpNames, long taggingNanos, long lookupNanos, long disambiguationNanos, long totalNanos) {
+            this.annotations = Collections.unmodifiableList(annotations);
+            this.numLookedUpNames = numLookedUpNames;
+            this.taggingTime = TimeUnit.NANOSECONDS.toMillis(taggingNanos);
+            this.lookupTime = TimeUnit.NANOSECONDS.toMillis(lookupNanos);
+            this.disambiguationTime = TimeUnit.NANOSECONDS.toMillis(disambiguationNanos);
+            this.totalTime = TimeUnit.NANOSECONDS.toMillis(totalNanos);
+        }
+
+        /** @return The annotations for each text, in the order of the texts. */
+        public List<List<LocationAnnotation>> getAnnotations() {
+            return annotations;
+        }
+
+        /** @return The number of distinct names which were looked up in the {@link LocationSource}. */
+        public int getNumLookedUpNames() {
+            return numLookedUpNames;
+        }
+
+        /** @return The time for tagging candidates, streets and coordinates. */
+        public long getTaggingTime() {
+            return taggingTime;
+        }
+
+        /** @return The time for looking up the candidate names in the {@link LocationSource}. */
+        public long getLookupTime() {
+            return lookupTime;
+        }
+
+        /** @return The time for disambiguating the candidates and combining the annotations. */
+        public long getDisambiguationTime() {
+            return disambiguationTime;
+        }
+
+        /** @return The total (wall clock) time for the batch. */
+        public long getTotalTime() {
+            return totalTime;
+        }
+
+        @Override
+        public String toString() {
+            return "BatchResult [#texts=" + annotations.size() + ", #names=" + numLookedUpNames + ", taggingTime=" + taggingTime + ", lookupTime=" + lookupTime + ", disambiguationTime=" + disambiguationTime + ", totalTime=" + totalTime + "]";
+        }
+    }
+
     @Override
     public String getName() {
         return String.format("PalladianLocationExtractor:%s", disambiguation);
@@ -0,0 +1,269 @@
+package ws.palladian.extraction.location.disambiguation;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.apache.commons.lang3.Validate;
+import ws.palladian.extraction.location.Location;
+import ws.palladian.extraction.location.LocationFilters;
+import ws.palladian.extraction.location.LocationSet;
+import ws.palladian.helper.geo.GeoCoordinate;
+import ws.palladian.helper.geo.GeoUtils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Set;
+
+/**
+ * <p>
+ * Index over the candidate locations of one document, which answers the distance- and population-based queries of the
+ * {@link ConfigurableFeatureExtractor} for all thresholds at once. Instead of filtering a {@link LocationSet} for each
+ * combination of threshold and candidate, a {@link #query(GeoCoordinate, boolean[])} computes the distance to each
+ * indexed location once; every location is assigned to the smallest distance threshold which contains it, and to the
+ * largest population threshold which it reaches, so that the results for all thresholds follow from prefix sums and
+ * suffix minima over these layers.
+ * </p>
+ *
+ * <p>
+ * The results are identical to those of {@link LocationFilters#radius(GeoCoordinate, double)},
+ * {@link LocationFilters#population(long)}, {@link LocationSet#totalPopulation()} and
+ * {@link LocationSet#minDistance(GeoCoordinate)} (including the bounding box check of the radius filter). The index is
+ * immutable after creation, so queries can be run concurrently.
+ * </p>
+ */
+final class CandidateIndex {
+
+    /** The indexed locations. */
+    private final Location[] locations;
+
+    /** Position of each location in the arrays. */
+    private final Object2IntMap<Location> positions;
+
+    /** The coordinates, or <code>null</code> in case a location has no coordinate (it is never within a radius). */
+    private final GeoCoordinate[] coordinates;
+
+    /** Whether a location is considered for the minimum distance, see {@link LocationFilters#coordinate()}. */
+    private final boolean[] hasCoordinate;
+
+    /** The population, zero in case of <code>null</code>. */
+    private final long[] populations;
+
+    /** The number of population thresholds which each location reaches (i.e. index of its population layer). */
+    private final int[] populationLayers;
+
+    /** Whether a location belongs to a group of unique locations. */
+    private final boolean[] unique;
+
+    /** The distance thresholds in the given order, and the indices sorting them ascending. */
+    private final int[] distanceValues;
+    private final int[] distanceOrder;
+
+    /** The population thresholds in the given order, and the indices sorting them ascending. */
+    private final int[] populationValues;
+    private final int[] populationOrder;
+
+    /**
+     * Create a new index.
+     *
+     * @param locations        All candidate locations of the document, not <code>null</code>.
+     * @param uniqueLocations  The locations which belong to a group of unique locations, not <code>null</code>.
+     * @param distanceValues   The distance thresholds in kilometers, not <code>null</code>.
+     * @param populationValues The population thresholds, not <code>null</code>.
+     */
+    CandidateIndex(LocationSet locations, Set<Location> uniqueLocations, int[] distanceValues, int[] populationValues) {
+        Validate.notNull(locations, "locations must not be null");
+        Validate.notNull(uniqueLocations, "uniqueLocations must not be null");
+        Validate.notNull(distanceValues, "distanceValues must not be null");
+        Validate.notNull(populationValues, "populationValues must not be null");
+        this.distanceValues = distanceValues.clone();
+        this.distanceOrder = sortedIndices(distanceValues);
+        this.populationValues = populationValues.clone();
+        this.populationOrder = sortedIndices(populationValues);
+        int size = locations.size();
+        this.locations = locations.toArray(new Location[0]);
+        this.positions = new Object2IntOpenHashMap<>(size);
+        this.positions.defaultReturnValue(-1);
+        this.coordinates = new GeoCoordinate[size];
+        this.hasCoordinate = new boolean[size];
+        this.populations = new long[size];
+        this.populationLayers = new int[size];
+        this.unique = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            Location location = this.locations[i];
+            positions.put(location, i);
+            coordinates[i] = location.getCoordinate();
+            hasCoordinate[i] = LocationFilters.coordinate().test(location);
+            Long population = location.getPopulation();
+            populations[i] = population != null ? population : 0;
+            int layer = 0;
+            if (population != null) {
+                while (layer < populationOrder.length && population >= populationValues[populationOrder[layer]]) {
+                    layer++;
+                }
+            }
+            populationLayers[i] = layer;
+            unique[i] = uniqueLocations.contains(location);
+        }
+    }
+
+    private static int[] sortedIndices(int[] values) {
+        Integer[] indices = new Integer[values.length];
+        for (int i = 0; i < values.length; i++) {
+            indices[i] = i;
+        }
+        Arrays.sort(indices, Comparator.comparingInt(i -> values[i]));
+        return Arrays.stream(indices).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Mark the locations which are not among the given candidates (i.e. the "other" locations for the candidates of
+     * one annotation).
+     *
+     * @param candidates The candidates, not <code>null</code>.
+     * @return A mask with <code>true</code> for each indexed location which is not a candidate.
+     */
+    boolean[] othersMask(Collection<Location> candidates) {
+        Validate.notNull(candidates, "candidates must not be null");
+        boolean[] mask = new boolean[locations.length];
+        Arrays.fill(mask, true);
+        for (Location candidate : candidates) {
+            int position = positions.getInt(candidate);
+            if (position >= 0) {
+                mask[position] = false;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Compute the distance- and population-based values around a coordinate.
+     *
+     * @param center     The coordinate, not <code>null</code>.
+     * @param othersMask The mask with the "other" locations as given by {@link #othersMask(Collection)}, not
+     *                   <code>null</code>. The location at the center must not be marked, as the population sums of
+     *                   the other locations do not exclude it.
+     * @return The values for all thresholds.
+     */
+    Result query(GeoCoordinate center, boolean[] othersMask) {
+        Validate.notNull(center, "center must not be null");
+        Validate.isTrue(othersMask.length == locations.length, "othersMask does not match the index");
+
+        int numDistances = distanceOrder.length;
+        double[][] boundingBoxes = new double[numDistances][];
+        for (int k = 0; k < numDistances; k++) {
+            boundingBoxes[k] = center.getBoundingBox(distanceValues[distanceOrder[k]]);
+        }
+
+        // counts and sums per distance layer, i.e. the locations which are within the k-th smallest distance, but not
+        // within a smaller one; minimum distances per population layer
+        int[] numOthers = new int[numDistances];
+        long[] populationAll = new long[numDistances];
+        long[] populationOthers = new long[numDistances];
+        boolean[] uniqueWithin = new boolean[numDistances];
+        int numPopulations = populationOrder.length;
+        double[] minDistanceAll = new double[numPopulations + 1];
+        double[] minDistanceOthers = new double[numPopulations + 1];
+        Arrays.fill(minDistanceAll, GeoUtils.EARTH_MAX_DISTANCE_KM);
+        Arrays.fill(minDistanceOthers, GeoUtils.EARTH_MAX_DISTANCE_KM);
+
+        for (int i = 0; i < locations.length; i++) {
+            GeoCoordinate coordinate = coordinates[i];
+            if (coordinate == null) {
+                continue;
+            }
+            double distance = coordinate.distance(center);
+            boolean other = othersMask[i];
+            if (hasCoordinate[i]) {
+                int layer = populationLayers[i];
+                minDistanceAll[layer] = Math.min(minDistanceAll[layer], distance);
+                if (other) {
+                    minDistanceOthers[layer] = Math.min(minDistanceOthers[layer], distance);
+                }
+            }
+            int layer = distanceLayer(coordinate, distance, boundingBoxes);
+            if (layer < numDistances) {
+                populationAll[layer] += populations[i];
+                if (other) {
+                    numOthers[layer]++;
+                    populationOthers[layer] += populations[i];
+                }
+                uniqueWithin[layer] |= unique[i];
+            }
+        }
+
+        Result result = new Result(distanceValues.length, populationValues.length);
+        int sumOthers = 0;
+        long sumPopulationAll = 0;
+        long sumPopulationOthers = 0;
+        boolean anyUnique = false;
+        for (int k = 0; k < numDistances; k++) {
+            sumOthers += numOthers[k];
+            sumPopulationAll += populationAll[k];
+            sumPopulationOthers += populationOthers[k];
+            anyUnique |= uniqueWithin[k];
+            int index = distanceOrder[k];
+            result.numOthersWithin[index] = sumOthers;
+            result.populationWithin[index] = sumPopulationAll;
+            result.populationOthersWithin[index] = sumPopulationOthers;
+            result.uniqueWithin[index] = anyUnique;
+        }
+        // the k-th population threshold is reached by all locations in layers above k
+        double minAll = GeoUtils.EARTH_MAX_DISTANCE_KM;
+        double minOthers = GeoUtils.EARTH_MAX_DISTANCE_KM;
+        for (int k = numPopulations - 1; k >= 0; k--) {
+            minAll = Math.min(minAll, minDistanceAll[k + 1]);
+            minOthers = Math.min(minOthers, minDistanceOthers[k + 1]);
+            int index = populationOrder[k];
+            result.minDistance[index] = minAll;
+            result.minDistanceOthers[index] = minOthers;
+        }
+        return result;
+    }
+
+    /**
+     * @return The index of the smallest distance threshold (in ascending order) whose radius contains the coordinate,
+     * or the number of thresholds in case it is not contained in any; as the bounding box and the circle grow with
+     * the distance, the coordinate is contained within all larger thresholds.
+     */
+    private int distanceLayer(GeoCoordinate coordinate, double distance, double[][] boundingBoxes) {
+        double lng = coordinate.getLongitude();
+        double lat = coordinate.getLatitude();
+        int k = 0;
+        for (; k < boundingBoxes.length; k++) {
+            double[] boundingBox = boundingBoxes[k];
+            if (lng < boundingBox[1] || lng > boundingBox[3] || lat < boundingBox[0] || lat > boundingBox[2]) {
+                continue;
+            }
+            if (distance < distanceValues[distanceOrder[k]]) {
+                break;
+            }
+        }
+        return k;
+    }
+
+    /** The values for each threshold, in the order of the thresholds given when creating the index. */
+    static final class Result {
+        /** Number of other locations within each distance. */
+        final int[] numOthersWithin;
+        /** Total population of all locations within each distance. */
+        final long[] populationWithin;
+        /** Total population of other locations within each distance. */
+        final long[] populationOthersWithin;
+        /** Whether any unique location is within each distance. */
+        final boolean[] uniqueWithin;
+        /** Minimum distance to any location with at least each population. */
+        final double[] minDistance;
+        /** Minimum distance to any other location with at least each population. */
+        final double[] minDistanceOthers;
+
+        Result(int numDistances, int numPopulations) {
+            numOthersWithin = new int[numDistances];
+            populationWithin = new long[numDistances];
+            populationOthersWithin = new long[numDistances];
+            uniqueWithin = new boolean[numDistances];
+            minDistance = new double[numPopulations];
+            minDistanceOthers = new double[numPopulations];
+        }
+    }
+
+}
@@ -15,6 +15,8 @@ import ws.palladian.retrieval.search.SearcherException;
 
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static ws.palladian.extraction.location.LocationFilters.*;
 import static ws.palladian.helper.collection.CollectionHelper.coalesce;
@@ -24,20 +26,36 @@ import static ws.palladian.helper.functional.Predicates.not;
 /**
  * <p>
  * Extracts features used by the {@link FeatureBasedDisambiguation} and {@link FeatureBasedDisambiguationLearner}.
+ * The distance- and population-based features are computed with a {@link CandidateIndex} over all candidates of a
+ * text; optionally, the annotations of a text are processed in parallel.
  *
  * @author Philipp Katz
  */
 public class ConfigurableFeatureExtractor implements LocationFeatureExtractor {
     private final FeatureExtractorSetting setting;
 
+    private final boolean parallel;
+
     /**
      * Create a new {@link ConfigurableFeatureExtractor}.
      *
      * @param settings The settings, not <code>null</code>.
      */
     public ConfigurableFeatureExtractor(FeatureExtractorSetting settings) {
+        this(settings, false);
+    }
+
+    /**
+     * Create a new {@link ConfigurableFeatureExtractor}.
+     *
+     * @param settings The settings, not <code>null</code>.
+     * @param parallel <code>true</code> to extract the features for the annotations of a text in parallel; in this
+     *                 case, the configured index searchers must be thread-safe.
+     */
+    public ConfigurableFeatureExtractor(FeatureExtractorSetting settings, boolean parallel) {
         Validate.notNull(settings, "settings must not be null");
         this.setting = settings;
+        this.parallel = parallel;
     }
 
     /**
@@ -50,136 +68,163 @@ public class ConfigurableFeatureExtractor implements LocationFeatureExtractor {
 
     @Override
     public Set<ClassifiableLocation> extract(String text, MultiMap<? extends ClassifiedAnnotation, Location> locations) {
-        Set<ClassifiableLocation> instances = new HashSet<>();
-        LocationSet allLocations = new LocationSet(locations.allValues());
-        LocationSet uniqLocations = new LocationSet(getUniqueLocations(locations.values()));
-        LocationSet continents = allLocations.where(type(LocationType.CONTINENT));
-        LocationSet countries = allLocations.where(type(LocationType.COUNTRY));
-        LocationSet units = allLocations.where(type(LocationType.UNIT));
-        List<GeoCoordinate> scopes = determineTextScopes(text);
-        MultiMap<Location, String> mentions = createMentionMap(locations);
+        Document document = new Document(text, locations);
 
+        // only extract the first annotation for each value
+        List<ClassifiedAnnotation> annotations = new ArrayList<>();
         Set<String> alreadyChecked = new HashSet<>();
-
         for (Entry<? extends ClassifiedAnnotation, Collection<Location>> entry : locations.entrySet()) {
+            if (!entry.getValue().isEmpty() && alreadyChecked.add(entry.getKey().getValue())) {
+                annotations.add(entry.getKey());
+            }
+        }
+
+        Stream<ClassifiedAnnotation> stream = parallel ? annotations.parallelStream() : annotations.stream();
+        return stream.flatMap(annotation -> extract(document, annotation, locations.get(annotation)).stream()).collect(Collectors.toSet());
+    }
+
+    /** The values which are shared by all annotations of a text. */
+    private final class Document {
+        final String text;
+        final LocationSet allLocations;
+        final LocationSet continents;
+        final LocationSet countries;
+        final LocationSet units;
+        final CandidateIndex candidateIndex;
+        final List<GeoCoordinate> scopes;
+        final MultiMap<Location, String> mentions;
+
+        Document(String text, MultiMap<? extends ClassifiedAnnotation, Location> locations) {
+            this.text = text;
+            this.allLocations = new LocationSet(locations.allValues());
+            this.continents = allLocations.where(type(LocationType.CONTINENT));
+            this.countries = allLocations.where(type(LocationType.COUNTRY));
+            this.units = allLocations.where(type(LocationType.UNIT));
+            Set<Location> uniqueLocations = getUniqueLocations(locations.values());
+            this.candidateIndex = new CandidateIndex(allLocations, uniqueLocations, setting.getDistanceValues(), setting.getPopulationValues());
+            this.scopes = determineTextScopes(text);
+            this.mentions = createMentionMap(locations);
+        }
+    }
+
+    private List<ClassifiableLocation> extract(Document document, ClassifiedAnnotation annotation, Collection<Location> candidates) {
+        List<ClassifiableLocation> instances = new ArrayList<>();
+        String text = document.text;
+        List<GeoCoordinate> scopes = document.scopes;
+        MultiMap<Location, String> mentions = document.mentions;
+        String value = annotation.getValue();
+        String normalizedValue = LocationExtractorUtils.normalizeName(value);
+        LocationSet currentLocations = new LocationSet(candidates);
+        LocationSet otherLocations = setting.useHierarchyFeatures() ? document.allLocations.where(not(equal(candidates))) : null;
+        boolean[] othersMask = document.candidateIndex.othersMask(candidates);
+        int numCharacters = value.length();
+        int numTokens = value.split("\\s").length;
+        boolean acronym = value.matches("[A-Z]+|([A-Z]\\.)+");
+        String caseSignature = StringHelper.getCaseSignature(normalizedValue);
+        double nameAmbiguity = 1. / candidates.size();
+        double geoDiversity = currentLocations.largestDistance();
+        boolean unique = currentLocations.where(coordinate()).largestDistance() < setting.getEqualDistance();
+        Map<String, Long> indexCounts = getIndexCounts(normalizedValue);
+
+        for (Location location : candidates) {
+
+            Long population = coalesce(location.getPopulation(), 0l);
+            GeoCoordinate coordinate = coalesce(location.getCoordinate(), GeoCoordinate.NULL);
 
-            ClassifiedAnnotation annotation = entry.getKey();
-            Collection<Location> candidates = entry.getValue();
-            if (candidates.isEmpty()) {
-                continue;
+            InstanceBuilder builder = new InstanceBuilder();
+
+            builder.set("numCharacters", numCharacters);
+            builder.set("numTokens", numTokens);
+            builder.set("acronym", acronym);
+            builder.set("caseSignature", caseSignature);
+            createMarkerFeatures(value, builder);
+
+            builder.set("locationType", location.getType().toString());
+            builder.set("population", population);
+            if (setting.useHierarchyFeatures()) {
+                builder.set("hierarchyDepth", location.getAncestorIds().size());
             }
-            String value = annotation.getValue();
-            if (!alreadyChecked.add(value)) { // skip candidates which we already extracted
-                continue;
+            builder.set("nameAmbiguity", nameAmbiguity);
+
+            if (setting.useHierarchyFeatures()) {
+                builder.set("leaf", currentLocations.where(childOf(location)).size() == 0);
             }
-            String normalizedValue = LocationExtractorUtils.normalizeName(value);
-            LocationSet currentLocations = new LocationSet(candidates);
-            LocationSet otherLocations = allLocations.where(not(equal(candidates)));
-            int numCharacters = value.length();
-            int numTokens = value.split("\\s").length;
-            boolean acronym = value.matches("[A-Z]+|([A-Z]\\.)+");
-            String caseSignature = StringHelper.getCaseSignature(normalizedValue);
-            double nameAmbiguity = 1. / candidates.size();
-            double geoDiversity = currentLocations.largestDistance();
-            boolean unique = currentLocations.where(coordinate()).largestDistance() < setting.getEqualDistance();
-            Map<String, Long> indexCounts = getIndexCounts(normalizedValue);
-
-            for (Location location : candidates) {
-
-                Long population = coalesce(location.getPopulation(), 0l);
-                GeoCoordinate coordinate = coalesce(location.getCoordinate(), GeoCoordinate.NULL);
-
-                InstanceBuilder builder = new InstanceBuilder();
-
-                builder.set("numCharacters", numCharacters);
-                builder.set("numTokens", numTokens);
-                builder.set("acronym", acronym);
-                builder.set("caseSignature", caseSignature);
-                createMarkerFeatures(value, builder);
-
-                builder.set("locationType", location.getType().toString());
-                builder.set("population", population);
-                if (setting.useHierarchyFeatures()) {
-                    builder.set("hierarchyDepth", location.getAncestorIds().size());
-                }
-                builder.set("nameAmbiguity", nameAmbiguity);
+            builder.set("nameDiversity", 1. / location.collectAlternativeNames().size());
+            builder.set("geoDiversity", geoDiversity);
+            builder.set("unique", unique);
+            builder.set("altMention", mentions.get(location).size() > 1);
 
-                if (setting.useHierarchyFeatures()) {
-                    builder.set("leaf", currentLocations.where(childOf(location)).size() == 0);
-                }
-                builder.set("nameDiversity", 1. / location.collectAlternativeNames().size());
-                builder.set("geoDiversity", geoDiversity);
-                builder.set("unique", unique);
-                builder.set("altMention", mentions.get(location).size() > 1);
-
-                if (setting.useHierarchyFeatures()) {
-                    int numAncestors = otherLocations.where(ancestorOf(location)).size();
-                    int numChildren = otherLocations.where(childOf(location)).size();
-                    int numDescendants = otherLocations.where(descendantOf(location)).size();
-                    int numParents = otherLocations.where(parentOf(location)).size();
-                    int numSiblings = otherLocations.where(siblingOf(location)).size();
-                    builder.set("contains(ancestor)", numAncestors > 0);
-                    builder.set("contains(child)", numChildren > 0);
-                    builder.set("contains(descendant)", numDescendants > 0);
-                    builder.set("contains(parent)", numParents > 0);
-                    builder.set("contains(sibling)", numSiblings > 0);
-                    builder.set("num(ancestor)", numAncestors);
-                    builder.set("num(child)", numChildren);
-                    builder.set("num(descendant)", numDescendants);
-                    builder.set("num(sibling)", numSiblings);
-                }
+            if (setting.useHierarchyFeatures()) {
+                int numAncestors = otherLocations.where(ancestorOf(location)).size();
+                int numChildren = otherLocations.where(childOf(location)).size();
+                int numDescendants = otherLocations.where(descendantOf(location)).size();
+                int numParents = otherLocations.where(parentOf(location)).size();
+                int numSiblings = otherLocations.where(siblingOf(location)).size();
+                builder.set("contains(ancestor)", numAncestors > 0);
+                builder.set("contains(child)", numChildren > 0);
+                builder.set("contains(descendant)", numDescendants > 0);
+                builder.set("contains(parent)", numParents > 0);
+                builder.set("contains(sibling)", numSiblings > 0);
+                builder.set("num(ancestor)", numAncestors);
+                builder.set("num(child)", numChildren);
+                builder.set("num(descendant)", numDescendants);
+                builder.set("num(sibling)", numSiblings);
+            }
 
-                for (int d : setting.getDistanceValues()) {
-                    LocationSet otherInDist = otherLocations.where(radius(coordinate, d));
-                    LocationSet allInDist = allLocations.where(radius(coordinate, d));
-                    builder.set(String.format("numLocIn(%d)", d), otherInDist.size());
-                    builder.set(String.format("popIn(%d,true)", d), allInDist.totalPopulation());
-                    builder.set(String.format("popIn(%d,false)", d), otherInDist.where(not(equal(location))).totalPopulation());
-                    builder.set(String.format("uniqueIn(%d)", d), uniqLocations.where(radius(coordinate, d)).size() > 0);
-                }
-                for (int p : setting.getPopulationValues()) {
-                    double distOther = otherLocations.where(population(p)).where(not(equal(location))).minDistance(coordinate);
-                    double distAll = allLocations.where(population(p)).minDistance(coordinate);
-                    builder.set(String.format("distLoc(%d,true)", p), distAll);
-                    builder.set(String.format("distLoc(%d,false)", p), distOther);
-                    for (int d : setting.getDistanceValues()) {
-                        builder.set(String.format("hasLoc(%d,%d,true)", p, d), distAll < d);
-                        builder.set(String.format("hasLoc(%d,%d,false)", p, d), distOther < d);
-                    }
-                }
-                builder.set("primaryName", value.equalsIgnoreCase(location.getPrimaryName()));
-                if (setting.useHierarchyFeatures()) {
-                    builder.set("inContinent", continents.where(ancestorOf(location)).size() > 0);
-                    builder.set("inCountry", countries.where(ancestorOf(location)).size() > 0);
-                    builder.set("inUnit", units.where(ancestorOf(location)).size() > 0);
+            // the location is one of the candidates, so it is not among the others
+            CandidateIndex.Result spatial = document.candidateIndex.query(coordinate, othersMask);
+            int[] distanceValues = setting.getDistanceValues();
+            for (int i = 0; i < distanceValues.length; i++) {
+                int d = distanceValues[i];
+                builder.set(String.format("numLocIn(%d)", d), spatial.numOthersWithin[i]);
+                builder.set(String.format("popIn(%d,true)", d), spatial.populationWithin[i]);
+                builder.set(String.format("popIn(%d,false)", d), spatial.populationOthersWithin[i]);
+                builder.set(String.format("uniqueIn(%d)", d), spatial.uniqueWithin[i]);
+            }
+            int[] populationValues = setting.getPopulationValues();
+            for (int i = 0; i < populationValues.length; i++) {
+                int p = populationValues[i];
+                double distOther = spatial.minDistanceOthers[i];
+                double distAll = spatial.minDistance[i];
+                builder.set(String.format("distLoc(%d,true)", p), distAll);
+                builder.set(String.format("distLoc(%d,false)", p), distOther);
+                for (int d : distanceValues) {
+                    builder.set(String.format("hasLoc(%d,%d,true)", p, d), distAll < d);
+                    builder.set(String.format("hasLoc(%d,%d,false)", p, d), distOther < d);
                 }
+            }
+            builder.set("primaryName", value.equalsIgnoreCase(location.getPrimaryName()));
+            if (setting.useHierarchyFeatures()) {
+                builder.set("inContinent", document.continents.where(ancestorOf(location)).size() > 0);
+                builder.set("inCountry", document.countries.where(ancestorOf(location)).size() > 0);
+                builder.set("inUnit", document.units.where(ancestorOf(location)).size() > 0);
+            }
 
-                CategoryEntries typeClassification = annotation.getCategoryEntries();
-                for (String categoryName : setting.getEntityCategories()) {
-                    double probability = typeClassification.getProbability(categoryName);
-                    builder.set(String.format("category(%s)", categoryName), probability);
-                }
+            CategoryEntries typeClassification = annotation.getCategoryEntries();
+            for (String categoryName : setting.getEntityCategories()) {
+                double probability = typeClassification.getProbability(categoryName);
+                builder.set(String.format("category(%s)", categoryName), probability);
+            }
 
-                for (int n = 0; n < scopes.size(); n++) {
-                    GeoCoordinate scope = scopes.get(n);
-                    scope = scope != null ? scope : GeoCoordinate.NULL;
-                    builder.set("scopeDistance-" + n, coordinate.distance(scope));
-                }
-                for (Entry<String, Long> searcherCount : indexCounts.entrySet()) {
-                    String indexName = searcherCount.getKey();
-                    Long indexCount = searcherCount.getValue();
-                    double indexPopulationQuotient = (double) population / (indexCount + 1);
-                    builder.set(String.format("indexCount(%s)", indexName), indexCount);
-                    builder.set(String.format("indexPopulationQuotient(%s)", indexName), indexPopulationQuotient);
-                }
-                if (setting.isDebug()) {
-                    builder.set("textHash", StringHelper.sha1(text));
-                    builder.set("annotationOffset", annotation.getStartPosition());
-                    builder.set("annotationValue", value);
-                    builder.set("locationId", String.valueOf(location.getId()));
-                }
-                instances.add(new ClassifiableLocation(location, builder.create()));
+            for (int n = 0; n < scopes.size(); n++) {
+                GeoCoordinate scope = scopes.get(n);
+                scope = scope != null ? scope : GeoCoordinate.NULL;
+                builder.set("scopeDistance-" + n, coordinate.distance(scope));
+            }
+            for (Entry<String, Long> searcherCount : indexCounts.entrySet()) {
+                String indexName = searcherCount.getKey();
+                Long indexCount = searcherCount.getValue();
+                double indexPopulationQuotient = (double) population / (indexCount + 1);
+                builder.set(String.format("indexCount(%s)", indexName), indexCount);
+                builder.set(String.format("indexPopulationQuotient(%s)", indexName), indexPopulationQuotient);
+            }
+            if (setting.isDebug()) {
+                builder.set("textHash", StringHelper.sha1(text));
+                builder.set("annotationOffset", annotation.getStartPosition());
+                builder.set("annotationValue", value);
+                builder.set("locationId", String.valueOf(location.getId()));
             }
+            instances.add(new ClassifiableLocation(location, builder.create()));
         }
         return instances;
     }
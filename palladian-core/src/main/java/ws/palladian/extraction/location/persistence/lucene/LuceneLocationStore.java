@@ -4,8 +4,8 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.apache.lucene.document.*;
 import org.apache.lucene.index.*;
-import org.apache.lucene.search.IndexSearcher;
-import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 import org.slf4j.Logger;
@@ -14,6 +14,7 @@ import ws.palladian.extraction.location.AlternativeName;
 import ws.palladian.extraction.location.Location;
 import ws.palladian.extraction.location.sources.LocationStore;
 import ws.palladian.helper.ProgressReporter;
+import ws.palladian.helper.StopWatch;
 import ws.palladian.helper.constants.Language;
 import ws.palladian.helper.io.FileHelper;
 
@@ -23,16 +24,33 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static ws.palladian.extraction.location.persistence.lucene.LuceneLocationSource.*;
 
+/**
+ * <p>
+ * {@link LocationStore} which creates a Lucene index for the {@link LuceneLocationSource}. During the import, the
+ * locations and alternative names are added to a temporary index; this can be done concurrently by several threads.
+ * The temporary index is sorted by location ID, so that each location is directly followed by its alternative names,
+ * and {@link #finishImport(ProgressReporter)} creates the final index in one sequential pass over it, which is split
+ * into ranges processed in parallel.
+ * </p>
+ */
 public final class LuceneLocationStore implements LocationStore {
 
     /** The logger for this class. */
     private static final Logger LOGGER = LoggerFactory.getLogger(LuceneLocationStore.class);
 
-    /** Commit the batch, after the specified number of documents has been added. */
-    private static final int COMMIT_INTERVAL = 10000;
+    /** The size of the RAM buffer in MB, after which the index writers flush a segment. */
+    private static final double RAM_BUFFER_SIZE_MB = 256;
+
+    /** The default number of documents of the temporary index which are processed as one task. */
+    private static final int DEFAULT_DOCUMENTS_PER_TASK = 50000;
 
     /** Name of the field in temporary alternative language documents which stores the foreign location ID. */
     private static final String FIELD_ALT_ID = "alternativeId";
@@ -43,6 +61,14 @@ public final class LuceneLocationStore implements LocationStore {
     /** Separator character between lat/lng value. */
     private static final String LAT_LNG_SEPARATOR = "#";
 
+    /** Temporary doc values fields for sorting; by location ID, locations before names, and in insertion order. */
+    private static final String FIELD_SORT_ID = "sortId";
+    private static final String FIELD_SORT_KIND = "sortKind";
+    private static final String FIELD_SORT_SEQUENCE = "sortSequence";
+
+    private static final int KIND_LOCATION = 0;
+    private static final int KIND_NAMES = 1;
+
     /** Path to the finally created index. */
     private final File indexFile;
 
@@ -55,25 +81,63 @@ public final class LuceneLocationStore implements LocationStore {
     /** The writer for the index. */
     private final IndexWriter tempIndexWriter;
 
-    /** The number of modifications since the last commit. */
-    private int modificationCount;
+    /** The number of threads for building the final index. */
+    private final int numThreads;
+
+    /** The number of documents of the temporary index which are processed as one task, when building the index. */
+    private final int documentsPerTask;
+
+    /** Counter for keeping the insertion order in the temporary index. */
+    private final AtomicLong sequence = new AtomicLong();
 
     public LuceneLocationStore(File indexFile) {
+        this(indexFile, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param indexFile  The path to the index which is created, not <code>null</code>, must not exist.
+     * @param numThreads The number of threads for building the final index, greater zero.
+     */
+    public LuceneLocationStore(File indexFile, int numThreads) {
+        this(indexFile, numThreads, DEFAULT_DOCUMENTS_PER_TASK);
+    }
+
+    /**
+     * @param indexFile        The path to the index which is created, not <code>null</code>, must not exist.
+     * @param numThreads       The number of threads for building the final index, greater zero.
+     * @param documentsPerTask The number of documents of the temporary index per task, greater zero.
+     */
+    LuceneLocationStore(File indexFile, int numThreads, int documentsPerTask) {
         Validate.notNull(indexFile, "indexFile must not be null");
+        Validate.isTrue(numThreads > 0, "numThreads must be greater zero");
+        Validate.isTrue(documentsPerTask > 0, "documentsPerTask must be greater zero");
         if (indexFile.exists()) {
             throw new IllegalArgumentException(indexFile + " already exists. Delete the index or specify a different path");
         }
         this.indexFile = indexFile;
+        this.numThreads = numThreads;
+        this.documentsPerTask = documentsPerTask;
         this.tempIndexFile = FileHelper.getTempFile();
         LOGGER.debug("Temporary index = {}", tempIndexFile);
         try {
             this.tempDirectory = FSDirectory.open(this.tempIndexFile.toPath());
-            this.tempIndexWriter = new IndexWriter(tempDirectory, new IndexWriterConfig(ANALYZER));
+            IndexWriterConfig config = createConfig();
+            config.setIndexSort(new Sort( //
+                    new SortField(FIELD_SORT_ID, SortField.Type.LONG), //
+                    new SortField(FIELD_SORT_KIND, SortField.Type.LONG), //
+                    new SortField(FIELD_SORT_SEQUENCE, SortField.Type.LONG)));
+            this.tempIndexWriter = new IndexWriter(tempDirectory, config);
         } catch (IOException e) {
             throw new IllegalStateException("IOException when creating IndexWriter.", e);
         }
     }
 
+    private static IndexWriterConfig createConfig() {
+        IndexWriterConfig config = new IndexWriterConfig(ANALYZER);
+        config.setRAMBufferSizeMB(RAM_BUFFER_SIZE_MB);
+        return config;
+    }
+
     @Override
     public void save(Location location) {
         Document document = new Document();
@@ -94,24 +158,25 @@ public final class LuceneLocationStore implements LocationStore {
             String ancestorString = StringUtils.join(tempHierarchyIds, HIERARCHY_SEPARATOR);
             document.add(new StringField(FIELD_ANCESTOR_IDS, ancestorString, Field.Store.YES));
         }
-        addDocument(document);
+        addDocument(document, location.getId(), KIND_LOCATION);
         addAlternativeNames(location.getId(), location.getAlternativeNames());
     }
 
     /**
-     * Add a {@link Document} to the index, and conditionally commit; in case the number of modifications have reached a
-     * modulus of {@value #COMMIT_INTERVAL}.
+     * Add a {@link Document} with the fields for sorting to the temporary index; there are no intermediate commits,
+     * the writer flushes segments depending on its RAM buffer.
      *
-     * @param document The document to add, not <code>null</code>.
-     * @throws IllegalStateException In case, adding or committing fails.
+     * @param document   The document to add, not <code>null</code>.
+     * @param locationId The ID of the location.
+     * @param kind       The kind of the document, {@link #KIND_LOCATION} or {@link #KIND_NAMES}.
+     * @throws IllegalStateException In case, adding fails.
      */
-    private void addDocument(Document document) {
+    private void addDocument(Document document, int locationId, int kind) {
+        document.add(new NumericDocValuesField(FIELD_SORT_ID, locationId));
+        document.add(new NumericDocValuesField(FIELD_SORT_KIND, kind));
+        document.add(new NumericDocValuesField(FIELD_SORT_SEQUENCE, sequence.getAndIncrement()));
         try {
             tempIndexWriter.addDocument(document);
-            if (++modificationCount % COMMIT_INTERVAL == 0) {
-                LOGGER.trace("Added {} documents to index, committing ...", modificationCount);
-                tempIndexWriter.commit();
-            }
         } catch (IOException e) {
             throw new IllegalStateException("Encountered IOException while adding document " + document, e);
         }
@@ -129,7 +194,7 @@ public final class LuceneLocationStore implements LocationStore {
             String nameString = sanitizeName(altName.getName()) + NAME_LANGUAGE_SEPARATOR + langString;
             document.add(new NameField(FIELD_NAME, nameString));
         }
-        addDocument(document);
+        addDocument(document, locationId, KIND_NAMES);
     }
 
     @Override
@@ -137,6 +202,11 @@ public final class LuceneLocationStore implements LocationStore {
         throw new UnsupportedOperationException("#getHighestId is not supported.");
     }
 
+    @Override
+    public boolean supportsConcurrentImport() {
+        return true;
+    }
+
     @Override
     public void startImport() {
         // nothing to do
@@ -152,67 +222,122 @@ public final class LuceneLocationStore implements LocationStore {
     }
 
     private void optimize(ProgressReporter progress) throws IOException {
-        LOGGER.debug("Committing and closing temporary IndexWriter.");
-        tempIndexWriter.commit();
+        StopWatch stopWatch = new StopWatch();
+        LOGGER.debug("Merging and closing temporary IndexWriter.");
+        // one sorted segment, so that the documents of a location are consecutive
+        tempIndexWriter.forceMerge(1);
         tempIndexWriter.close();
+        LOGGER.info("Merged temporary index in {}", stopWatch);
 
-        IndexWriterConfig config = new IndexWriterConfig(ANALYZER);
+        stopWatch = new StopWatch();
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
         try (FSDirectory resultDirectory = FSDirectory.open(indexFile.toPath()); IndexWriter resultWriter = new IndexWriter(resultDirectory,
-                config); IndexReader tempReader = DirectoryReader.open(tempDirectory)) {
-
-            int resultModificationCount = 0;
-            IndexSearcher tempSearcher = new IndexSearcher(tempReader);
+                createConfig()); IndexReader tempReader = DirectoryReader.open(tempDirectory)) {
 
-            // loop through all locations in index
-            progress.startTask("Building index", tempReader.numDocs());
+            int maxDoc = tempReader.maxDoc();
+            progress.startTask("Building index", maxDoc);
             LOGGER.debug("Creating optimized index, # of documents in temporary index: {}", tempReader.numDocs());
-            for (int docId = 0; docId < tempReader.maxDoc(); docId++) {
-                Document document = tempReader.document(docId);
-                String locationId = document.get(FIELD_ID);
-                if (locationId != null) {
-                    // get alternative names for the current location and add them directly into the location document
-                    SimpleCollector nameCollector = new SimpleCollector();
-                    tempSearcher.search(new TermQuery(new Term(FIELD_ALT_ID, locationId)), nameCollector);
-                    for (int nameDocId : nameCollector.docs) {
-                        Document alternativeDocument = tempReader.document(nameDocId);
-                        for (IndexableField nameField : alternativeDocument.getFields(FIELD_NAME)) {
-                            document.add(nameField);
-                        }
+            List<Future<Integer>> tasks = new ArrayList<>();
+            for (int start = 0; start < maxDoc; start += documentsPerTask) {
+                int from = start;
+                int to = Math.min(maxDoc, start + documentsPerTask);
+                tasks.add(executor.submit(() -> {
+                    int numLocations = buildDocuments(tempReader, resultWriter, from, to);
+                    synchronized (progress) {
+                        progress.increment(to - from);
                     }
-                    // although Lucene offers numeric fields, e.g. IntField, in most cases, except for
-                    // latitude/longitude, we intentionally use StringFields. The JavaDoc says, that those field are
-                    // less space consuming. The numeric fields only need to be used, in case one wants sorting or range
-                    // filtering of the values.
-                    String latLng = document.get(FIELD_LAT_LNG_TEMP);
-                    if (latLng != null) {
-                        String[] split = latLng.split(LAT_LNG_SEPARATOR);
-                        double lat = Double.parseDouble(split[0]);
-                        double lng = Double.parseDouble(split[1]);
-                        // these are used for storing, resp. retrieving lat/lon value
-                        document.add(new StoredField(FIELD_LAT, lat));
-                        document.add(new StoredField(FIELD_LNG, lng));
-                        // this is used for querying by lat/lon
-                        document.add(new LatLonPoint(FIELD_LAT_LNG_POINT, lat, lng));
-                        // this is used for sorting by lat/lon
-                        document.add(new LatLonDocValuesField(FIELD_LAT_LNG_SORT, lat, lng));
-                    }
-                    document.removeField(FIELD_LAT_LNG_TEMP);
-                    resultWriter.addDocument(document);
-                    if (++resultModificationCount % COMMIT_INTERVAL == 0) {
-                        resultWriter.commit();
-                    }
-                }
-                progress.increment();
+                    return numLocations;
+                }));
             }
+            int numLocations = 0;
+            for (Future<Integer> task : tasks) {
+                numLocations += task.get();
+            }
+            LOGGER.info("Added {} locations to index in {} ({} locations/s)", numLocations, stopWatch,
+                    numLocations * 1000 / Math.max(1, stopWatch.getElapsedTime()));
+
             // combine all segments into one
             LOGGER.debug("Merging index");
             resultWriter.forceMerge(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
         }
 
         LOGGER.debug("Deleting temporary index: {}", tempIndexFile);
         FileHelper.delete(tempIndexFile.getPath(), true);
     }
 
+    /**
+     * Create the final documents for the locations in the given range of the sorted temporary index. Alternative names
+     * at the beginning of the range belong to a location of the previous range; the alternative names of the last
+     * location are read beyond the end of the range.
+     *
+     * @return The number of locations which were added.
+     */
+    private static int buildDocuments(IndexReader tempReader, IndexWriter resultWriter, int from, int to) throws IOException {
+        int numLocations = 0;
+        Document document = null;
+        String locationId = null;
+        for (int docId = from; docId < tempReader.maxDoc(); docId++) {
+            Document currentDocument = tempReader.document(docId);
+            String currentId = currentDocument.get(FIELD_ID);
+            if (currentId == null && document != null && locationId.equals(currentDocument.get(FIELD_ALT_ID))) {
+                // add the alternative names directly into the location document
+                for (IndexableField nameField : currentDocument.getFields(FIELD_NAME)) {
+                    document.add(nameField);
+                }
+                continue;
+            }
+            if (document != null) {
+                addLocation(resultWriter, document);
+                numLocations++;
+                document = null;
+            }
+            if (docId >= to) {
+                break;
+            }
+            if (currentId != null) {
+                document = currentDocument;
+                locationId = currentId;
+            }
+        }
+        if (document != null) {
+            addLocation(resultWriter, document);
+            numLocations++;
+        }
+        return numLocations;
+    }
+
+    private static void addLocation(IndexWriter resultWriter, Document document) throws IOException {
+        // although Lucene offers numeric fields, e.g. IntField, in most cases, except for
+        // latitude/longitude, we intentionally use StringFields. The JavaDoc says, that those field are
+        // less space consuming. The numeric fields only need to be used, in case one wants sorting or range
+        // filtering of the values.
+        String latLng = document.get(FIELD_LAT_LNG_TEMP);
+        if (latLng != null) {
+            String[] split = latLng.split(LAT_LNG_SEPARATOR);
+            double lat = Double.parseDouble(split[0]);
+            double lng = Double.parseDouble(split[1]);
+            // these are used for storing, resp. retrieving lat/lon value
+            document.add(new StoredField(FIELD_LAT, lat));
+            document.add(new StoredField(FIELD_LNG, lng));
+            // this is used for querying by lat/lon
+            document.add(new LatLonPoint(FIELD_LAT_LNG_POINT, lat, lng));
+            // this is used for sorting by lat/lon
+            document.add(new LatLonDocValuesField(FIELD_LAT_LNG_SORT, lat, lng));
+        }
+        document.removeField(FIELD_LAT_LNG_TEMP);
+        resultWriter.addDocument(document);
+    }
+
     private static final class NameField extends Field {
         private static final FieldType FIELD_TYPE = new FieldType();
 
@@ -51,6 +51,11 @@ public class CollectionLocationStore extends SingleQueryLocationSource implement
         return idLocation.get(locationId);
     }
 
+    @Override
+    public Iterator<Location> getLocations() {
+        return Collections.<Location>unmodifiableCollection(idLocation.values()).iterator();
+    }
+
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
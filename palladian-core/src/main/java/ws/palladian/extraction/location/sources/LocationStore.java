@@ -50,6 +50,16 @@ public interface LocationStore {
      */
     int getHighestId();
 
+    /**
+     * Indicate whether {@link #save(Location)} and {@link #addAlternativeNames(int, Collection)} may be invoked
+     * concurrently by several threads during an import. Importers synchronize the invocations otherwise.
+     *
+     * @return <code>true</code> in case the store is thread-safe for importing, <code>false</code> otherwise (default).
+     */
+    default boolean supportsConcurrentImport() {
+        return false;
+    }
+
     /**
      * Invoke before starting import.
      */
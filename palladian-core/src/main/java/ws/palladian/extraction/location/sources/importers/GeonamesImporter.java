@@ -1,20 +1,25 @@
 package ws.palladian.extraction.location.sources.importers;
 
+import it.unimi.dsi.fastutil.ints.*;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ws.palladian.extraction.location.AlternativeName;
+import ws.palladian.extraction.location.Location;
 import ws.palladian.extraction.location.LocationBuilder;
 import ws.palladian.extraction.location.persistence.LocationDatabase;
 import ws.palladian.extraction.location.sources.LocationStore;
 import ws.palladian.helper.NoProgress;
 import ws.palladian.helper.ProgressMonitor;
 import ws.palladian.helper.ProgressReporter;
+import ws.palladian.helper.StopWatch;
 import ws.palladian.helper.constants.Language;
 import ws.palladian.helper.geo.GeoCoordinate;
 import ws.palladian.helper.io.FileHelper;
 import ws.palladian.helper.io.LineAction;
+import ws.palladian.helper.io.ParallelLineProcessor;
 import ws.palladian.persistence.DatabaseManagerFactory;
 
 import java.io.File;
@@ -22,8 +27,10 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
-import java.util.Map.Entry;
-import java.util.function.Consumer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ObjIntConsumer;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -33,6 +40,13 @@ import java.util.zip.ZipInputStream;
  * and imports them into a given {@link LocationStore}.
  * </p>
  *
+ * <p>
+ * The import runs in stages (hierarchy, administrative items, child-parent relations, locations, alternative names);
+ * the lines of the locations file are parsed and processed by several threads. The results do not depend on the
+ * number of threads. Stores which do not {@link LocationStore#supportsConcurrentImport() support concurrent imports}
+ * are accessed by one thread at a time.
+ * </p>
+ *
  * @author Philipp Katz
  * @see <a href="http://download.geonames.org/export/dump/">Geonames dumps</a>
  */
@@ -60,17 +74,26 @@ public final class GeonamesImporter {
     /** The store where the imported locations are saved. */
     private final LocationStore locationStore;
 
+    /** Marks a missing entry in the int maps. */
+    private static final int NO_ID = -1;
+
     /** Mapping between administrative codes and the corresponding location ID, needed to establish hierarchy. */
-    private final Map<String, Integer> administrativeMappings = new HashMap<>();
+    private final Object2IntOpenHashMap<String> administrativeMappings = createMap();
 
     /** Explicitly given hierarchy relations, they have precedence over the administrative relations. */
-    private final Map<Integer, Integer> hierarchyMappings = new HashMap<>();
+    private final Int2IntOpenHashMap hierarchyMappings = createIntMap();
 
-    private final Map<Integer, Integer> childParentIds = new HashMap<>();
+    private final Int2IntOpenHashMap childParentIds = createIntMap();
 
     /** For reporting import progress. */
     private final ProgressReporter progressReporter;
 
+    /** Processes the lines of the locations file. */
+    private final ParallelLineProcessor lineProcessor;
+
+    /** Processes the lines of files, where the order matters. */
+    private final ParallelLineProcessor orderedLineProcessor;
+
     /**
      * <p>
      * Create a new {@link GeonamesImporter}.
@@ -80,9 +103,37 @@ public final class GeonamesImporter {
      * @param progressReporter For reporting the import progress, or <code>null</code> to report not progress.
      */
     public GeonamesImporter(LocationStore locationStore, ProgressReporter progressReporter) {
+        this(locationStore, progressReporter, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * <p>
+     * Create a new {@link GeonamesImporter}.
+     * </p>
+     *
+     * @param locationStore    The {@link LocationStore} where to store the data, not <code>null</code>.
+     * @param progressReporter For reporting the import progress, or <code>null</code> to report not progress.
+     * @param numThreads       The number of threads for parsing and processing the data, greater zero.
+     */
+    public GeonamesImporter(LocationStore locationStore, ProgressReporter progressReporter, int numThreads) {
         Validate.notNull(locationStore, "locationStore must not be null");
+        Validate.isTrue(numThreads > 0, "numThreads must be greater zero");
         this.locationStore = locationStore;
         this.progressReporter = progressReporter != null ? progressReporter : NoProgress.INSTANCE;
+        this.lineProcessor = ParallelLineProcessor.builder().setNumThreads(numThreads).create();
+        this.orderedLineProcessor = ParallelLineProcessor.builder().setNumThreads(numThreads).setOrdered(true).create();
+    }
+
+    private static Object2IntOpenHashMap<String> createMap() {
+        Object2IntOpenHashMap<String> map = new Object2IntOpenHashMap<>();
+        map.defaultReturnValue(NO_ID);
+        return map;
+    }
+
+    private static Int2IntOpenHashMap createIntMap() {
+        Int2IntOpenHashMap map = new Int2IntOpenHashMap();
+        map.defaultReturnValue(NO_ID);
+        return map;
     }
 
     /**
@@ -138,10 +189,12 @@ public final class GeonamesImporter {
     private void establishHierarchyMap(int totalLines, ProgressReporter progress, InputStream inputStream) {
         LOGGER.info("Reading child-parent hierarchies");
         progress.startTask("Reading child-parent hierarchies", totalLines);
-        readLocations(inputStream, progress, item -> {
-            Integer parentId = getParent(item);
-            if (parentId != null) {
-                childParentIds.put(item.geonamesId, parentId);
+        readLocations("child-parent hierarchies", inputStream, progress, (item, lineNumber) -> {
+            int parentId = getParent(item);
+            if (parentId != NO_ID) {
+                synchronized (childParentIds) {
+                    childParentIds.put(item.geonamesId, parentId);
+                }
             }
         });
     }
@@ -166,20 +219,28 @@ public final class GeonamesImporter {
     private void importLocations(InputStream inputStream, final ProgressReporter progress, int numLines) {
         LOGGER.info("Inserting locations");
         progress.startTask("Inserting locations", numLines);
-        readLocations(inputStream, progress, geonameLocation -> {
+        boolean concurrentStore = locationStore.supportsConcurrentImport();
+        readLocations("locations", inputStream, progress, (geonameLocation, lineNumber) -> {
             LocationBuilder builder = new LocationBuilder();
             builder.setId(geonameLocation.geonamesId);
             builder.setPrimaryName(geonameLocation.primaryName);
             builder.setType(GeonamesUtil.mapType(geonameLocation.featureClass, geonameLocation.featureCode));
             builder.setCoordinate(geonameLocation.coordinate);
             builder.setPopulation(geonameLocation.population);
-            Integer childId = geonameLocation.geonamesId;
-            Integer parentId;
-            while ((parentId = childParentIds.get(childId)) != null) {
+            int childId = geonameLocation.geonamesId;
+            int parentId;
+            while ((parentId = childParentIds.get(childId)) != NO_ID) {
                 builder.addAncestorId(parentId);
                 childId = parentId;
             }
-            locationStore.save(builder.create());
+            Location location = builder.create();
+            if (concurrentStore) {
+                locationStore.save(location);
+            } else {
+                synchronized (locationStore) {
+                    locationStore.save(location);
+                }
+            }
         });
         LOGGER.info("Finished importing {} locations", numLines);
     }
@@ -192,14 +253,14 @@ public final class GeonamesImporter {
      * </p>
      *
      * @param location The {@link GeonameLocation} for which to get the parent.
-     * @return The ID of the parent relation, if a parent exists, or <code>null</code> if no parent could be found.
+     * @return The ID of the parent relation, if a parent exists, or {@link #NO_ID} if no parent could be found.
      */
-    private Integer getParent(GeonameLocation location) {
+    private int getParent(GeonameLocation location) {
 
         // explicitly given hierarchy relations (as defined in the hierarchy.txt file) have precedence over the derived
         // parental relations
-        Integer explicitMapping = hierarchyMappings.get(location.geonamesId);
-        if (explicitMapping != null) {
+        int explicitMapping = hierarchyMappings.get(location.geonamesId);
+        if (explicitMapping != NO_ID) {
             return explicitMapping;
         }
 
@@ -224,13 +285,13 @@ public final class GeonamesImporter {
 
             for (int i = hierarchyCode.size(); i > 0; i--) {
                 String parentCode = StringUtils.join(hierarchyCode.subList(0, i), '.');
-                Integer retrievedParentId = administrativeMappings.get(parentCode);
-                if (retrievedParentId != null && retrievedParentId != location.geonamesId) {
+                int retrievedParentId = administrativeMappings.getInt(parentCode);
+                if (retrievedParentId != NO_ID && retrievedParentId != location.geonamesId) {
                     return retrievedParentId;
                 }
             }
         }
-        return null;
+        return NO_ID;
     }
 
     /**
@@ -247,9 +308,12 @@ public final class GeonamesImporter {
         LOGGER.info("Reading administrative items");
         progress.startTask("Reading administrative items", numLines);
 
-        final Set<Integer> mappingsToRemove = new HashSet<>();
+        final IntSet mappingsToRemove = IntSets.synchronize(new IntOpenHashSet());
+        // the lines are processed concurrently; in case of duplicate codes, keep the first item in the file by
+        // packing the line number into the upper, and the ID into the lower bits
+        final ConcurrentMap<String, Long> lineNumbersIds = new ConcurrentHashMap<>();
 
-        readLocations(inputStream, progress, geonameLocation -> {
+        readLocations("administrative items", inputStream, progress, (geonameLocation, lineNumber) -> {
             String codeCombined = geonameLocation.getCodeCombined();
 
             // remove historic locations from the hierarchy mapping again, as we do not want the DDR in the
@@ -272,31 +336,24 @@ public final class GeonamesImporter {
                 return;
             }
 
-            Integer existingItem = administrativeMappings.get(codeCombined);
-            if (existingItem == null) {
-                administrativeMappings.put(codeCombined, geonameLocation.geonamesId);
-            } else {
+            long lineNumberId = (long) lineNumber << 32 | geonameLocation.geonamesId;
+            lineNumbersIds.compute(codeCombined, (code, existingItem) -> {
+                if (existingItem == null) {
+                    return lineNumberId;
+                }
                 LOGGER.warn(
                         "There is already an item with code {} in the mappings, this will almost certainly lead to inconsistencies and should be fixed! (current {}, existing {})",
-                        codeCombined, geonameLocation.geonamesId, existingItem);
-            }
+                        codeCombined, geonameLocation.geonamesId, (int) existingItem.longValue());
+                return Math.min(existingItem, lineNumberId);
+            });
         });
+        lineNumbersIds.forEach((code, lineNumberId) -> administrativeMappings.put(code, (int) lineNumberId.longValue()));
 
         LOGGER.debug("Removing {} historic/second order relations from hierarchy mappings", mappingsToRemove.size());
-        removeByValue(hierarchyMappings, mappingsToRemove);
+        hierarchyMappings.int2IntEntrySet().removeIf(entry -> mappingsToRemove.contains(entry.getIntValue()));
         LOGGER.info("Finished reading {} administrative items for mapping", administrativeMappings.size());
     }
 
-    private static void removeByValue(Map<Integer, Integer> map, Set<Integer> valuesToRemove) {
-        Iterator<Entry<Integer, Integer>> iterator = map.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Entry<Integer, Integer> entry = iterator.next();
-            if (valuesToRemove.contains(entry.getValue())) {
-                iterator.remove();
-            }
-        }
-    }
-
     /**
      * <p>
      * Import a Geonames hierarchy file.
@@ -314,8 +371,9 @@ public final class GeonamesImporter {
         }
         progress.startTask("Reading hierarchy", numLines);
         try (InputStream inputStream = hierarchyProvider.getInputStream()) {
+            StopWatch stopWatch = new StopWatch();
             int numAmbiguous[] = {0};
-            FileHelper.performActionOnEveryLine(inputStream, new LineAction() {
+            orderedLineProcessor.process(inputStream, new LineAction() {
                 @Override
                 public void performAction(String line, int lineNumber) {
                     String[] split = line.split("\\s");
@@ -325,8 +383,8 @@ public final class GeonamesImporter {
                     int parentId = Integer.parseInt(split[0]);
                     int childId = Integer.parseInt(split[1]);
                     String type = split.length > 2 ? split[2] : null;
-                    Integer existingParentId = hierarchyMappings.get(childId);
-                    boolean ambiguous = existingParentId != null && existingParentId.intValue() != parentId;
+                    int existingParentId = hierarchyMappings.get(childId);
+                    boolean ambiguous = existingParentId != NO_ID && existingParentId != parentId;
                     // this is rather blunt; if it's of type ADM prefer this
                     // (overwriting previous values), if it's of type `null`
                     // only take it if we don't have a value yet -- this misses
@@ -340,6 +398,7 @@ public final class GeonamesImporter {
                     progress.increment();
                 }
             });
+            logThroughput("hierarchy", numLines, stopWatch);
             LOGGER.info("Finished importing {} items into hierarchy.", hierarchyMappings.size());
             float ambiguousPercentage = (float) 100 * numAmbiguous[0] / hierarchyMappings.size(); // ~ 2.7%
             LOGGER.info("There were {} ({}%) ambiguous hierarchy mappings which were dropped.", numAmbiguous[0], ambiguousPercentage);
@@ -363,9 +422,10 @@ public final class GeonamesImporter {
         }
         progress.startTask("Reading alternate names", numLines);
         try (InputStream inputStream = alternateNamesProvider.getInputStream()) {
+            StopWatch stopWatch = new StopWatch();
             final int lastId[] = {-1};
             final List<AlternativeName> namesBuffer = new ArrayList<>();
-            FileHelper.performActionOnEveryLine(inputStream, new LineAction() {
+            orderedLineProcessor.process(inputStream, new LineAction() {
                 @Override
                 public void performAction(String line, int lineNumber) {
                     progress.increment();
@@ -400,6 +460,7 @@ public final class GeonamesImporter {
             if (!namesBuffer.isEmpty()) {
                 locationStore.addAlternativeNames(lastId[0], namesBuffer);
             }
+            logThroughput("alternative names", numLines, stopWatch);
         }
         LOGGER.info("Finished importing {} alternative names.", numLines);
     }
@@ -414,19 +475,60 @@ public final class GeonamesImporter {
         return string.isEmpty() ? null : new String(string);
     }
 
-    private static final void readLocations(InputStream inputStream, final ProgressReporter progress, final Consumer<GeonameLocation> callback) {
-        FileHelper.performActionOnEveryLine(inputStream, new LineAction() {
+    /**
+     * Parse the lines of the locations file and process them concurrently.
+     *
+     * @param stage       The name of the import stage, for logging.
+     * @param inputStream Stream to the input file.
+     * @param progress    Progress monitor.
+     * @param callback    The thread-safe callback, which receives the parsed locations with their line numbers.
+     */
+    private void readLocations(String stage, InputStream inputStream, ProgressReporter progress, ObjIntConsumer<GeonameLocation> callback) {
+        StopWatch stopWatch = new StopWatch();
+        ConcurrentProgress concurrentProgress = new ConcurrentProgress(progress);
+        int numLines = lineProcessor.process(inputStream, new LineAction() {
             @Override
             public void performAction(String line, int lineNumber) {
                 if (line.isEmpty()) {
                     return;
                 }
                 GeonameLocation geonameLocation = new GeonameLocation(line);
-                callback.accept(geonameLocation);
-                progress.increment();
+                callback.accept(geonameLocation, lineNumber);
+                concurrentProgress.increment();
             }
         });
-        LOGGER.debug("Finished processing.");
+        concurrentProgress.finish();
+        logThroughput(stage, numLines, stopWatch);
+    }
+
+    private static void logThroughput(String stage, int numLines, StopWatch stopWatch) {
+        long elapsedTime = Math.max(1, stopWatch.getElapsedTime());
+        LOGGER.info("Processed {} lines for {} in {} ({} lines/s)", numLines, stage, stopWatch, numLines * 1000L / elapsedTime);
+    }
+
+    /** Passes the progress of concurrently processed lines in steps to a {@link ProgressReporter}, which is not thread-safe. */
+    private static final class ConcurrentProgress {
+        private static final int STEP = 1000;
+        private final ProgressReporter progress;
+        private final AtomicLong count = new AtomicLong();
+
+        ConcurrentProgress(ProgressReporter progress) {
+            this.progress = progress;
+        }
+
+        void increment() {
+            if (count.incrementAndGet() % STEP == 0) {
+                synchronized (progress) {
+                    progress.increment(STEP);
+                }
+            }
+        }
+
+        void finish() {
+            synchronized (progress) {
+                progress.increment(count.get() % STEP);
+            }
+        }
     }
 
     /**
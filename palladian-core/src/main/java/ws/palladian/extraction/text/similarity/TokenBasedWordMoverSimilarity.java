@@ -8,6 +8,7 @@ import ws.palladian.helper.nlp.StringMetric;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 
 public class TokenBasedWordMoverSimilarity extends AbstractStringMetric {
 
@@ -25,9 +26,23 @@ public class TokenBasedWordMoverSimilarity extends AbstractStringMetric {
 
     @Override
     public double getSimilarity(String s1, String s2) {
-        Collection<String> tokens1 = preprocess(s1);
-        Collection<String> tokens2 = preprocess(s2);
+        return getSimilarity(preprocess(s1), preprocess(s2));
+    }
+
+    /**
+     * Calculate the similarities between a text and many candidates; the text is only preprocessed once, and the
+     * candidates are compared in parallel.
+     *
+     * @param text       The text.
+     * @param candidates The candidates.
+     * @return The similarities, in the order of the candidates.
+     */
+    public double[] getSimilarities(String text, List<String> candidates) {
+        Collection<String> tokens = preprocess(text);
+        return candidates.parallelStream().mapToDouble(candidate -> getSimilarity(tokens, preprocess(candidate))).toArray();
+    }
 
+    private double getSimilarity(Collection<String> tokens1, Collection<String> tokens2) {
         if (tokens1.isEmpty() && tokens2.isEmpty()) {
             return 1;
         }
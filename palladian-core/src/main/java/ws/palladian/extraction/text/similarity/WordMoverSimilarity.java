@@ -1,9 +1,14 @@
 package ws.palladian.extraction.text.similarity;
 
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import ws.palladian.extraction.text.vector.FloatVectorUtil;
 import ws.palladian.extraction.text.vector.WordVectorDictionary;
+import ws.palladian.helper.collection.ThreadSafeLruMap;
 
-import java.util.List;
+import java.util.*;
+import java.util.stream.IntStream;
 
 /**
  * Idea from
@@ -11,48 +16,247 @@ import java.util.List;
  * Embeddings To Document Distances</a>'; Matt J. Kusner, Yu Sun, Nicholas I.
  * Kolkin, Kilian Q. Weinberger; 2015.
  *
+ * <p>
+ * For comparing one text against many candidates, use {@link #getSimilarities(String, List)} or
+ * {@link #mostSimilar(String, List, int)}: the query text is only vectorized once, the normalized token vectors of the
+ * candidates are cached, and the candidates are compared in parallel. {@link #mostSimilar(String, List, int)}
+ * additionally prunes candidates using an upper bound of the similarity: for each candidate, the centroid of its token
+ * vectors and the maximum angle between the centroid and a token vector are kept; by the triangle inequality, the
+ * angle between a query token and any candidate token is at least the angle to the centroid minus this radius. The
+ * candidates are compared in descending order of their bounds, until no bound exceeds the k-th best similarity.
+ * </p>
+ *
  * @author Philipp Katz
  */
 public class WordMoverSimilarity extends AbstractWordVectorSimilarity {
 
+    /** The logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(WordMoverSimilarity.class);
+
+    /** The default number of candidate texts for which the vectors are cached. */
+    public static final int DEFAULT_CACHE_SIZE = 10000;
+
+    /** The number of candidates which are compared in parallel during {@link #mostSimilar(String, List, int)}. */
+    private static final int BLOCK_SIZE = 256;
+
+    /** Tolerance for rounding errors when comparing bounds. */
+    private static final double EPSILON = 1e-5;
+
+    /** A candidate from {@link #mostSimilar(String, List, int)}. */
+    public static final class Match {
+        private final int index;
+        private final double similarity;
+
+        Match(int index, double similarity) {
+            this.index = index;
+            this.similarity = similarity;
+        }
+
+        /** @return The index of the candidate in the given list. */
+        public int getIndex() {
+            return index;
+        }
+
+        public double getSimilarity() {
+            return similarity;
+        }
+
+        @Override
+        public String toString() {
+            return index + "=" + similarity;
+        }
+    }
+
+    /** The normalized vectors of the tokens of a text. */
+    private static final class TokenVectors {
+        /** The number of tokens, including those without vector. */
+        final int numTokens;
+        final float[][] vectors;
+        /** The normalized centroid, or <code>null</code> in case it is undefined. */
+        final float[] centroid;
+        /** The maximum angle between the centroid and a token vector. */
+        final double radius;
+
+        TokenVectors(int numTokens, float[][] vectors) {
+            this.numTokens = numTokens;
+            this.vectors = vectors;
+            float[] centroid = null;
+            double radius = Math.PI;
+            if (vectors.length > 0) {
+                centroid = new float[vectors[0].length];
+                for (float[] vector : vectors) {
+                    FloatVectorUtil.add(centroid, vector);
+                }
+                if (FloatVectorUtil.magnitude(centroid) > 0) {
+                    FloatVectorUtil.normalize(centroid);
+                    radius = 0;
+                    for (float[] vector : vectors) {
+                        radius = Math.max(radius, angle(centroid, vector));
+                    }
+                } else {
+                    centroid = null;
+                }
+            }
+            this.centroid = centroid;
+            this.radius = radius;
+        }
+    }
+
     private final WordVectorDictionary dictionary;
 
+    private final Map<String, TokenVectors> cache;
+
     public WordMoverSimilarity(WordVectorDictionary dictionary) {
-        this.dictionary = dictionary;
+        this(dictionary, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param dictionary The word vectors.
+     * @param cacheSize  The number of candidate texts for which the token vectors are cached, greater zero.
+     */
+    public WordMoverSimilarity(WordVectorDictionary dictionary, int cacheSize) {
+        this.dictionary = Objects.requireNonNull(dictionary, "dictionary must not be null");
+        this.cache = ThreadSafeLruMap.accessOrder(cacheSize);
     }
 
     @Override
     public double getSimilarity(String i1, String i2) {
-        List<String> tokens1 = preprocess(i1);
-        List<String> tokens2 = preprocess(i2);
+        return similarity(vectorize(i1), vectorize(i2));
+    }
 
-        // swap in case tokens1 holds the smaller set
-        if (tokens1.size() > tokens2.size()) {
-            List<String> temp = tokens1;
-            tokens1 = tokens2;
-            tokens2 = temp;
-        }
+    /**
+     * Calculate the similarities between a text and many candidates.
+     *
+     * @param text       The text.
+     * @param candidates The candidates.
+     * @return The similarities, in the order of the candidates.
+     */
+    public double[] getSimilarities(String text, List<String> candidates) {
+        TokenVectors query = vectorize(text);
+        return candidates.parallelStream().mapToDouble(candidate -> similarity(query, getCached(candidate))).toArray();
+    }
 
-        double similarity = 0;
+    /**
+     * Get the candidates which are most similar to a text. The result is the same as sorting the results of
+     * {@link #getSimilarities(String, List)}, but candidates which cannot be among the k most similar ones are skipped.
+     *
+     * @param text       The text.
+     * @param candidates The candidates.
+     * @param k          The number of candidates to return, greater zero.
+     * @return The most similar candidates in descending order of similarity.
+     */
+    public List<Match> mostSimilar(String text, List<String> candidates, int k) {
+        Validate.isTrue(k > 0, "k must be greater zero");
+        TokenVectors query = vectorize(text);
+        TokenVectors[] candidateVectors = candidates.parallelStream().map(this::getCached).toArray(TokenVectors[]::new);
+        double[] bounds = IntStream.range(0, candidateVectors.length).parallel()
+                .mapToDouble(i -> upperBound(query, candidateVectors[i])).toArray();
+        Integer[] order = new Integer[candidateVectors.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (i1, i2) -> Double.compare(bounds[i2], bounds[i1]));
 
-        for (String token1 : tokens1) {
-            double maxSimilarity = 0;
-            float[] vector1 = dictionary.getVector(token1);
-            if (vector1 == null) {
-                continue;
+        PriorityQueue<Match> topK = new PriorityQueue<>(Comparator.comparingDouble(Match::getSimilarity));
+        int numCompared = 0;
+        for (int blockStart = 0; blockStart < order.length; blockStart += BLOCK_SIZE) {
+            if (topK.size() == k && bounds[order[blockStart]] + EPSILON < topK.peek().getSimilarity()) {
+                break;
             }
-            for (String token2 : tokens2) {
-                float[] vector2 = dictionary.getVector(token2);
-                if (vector2 == null) {
-                    continue;
+            int blockEnd = Math.min(blockStart + BLOCK_SIZE, order.length);
+            double[] similarities = IntStream.range(blockStart, blockEnd).parallel()
+                    .mapToDouble(i -> similarity(query, candidateVectors[order[i]])).toArray();
+            for (int i = blockStart; i < blockEnd; i++) {
+                double similarity = similarities[i - blockStart];
+                if (topK.size() < k) {
+                    topK.add(new Match(order[i], similarity));
+                } else if (similarity > topK.peek().getSimilarity()) {
+                    topK.poll();
+                    topK.add(new Match(order[i], similarity));
+                }
+            }
+            numCompared = blockEnd;
+        }
+        LOGGER.debug("Compared {} of {} candidates", numCompared, order.length);
+        List<Match> result = new ArrayList<>(topK);
+        result.sort(Comparator.comparingDouble(Match::getSimilarity).reversed());
+        return result;
+    }
+
+    private TokenVectors getCached(String text) {
+        TokenVectors vectors = cache.get(text);
+        if (vectors == null) {
+            vectors = vectorize(text);
+            cache.put(text, vectors);
+        }
+        return vectors;
+    }
+
+    private TokenVectors vectorize(String text) {
+        List<String> tokens = preprocess(text);
+        List<float[]> vectors = new ArrayList<>();
+        for (String token : tokens) {
+            float[] vector = dictionary.getVector(token);
+            if (vector != null) {
+                vector = vector.clone();
+                if (FloatVectorUtil.magnitude(vector) > 0) {
+                    FloatVectorUtil.normalize(vector);
                 }
-                float currentSimilarity = FloatVectorUtil.cosine(vector1, vector2);
-                maxSimilarity = Math.max(maxSimilarity, currentSimilarity);
+                vectors.add(vector);
+            }
+        }
+        return new TokenVectors(tokens.size(), vectors.toArray(new float[0][]));
+    }
+
+    private static double similarity(TokenVectors vectors1, TokenVectors vectors2) {
+        // swap in case vectors1 holds the larger set
+        if (vectors1.numTokens > vectors2.numTokens) {
+            TokenVectors temp = vectors1;
+            vectors1 = vectors2;
+            vectors2 = temp;
+        }
+        double similarity = 0;
+        for (float[] vector1 : vectors1.vectors) {
+            double maxSimilarity = 0;
+            for (float[] vector2 : vectors2.vectors) {
+                maxSimilarity = Math.max(maxSimilarity, FloatVectorUtil.dot(vector1, vector2));
             }
             similarity += maxSimilarity;
         }
+        return similarity / vectors1.numTokens;
+    }
 
-        return similarity / tokens1.size();
+    private static double upperBound(TokenVectors vectors1, TokenVectors vectors2) {
+        if (vectors1.numTokens > vectors2.numTokens) {
+            TokenVectors temp = vectors1;
+            vectors1 = vectors2;
+            vectors2 = temp;
+        }
+        if (vectors2.centroid == null) {
+            return similarity(vectors1, vectors2); // nothing to gain
+        }
+        double bound = 0;
+        for (float[] vector1 : vectors1.vectors) {
+            double minAngle = angle(vectors2.centroid, vector1) - vectors2.radius;
+            bound += minAngle <= 0 ? 1 : Math.max(0, Math.cos(minAngle));
+        }
+        return bound / vectors1.numTokens;
+    }
+
+    /** The angle between two vectors, calculated in double precision, as acos amplifies rounding errors. */
+    private static double angle(float[] vector1, float[] vector2) {
+        double dot = 0;
+        double squared1 = 0;
+        double squared2 = 0;
+        for (int i = 0; i < vector1.length; i++) {
+            dot += (double) vector1[i] * vector2[i];
+            squared1 += (double) vector1[i] * vector1[i];
+            squared2 += (double) vector2[i] * vector2[i];
+        }
+        if (squared1 == 0 || squared2 == 0) {
+            return Math.PI / 2;
+        }
+        return Math.acos(Math.max(-1, Math.min(1, dot / Math.sqrt(squared1 * squared2))));
     }
 
     @Override
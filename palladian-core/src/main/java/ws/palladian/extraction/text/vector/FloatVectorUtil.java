@@ -24,18 +24,34 @@ public class FloatVectorUtil {
     }
 
     public static float cosine(float[] vector1, float[] vector2) {
-        float dot = dot(vector1, vector2);
-        float magnitude1 = magnitude(vector1);
-        float magnitude2 = magnitude(vector2);
-        return dot / (magnitude1 * magnitude2);
+        // dot product and magnitudes in one pass
+        float dot = 0;
+        float squared1 = 0;
+        float squared2 = 0;
+        for (int i = 0; i < vector1.length; i++) {
+            float value1 = vector1[i];
+            float value2 = vector2[i];
+            dot += value1 * value2;
+            squared1 += value1 * value1;
+            squared2 += value2 * value2;
+        }
+        return dot / (float) (Math.sqrt(squared1) * Math.sqrt(squared2));
     }
 
     public static float dot(float[] vector1, float[] vector2) {
-        float dot = 0;
-        for (int i = 0; i < vector1.length; i++) {
-            dot += vector1[i] * vector2[i];
+        // independent sums for the JIT to keep the multiplications in flight
+        float dot0 = 0, dot1 = 0, dot2 = 0, dot3 = 0;
+        int i = 0;
+        for (; i + 3 < vector1.length; i += 4) {
+            dot0 += vector1[i] * vector2[i];
+            dot1 += vector1[i + 1] * vector2[i + 1];
+            dot2 += vector1[i + 2] * vector2[i + 2];
+            dot3 += vector1[i + 3] * vector2[i + 3];
+        }
+        for (; i < vector1.length; i++) {
+            dot0 += vector1[i] * vector2[i];
         }
-        return dot;
+        return dot0 + dot1 + dot2 + dot3;
     }
 
     public static float magnitude(float[] vector) {
@@ -3,12 +3,14 @@ package ws.palladian.extraction.text.vector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ws.palladian.helper.ProgressMonitor;
-import ws.palladian.helper.io.FileHelper;
 import ws.palladian.helper.io.LineAction;
+import ws.palladian.helper.io.ParallelLineProcessor;
 
 import java.io.File;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /***
  * Keep the word vectors in a map.
@@ -24,37 +26,48 @@ public class MapWordVectorDictionary implements WordVectorDictionary {
     }
 
     public static MapWordVectorDictionary readFromVecFile(File vecFile, final int lineLimit) {
-        ProgressMonitor progressMonitor = new ProgressMonitor(FileHelper.getNumberOfLines(vecFile), 5., "Reading vectors from " + vecFile);
-        final Map<String, float[]> entries = new HashMap<>();
-        final int[] vectorSize = {-1};
-        final boolean[] caseSensitive = {false};
-        FileHelper.performActionOnEveryLine(vecFile, new LineAction() {
+        // the lines are parsed in parallel, so the collected state must be thread-safe
+        final Map<String, float[]> entries = new ConcurrentHashMap<>();
+        // the line numbers of the entries, so that the last line wins for duplicate tokens, as when reading sequentially
+        final ConcurrentHashMap<String, Integer> lineNumbers = new ConcurrentHashMap<>();
+        final AtomicInteger vectorSize = new AtomicInteger(-1);
+        final AtomicBoolean caseSensitive = new AtomicBoolean();
+        ParallelLineProcessor processor = ParallelLineProcessor.builder().setProgress(new ProgressMonitor(5.)).create();
+        processor.process(vecFile, new LineAction() {
             @Override
             public void performAction(String line, int lineNumber) {
-                progressMonitor.incrementAndPrintProgress();
+                if (lineNumber > lineLimit) {
+                    return;
+                }
                 String[] values = line.split(" ");
                 String token = values[0];
 
                 // automatically detect if the dictionary is case-sensitive
                 if (!token.equals(token.toLowerCase())) {
-                    caseSensitive[0] = true;
+                    caseSensitive.set(true);
                 }
 
-                if (vectorSize[0] == -1) {
-                    vectorSize[0] = values.length - 1;
+                if (lineNumber == 0) {
+                    vectorSize.set(values.length - 1);
                 }
                 float[] vector = new float[values.length - 1];
                 for (int i = 1; i < values.length; i++) {
                     vector[i - 1] = Float.parseFloat(values[i]);
                 }
-                entries.put(token, vector);
+                lineNumbers.compute(token, (t, previousLineNumber) -> {
+                    if (previousLineNumber != null && previousLineNumber > lineNumber) {
+                        return previousLineNumber;
+                    }
+                    entries.put(t, vector);
+                    return lineNumber;
+                });
                 if (lineNumber >= lineLimit) {
                     breakLineLoop();
                 }
             }
         });
-        LOGGER.debug("Dictionary is case sensitive? {}", caseSensitive[0]);
-        return new MapWordVectorDictionary(entries, vectorSize[0], caseSensitive[0], vecFile);
+        LOGGER.debug("Dictionary is case sensitive? {}", caseSensitive.get());
+        return new MapWordVectorDictionary(entries, vectorSize.get(), caseSensitive.get(), vecFile);
     }
 
     private final Map<String, float[]> entries;
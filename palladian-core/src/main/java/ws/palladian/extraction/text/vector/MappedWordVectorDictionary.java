@@ -0,0 +1,708 @@
+package ws.palladian.extraction.text.vector;
+
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ws.palladian.helper.StopWatch;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.IntStream;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+
+/**
+ * <p>
+ * A {@link WordVectorDictionary} which keeps the vectors in a memory-mapped file instead of the heap. The vectors are
+ * stored as one contiguous row-major matrix (optionally quantized to one byte per dimension with a scale per row), so
+ * that opening even large embedding files is nearly instant and the vectors are paged in by the operating system on
+ * demand. Words are mapped to their rows using an open addressing hash table over the UTF-8 bytes of the vocabulary,
+ * so no {@link String} objects are kept for the vocabulary either.
+ * </p>
+ *
+ * <p>
+ * Files are created using the {@link Writer}, or converted from the text format (see
+ * {@link #convertVecFile(File, File, boolean)}) or the binary word2vec format (see
+ * {@link Word2VecReader#convertBinFile(File, File, boolean)}). Besides the vector lookup, the dictionary supports
+ * cosine similarity queries on the stored rows and {@link #mostSimilar(String, int)} queries; by default, these scan
+ * all rows (in parallel), after {@link #buildIndex(int, int, long)} they use an inverted file index (IVF), which only
+ * scans the rows of the clusters closest to the query.
+ * </p>
+ */
+public final class MappedWordVectorDictionary implements WordVectorDictionary, Closeable {
+
+    /** The logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedWordVectorDictionary.class);
+
+    private static final int MAGIC = 0x50575644;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 32;
+
+    private static final int FLAG_CASE_SENSITIVE = 1;
+
+    private static final int FLAG_QUANTIZED = 2;
+
+    /** The number of k-means iterations when building the index. */
+    private static final int INDEX_ITERATIONS = 10;
+
+    /** The number of sampled rows per cluster for training the k-means clustering of the index. */
+    private static final int INDEX_SAMPLES_PER_LIST = 64;
+
+    /** A word from a {@link #mostSimilar(String, int)} query with its cosine similarity. */
+    public static final class Neighbor {
+        private final String word;
+        private final float similarity;
+
+        Neighbor(String word, float similarity) {
+            this.word = word;
+            this.similarity = similarity;
+        }
+
+        public String getWord() {
+            return word;
+        }
+
+        public float getSimilarity() {
+            return similarity;
+        }
+
+        @Override
+        public String toString() {
+            return word + "=" + similarity;
+        }
+    }
+
+    /**
+     * Writes the vectors to a file which can be opened with {@link MappedWordVectorDictionary#open(File)}. The vectors
+     * are streamed to the file, only the vocabulary and two floats per word are kept in memory until
+     * {@link #close()}.
+     */
+    public static final class Writer implements Closeable {
+        private final File file;
+        private final boolean quantize;
+        private final OutputStream out;
+        private final Set<String> words = new HashSet<>();
+        private final FloatArrayList norms = new FloatArrayList();
+        private final FloatArrayList scales = new FloatArrayList();
+        private final ByteArrayOutputStream vocabulary = new ByteArrayOutputStream();
+        private ByteBuffer rowBuffer;
+        private int vectorSize = -1;
+        private boolean caseSensitive = false;
+
+        /**
+         * Create a new writer.
+         *
+         * @param file     The file to write to, existing files are overwritten.
+         * @param quantize <code>true</code> to store the vectors with one byte per dimension, which reduces the size to a
+         *                 quarter at the cost of a small loss in precision.
+         * @throws IOException In case the file cannot be created.
+         */
+        public Writer(File file, boolean quantize) throws IOException {
+            this.file = Objects.requireNonNull(file, "file must not be null");
+            this.quantize = quantize;
+            this.out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+            out.write(new byte[HEADER_SIZE]); // written on close, when we know the size
+        }
+
+        /**
+         * Add a vector. In case the word was already added, the vector is ignored.
+         *
+         * @param word   The word.
+         * @param vector The vector, must have the same length as all other vectors.
+         * @throws IOException In case writing fails.
+         */
+        public void add(String word, float[] vector) throws IOException {
+            Validate.notNull(word, "word must not be null");
+            Validate.notNull(vector, "vector must not be null");
+            if (vectorSize == -1) {
+                vectorSize = vector.length;
+                rowBuffer = ByteBuffer.allocate(quantize ? vectorSize : 4 * vectorSize).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            Validate.isTrue(vector.length == vectorSize, "expected vector size %s, but was %s for '%s'", vectorSize,
+                    vector.length, word);
+            if (!words.add(word)) {
+                return;
+            }
+            // automatically detect if the dictionary is case-sensitive
+            if (!word.equals(word.toLowerCase())) {
+                caseSensitive = true;
+            }
+            rowBuffer.clear();
+            if (quantize) {
+                float maxAbs = 0;
+                for (float value : vector) {
+                    maxAbs = Math.max(maxAbs, Math.abs(value));
+                }
+                float scale = maxAbs > 0 ? maxAbs / 127 : 1;
+                // the norm of the quantized vector, so that cosine similarities are consistent with the stored rows
+                float squaredNorm = 0;
+                for (float value : vector) {
+                    byte quantizedValue = (byte) Math.round(value / scale);
+                    rowBuffer.put(quantizedValue);
+                    squaredNorm += quantizedValue * scale * quantizedValue * scale;
+                }
+                scales.add(scale);
+                norms.add((float) Math.sqrt(squaredNorm));
+            } else {
+                for (float value : vector) {
+                    rowBuffer.putFloat(value);
+                }
+                norms.add(FloatVectorUtil.magnitude(vector));
+            }
+            out.write(rowBuffer.array());
+            byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+            vocabulary.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(bytes.length).array());
+            vocabulary.write(bytes);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                writeFloats(norms);
+                if (quantize) {
+                    writeFloats(scales);
+                }
+                vocabulary.writeTo(out);
+            } finally {
+                out.close();
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt((caseSensitive ? FLAG_CASE_SENSITIVE : 0) | (quantize ? FLAG_QUANTIZED : 0));
+            header.putInt(norms.size());
+            header.putInt(Math.max(vectorSize, 0));
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+                randomAccessFile.write(header.array());
+            }
+        }
+
+        private void writeFloats(FloatArrayList values) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(4 * values.size()).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < values.size(); i++) {
+                buffer.putFloat(values.getFloat(i));
+            }
+            out.write(buffer.array());
+        }
+    }
+
+    /** The clusters of the inverted file index. */
+    private static final class InvertedIndex {
+        final float[][] centroids;
+        final int[][] lists;
+        final int numProbes;
+
+        InvertedIndex(float[][] centroids, int[][] lists, int numProbes) {
+            this.centroids = centroids;
+            this.lists = lists;
+            this.numProbes = numProbes;
+        }
+    }
+
+    /** Keeps the k rows with the highest similarities. */
+    private static final class TopK {
+        final int[] rows;
+        final float[] similarities;
+        int size;
+
+        TopK(int k) {
+            rows = new int[k];
+            similarities = new float[k];
+        }
+
+        void offer(int row, float similarity) {
+            if (size == rows.length && similarity <= similarities[size - 1]) {
+                return;
+            }
+            int position = size == rows.length ? size - 1 : size++;
+            while (position > 0 && similarities[position - 1] < similarity) {
+                rows[position] = rows[position - 1];
+                similarities[position] = similarities[position - 1];
+                position--;
+            }
+            rows[position] = row;
+            similarities[position] = similarity;
+        }
+
+        TopK merge(TopK other) {
+            for (int i = 0; i < other.size; i++) {
+                offer(other.rows[i], other.similarities[i]);
+            }
+            return this;
+        }
+    }
+
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final int numWords;
+    private final int vectorSize;
+    private final boolean caseSensitive;
+    private final boolean quantized;
+    private final int rowsPerChunk;
+    private final ByteBuffer[] byteChunks;
+    private final FloatBuffer[] floatChunks;
+    private final float[] norms;
+    private final float[] scales;
+    private final byte[] vocabulary;
+    private final int[] wordOffsets;
+    private final int[] hashTable;
+    private volatile InvertedIndex invertedIndex;
+
+    /**
+     * Convert a word vector file in text format (one word per line, followed by the space-separated values; an
+     * optional header line with the number of words and the vector size is skipped) without loading it into memory.
+     *
+     * @param vecFile    The text file.
+     * @param outputFile The file to write to.
+     * @param quantize   <code>true</code> to quantize the vectors, see {@link Writer#Writer(File, boolean)}.
+     * @throws IOException In case reading or writing fails.
+     */
+    public static void convertVecFile(File vecFile, File outputFile, boolean quantize) throws IOException {
+        StopWatch stopWatch = new StopWatch();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(vecFile), StandardCharsets.UTF_8)); Writer writer = new Writer(outputFile, quantize)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                String[] values = line.trim().split(" ");
+                if (lineNumber++ == 0 && values.length == 2) {
+                    continue; // header line
+                }
+                if (values.length < 2) {
+                    continue;
+                }
+                float[] vector = new float[values.length - 1];
+                for (int i = 1; i < values.length; i++) {
+                    vector[i - 1] = Float.parseFloat(values[i]);
+                }
+                writer.add(values[0], vector);
+            }
+        }
+        LOGGER.info("Converted {} to {} in {}", vecFile, outputFile, stopWatch);
+    }
+
+    /**
+     * Open a file which was created using the {@link Writer}.
+     *
+     * @param file The file.
+     * @return The dictionary, which should be closed after usage.
+     * @throws IOException In case the file cannot be read or is not a word vector file.
+     */
+    public static MappedWordVectorDictionary open(File file) throws IOException {
+        return new MappedWordVectorDictionary(file);
+    }
+
+    private MappedWordVectorDictionary(File file) throws IOException {
+        StopWatch stopWatch = new StopWatch();
+        this.file = file;
+        this.randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException(file + " is not a word vector file");
+            }
+            ByteBuffer header = channel.map(READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC) {
+                throw new IOException(file + " is not a word vector file");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported version " + version + " of " + file);
+            }
+            int flags = header.getInt();
+            numWords = header.getInt();
+            vectorSize = header.getInt();
+            caseSensitive = (flags & FLAG_CASE_SENSITIVE) != 0;
+            quantized = (flags & FLAG_QUANTIZED) != 0;
+
+            // a mapped buffer can hold at most 2 GB, so we map the matrix in chunks of complete rows
+            int rowBytes = quantized ? vectorSize : 4 * vectorSize;
+            rowsPerChunk = Math.max(1, Integer.MAX_VALUE / Math.max(rowBytes, 1));
+            int numChunks = (numWords + rowsPerChunk - 1) / rowsPerChunk;
+            byteChunks = new ByteBuffer[numChunks];
+            floatChunks = new FloatBuffer[numChunks];
+            long position = HEADER_SIZE;
+            for (int i = 0; i < numChunks; i++) {
+                int rows = Math.min(rowsPerChunk, numWords - i * rowsPerChunk);
+                byteChunks[i] = channel.map(READ_ONLY, position, (long) rows * rowBytes).order(ByteOrder.LITTLE_ENDIAN);
+                floatChunks[i] = byteChunks[i].asFloatBuffer();
+                position += (long) rows * rowBytes;
+            }
+            norms = readFloats(channel, position, numWords);
+            position += 4L * numWords;
+            if (quantized) {
+                scales = readFloats(channel, position, numWords);
+                position += 4L * numWords;
+            } else {
+                scales = null;
+            }
+
+            // vocabulary; drop the length prefixes and build the hash table
+            ByteBuffer vocabularyBuffer = channel.map(READ_ONLY, position, channel.size() - position).order(ByteOrder.LITTLE_ENDIAN);
+            vocabulary = new byte[vocabularyBuffer.capacity() - 4 * numWords];
+            wordOffsets = new int[numWords + 1];
+            int offset = 0;
+            for (int row = 0; row < numWords; row++) {
+                int length = vocabularyBuffer.getInt();
+                vocabularyBuffer.get(vocabulary, offset, length);
+                wordOffsets[row] = offset;
+                offset += length;
+            }
+            wordOffsets[numWords] = offset;
+            hashTable = new int[Integer.highestOneBit(Math.max(numWords, 1)) << 2];
+            Arrays.fill(hashTable, -1);
+            int mask = hashTable.length - 1;
+            for (int row = 0; row < numWords; row++) {
+                int slot = hash(vocabulary, wordOffsets[row], wordOffsets[row + 1]) & mask;
+                while (hashTable[slot] != -1) {
+                    slot = (slot + 1) & mask;
+                }
+                hashTable[slot] = row;
+            }
+        } catch (IOException | RuntimeException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+        LOGGER.debug("Opened {} with {} words in {}", file, numWords, stopWatch);
+    }
+
+    private static float[] readFloats(FileChannel channel, long position, int count) throws IOException {
+        float[] values = new float[count];
+        channel.map(READ_ONLY, position, 4L * count).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(values);
+        return values;
+    }
+
+    /** FNV-1a over the bytes. */
+    private static int hash(byte[] bytes, int from, int to) {
+        int hash = 0x811c9dc5;
+        for (int i = from; i < to; i++) {
+            hash ^= bytes[i];
+            hash *= 0x01000193;
+        }
+        return hash ^ hash >>> 16;
+    }
+
+    /**
+     * Get the row of a word.
+     *
+     * @param word The word.
+     * @return The row, or -1 in case the word is not in the dictionary.
+     */
+    public int getRow(String word) {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        int mask = hashTable.length - 1;
+        int slot = hash(bytes, 0, bytes.length) & mask;
+        int row;
+        while ((row = hashTable[slot]) != -1) {
+            if (Arrays.equals(vocabulary, wordOffsets[row], wordOffsets[row + 1], bytes, 0, bytes.length)) {
+                return row;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Get the word in a row.
+     *
+     * @param row The row, between zero and {@link #size()} (exclusive).
+     * @return The word.
+     */
+    public String getWord(int row) {
+        Validate.isTrue(row >= 0 && row < numWords, "invalid row %s", row);
+        return new String(vocabulary, wordOffsets[row], wordOffsets[row + 1] - wordOffsets[row], StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public float[] getVector(String word) {
+        int row = getRow(word);
+        return row >= 0 ? getVector(row) : null;
+    }
+
+    /**
+     * Get the vector in a row; for quantized dictionaries, this is an approximation of the original vector.
+     *
+     * @param row The row.
+     * @return A copy of the vector.
+     */
+    public float[] getVector(int row) {
+        float[] vector = new float[vectorSize];
+        int chunk = row / rowsPerChunk;
+        int offset = (row % rowsPerChunk) * vectorSize;
+        if (quantized) {
+            byte[] bytes = new byte[vectorSize];
+            byteChunks[chunk].get(offset, bytes);
+            float scale = scales[row];
+            for (int i = 0; i < vectorSize; i++) {
+                vector[i] = bytes[i] * scale;
+            }
+        } else {
+            floatChunks[chunk].get(offset, vector);
+        }
+        return vector;
+    }
+
+    /**
+     * Calculate the dot product between a row and a vector directly on the mapped data.
+     *
+     * @param row    The row.
+     * @param vector The vector.
+     * @return The dot product.
+     */
+    public float dot(int row, float[] vector) {
+        int chunk = row / rowsPerChunk;
+        int offset = (row % rowsPerChunk) * vectorSize;
+        float dot0 = 0, dot1 = 0, dot2 = 0, dot3 = 0;
+        int i = 0;
+        if (quantized) {
+            ByteBuffer bytes = byteChunks[chunk];
+            for (; i + 3 < vectorSize; i += 4) {
+                dot0 += bytes.get(offset + i) * vector[i];
+                dot1 += bytes.get(offset + i + 1) * vector[i + 1];
+                dot2 += bytes.get(offset + i + 2) * vector[i + 2];
+                dot3 += bytes.get(offset + i + 3) * vector[i + 3];
+            }
+            for (; i < vectorSize; i++) {
+                dot0 += bytes.get(offset + i) * vector[i];
+            }
+            return (dot0 + dot1 + dot2 + dot3) * scales[row];
+        }
+        FloatBuffer floats = floatChunks[chunk];
+        for (; i + 3 < vectorSize; i += 4) {
+            dot0 += floats.get(offset + i) * vector[i];
+            dot1 += floats.get(offset + i + 1) * vector[i + 1];
+            dot2 += floats.get(offset + i + 2) * vector[i + 2];
+            dot3 += floats.get(offset + i + 3) * vector[i + 3];
+        }
+        for (; i < vectorSize; i++) {
+            dot0 += floats.get(offset + i) * vector[i];
+        }
+        return dot0 + dot1 + dot2 + dot3;
+    }
+
+    /**
+     * Calculate the cosine similarity between two words.
+     *
+     * @param word1 The first word.
+     * @param word2 The second word.
+     * @return The cosine similarity, or {@link Float#NaN} in case one of the words is not in the dictionary.
+     */
+    public float cosine(String word1, String word2) {
+        int row1 = getRow(word1);
+        int row2 = getRow(word2);
+        if (row1 < 0 || row2 < 0) {
+            return Float.NaN;
+        }
+        return cosine(row2, getVector(row1), norms[row1]);
+    }
+
+    private float cosine(int row, float[] vector, float magnitude) {
+        float denominator = norms[row] * magnitude;
+        return denominator > 0 ? dot(row, vector) / denominator : 0;
+    }
+
+    /**
+     * Get the words which are most similar to the given word (by cosine similarity).
+     *
+     * @param word The word.
+     * @param k    The number of words to return.
+     * @return The most similar words (not including the given word) in descending order of similarity; empty list in
+     * case the word is not in the dictionary.
+     */
+    public List<Neighbor> mostSimilar(String word, int k) {
+        int row = getRow(word);
+        if (row < 0) {
+            return Collections.emptyList();
+        }
+        return search(getVector(row), k, row);
+    }
+
+    /**
+     * Get the words which are most similar to the given vector (by cosine similarity).
+     *
+     * @param vector The vector.
+     * @param k      The number of words to return.
+     * @return The most similar words in descending order of similarity.
+     */
+    public List<Neighbor> mostSimilar(float[] vector, int k) {
+        Validate.isTrue(vector.length == vectorSize, "vector must have size %s", vectorSize);
+        return search(vector, k, -1);
+    }
+
+    private List<Neighbor> search(float[] vector, int k, int excludedRow) {
+        Validate.isTrue(k > 0, "k must be greater zero");
+        float magnitude = FloatVectorUtil.magnitude(vector);
+        InvertedIndex index = invertedIndex;
+        TopK topK;
+        if (index != null) {
+            // scan the lists of the clusters with the closest centroids
+            TopK closestLists = new TopK(index.numProbes);
+            for (int list = 0; list < index.centroids.length; list++) {
+                closestLists.offer(list, FloatVectorUtil.dot(index.centroids[list], vector));
+            }
+            topK = new TopK(k);
+            for (int i = 0; i < closestLists.size; i++) {
+                for (int row : index.lists[closestLists.rows[i]]) {
+                    if (row != excludedRow) {
+                        topK.offer(row, cosine(row, vector, magnitude));
+                    }
+                }
+            }
+        } else {
+            int numRanges = Math.max(1, Math.min(numWords / 10000, 4 * Runtime.getRuntime().availableProcessors()));
+            topK = IntStream.range(0, numRanges).parallel().mapToObj(range -> {
+                TopK rangeTopK = new TopK(k);
+                int end = (int) ((long) numWords * (range + 1) / numRanges);
+                for (int row = (int) ((long) numWords * range / numRanges); row < end; row++) {
+                    if (row != excludedRow) {
+                        rangeTopK.offer(row, cosine(row, vector, magnitude));
+                    }
+                }
+                return rangeTopK;
+            }).reduce(TopK::merge).orElse(new TopK(k));
+        }
+        List<Neighbor> neighbors = new ArrayList<>();
+        for (int i = 0; i < topK.size; i++) {
+            neighbors.add(new Neighbor(getWord(topK.rows[i]), topK.similarities[i]));
+        }
+        return neighbors;
+    }
+
+    /**
+     * Build an inverted file index for the {@link #mostSimilar(String, int)} queries: the rows are clustered with
+     * spherical k-means (trained on a sample of the rows), and queries only scan the rows of the
+     * <code>numProbes</code> clusters whose centroids are closest to the query vector. The results are approximate;
+     * more probes give better results, but take longer.
+     *
+     * @param numLists  The number of clusters, a good value is about the square root of the number of words.
+     * @param numProbes The number of clusters to scan for a query.
+     * @param seed      The seed for sampling the rows.
+     */
+    public void buildIndex(int numLists, int numProbes, long seed) {
+        Validate.isTrue(numLists > 0 && numLists <= numWords, "numLists must be in range [1, %s]", numWords);
+        Validate.isTrue(numProbes > 0 && numProbes <= numLists, "numProbes must be in range [1, %s]", numLists);
+        StopWatch stopWatch = new StopWatch();
+        Random random = new Random(seed);
+
+        // normalized sample of the rows
+        int numSamples = (int) Math.min(numWords, (long) numLists * INDEX_SAMPLES_PER_LIST);
+        int[] sampleRows = IntStream.range(0, numWords).toArray();
+        for (int i = 0; i < numSamples; i++) {
+            int j = i + random.nextInt(numWords - i);
+            int temp = sampleRows[i];
+            sampleRows[i] = sampleRows[j];
+            sampleRows[j] = temp;
+        }
+        float[][] samples = new float[numSamples][];
+        for (int i = 0; i < numSamples; i++) {
+            samples[i] = normalize(getVector(sampleRows[i]));
+        }
+
+        // spherical k-means, initialized with the first sampled rows
+        float[][] centroids = new float[numLists][];
+        for (int i = 0; i < numLists; i++) {
+            centroids[i] = samples[i].clone();
+        }
+        int[] sampleAssignments = new int[numSamples];
+        for (int iteration = 0; iteration < INDEX_ITERATIONS; iteration++) {
+            float[][] currentCentroids = centroids;
+            IntStream.range(0, numSamples).parallel().forEach(i -> sampleAssignments[i] = closest(currentCentroids, samples[i]));
+            float[][] sums = new float[numLists][vectorSize];
+            int[] counts = new int[numLists];
+            for (int i = 0; i < numSamples; i++) {
+                FloatVectorUtil.add(sums[sampleAssignments[i]], samples[i]);
+                counts[sampleAssignments[i]]++;
+            }
+            for (int list = 0; list < numLists; list++) {
+                if (counts[list] == 0) { // re-seed empty clusters
+                    sums[list] = samples[random.nextInt(numSamples)].clone();
+                }
+                centroids[list] = normalize(sums[list]);
+            }
+        }
+
+        // assign all rows
+        float[][] finalCentroids = centroids;
+        int[] assignments = new int[numWords];
+        IntStream.range(0, numWords).parallel().forEach(row -> assignments[row] = closest(finalCentroids, getVector(row)));
+        IntArrayList[] lists = new IntArrayList[numLists];
+        for (int list = 0; list < numLists; list++) {
+            lists[list] = new IntArrayList();
+        }
+        for (int row = 0; row < numWords; row++) {
+            lists[assignments[row]].add(row);
+        }
+        int[][] listArrays = new int[numLists][];
+        for (int list = 0; list < numLists; list++) {
+            listArrays[list] = lists[list].toIntArray();
+        }
+        invertedIndex = new InvertedIndex(centroids, listArrays, numProbes);
+        LOGGER.info("Built index with {} lists for {} words in {}", numLists, numWords, stopWatch);
+    }
+
+    /** Remove the index built with {@link #buildIndex(int, int, long)}, queries will scan all rows again. */
+    public void clearIndex() {
+        invertedIndex = null;
+    }
+
+    /** @return <code>true</code> in case an index was built using {@link #buildIndex(int, int, long)}. */
+    public boolean hasIndex() {
+        return invertedIndex != null;
+    }
+
+    private static int closest(float[][] centroids, float[] vector) {
+        int closest = 0;
+        float maxDot = Float.NEGATIVE_INFINITY;
+        for (int list = 0; list < centroids.length; list++) {
+            float dot = FloatVectorUtil.dot(centroids[list], vector);
+            if (dot > maxDot) {
+                maxDot = dot;
+                closest = list;
+            }
+        }
+        return closest;
+    }
+
+    private static float[] normalize(float[] vector) {
+        return FloatVectorUtil.magnitude(vector) > 0 ? FloatVectorUtil.normalize(vector) : vector;
+    }
+
+    @Override
+    public int size() {
+        return numWords;
+    }
+
+    @Override
+    public int vectorSize() {
+        return vectorSize;
+    }
+
+    @Override
+    public boolean isCaseSensitive() {
+        return caseSensitive;
+    }
+
+    /** @return <code>true</code> in case the vectors are stored with one byte per dimension. */
+    public boolean isQuantized() {
+        return quantized;
+    }
+
+    @Override
+    public void close() throws IOException {
+        randomAccessFile.close();
+    }
+
+    @Override
+    public String toString() {
+        return "MappedWordVectorDictionary [" + file.getName() + "]";
+    }
+
+}
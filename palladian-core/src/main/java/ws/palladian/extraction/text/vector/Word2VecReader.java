@@ -27,7 +27,48 @@ public class Word2VecReader {
     // https://github.com/medallia/Word2VecJava/issues/44
     // https://github.com/jkinkead/Word2VecJava/blob/841b0cf8c063fb32ed7ee117871ccbb68075b05b/src/main/java/com/medallia/word2vec/Word2VecModel.java
 
+    /** Receives the vectors while reading a binary file. */
+    private interface VectorConsumer {
+        void accept(String word, float[] vector) throws IOException;
+    }
+
     public static MapWordVectorDictionary fromBinFile(File binFile) throws IOException {
+        Map<String, float[]> entries = new HashMap<>();
+        boolean[] caseSensitive = {false};
+        int vectorSize = read(binFile, (word, vector) -> {
+            if (FILTER.test(word)) {
+                entries.put(word, vector);
+            }
+            // automatically detect if the dictionary is case-sensitive
+            if (!word.equals(word.toLowerCase())) {
+                caseSensitive[0] = true;
+            }
+        });
+        return new MapWordVectorDictionary(entries, vectorSize, caseSensitive[0], binFile);
+    }
+
+    /**
+     * Convert a binary word2vec file to a {@link MappedWordVectorDictionary} file, without keeping the vectors in
+     * memory.
+     *
+     * @param binFile    The binary word2vec file.
+     * @param outputFile The file to write to.
+     * @param quantize   <code>true</code> to quantize the vectors, see
+     *                   {@link MappedWordVectorDictionary.Writer#Writer(File, boolean)}.
+     * @throws IOException In case reading or writing fails.
+     */
+    public static void convertBinFile(File binFile, File outputFile, boolean quantize) throws IOException {
+        try (MappedWordVectorDictionary.Writer writer = new MappedWordVectorDictionary.Writer(outputFile, quantize)) {
+            read(binFile, (word, vector) -> {
+                if (FILTER.test(word)) {
+                    writer.add(word, vector);
+                }
+            });
+        }
+    }
+
+    /** Read the binary file and pass all vectors to the consumer; return the vector size. */
+    private static int read(File binFile, VectorConsumer consumer) throws IOException {
 
         try (FileInputStream fis = new FileInputStream(binFile)) {
             FileChannel channel = fis.getChannel();
@@ -53,9 +94,6 @@ public class Word2VecReader {
             int vocabSize = Integer.parseInt(firstLine.substring(0, index));
             int vectorSize = Integer.parseInt(firstLine.substring(index + 1));
 
-            Map<String, float[]> entries = new HashMap<>();
-            boolean caseSensitive = false;
-
             for (int vectorIdx = 0; vectorIdx < vocabSize; vectorIdx++) {
 
                 // read vocab
@@ -77,15 +115,7 @@ public class Word2VecReader {
                 // read vector
                 float[] floats = new float[vectorSize];
                 buffer.asFloatBuffer().get(floats);
-                String word = sb.toString();
-                if (FILTER.test(word)) {
-                    entries.put(word, floats);
-                }
-
-                // automatically detect if the dictionary is case-sensitive
-                if (!word.equals(word.toLowerCase())) {
-                    caseSensitive = true;
-                }
+                consumer.accept(sb.toString(), floats);
 
                 buffer.position(buffer.position() + 4 * vectorSize);
 
@@ -99,7 +129,7 @@ public class Word2VecReader {
                     bufferCount += 1;
                 }
             }
-            return new MapWordVectorDictionary(entries, vectorSize, caseSensitive, binFile);
+            return vectorSize;
         }
 
     }
@@ -0,0 +1,244 @@
+package ws.palladian.semantics;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import org.apache.commons.lang3.Validate;
+
+import java.util.*;
+
+/**
+ * <p>
+ * Splits compound words (e.g. German "Tintenstrahldrucker") into dictionary words. The dictionary is stored as a trie
+ * over the <i>reversed</i> words, so that all dictionary words which are a suffix of a given string are found in one
+ * backward walk over its characters, instead of checking every dictionary word with {@link String#endsWith(String)}.
+ * After construction, the trie is compacted into sorted arrays (children of a node are found by binary search over
+ * their labels), which keeps it small and makes it safe for concurrent lookups.
+ * </p>
+ *
+ * <p>
+ * {@link #split(String, boolean)} determines the best segmentation of a word by dynamic programming over the end
+ * positions of the parts: a segmentation is better if it leaves fewer characters unexplained, then if it has fewer
+ * parts, then if it has the larger sum of squared part lengths (i.e. prefers long parts). Characters which cannot be
+ * explained by the dictionary are only allowed at the beginning of the word, the same as for the greedy splitting in
+ * {@link WordTransformer#splitGermanCompoundWords(String, boolean)}.
+ * </p>
+ */
+public final class CompoundSplitter {
+
+    /** The default minimum length of a part, shorter dictionary words are not used for splitting. */
+    public static final int DEFAULT_MIN_PART_LENGTH = 4;
+
+    private final int minPartLength;
+
+    /** Offsets into {@link #labels} and {@link #targets} for the children of each node, root is node zero. */
+    private final int[] childOffsets;
+
+    /** The character labels of the edges, sorted within each node. */
+    private final char[] labels;
+
+    /** The child node of each edge. */
+    private final int[] targets;
+
+    /** Marks the nodes where a (reversed) dictionary word ends. */
+    private final BitSet terminal;
+
+    private final int size;
+
+    /**
+     * Create a new splitter with the {@link #DEFAULT_MIN_PART_LENGTH}.
+     *
+     * @param words The dictionary words, not <code>null</code>.
+     */
+    public CompoundSplitter(Collection<String> words) {
+        this(words, DEFAULT_MIN_PART_LENGTH);
+    }
+
+    /**
+     * Create a new splitter.
+     *
+     * @param words         The dictionary words, not <code>null</code>. The words are taken as given, i.e. they need to
+     *                      be lower cased beforehand if the splitting should be case insensitive.
+     * @param minPartLength The minimum length of a part for {@link #split(String, boolean)}, greater zero.
+     */
+    public CompoundSplitter(Collection<String> words, int minPartLength) {
+        Validate.notNull(words, "words must not be null");
+        Validate.isTrue(minPartLength > 0, "minPartLength must be greater zero");
+        this.minPartLength = minPartLength;
+
+        // build the trie with transitions (node, character) -> node
+        Long2IntOpenHashMap transitions = new Long2IntOpenHashMap();
+        transitions.defaultReturnValue(-1);
+        BitSet terminal = new BitSet();
+        int numNodes = 1;
+        int size = 0;
+        for (String word : words) {
+            if (word == null || word.isEmpty()) {
+                continue;
+            }
+            int node = 0;
+            for (int i = word.length() - 1; i >= 0; i--) {
+                long key = transitionKey(node, word.charAt(i));
+                int child = transitions.get(key);
+                if (child < 0) {
+                    child = numNodes++;
+                    transitions.put(key, child);
+                }
+                node = child;
+            }
+            if (!terminal.get(node)) {
+                terminal.set(node);
+                size++;
+            }
+        }
+
+        // compact; sorting the keys groups the edges by node, and by character within each node
+        long[] keys = transitions.keySet().toLongArray();
+        Arrays.sort(keys);
+        childOffsets = new int[numNodes + 1];
+        labels = new char[keys.length];
+        targets = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            int node = (int) (keys[i] >>> 16);
+            labels[i] = (char) keys[i];
+            targets[i] = transitions.get(keys[i]);
+            childOffsets[node + 1]++;
+        }
+        for (int i = 0; i < numNodes; i++) {
+            childOffsets[i + 1] += childOffsets[i];
+        }
+        this.terminal = terminal;
+        this.size = size;
+    }
+
+    private static long transitionKey(int node, char c) {
+        return (long) node << 16 | c;
+    }
+
+    private int child(int node, char c) {
+        int index = Arrays.binarySearch(labels, childOffsets[node], childOffsets[node + 1], c);
+        return index >= 0 ? targets[index] : -1;
+    }
+
+    /**
+     * Check whether the dictionary contains a word.
+     *
+     * @param word The word.
+     * @return <code>true</code> in case the word is in the dictionary.
+     */
+    public boolean contains(CharSequence word) {
+        if (word.length() == 0) {
+            return false;
+        }
+        int node = 0;
+        for (int i = word.length() - 1; i >= 0 && node >= 0; i--) {
+            node = child(node, word.charAt(i));
+        }
+        return node >= 0 && terminal.get(node);
+    }
+
+    /**
+     * Get the lengths of all dictionary words which end at the given position of the text, i.e. which are a suffix of
+     * <code>text.subSequence(0, end)</code>.
+     *
+     * @param text The text.
+     * @param end  The (exclusive) end position in the text.
+     * @return The lengths of the matching dictionary words in ascending order, empty array if there are none.
+     */
+    public int[] suffixLengths(CharSequence text, int end) {
+        IntArrayList lengths = new IntArrayList();
+        int node = 0;
+        for (int i = end - 1; i >= 0; i--) {
+            node = child(node, text.charAt(i));
+            if (node < 0) {
+                break;
+            }
+            if (terminal.get(node)) {
+                lengths.add(end - i);
+            }
+        }
+        return lengths.toIntArray();
+    }
+
+    /**
+     * Get the length of the longest dictionary word which is a suffix of the text.
+     *
+     * @param text      The text.
+     * @param minLength The minimum length of the suffix.
+     * @param maxLength The maximum length of the suffix.
+     * @return The length of the longest dictionary suffix within the given bounds, or zero if there is none.
+     */
+    public int longestSuffix(CharSequence text, int minLength, int maxLength) {
+        int longest = 0;
+        int node = 0;
+        int end = text.length();
+        for (int i = end - 1; i >= 0 && end - i <= maxLength; i--) {
+            node = child(node, text.charAt(i));
+            if (node < 0) {
+                break;
+            }
+            if (end - i >= minLength && terminal.get(node)) {
+                longest = end - i;
+            }
+        }
+        return longest;
+    }
+
+    /**
+     * Split a word into the best segmentation of dictionary words (see class comment).
+     *
+     * @param word       The word to split.
+     * @param forceSplit <code>true</code> to ignore the whole word, if it is contained in the dictionary, so that it is
+     *                   split into smaller parts if possible.
+     * @return The parts in their order in the word; a list with only the word itself if no split was found.
+     */
+    public List<String> split(String word, boolean forceSplit) {
+        int n = word.length();
+        if (n == 0) {
+            return Collections.singletonList(word);
+        }
+        // best segmentation of word[0, i), compared by (unknown, parts, -score)
+        int[] unknown = new int[n + 1];
+        int[] parts = new int[n + 1];
+        int[] score = new int[n + 1];
+        int[] start = new int[n + 1];
+        for (int i = 1; i <= n; i++) {
+            // default: everything up to here is unknown
+            unknown[i] = i;
+            parts[i] = 1;
+            score[i] = 0;
+            start[i] = 0;
+            for (int length : suffixLengths(word, i)) {
+                int j = i - length;
+                if (length < minPartLength || forceSplit && length == n) {
+                    continue;
+                }
+                int candidateUnknown = unknown[j];
+                int candidateParts = parts[j] + 1;
+                int candidateScore = score[j] + length * length;
+                if (candidateUnknown < unknown[i] || candidateUnknown == unknown[i] && (candidateParts < parts[i]
+                        || candidateParts == parts[i] && candidateScore > score[i])) {
+                    unknown[i] = candidateUnknown;
+                    parts[i] = candidateParts;
+                    score[i] = candidateScore;
+                    start[i] = j;
+                }
+            }
+        }
+        LinkedList<String> result = new LinkedList<>();
+        for (int end = n; end > 0; end = start[end]) {
+            result.addFirst(word.substring(start[end], end));
+        }
+        return new ArrayList<>(result);
+    }
+
+    /** @return The minimum length of a part for {@link #split(String, boolean)}. */
+    public int getMinPartLength() {
+        return minPartLength;
+    }
+
+    /** @return The number of distinct words in the dictionary. */
+    public int size() {
+        return size;
+    }
+
+}
@@ -80,6 +80,12 @@ public class PalladianSpellChecker {
 
     private Object2IntOpenHashMap<String> words = new Object2IntOpenHashMap<>();
 
+    /**
+     * Optional index for looking up candidates within a given edit distance; if not present, the candidates are
+     * generated using {@link #edits(String)}.
+     */
+    private SymmetricDeleteIndex candidateIndex;
+
     public PalladianSpellChecker() {
         this.useContext = true;
     }
@@ -300,6 +306,53 @@ public class PalladianSpellChecker {
         return new ArrayList<>(new HashSet<>(result));
     }
 
+    /**
+     * Get the candidates with edit distance one from the {@link #candidateIndex}; this are the same candidates which
+     * {@link #edits(String)} would find in the dictionary, but the variations need not be generated and probed one by
+     * one. As in {@link #edits(String)}, splits into two words are added.
+     *
+     * @param word The word for which to get the candidates.
+     * @return A list of dictionary words with edit distance one and the two-word splits.
+     */
+    private List<String> indexCandidates(String word) {
+        List<String> result = new ArrayList<>();
+        for (SymmetricDeleteIndex.Suggestion suggestion : candidateIndex.lookup(word, 1)) {
+            result.add(suggestion.getWord());
+        }
+        for (int i = 1; i < word.length(); i++) {
+            result.add(word.substring(0, i) + ' ' + word.substring(i));
+        }
+        return result;
+    }
+
+    /**
+     * <p>
+     * Build a symmetric delete index from the current dictionary, which is used for looking up correction candidates
+     * instead of generating all variations of a word. This is considerably faster for correcting many words, but
+     * requires additional memory. The index must be rebuilt (or set again), when the dictionary changes.
+     * </p>
+     *
+     * @param maxEditDistance The maximum edit distance, usually one or two. With one, the corrections are the same as
+     *                        without an index. With two, words for which no candidate with distance one was found are
+     *                        additionally corrected to a word with distance two.
+     */
+    public void buildCandidateIndex(int maxEditDistance) {
+        candidateIndex = SymmetricDeleteIndex.build(words, maxEditDistance);
+    }
+
+    /**
+     * Set a previously built (e.g. deserialized) index, which must have been created from the current dictionary.
+     *
+     * @param candidateIndex The index, or <code>null</code> to generate variations.
+     */
+    public void setCandidateIndex(SymmetricDeleteIndex candidateIndex) {
+        this.candidateIndex = candidateIndex;
+    }
+
+    public SymmetricDeleteIndex getCandidateIndex() {
+        return candidateIndex;
+    }
+
     /**
      * <p>
      * Automatically detect and correct spelling mistakes.
@@ -472,7 +525,7 @@ public class PalladianSpellChecker {
             }
         }
 
-        List<String> list = edits(word);
+        List<String> list = candidateIndex != null ? indexCandidates(word) : edits(word);
         Map<Integer, String> candidates = new HashMap<>();
         candidates.put(wordCountGivenWord, word);
         for (String s : list) {
@@ -555,7 +608,22 @@ public class PalladianSpellChecker {
         }
 
         // check for edit distance 2 if we haven't found anything, the first character must not change
-        if (candidates.isEmpty() && !compoundCorrect) {
+        if (candidateIndex != null && candidateIndex.getMaxDistance() >= 2) {
+            // the index looks up distance two cheaply, so do it if we haven't found anything besides the given word
+            boolean foundCandidate = false;
+            for (String candidate : candidates.values()) {
+                foundCandidate |= !candidate.equals(word);
+            }
+            if (!foundCandidate && !compoundCorrect && word.length() <= maxWordLengthDistanceTwo + 1) {
+                for (SymmetricDeleteIndex.Suggestion suggestion : candidateIndex.lookup(word, 2)) {
+                    String w = suggestion.getWord();
+                    int count = getWordCount(w);
+                    if (count > 0 && firstCharacterSame(w, word)) {
+                        candidates.put(count, w);
+                    }
+                }
+            }
+        } else if (candidates.isEmpty() && !compoundCorrect) {
             for (String s : list) {
                 if (s.length() > maxWordLengthDistanceTwo) {
                     continue;
@@ -0,0 +1,347 @@
+package ws.palladian.semantics;
+
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ws.palladian.helper.StopWatch;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * <p>
+ * Candidate index for spelling correction following the symmetric delete approach of SymSpell: for every dictionary
+ * word, all variants with up to <code>maxDistance</code> deleted characters are precomputed. At lookup time, only the
+ * deletes of the input word need to be generated (instead of all deletes, transpositions, replacements and insertions),
+ * and every dictionary word sharing a delete variant with the input is a candidate, which is then verified using the
+ * (restricted) Damerau-Levenshtein distance.
+ * </p>
+ *
+ * <p>
+ * To keep the index compact, deletes are only generated for the first <code>prefixLength</code> characters of a word,
+ * and the delete variants are not stored as strings, but as 64 bit hashes in a sorted array which points into a list of
+ * word ids; hash collisions only produce additional candidates, which are removed by the verification. The dictionary
+ * words are kept in one character array. Lookups hash the delete variants directly from a character buffer and verify
+ * candidates against the character array, so that strings are only created for the matching words. As the index only
+ * consists of primitive arrays, its serialized form is small and fast to load (see
+ * {@link ws.palladian.helper.io.FileHelper#serialize(Serializable, String)}).
+ * </p>
+ *
+ * @see <a href="https://github.com/wolfgarbe/SymSpell">SymSpell</a>
+ */
+public final class SymmetricDeleteIndex implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SymmetricDeleteIndex.class);
+
+    /** The default number of characters from the beginning of a word for which the deletes are generated. */
+    public static final int DEFAULT_PREFIX_LENGTH = 7;
+
+    /** A candidate from the index with its distance to the input. */
+    public static final class Suggestion {
+        private final String word;
+        private final int count;
+        private final int distance;
+
+        Suggestion(String word, int count, int distance) {
+            this.word = word;
+            this.count = count;
+            this.distance = distance;
+        }
+
+        public String getWord() {
+            return word;
+        }
+
+        /** @return The count of the word in the dictionary. */
+        public int getCount() {
+            return count;
+        }
+
+        /** @return The edit distance between the input and this word. */
+        public int getDistance() {
+            return distance;
+        }
+
+        @Override
+        public String toString() {
+            return word + " (count=" + count + ", distance=" + distance + ")";
+        }
+    }
+
+    private final int maxDistance;
+
+    private final int prefixLength;
+
+    /** The characters of all words, concatenated. */
+    private final char[] wordChars;
+
+    /** Start of the word with the given id in {@link #wordChars}; has one more entry for the end of the last word. */
+    private final int[] wordOffsets;
+
+    private final int[] wordCounts;
+
+    /** Sorted, distinct hashes of the delete variants. */
+    private final long[] deleteHashes;
+
+    /** Start of the postings for the hash with the given index; has one more entry for the end. */
+    private final int[] postingOffsets;
+
+    /** Word ids for the delete variants. */
+    private final int[] postings;
+
+    private SymmetricDeleteIndex(int maxDistance, int prefixLength, char[] wordChars, int[] wordOffsets,
+                                 int[] wordCounts, long[] deleteHashes, int[] postingOffsets, int[] postings) {
+        this.maxDistance = maxDistance;
+        this.prefixLength = prefixLength;
+        this.wordChars = wordChars;
+        this.wordOffsets = wordOffsets;
+        this.wordCounts = wordCounts;
+        this.deleteHashes = deleteHashes;
+        this.postingOffsets = postingOffsets;
+        this.postings = postings;
+    }
+
+    /**
+     * Build the index with the {@value #DEFAULT_PREFIX_LENGTH}.
+     *
+     * @param words       The dictionary with the word counts, not <code>null</code>. Words with a count of zero are
+     *                    skipped.
+     * @param maxDistance The maximum edit distance which can be looked up, greater zero.
+     * @return The index.
+     */
+    public static SymmetricDeleteIndex build(Object2IntMap<String> words, int maxDistance) {
+        return build(words, maxDistance, DEFAULT_PREFIX_LENGTH);
+    }
+
+    /**
+     * Build the index.
+     *
+     * @param words        The dictionary with the word counts, not <code>null</code>. Words with a count of zero are
+     *                     skipped.
+     * @param maxDistance  The maximum edit distance which can be looked up, greater zero.
+     * @param prefixLength The number of characters for which deletes are generated, greater than
+     *                     <code>maxDistance</code>. Larger values create a bigger index, but fewer candidates to
+     *                     verify.
+     * @return The index.
+     */
+    public static SymmetricDeleteIndex build(Object2IntMap<String> words, int maxDistance, int prefixLength) {
+        Validate.notNull(words, "words must not be null");
+        Validate.isTrue(maxDistance > 0, "maxDistance must be greater zero");
+        Validate.isTrue(prefixLength > maxDistance, "prefixLength must be greater than maxDistance");
+        StopWatch stopWatch = new StopWatch();
+
+        StringBuilder wordChars = new StringBuilder();
+        int[] wordOffsets = new int[words.size() + 1];
+        int[] wordCounts = new int[words.size()];
+        LongArrayList hashes = new LongArrayList();
+        LongArrayList ids = new LongArrayList();
+        LongArrayList wordHashes = new LongArrayList();
+        char[][] buffers = new char[maxDistance + 1][prefixLength];
+
+        int id = 0;
+        for (Object2IntMap.Entry<String> entry : words.object2IntEntrySet()) {
+            if (entry.getIntValue() <= 0) {
+                continue;
+            }
+            String word = entry.getKey();
+            wordOffsets[id] = wordChars.length();
+            wordCounts[id] = entry.getIntValue();
+            wordChars.append(word);
+
+            // collect the distinct delete hashes of this word
+            wordHashes.clear();
+            int length = Math.min(word.length(), prefixLength);
+            word.getChars(0, length, buffers[0], 0);
+            forEachDelete(buffers, 0, length, 0, maxDistance, wordHashes::add);
+            long[] wordHashArray = wordHashes.toLongArray();
+            Arrays.sort(wordHashArray);
+            for (int i = 0; i < wordHashArray.length; i++) {
+                if (i == 0 || wordHashArray[i] != wordHashArray[i - 1]) {
+                    hashes.add(wordHashArray[i]);
+                    ids.add(id);
+                }
+            }
+            id++;
+        }
+        int numWords = id;
+        wordOffsets[numWords] = wordChars.length();
+
+        long[] hashArray = hashes.toLongArray();
+        long[] idArray = ids.toLongArray();
+        hashes = null;
+        ids = null;
+        LongArrays.radixSort(hashArray, idArray);
+
+        int numDistinct = 0;
+        for (int i = 0; i < hashArray.length; i++) {
+            if (i == 0 || hashArray[i] != hashArray[i - 1]) {
+                numDistinct++;
+            }
+        }
+        long[] deleteHashes = new long[numDistinct];
+        int[] postingOffsets = new int[numDistinct + 1];
+        int[] postings = new int[hashArray.length];
+        int index = -1;
+        for (int i = 0; i < hashArray.length; i++) {
+            if (i == 0 || hashArray[i] != hashArray[i - 1]) {
+                deleteHashes[++index] = hashArray[i];
+                postingOffsets[index] = i;
+            }
+            postings[i] = (int) idArray[i];
+        }
+        postingOffsets[numDistinct] = hashArray.length;
+
+        char[] chars = new char[wordChars.length()];
+        wordChars.getChars(0, chars.length, chars, 0);
+        LOGGER.info("Built index for {} words with {} deletes in {}", numWords, numDistinct, stopWatch);
+        return new SymmetricDeleteIndex(maxDistance, prefixLength, chars, Arrays.copyOf(wordOffsets, numWords + 1),
+                Arrays.copyOf(wordCounts, numWords), deleteHashes, postingOffsets, postings);
+    }
+
+    /**
+     * Recursively enumerate the hashes of all variants of the characters in <code>buffers[depth]</code> with up to
+     * <code>remaining</code> deleted characters. Positions are only deleted in ascending order, which avoids most of
+     * the duplicates.
+     */
+    private static void forEachDelete(char[][] buffers, int depth, int length, int start, int remaining,
+                                      LongConsumer consumer) {
+        char[] chars = buffers[depth];
+        consumer.accept(hash(chars, length));
+        if (remaining == 0 || length == 0) {
+            return;
+        }
+        char[] next = buffers[depth + 1];
+        for (int i = start; i < length; i++) {
+            System.arraycopy(chars, 0, next, 0, i);
+            System.arraycopy(chars, i + 1, next, i, length - i - 1);
+            forEachDelete(buffers, depth + 1, length - 1, i, remaining - 1, consumer);
+        }
+    }
+
+    /** 64 bit FNV-1a hash over the characters. */
+    private static long hash(char[] chars, int length) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < length; i++) {
+            hash ^= chars[i];
+            hash *= 0x100000001b3L;
+        }
+        return hash ^ length;
+    }
+
+    /**
+     * Look up all words within the given edit distance of the input. The distance is the restricted Damerau-Levenshtein
+     * distance (deletions, insertions, replacements and transpositions of adjacent characters).
+     *
+     * @param input       The input word, not <code>null</code>.
+     * @param maxDistance The maximum distance, not greater than the distance for which this index was built.
+     * @return The suggestions, sorted by ascending distance and descending count.
+     */
+    public List<Suggestion> lookup(String input, int maxDistance) {
+        Validate.notNull(input, "input must not be null");
+        Validate.isTrue(maxDistance >= 0 && maxDistance <= this.maxDistance,
+                "maxDistance must be between zero and " + this.maxDistance);
+        List<Suggestion> suggestions = new ArrayList<>();
+        IntOpenHashSet checked = new IntOpenHashSet();
+        int[][] rows = new int[3][input.length() + 1];
+        char[][] buffers = new char[maxDistance + 1][prefixLength];
+        int length = Math.min(input.length(), prefixLength);
+        input.getChars(0, length, buffers[0], 0);
+        forEachDelete(buffers, 0, length, 0, maxDistance, hash -> {
+            int index = Arrays.binarySearch(deleteHashes, hash);
+            if (index < 0) {
+                return;
+            }
+            for (int p = postingOffsets[index]; p < postingOffsets[index + 1]; p++) {
+                int id = postings[p];
+                if (checked.add(id)) {
+                    int distance = distance(input, id, maxDistance, rows);
+                    if (distance >= 0) {
+                        suggestions.add(new Suggestion(getWord(id), wordCounts[id], distance));
+                    }
+                }
+            }
+        });
+        suggestions.sort((s1, s2) -> s1.distance != s2.distance ? Integer.compare(s1.distance, s2.distance)
+                : Integer.compare(s2.count, s1.count));
+        return suggestions;
+    }
+
+    /**
+     * Calculate the restricted Damerau-Levenshtein distance between the input and the word with the given id.
+     *
+     * @return The distance, or -1 in case it is greater than <code>maxDistance</code>.
+     */
+    private int distance(String input, int id, int maxDistance, int[][] rows) {
+        int wordStart = wordOffsets[id];
+        int wordLength = wordOffsets[id + 1] - wordStart;
+        int inputLength = input.length();
+        if (Math.abs(wordLength - inputLength) > maxDistance) {
+            return -1;
+        }
+        int[] previousPrevious = rows[0];
+        int[] previous = rows[1];
+        int[] current = rows[2];
+        for (int j = 0; j <= inputLength; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= wordLength; i++) {
+            char wordChar = wordChars[wordStart + i - 1];
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= inputLength; j++) {
+                char inputChar = input.charAt(j - 1);
+                int cost = wordChar == inputChar ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && wordChar == input.charAt(j - 2) && wordChars[wordStart + i - 2] == inputChar) {
+                    value = Math.min(value, previousPrevious[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > maxDistance) {
+                return -1;
+            }
+            int[] temp = previousPrevious;
+            previousPrevious = previous;
+            previous = current;
+            current = temp;
+        }
+        int distance = previous[inputLength];
+        return distance <= maxDistance ? distance : -1;
+    }
+
+    private String getWord(int id) {
+        return new String(wordChars, wordOffsets[id], wordOffsets[id + 1] - wordOffsets[id]);
+    }
+
+    /** @return The maximum edit distance which can be looked up. */
+    public int getMaxDistance() {
+        return maxDistance;
+    }
+
+    public int getPrefixLength() {
+        return prefixLength;
+    }
+
+    /** @return The number of words in the index. */
+    public int size() {
+        return wordCounts.length;
+    }
+
+    @Override
+    public String toString() {
+        return "SymmetricDeleteIndex [words=" + size() + ", deletes=" + deleteHashes.length + ", maxDistance="
+                + maxDistance + ", prefixLength=" + prefixLength + "]";
+    }
+
+}
@@ -49,6 +49,9 @@ public class WordDB {
     private PreparedStatement psGetHyponyms = null;
     private PreparedStatement psDeleteHyponyms = null;
 
+    /** The read-only snapshot which answers the lookups in case it was loaded, see {@link #loadSnapshot()}. */
+    private volatile WordDBSnapshot snapshot = null;
+
     public WordDB(String databasePath) {
         this.databasePath = databasePath;
         connection = getConnection();
@@ -307,6 +310,14 @@ public class WordDB {
      * @return The word object.
      */
     public Word getWord(String word, boolean caseInsensitive) {
+        WordDBSnapshot currentSnapshot = snapshot;
+        if (currentSnapshot != null) {
+            return currentSnapshot.getWord(word, caseInsensitive);
+        }
+        return queryWord(word, caseInsensitive);
+    }
+
+    private Word queryWord(String word, boolean caseInsensitive) {
 
         Word wordObject = null;
 
@@ -327,7 +338,7 @@ public class WordDB {
 
             if (wordObject == null && caseInsensitive) {
                 word = StringHelper.upperCaseFirstLetter(word);
-                return getWord(word, false);
+                return queryWord(word, false);
             }
 
         } catch (SQLException e) {
@@ -402,10 +413,10 @@ public class WordDB {
         for (int i = 0; i < synonyms.size(); i++) {
             String synonym = synonyms.get(i);
 
-            Word synonymWord = getWord(synonym);
+            Word synonymWord = queryWord(synonym, false);
             if (synonymWord == null) {
                 addWord(new Word(-1, synonym, "", word.getType(), ""));
-                synonymWord = getWord(synonym);
+                synonymWord = queryWord(synonym, false);
             }
 
             if (synonymWord == null) {
@@ -415,10 +426,10 @@ public class WordDB {
             for (int j = i + 1; j < synonyms.size(); j++) {
                 String synonym2 = synonyms.get(j);
 
-                Word synonymWord2 = getWord(synonym2);
+                Word synonymWord2 = queryWord(synonym2, false);
                 if (synonymWord2 == null) {
                     addWord(new Word(-1, synonym2, "", word.getType(), ""));
-                    synonymWord2 = getWord(synonym);
+                    synonymWord2 = queryWord(synonym, false);
                 }
 
                 if (synonymWord2 == null) {
@@ -469,16 +480,16 @@ public class WordDB {
     public void addHypernyms(Word word, List<String> hypernyms) throws SQLException {
 
         // get all synonyms for the given word
-        aggregateInformation(word);
+        queryInformation(word);
         Set<Word> synonyms = word.getSynonyms();
 
         for (int i = 0; i < hypernyms.size(); i++) {
             String hypernym = hypernyms.get(i);
 
-            Word hypernymWord = getWord(hypernym);
+            Word hypernymWord = queryWord(hypernym, false);
             if (hypernymWord == null) {
                 addWord(new Word(-1, hypernym, "", word.getType(), ""));
-                hypernymWord = getWord(hypernym);
+                hypernymWord = queryWord(hypernym, false);
             }
 
             if (hypernymWord == null) {
@@ -537,16 +548,16 @@ public class WordDB {
     public void addHyponyms(Word word, List<String> hyponyms) throws SQLException {
 
         // get all synonyms for the given word
-        aggregateInformation(word);
+        queryInformation(word);
         Set<Word> synonyms = word.getSynonyms();
 
         for (int i = 0; i < hyponyms.size(); i++) {
             String hyponym = hyponyms.get(i);
 
-            Word hyponymWord = getWord(hyponym);
+            Word hyponymWord = queryWord(hyponym, false);
             if (hyponymWord == null) {
                 addWord(new Word(-1, hyponym, "", word.getType(), ""));
-                hyponymWord = getWord(hyponym);
+                hyponymWord = queryWord(hyponym, false);
             }
 
             if (hyponymWord == null) {
@@ -602,6 +613,14 @@ public class WordDB {
     }
 
     public Set<Word> getSynonyms(Word word) {
+        WordDBSnapshot currentSnapshot = snapshot;
+        if (currentSnapshot != null) {
+            return currentSnapshot.getSynonyms(word);
+        }
+        return querySynonyms(word);
+    }
+
+    private Set<Word> querySynonyms(Word word) {
 
         Set<Word> synonyms = new LinkedHashSet<Word>();
 
@@ -638,6 +657,14 @@ public class WordDB {
     }
 
     public Set<Word> getHypernyms(Word word) {
+        WordDBSnapshot currentSnapshot = snapshot;
+        if (currentSnapshot != null) {
+            return currentSnapshot.getHypernyms(word);
+        }
+        return queryHypernyms(word);
+    }
+
+    private Set<Word> queryHypernyms(Word word) {
 
         Set<Word> hypernyms = new LinkedHashSet<Word>();
 
@@ -662,6 +689,14 @@ public class WordDB {
     }
 
     public Set<Word> getHyponyms(Word word) {
+        WordDBSnapshot currentSnapshot = snapshot;
+        if (currentSnapshot != null) {
+            return currentSnapshot.getHyponyms(word);
+        }
+        return queryHyponyms(word);
+    }
+
+    private Set<Word> queryHyponyms(Word word) {
 
         Set<Word> hyponyms = new LinkedHashSet<Word>();
 
@@ -705,6 +740,54 @@ public class WordDB {
         return word;
     }
 
+    /** Like {@link #aggregateInformation(Word)}, but always from the database, as needed when writing. */
+    private void queryInformation(Word word) {
+        word.setSynonyms(querySynonyms(word));
+        word.setHypernyms(queryHypernyms(word));
+        word.setHyponyms(queryHyponyms(word));
+    }
+
+    /**
+     * <p>
+     * Load a read-only snapshot of the database into memory (see {@link WordDBSnapshot}), which answers the lookups via
+     * {@link #getWord(String, boolean)}, {@link #getSynonyms(Word)}, {@link #getHypernyms(Word)},
+     * {@link #getHyponyms(Word)} and {@link #aggregateInformation(Word)} from then on. In contrast to the database, the
+     * snapshot can be used by several threads concurrently.
+     * </p>
+     * <p>
+     * <b>NOTE: Inserts and updates still go to the database, but are only visible to lookups after loading the snapshot
+     * again.</b>
+     * </p>
+     *
+     * @return <tt>True</tt>, if the snapshot was successfully loaded, <tt>false</tt> otherwise.
+     */
+    public boolean loadSnapshot() {
+        StopWatch sw = new StopWatch();
+        try {
+            snapshot = WordDBSnapshot.create(connection);
+            LOGGER.info("loaded snapshot with {} words in {}", snapshot.size(), sw.getElapsedTimeString());
+            return true;
+        } catch (SQLException e) {
+            LOGGER.error(e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @param snapshot The snapshot which answers the lookups, e.g. loaded via {@link WordDBSnapshot#read(File)}, or
+     *                 <code>null</code> to query the database.
+     */
+    public void setSnapshot(WordDBSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * @return The snapshot which answers the lookups, or <code>null</code> in case the database is queried.
+     */
+    public WordDBSnapshot getSnapshot() {
+        return snapshot;
+    }
+
     public boolean isInMemoryMode() {
         return inMemoryMode;
     }
@@ -0,0 +1,368 @@
+package ws.palladian.semantics;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.apache.commons.lang3.Validate;
+import ws.palladian.helper.nlp.StringHelper;
+
+import java.io.*;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+
+/**
+ * <p>
+ * A read-only snapshot of a {@link WordDB}, which holds the words and their synonym, hypernym and hyponym relations in
+ * memory. Words are numbered consecutively, the relations are stored as adjacency arrays (an offset array with the
+ * start of each word's neighbors and an array with all neighbors), and a hash map gives the number for a word or plural
+ * string. The snapshot is immutable, so lookups can be done from any number of threads without locking, and no
+ * database round trips are needed.
+ * </p>
+ *
+ * <p>
+ * Create a snapshot with {@link WordDB#loadSnapshot()}, or save it with {@link #write(File)} and load it without the
+ * database with {@link #read(File)}. Changes to the database are not reflected in an existing snapshot.
+ * </p>
+ */
+public final class WordDBSnapshot {
+
+    private static final int MAGIC = 0x57444253;
+
+    private static final int VERSION = 1;
+
+    /** The database ids of the words. */
+    private final int[] ids;
+
+    private final String[] words;
+
+    private final String[] plurals;
+
+    private final String[] types;
+
+    private final String[] languages;
+
+    /** Word and plural strings to word numbers; the lowest id wins, in case a string is used by several words. */
+    private final Object2IntOpenHashMap<String> wordIndex;
+
+    private final int[] synonymOffsets;
+
+    private final int[] synonyms;
+
+    private final int[] hypernymOffsets;
+
+    private final int[] hypernyms;
+
+    private final int[] hyponymOffsets;
+
+    private final int[] hyponyms;
+
+    private WordDBSnapshot(int[] ids, String[] words, String[] plurals, String[] types, String[] languages,
+            int[] synonymOffsets, int[] synonyms, int[] hypernymOffsets, int[] hypernyms, int[] hyponymOffsets,
+            int[] hyponyms) {
+        this.ids = ids;
+        this.words = words;
+        this.plurals = plurals;
+        this.types = types;
+        this.languages = languages;
+        this.synonymOffsets = synonymOffsets;
+        this.synonyms = synonyms;
+        this.hypernymOffsets = hypernymOffsets;
+        this.hypernyms = hypernyms;
+        this.hyponymOffsets = hyponymOffsets;
+        this.hyponyms = hyponyms;
+        wordIndex = new Object2IntOpenHashMap<>(2 * words.length);
+        wordIndex.defaultReturnValue(-1);
+        for (int i = 0; i < words.length; i++) {
+            wordIndex.putIfAbsent(words[i], i);
+            if (!plurals[i].isEmpty()) {
+                wordIndex.putIfAbsent(plurals[i], i);
+            }
+        }
+        wordIndex.trim();
+    }
+
+    /**
+     * Read the words and relations from the tables of a {@link WordDB}.
+     *
+     * @param connection The connection to the database.
+     * @return The snapshot.
+     * @throws SQLException In case reading failed.
+     */
+    static WordDBSnapshot create(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            List<String[]> rows = new ArrayList<>();
+            int[] ids;
+            try (ResultSet rs = statement.executeQuery("SELECT id, `word`, `plural`, `type`, `language` FROM words ORDER BY id")) {
+                List<Integer> idList = new ArrayList<>();
+                while (rs.next()) {
+                    idList.add(rs.getInt(1));
+                    rows.add(new String[]{rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5)});
+                }
+                ids = idList.stream().mapToInt(Integer::intValue).toArray();
+            }
+            Int2IntOpenHashMap idToIndex = new Int2IntOpenHashMap(ids.length);
+            idToIndex.defaultReturnValue(-1);
+            for (int i = 0; i < ids.length; i++) {
+                idToIndex.put(ids[i], i);
+            }
+            String[] words = new String[ids.length];
+            String[] plurals = new String[ids.length];
+            String[] types = new String[ids.length];
+            String[] languages = new String[ids.length];
+            Map<String, String> pool = new HashMap<>();
+            for (int i = 0; i < ids.length; i++) {
+                String[] row = rows.get(i);
+                words[i] = row[0];
+                plurals[i] = row[1] != null ? row[1] : "";
+                types[i] = pool.computeIfAbsent(row[2] != null ? row[2] : "", s -> s);
+                languages[i] = pool.computeIfAbsent(row[3] != null ? row[3] : "", s -> s);
+            }
+
+            int[][] synonymEdges = readEdges(statement, "synonyms", idToIndex);
+            int[][] hypernymEdges = readEdges(statement, "hypernyms", idToIndex);
+
+            // like WordDB#getSynonyms, list the words where the word is second before those where it is first
+            int[] synonymOffsets = new int[ids.length + 1];
+            int[] synonyms = new int[2 * synonymEdges[0].length];
+            int[] fill = countEdges(synonymOffsets, synonymEdges[0], synonymEdges[1]);
+            fillEdges(fill, synonyms, synonymEdges[1], synonymEdges[0]);
+            fillEdges(fill, synonyms, synonymEdges[0], synonymEdges[1]);
+
+            int[] hypernymOffsets = new int[ids.length + 1];
+            int[] hypernyms = new int[hypernymEdges[0].length];
+            fill = countEdges(hypernymOffsets, hypernymEdges[0], null);
+            fillEdges(fill, hypernyms, hypernymEdges[0], hypernymEdges[1]);
+
+            int[] hyponymOffsets = new int[ids.length + 1];
+            int[] hyponyms = new int[hypernymEdges[0].length];
+            fill = countEdges(hyponymOffsets, hypernymEdges[1], null);
+            fillEdges(fill, hyponyms, hypernymEdges[1], hypernymEdges[0]);
+
+            return new WordDBSnapshot(ids, words, plurals, types, languages, synonymOffsets, synonyms,
+                    hypernymOffsets, hypernyms, hyponymOffsets, hyponyms);
+        }
+    }
+
+    /** Read the relations of a table as word numbers; relations with unknown words are skipped. */
+    private static int[][] readEdges(Statement statement, String table, Int2IntOpenHashMap idToIndex)
+            throws SQLException {
+        int[] from = new int[1024];
+        int[] to = new int[1024];
+        int count = 0;
+        try (ResultSet rs = statement.executeQuery("SELECT wordId1, wordId2 FROM " + table + " ORDER BY wordId1, wordId2")) {
+            while (rs.next()) {
+                int index1 = idToIndex.get(rs.getInt(1));
+                int index2 = idToIndex.get(rs.getInt(2));
+                if (index1 < 0 || index2 < 0) {
+                    continue;
+                }
+                if (count == from.length) {
+                    from = Arrays.copyOf(from, 2 * count);
+                    to = Arrays.copyOf(to, 2 * count);
+                }
+                from[count] = index1;
+                to[count] = index2;
+                count++;
+            }
+        }
+        return new int[][]{Arrays.copyOf(from, count), Arrays.copyOf(to, count)};
+    }
+
+    /**
+     * Count the edges per word and turn the counts into offsets.
+     *
+     * @return The fill positions, initialized with the offsets.
+     */
+    private static int[] countEdges(int[] offsets, int[] sources, int[] moreSources) {
+        for (int source : sources) {
+            offsets[source + 1]++;
+        }
+        if (moreSources != null) {
+            for (int source : moreSources) {
+                offsets[source + 1]++;
+            }
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] += offsets[i - 1];
+        }
+        return Arrays.copyOf(offsets, offsets.length - 1);
+    }
+
+    private static void fillEdges(int[] fill, int[] targets, int[] sources, int[] sourceTargets) {
+        for (int i = 0; i < sources.length; i++) {
+            targets[fill[sources[i]]++] = sourceTargets[i];
+        }
+    }
+
+    /** @return The number of words in the snapshot. */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Get a word. The word can be in singular or plural, see {@link WordDB#getWord(String, boolean)}.
+     *
+     * @param word            The string of the word we are searching for.
+     * @param caseInsensitive If true, we search for the version with upper case first letter as well.
+     * @return The word object, or <code>null</code> in case the word is unknown.
+     */
+    public Word getWord(String word, boolean caseInsensitive) {
+        if (word == null) {
+            return null;
+        }
+        int index = wordIndex.getInt(word);
+        if (index < 0 && caseInsensitive) {
+            index = wordIndex.getInt(StringHelper.upperCaseFirstLetter(word));
+        }
+        return index < 0 ? null : createWord(index);
+    }
+
+    public Word getWord(String word) {
+        return getWord(word, false);
+    }
+
+    private Word createWord(int index) {
+        return new Word(ids[index], words[index], plurals[index], types[index], languages[index]);
+    }
+
+    /** Get the number of a word object, which may have been created by the database. */
+    private int getIndex(Word word) {
+        int index = wordIndex.getInt(word.getWord());
+        if (index >= 0 && ids[index] == word.getId()) {
+            return index;
+        }
+        int found = Arrays.binarySearch(ids, word.getId());
+        return found >= 0 ? found : -1;
+    }
+
+    private Set<Word> getWords(int[] offsets, int[] targets, int index, String type) {
+        Set<Word> result = new LinkedHashSet<>();
+        for (int i = offsets[index]; i < offsets[index + 1]; i++) {
+            int target = targets[i];
+            if (type == null || type.equals(types[target])) {
+                result.add(createWord(target));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the synonyms of a word; like in {@link WordDB#getSynonyms(Word)}, only words of the same type are synonyms.
+     *
+     * @param word The word.
+     * @return The synonyms, empty set in case there are none.
+     */
+    public Set<Word> getSynonyms(Word word) {
+        int index = word != null ? getIndex(word) : -1;
+        if (index < 0) {
+            return new LinkedHashSet<>();
+        }
+        return getWords(synonymOffsets, synonyms, index, word.getType());
+    }
+
+    public Set<Word> getHypernyms(Word word) {
+        int index = word != null ? getIndex(word) : -1;
+        if (index < 0) {
+            return new LinkedHashSet<>();
+        }
+        return getWords(hypernymOffsets, hypernyms, index, null);
+    }
+
+    public Set<Word> getHyponyms(Word word) {
+        int index = word != null ? getIndex(word) : -1;
+        if (index < 0) {
+            return new LinkedHashSet<>();
+        }
+        return getWords(hyponymOffsets, hyponyms, index, null);
+    }
+
+    public Word aggregateInformation(String wordString) {
+        return aggregateInformation(getWord(wordString));
+    }
+
+    public Word aggregateInformation(Word word) {
+        if (word == null) {
+            return null;
+        }
+        word.setSynonyms(getSynonyms(word));
+        word.setHypernyms(getHypernyms(word));
+        word.setHyponyms(getHyponyms(word));
+        return word;
+    }
+
+    /**
+     * Save the snapshot to a file, which can be loaded with {@link #read(File)}.
+     *
+     * @param file The file, not <code>null</code>.
+     * @throws IOException In case writing failed.
+     */
+    public void write(File file) throws IOException {
+        Validate.notNull(file, "file must not be null");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                out.writeInt(ids[i]);
+                out.writeUTF(words[i]);
+                out.writeUTF(plurals[i]);
+                out.writeUTF(types[i]);
+                out.writeUTF(languages[i]);
+            }
+            for (int[] array : new int[][]{synonymOffsets, synonyms, hypernymOffsets, hypernyms, hyponymOffsets, hyponyms}) {
+                out.writeInt(array.length);
+                for (int value : array) {
+                    out.writeInt(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Load a snapshot which was saved with {@link #write(File)}.
+     *
+     * @param file The file, not <code>null</code>.
+     * @return The snapshot.
+     * @throws IOException In case reading failed, or the file is no snapshot.
+     */
+    public static WordDBSnapshot read(File file) throws IOException {
+        Validate.notNull(file, "file must not be null");
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(file + " is no word database snapshot");
+            }
+            int size = in.readInt();
+            int[] ids = new int[size];
+            String[] words = new String[size];
+            String[] plurals = new String[size];
+            String[] types = new String[size];
+            String[] languages = new String[size];
+            Map<String, String> pool = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                ids[i] = in.readInt();
+                words[i] = in.readUTF();
+                plurals[i] = in.readUTF();
+                types[i] = pool.computeIfAbsent(in.readUTF(), s -> s);
+                languages[i] = pool.computeIfAbsent(in.readUTF(), s -> s);
+            }
+            int[][] arrays = new int[6][];
+            for (int a = 0; a < arrays.length; a++) {
+                arrays[a] = new int[in.readInt()];
+                for (int i = 0; i < arrays[a].length; i++) {
+                    arrays[a][i] = in.readInt();
+                }
+            }
+            return new WordDBSnapshot(ids, words, plurals, types, languages, arrays[0], arrays[1], arrays[2],
+                    arrays[3], arrays[4], arrays[5]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "WordDBSnapshot [words=" + ids.length + ", synonyms=" + synonyms.length / 2 + ", hypernyms="
+                + hypernyms.length + "]";
+    }
+
+}
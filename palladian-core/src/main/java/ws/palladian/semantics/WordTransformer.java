@@ -60,6 +60,12 @@ public class WordTransformer {
     private static final List<String> GERMAN_NOUNS = new ArrayList<>();
     private static final List<String> GERMAN_WORDS = new ArrayList<>();
 
+    /**
+     * Suffix indices over {@link #GERMAN_WORDS} and {@link #GERMAN_NOUNS}, so that we do not need to scan the lists.
+     */
+    private static volatile CompoundSplitter germanWordIndex;
+    private static final CompoundSplitter GERMAN_NOUN_INDEX;
+
     /**
      * Exceptions for German stemming.
      */
@@ -120,6 +126,9 @@ public class WordTransformer {
         GERMAN_NOUNS.addAll(GERMAN_SINGULAR_PLURAL.values());
         GERMAN_NOUNS.sort(StringLengthComparator.INSTANCE);
 
+        germanWordIndex = new CompoundSplitter(GERMAN_WORDS);
+        GERMAN_NOUN_INDEX = new CompoundSplitter(GERMAN_NOUNS, 1);
+
         // German stemming exceptions
         try {
             inputStream = WordTransformer.class.getResourceAsStream("/germanStemmingExceptions.tsv");
@@ -221,10 +230,11 @@ public class WordTransformer {
         return IRREGULAR_NOUNS;
     }
 
-    public static void addGermanWords(Collection<String> germanWords) {
+    public static synchronized void addGermanWords(Collection<String> germanWords) {
         Set<String> uniqueWords = new HashSet<>(germanWords);
         GERMAN_WORDS.addAll(uniqueWords);
         GERMAN_WORDS.sort(StringLengthComparator.INSTANCE);
+        germanWordIndex = new CompoundSplitter(GERMAN_WORDS);
     }
 
     /**
@@ -335,13 +345,11 @@ public class WordTransformer {
         } else {
             // try to divide the word in its two longest subwords and transform the last one, e.g. "Goldketten" ->
             // "Gold" "Ketten" -> "Kette" => "Goldkette"
-            int maxLength = lowerCasePluralForm.length() - 1;
-            List<String> filtered = GERMAN_NOUNS.parallelStream().filter(w -> w.length() < maxLength).collect(Collectors.toList());
-            for (String word2 : filtered) {
-                if (lowerCasePluralForm.endsWith(word2)) {
-                    String singular2 = wordToSingularGermanCaseSensitive(word2);
-                    return lowerCasePluralForm.replace(word2, singular2);
-                }
+            int suffixLength = GERMAN_NOUN_INDEX.longestSuffix(lowerCasePluralForm, 1, lowerCasePluralForm.length() - 2);
+            if (suffixLength > 0) {
+                String word2 = lowerCasePluralForm.substring(lowerCasePluralForm.length() - suffixLength);
+                String singular2 = wordToSingularGermanCaseSensitive(word2);
+                return lowerCasePluralForm.replace(word2, singular2);
             }
         }
 
@@ -364,7 +372,7 @@ public class WordTransformer {
     public static List<String> splitGermanCompoundWords(String word, boolean forceSplit, boolean allPartsMustBeInDictionary) {
         List<String> parts = splitGermanCompoundWords(word, forceSplit);
         for (String part : parts) {
-            if (allPartsMustBeInDictionary && !GERMAN_WORDS.contains(part)) {
+            if (allPartsMustBeInDictionary && !germanWordIndex.contains(part)) {
                 return Arrays.asList(word);
             }
         }
@@ -382,28 +390,30 @@ public class WordTransformer {
         String lcSingular = wordToSingularGermanCaseSensitive(word);
         int wordLength = lcSingular.length();
 
-        int size = GERMAN_WORDS.size();
-        for (int i = 0; i < size; i++) {
-            String word2 = GERMAN_WORDS.get(i);
-            int word2Length = word2.length();
-
-            if (forceSplit && word2Length == wordLength) {
-                continue;
-            }
-
-            if ((word2Length > 3 && (word2Length + 2 <= wordLength || !words.isEmpty())) && lcSingular.endsWith(word2)) {
-                if (forceSplit) {
-                    words.addAll(0, splitGermanCompoundWords(word2, true));
-                } else {
-                    words.add(0, word2);
+        CompoundSplitter index = germanWordIndex;
+        while (!lcSingular.isEmpty()) {
+            // take the longest dictionary word which the remainder ends with
+            String word2 = null;
+            int[] suffixLengths = index.suffixLengths(lcSingular, lcSingular.length());
+            for (int i = suffixLengths.length - 1; i >= 0; i--) {
+                int word2Length = suffixLengths[i];
+                if (forceSplit && word2Length == wordLength) {
+                    continue;
                 }
-                lcSingular = lcSingular.replace(word2, "");
-                if (lcSingular.isEmpty()) {
+                if (word2Length > 3 && (word2Length + 2 <= wordLength || !words.isEmpty())) {
+                    word2 = lcSingular.substring(lcSingular.length() - word2Length);
                     break;
                 }
-                // we reset to the beginning of the queue because the next word could be longer than the current match
-                i = 0;
             }
+            if (word2 == null) {
+                break;
+            }
+            if (forceSplit) {
+                words.addAll(0, splitGermanCompoundWords(word2, true));
+            } else {
+                words.add(0, word2);
+            }
+            lcSingular = lcSingular.replace(word2, "");
         }
 
         // if we could not completely split the word we leave it
@@ -418,6 +428,44 @@ public class WordTransformer {
         return words;
     }
 
+    /**
+     * <p>
+     * Split german compound words, but instead of greedily taking the longest dictionary word from the end, determine
+     * the best segmentation of the whole word using {@link CompoundSplitter#split(String, boolean)}. This avoids
+     * splits where the longest dictionary word at the end leaves a remainder which cannot be split any further.
+     * </p>
+     *
+     * @param word       The compound word.
+     * @param forceSplit If force split, the word itself is ignored if it is in the dictionary.
+     * @return All words in its correct order that the compound is made out of.
+     */
+    public static List<String> splitGermanCompoundWordsBest(String word, boolean forceSplit) {
+        String lcSingular = wordToSingularGermanCaseSensitive(word.toLowerCase());
+        return germanWordIndex.split(lcSingular, forceSplit);
+    }
+
+    /**
+     * <p>
+     * Split many german compound words at once. Every distinct (lower cased) word is only split once, and the words are
+     * split in parallel.
+     * </p>
+     *
+     * @param words      The compound words.
+     * @param forceSplit If force split, compound words from the dictionary are ignored.
+     * @param best       <code>true</code> to use {@link #splitGermanCompoundWordsBest(String, boolean)}, <code>false</code>
+     *                   to use {@link #splitGermanCompoundWords(String, boolean)}.
+     * @return A map with the lower cased words as keys and their parts as values, in the iteration order of the input.
+     */
+    public static Map<String, List<String>> splitGermanCompoundWords(Collection<String> words, boolean forceSplit, boolean best) {
+        List<String> distinctWords = new ArrayList<>(new LinkedHashSet<>(words.stream().map(String::toLowerCase).collect(Collectors.toList())));
+        List<List<String>> parts = distinctWords.parallelStream().map(word -> best ? splitGermanCompoundWordsBest(word, forceSplit) : splitGermanCompoundWords(word, forceSplit)).collect(Collectors.toList());
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        for (int i = 0; i < distinctWords.size(); i++) {
+            result.put(distinctWords.get(i), parts.get(i));
+        }
+        return result;
+    }
+
     /**
      * <p>
      * Transform an English singular word to its plural form. rules:
@@ -572,13 +620,11 @@ public class WordTransformer {
         } else {
             // try to divide the word in its two longest subwords and transform the last one, e.g. "Goldkette" ->
             // "Gold" "Kette" -> "Ketten" => "Goldketten"
-            int lowerCaseWordLength = lowerCaseWord.length();
-            List<String> filtered = GERMAN_NOUNS.parallelStream().filter(w -> w.length() < lowerCaseWordLength).collect(Collectors.toList());
-            for (String word2 : filtered) {
-                if (lowerCaseWord.endsWith(word2)) {
-                    String plural2 = wordToPluralGermanCaseSensitive(word2);
-                    return lowerCaseWord.replace(word2, plural2);
-                }
+            int suffixLength = GERMAN_NOUN_INDEX.longestSuffix(lowerCaseWord, 1, lowerCaseWord.length() - 1);
+            if (suffixLength > 0) {
+                String word2 = lowerCaseWord.substring(lowerCaseWord.length() - suffixLength);
+                String plural2 = wordToPluralGermanCaseSensitive(word2);
+                return lowerCaseWord.replace(word2, plural2);
             }
         }
 
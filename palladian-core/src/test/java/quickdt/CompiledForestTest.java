@@ -0,0 +1,86 @@
+package quickdt;
+
+import org.junit.Test;
+import quickdt.randomForest.RandomForest;
+import quickdt.randomForest.RandomForestBuilder;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class CompiledForestTest {
+    private static final String[] COLORS = {"red", "green", "blue", "yellow"};
+
+    @Test
+    public void testTreeEquivalence() {
+        final List<Instance> instances = createInstances(2000);
+        final Tree tree = new TreeBuilder().minNominalAttributeValueOccurances(0).buildPredictiveModel(instances);
+        assertEquivalent(tree, CompiledForest.compile(tree), createInstances(500));
+    }
+
+    @Test
+    public void testRandomForestEquivalence() {
+        final List<Instance> instances = createInstances(2000);
+        final TreeBuilder treeBuilder = new TreeBuilder().ignoreAttributeAtNodeProbability(0.5);
+        final RandomForest forest = new RandomForestBuilder(treeBuilder).numTrees(5).useBagging(true).buildPredictiveModel(instances);
+        final CompiledForest compiled = CompiledForest.compile(forest);
+        assertEquals(5, compiled.getNumTrees());
+        final List<Instance> testInstances = createInstances(500);
+        assertEquivalent(forest, compiled, testInstances);
+
+        // batch mode must yield the same results
+        final List<CompiledForest.Input> inputs = new ArrayList<>();
+        for (final Instance instance : testInstances) {
+            inputs.add(compiled.createInput(instance.getAttributes()));
+        }
+        final double[][] batchProbabilities = compiled.getProbabilities(inputs, true);
+        for (int i = 0; i < inputs.size(); i++) {
+            final double[] probabilities = compiled.getProbabilities(inputs.get(i));
+            for (int c = 0; c < probabilities.length; c++) {
+                assertEquals(probabilities[c], batchProbabilities[i][c], 0);
+            }
+        }
+    }
+
+    @Test
+    public void testMissingValues() {
+        final List<Instance> instances = createInstances(2000);
+        final Tree tree = new HistogramTreeBuilder().buildPredictiveModel(instances);
+        final CompiledForest compiled = CompiledForest.compile(tree);
+        final Attributes attributes = HashMapAttributes.create("weight", 150.);
+        final CompiledForest.Input input = compiled.createInput(attributes);
+        for (final Serializable classification : compiled.getClassifications()) {
+            assertEquals(tree.getProbability(attributes, classification), compiled.getProbability(input, classification), 0);
+        }
+    }
+
+    private static void assertEquivalent(PredictiveModel model, CompiledForest compiled, List<Instance> testInstances) {
+        for (final Instance instance : testInstances) {
+            final CompiledForest.Input input = compiled.createInput(instance.getAttributes());
+            for (final Serializable classification : compiled.getClassifications()) {
+                assertEquals(model.getProbability(instance.getAttributes(), classification), compiled.getProbability(input, classification), 0);
+            }
+            // compare probabilities instead of classifications, which might differ in case of ties
+            final Serializable expected = model.getClassificationByMaxProb(instance.getAttributes());
+            final Serializable actual = compiled.getClassificationByMaxProb(input);
+            assertEquals(compiled.getProbability(input, expected), compiled.getProbability(input, actual), 0);
+        }
+    }
+
+    private static List<Instance> createInstances(int count) {
+        final List<Instance> instances = new ArrayList<>();
+        for (int x = 0; x < count; x++) {
+            final double height = (4 * 12) + Misc.random.nextInt(3 * 12);
+            final double weight = 120 + Misc.random.nextInt(110);
+            final String color = COLORS[Misc.random.nextInt(COLORS.length)];
+            final double bmi = (weight / (height * height)) * 703;
+            // the color shifts the class boundaries, so that nominal branches are created
+            final double shift = color.equals("red") ? 2 : 0;
+            final String classification = bmi < 20 + shift ? "underweight" : bmi > 25 + shift ? "overweight" : "healthy";
+            instances.add(Instance.create(classification, "weight", weight, "height", height, "color", color));
+        }
+        return instances;
+    }
+}
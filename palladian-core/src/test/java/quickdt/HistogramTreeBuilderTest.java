@@ -0,0 +1,138 @@
+package quickdt;
+
+import org.junit.Test;
+import quickdt.randomForest.RandomForest;
+import quickdt.randomForest.RandomForestBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramTreeBuilderTest {
+    @Test
+    public void simpleBmiTest() {
+        final List<Instance> instances = createBmiInstances(10000, new Random(1));
+        // 255 bins cover all distinct weight and height values, so the tree can separate the training set completely
+        final HistogramTreeBuilder tb = new HistogramTreeBuilder().minNominalAttributeValueOccurances(0).maxBins(255).parallelThreshold(1000).random(new Random(1));
+        final Node node = tb.buildPredictiveModel(instances).node;
+
+        assertTrue("Confirm that the node achieves full recall on the training set", node.fullRecall());
+        assertTrue("Tree size should be less than 400 nodes", node.size() < 400);
+        assertTrue("Mean depth should be less than 8", node.meanDepth() < 8);
+    }
+
+    @Test
+    public void columnarDataTest() {
+        final List<Instance> instances = new ArrayList<>();
+        instances.add(Instance.create("a", "num", 1.0, "nom", "x", "mixed", 1));
+        instances.add(Instance.create("b", "num", 2.0, "nom", "y", "mixed", "one"));
+        instances.add(Instance.create("a", "num", 3.0, "mixed", 1));
+        final ColumnarData data = ColumnarData.create(instances, 4);
+        assertEquals(3, data.numRows());
+        assertEquals(3, data.numColumns());
+        assertEquals(2, data.numClasses());
+        final ColumnarData.Column num = getColumn(data, "num");
+        final ColumnarData.Column nom = getColumn(data, "nom");
+        final ColumnarData.Column mixed = getColumn(data, "mixed");
+        assertTrue(num instanceof ColumnarData.NumericColumn);
+        assertTrue(nom instanceof ColumnarData.NominalColumn);
+        assertTrue(mixed instanceof ColumnarData.NominalColumn);
+        assertEquals(-1, nom.code(2)); // missing value
+        assertEquals(2, mixed.numCodes());
+        assertEquals(mixed.code(0), mixed.code(2));
+        assertTrue(num.code(0) < num.code(2));
+    }
+
+    private static ColumnarData.Column getColumn(ColumnarData data, String attribute) {
+        for (int i = 0; i < data.numColumns(); i++) {
+            if (data.getColumn(i).attribute.equals(attribute)) {
+                return data.getColumn(i);
+            }
+        }
+        throw new AssertionError("no column " + attribute);
+    }
+
+    @Test
+    public void randomForestTest() {
+        final List<Instance> instances = createBmiInstances(5000, new Random(1));
+        final HistogramTreeBuilder tb = new HistogramTreeBuilder().parallelThreshold(500);
+        final RandomForest forest = new RandomForestBuilder(tb).numTrees(8).useBagging(true).executorThreadCount(4).random(new Random(1)).buildPredictiveModel(instances);
+        assertEquals(8, forest.trees.size());
+
+        int correct = 0;
+        final List<Instance> testInstances = createBmiInstances(1000, new Random(2));
+        for (final Instance instance : testInstances) {
+            if (instance.getClassification().equals(forest.getClassificationByMaxProb(instance.getAttributes()))) {
+                correct++;
+            }
+        }
+        assertTrue("Accuracy should be > 0.9, but was " + (double) correct / testInstances.size(), correct > 900);
+    }
+
+    @Test
+    public void randomForestIgnoringAttributesTest() {
+        // the redundant metric attributes make sure that a node rarely loses all informative attributes
+        final List<Instance> instances = createBmiInstancesWithMetricAttributes(5000, new Random(1));
+        final HistogramTreeBuilder tb = new HistogramTreeBuilder().ignoreAttributeAtNodeProbability(0.5).parallelThreshold(500);
+        final RandomForest forest = new RandomForestBuilder(tb).numTrees(16).useBagging(true).executorThreadCount(4).random(new Random(1)).buildPredictiveModel(instances);
+        assertEquals(16, forest.trees.size());
+
+        int correct = 0;
+        final List<Instance> testInstances = createBmiInstancesWithMetricAttributes(1000, new Random(2));
+        for (final Instance instance : testInstances) {
+            if (instance.getClassification().equals(forest.getClassificationByMaxProb(instance.getAttributes()))) {
+                correct++;
+            }
+        }
+        assertTrue("Accuracy should be > 0.9, but was " + (double) correct / testInstances.size(), correct > 900);
+    }
+
+    @Test
+    public void randomForestReproducibilityTest() {
+        // the same seed gives the same forest, independent of the order in which the threads build trees and nodes
+        final List<Instance> instances = createBmiInstancesWithMetricAttributes(2000, new Random(1));
+        final HistogramTreeBuilder tb = new HistogramTreeBuilder().ignoreAttributeAtNodeProbability(0.5).parallelThreshold(100);
+        final RandomForest forest1 = new RandomForestBuilder(tb).numTrees(4).useBagging(true).executorThreadCount(4).random(new Random(3)).buildPredictiveModel(instances);
+        final RandomForest forest2 = new RandomForestBuilder(tb).numTrees(4).useBagging(true).executorThreadCount(1).random(new Random(3)).buildPredictiveModel(instances);
+
+        for (final Instance instance : createBmiInstancesWithMetricAttributes(500, new Random(2))) {
+            assertEquals(forest1.getProbability(instance.getAttributes(), "healthy"), forest2.getProbability(instance.getAttributes(), "healthy"), 0);
+        }
+        for (int i = 0; i < 4; i++) {
+            assertEquals(forest1.trees.get(i).node.size(), forest2.trees.get(i).node.size());
+        }
+    }
+
+    private List<Instance> createBmiInstancesWithMetricAttributes(int count, Random random) {
+        final List<Instance> instances = new ArrayList<>();
+        for (int x = 0; x < count; x++) {
+            final double height = (4 * 12) + random.nextInt(3 * 12);
+            final double weight = 120 + random.nextInt(110);
+            instances.add(Instance.create(bmiHealthy(weight, height), "weight", weight, "height", height, "weightKg", weight * 0.4536, "heightCm", height * 2.54));
+        }
+        return instances;
+    }
+
+    private List<Instance> createBmiInstances(int count, Random random) {
+        final List<Instance> instances = new ArrayList<>();
+        for (int x = 0; x < count; x++) {
+            final double height = (4 * 12) + random.nextInt(3 * 12);
+            final double weight = 120 + random.nextInt(110);
+            instances.add(Instance.create(bmiHealthy(weight, height), "weight", weight, "height", height));
+        }
+        return instances;
+    }
+
+    public String bmiHealthy(final double weightInPounds, final double heightInInches) {
+        final double bmi = (weightInPounds / (heightInInches * heightInInches)) * 703;
+        if (bmi < 20)
+            return "underweight";
+        else if (bmi > 25)
+            return "overweight";
+        else
+            return "healthy";
+    }
+}
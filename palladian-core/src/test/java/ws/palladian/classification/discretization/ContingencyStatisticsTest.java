@@ -0,0 +1,76 @@
+package ws.palladian.classification.discretization;
+
+import org.junit.Test;
+import ws.palladian.classification.discretization.ContingencyStatistics.ContingencyTable;
+import ws.palladian.classification.utils.CsvDatasetReader;
+import ws.palladian.core.Instance;
+import ws.palladian.core.InstanceBuilder;
+import ws.palladian.core.dataset.Dataset;
+import ws.palladian.core.dataset.DefaultDataset;
+import ws.palladian.core.value.ImmutableStringValue;
+import ws.palladian.helper.NoProgress;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static ws.palladian.helper.io.ResourceHelper.getResourceFile;
+
+public class ContingencyStatisticsTest {
+
+    @Test
+    public void testNominalAndAbsentCounts() {
+        List<Instance> instances = new ArrayList<>();
+        instances.add(new InstanceBuilder().set("f", "x").create("A"));
+        instances.add(new InstanceBuilder().set("f", "x").create("A"));
+        instances.add(new InstanceBuilder().set("f", "y").create("B"));
+        instances.add(new InstanceBuilder().set("g", "z").create("B"));
+        ContingencyStatistics statistics = ContingencyStatistics.collect(new DefaultDataset(instances), false, 1,
+                NoProgress.INSTANCE);
+
+        assertEquals(4, statistics.getNumInstances());
+        int a = statistics.getCategories().indexOf("A");
+        int b = statistics.getCategories().indexOf("B");
+        assertEquals(2, statistics.getCategoryCount(a));
+        assertEquals(2, statistics.getCategoryCount(b));
+
+        ContingencyTable table = statistics.getTable("f");
+        assertEquals(2, table.numRows());
+        int x = table.getValue(0).equals(new ImmutableStringValue("x")) ? 0 : 1;
+        assertEquals(2, table.getCount(x, a));
+        assertEquals(0, table.getCount(x, b));
+        assertEquals(1, table.getCount(1 - x, b));
+        assertEquals(0, table.getAbsentCount(a));
+        assertEquals(1, table.getAbsentCount(b));
+    }
+
+    @Test
+    public void testParallelEqualsSequential() throws FileNotFoundException {
+        Dataset dataset = new CsvDatasetReader(getResourceFile("/classifier/wineData.csv"), true);
+        ContingencyStatistics sequential = ContingencyStatistics.collect(dataset, false, 1, NoProgress.INSTANCE);
+        ContingencyStatistics parallel = ContingencyStatistics.collect(dataset, false, 4, NoProgress.INSTANCE);
+
+        assertEquals(sequential.getNumInstances(), parallel.getNumInstances());
+        assertEquals(sequential.getFeatureNames(), parallel.getFeatureNames());
+        for (String featureName : sequential.getFeatureNames()) {
+            assertEquals(new Binner(dataset, featureName).getBoundaries(),
+                    sequential.getBinners().get(featureName).getBoundaries());
+            assertEquals(sequential.getBinners().get(featureName).getBoundaries(),
+                    parallel.getBinners().get(featureName).getBoundaries());
+            ContingencyTable sequentialTable = sequential.getTable(featureName);
+            ContingencyTable parallelTable = parallel.getTable(featureName);
+            assertEquals(sequentialTable.numRows(), parallelTable.numRows());
+            for (int row = 0; row < sequentialTable.numRows(); row++) {
+                assertEquals(sequentialTable.getValue(row), parallelTable.getValue(row));
+                for (String category : sequential.getCategories()) {
+                    int sequentialIndex = sequential.getCategories().indexOf(category);
+                    int parallelIndex = parallel.getCategories().indexOf(category);
+                    assertEquals(sequentialTable.getCount(row, sequentialIndex),
+                            parallelTable.getCount(row, parallelIndex));
+                }
+            }
+        }
+    }
+
+}
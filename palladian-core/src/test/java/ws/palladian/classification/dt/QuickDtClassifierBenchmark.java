@@ -0,0 +1,85 @@
+package ws.palladian.classification.dt;
+
+import quickdt.Attributes;
+import quickdt.HashMapAttributes;
+import quickdt.PredictiveModel;
+import ws.palladian.classification.utils.CsvDatasetReader;
+import ws.palladian.core.CategoryEntries;
+import ws.palladian.core.CategoryEntriesBuilder;
+import ws.palladian.core.FeatureVector;
+import ws.palladian.core.Instance;
+import ws.palladian.helper.StopWatch;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compare classification speed of the object graph traversal over quickdt's nodes with the {@link quickdt.CompiledForest}.
+ *
+ * <pre>
+ * Random forest with 10 trees, adult income data (999 instances), 100 runs each, single core
+ * object traversal: 389ms
+ * compiled, single: 208ms
+ * compiled, batch: 200ms
+ * compiled, batch, parallel: 216ms
+ * </pre>
+ */
+class QuickDtClassifierBenchmark {
+
+    private static final int NUM_RUNS = 100;
+
+    public static void main(String[] args) {
+        List<Instance> instances = new CsvDatasetReader(new File("src/test/resources/classifier/adultData.txt"), false).readAll();
+        QuickDtModel model = QuickDtLearner.randomForest(10).train(instances);
+        List<FeatureVector> featureVectors = new ArrayList<>();
+        for (Instance instance : instances) {
+            featureVectors.add(instance.getVector());
+        }
+        QuickDtClassifier classifier = new QuickDtClassifier();
+        model.getCompiledModel(); // warm up
+
+        for (int warmup = 0; warmup < 2; warmup++) {
+            System.out.println(warmup == 0 ? "warm up" : "benchmark");
+            StopWatch stopWatch = new StopWatch();
+            for (int i = 0; i < NUM_RUNS; i++) {
+                for (FeatureVector featureVector : featureVectors) {
+                    classifyWithObjectTraversal(featureVector, model);
+                }
+            }
+            System.out.println("object traversal: " + stopWatch);
+
+            stopWatch = new StopWatch();
+            for (int i = 0; i < NUM_RUNS; i++) {
+                for (FeatureVector featureVector : featureVectors) {
+                    classifier.classify(featureVector, model);
+                }
+            }
+            System.out.println("compiled, single: " + stopWatch);
+
+            stopWatch = new StopWatch();
+            for (int i = 0; i < NUM_RUNS; i++) {
+                classifier.classify(featureVectors, model, false);
+            }
+            System.out.println("compiled, batch: " + stopWatch);
+
+            stopWatch = new StopWatch();
+            for (int i = 0; i < NUM_RUNS; i++) {
+                classifier.classify(featureVectors, model, true);
+            }
+            System.out.println("compiled, batch, parallel: " + stopWatch);
+        }
+    }
+
+    /** The previous implementation of {@link QuickDtClassifier#classify(FeatureVector, QuickDtModel)}. */
+    private static CategoryEntries classifyWithObjectTraversal(FeatureVector featureVector, QuickDtModel model) {
+        PredictiveModel pm = model.getModel();
+        Attributes attributes = HashMapAttributes.create(QuickDtLearner.getInput(featureVector));
+        CategoryEntriesBuilder builder = new CategoryEntriesBuilder();
+        for (String targetClass : model.getCategories()) {
+            builder.set(targetClass, pm.getProbability(attributes, targetClass));
+        }
+        return builder.create();
+    }
+
+}
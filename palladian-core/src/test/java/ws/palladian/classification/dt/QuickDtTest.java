@@ -76,6 +76,22 @@ public class QuickDtTest {
         assertGreater(0.75, accuracy);
     }
 
+    @Test
+    public void testHistogramRandomForestWithAdultIncomeData() throws FileNotFoundException {
+        List<Instance> instances = new CsvDatasetReader(getResourceFile("/classifier/adultData.txt"), false).readAll();
+        ConfusionMatrix confusionMatrix = evaluate(QuickDtLearner.histogramRandomForest(10), new QuickDtClassifier(), instances);
+        double accuracy = confusionMatrix.getAccuracy();
+        assertGreater(0.75, accuracy);
+    }
+
+    @Test
+    public void testHistogramRandomForestWithDiabetesData() throws FileNotFoundException {
+        List<Instance> instances = new CsvDatasetReader(getResourceFile("/classifier/diabetesData.txt"), false).readAll();
+        ConfusionMatrix confusionMatrix = evaluate(QuickDtLearner.histogramRandomForest(10), new QuickDtClassifier(), instances);
+        double accuracy = confusionMatrix.getAccuracy();
+        assertGreater(0.72, accuracy);
+    }
+
     private void assertGreater(double expected, double actual) {
         assertTrue("value should be > " + expected + ", but was " + actual, actual > expected);
     }
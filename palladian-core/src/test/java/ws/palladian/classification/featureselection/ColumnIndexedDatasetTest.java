@@ -0,0 +1,56 @@
+package ws.palladian.classification.featureselection;
+
+import org.junit.Test;
+import ws.palladian.classification.featureselection.ColumnIndexedDataset.Columns;
+import ws.palladian.classification.utils.CsvDatasetReaderConfig;
+import ws.palladian.core.Instance;
+import ws.palladian.core.dataset.Dataset;
+import ws.palladian.helper.collection.CollectionHelper;
+import ws.palladian.helper.io.ResourceHelper;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.assertEquals;
+import static ws.palladian.helper.functional.Predicates.not;
+import static ws.palladian.helper.functional.Predicates.regex;
+
+public class ColumnIndexedDatasetTest {
+
+    @Test
+    public void testFilterFeatures() throws FileNotFoundException {
+        Dataset dataset = CsvDatasetReaderConfig.filePath(ResourceHelper.getResourceFile("/classifier/diabetes2.csv")).readHeader(true).create();
+        ColumnIndexedDataset buffered = new ColumnIndexedDataset(dataset, new Columns(dataset));
+        assertEquals(dataset.getFeatureInformation(), buffered.getFeatureInformation());
+
+        Predicate<String> filter = not(regex("plasma|bmi"));
+        List<Instance> expected = CollectionHelper.newArrayList(dataset.filterFeatures(filter));
+        Dataset filtered = buffered.filterFeatures(filter);
+        List<Instance> actual = CollectionHelper.newArrayList(filtered);
+        assertEquals(dataset.getFeatureInformation().getFeatureNames().size() - 2, filtered.getFeatureInformation().count());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getCategory(), actual.get(i).getCategory());
+            assertEquals(expected.get(i).getVector().keys(), actual.get(i).getVector().keys());
+            assertEquals(new ArrayList<>(expected.get(i).getVector().values()), new ArrayList<>(actual.get(i).getVector().values()));
+        }
+
+        // filters are applied on top of each other
+        Dataset twiceFiltered = filtered.filterFeatures(regex("plasma|age"));
+        assertEquals(1, twiceFiltered.getFeatureInformation().count());
+        assertEquals(1, twiceFiltered.iterator().next().getVector().size());
+    }
+
+    @Test
+    public void testSample() throws FileNotFoundException {
+        Dataset dataset = CsvDatasetReaderConfig.filePath(ResourceHelper.getResourceFile("/classifier/diabetes2.csv")).readHeader(true).create();
+        ColumnIndexedDataset buffered = new ColumnIndexedDataset(dataset, new Columns(dataset));
+        ColumnIndexedDataset sample = buffered.sample(0.25, new Random(1));
+        assertEquals((long) Math.ceil(0.25 * buffered.size()), sample.size());
+        assertEquals(buffered.getFeatureInformation(), sample.getFeatureInformation());
+    }
+
+}
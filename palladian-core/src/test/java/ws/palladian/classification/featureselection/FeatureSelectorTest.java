@@ -7,13 +7,18 @@ import ws.palladian.classification.nb.NaiveBayesLearner;
 import ws.palladian.classification.nb.NaiveBayesModel;
 import ws.palladian.classification.utils.CsvDatasetReaderConfig;
 import ws.palladian.core.Instance;
+import ws.palladian.core.dataset.DefaultDataset;
+import ws.palladian.core.dataset.split.RandomSplit;
 import ws.palladian.helper.NoProgress;
+import ws.palladian.helper.functional.Factories;
 import ws.palladian.helper.io.ResourceHelper;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -70,4 +75,28 @@ public class FeatureSelectorTest {
         assertEquals("plasma|bmi|pedigree", bestFeatureValue);
     }
 
+    @Test
+    public void testElimination_screening() {
+        // fixed split, so that the screening and the exact elimination see the same data
+        RandomSplit split = new RandomSplit(new DefaultDataset(instances), 0.5, new Random(1));
+        FeatureSelectorConfig.Builder<NaiveBayesModel> exactBuilder = FeatureSelectorConfig.with(new NaiveBayesLearner(), new NaiveBayesClassifier());
+        FeatureRanking exactRanking = exactBuilder.create().rankFeatures(split.getTrain(), split.getTest(), NoProgress.INSTANCE);
+
+        FeatureSelectorConfig.Builder<NaiveBayesModel> builder = FeatureSelectorConfig.with(new NaiveBayesLearner(), new NaiveBayesClassifier());
+        builder.surrogate(Factories.constant(new NaiveBayesLearner()), Factories.constant(new NaiveBayesClassifier()));
+        builder.bufferData(true).screeningSampleRate(0.5).maxCandidates(3).earlyStopping(0.05);
+        FeatureSelector selector = builder.create();
+        FeatureRanking ranking = selector.rankFeatures(split.getTrain(), split.getTest(), NoProgress.INSTANCE);
+        // all features are ranked, although not every candidate is fully evaluated
+        assertEquals(instances.get(0).getVector().size(), ranking.getAll().size());
+        assertEquals("plasma", ranking.getAll().get(0).getName());
+        // the screening only skips candidates which are clearly worse, and buffering does not change the data, so the
+        // ranking is the same as the exact one
+        assertEquals(names(exactRanking), names(ranking));
+    }
+
+    private static List<String> names(FeatureRanking ranking) {
+        return ranking.getAll().stream().map(RankedFeature::getName).collect(Collectors.toList());
+    }
+
 }
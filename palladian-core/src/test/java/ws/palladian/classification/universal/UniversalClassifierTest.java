@@ -8,6 +8,8 @@ import org.junit.Test;
 import ws.palladian.classification.text.FeatureSettingBuilder;
 import ws.palladian.classification.utils.ClassifierEvaluation;
 import ws.palladian.classification.utils.CsvDatasetReader;
+import ws.palladian.core.CategoryEntries;
+import ws.palladian.core.FeatureVector;
 import ws.palladian.core.Instance;
 import ws.palladian.helper.math.ConfusionMatrix;
 
@@ -20,6 +22,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static ws.palladian.classification.universal.UniversalClassifier.ClassifierSetting.BAYES;
 import static ws.palladian.classification.universal.UniversalClassifier.ClassifierSetting.KNN;
+import static ws.palladian.classification.universal.UniversalClassifier.ClassifierSetting.TEXT;
 import static ws.palladian.helper.io.ResourceHelper.getResourceFile;
 
 /**
@@ -67,4 +70,37 @@ public class UniversalClassifierTest {
         assertTrue(matrix.getF(1.0, "1") > 0.56);
 
     }
+
+    @Test
+    public void testConcurrent() throws FileNotFoundException {
+        File datasetFile = getResourceFile("/classifier/saheart.csv");
+        List<Instance> instances = new CsvDatasetReader(datasetFile, true, ",").readAll();
+        List<Instance> trainingSet = instances.subList(0, (int) (instances.size() * 0.6));
+        List<Instance> testSet = instances.subList(trainingSet.size(), instances.size());
+        List<FeatureVector> testVectors = new ArrayList<>();
+        for (Instance instance : testSet) {
+            testVectors.add(instance.getVector());
+        }
+
+        UniversalClassifier serial = new UniversalClassifier(FeatureSettingBuilder.words().create(), BAYES, KNN);
+        UniversalClassifier concurrent = new UniversalClassifier(FeatureSettingBuilder.words().create(), 3, BAYES, KNN);
+        UniversalClassifierModel serialModel = serial.train(trainingSet);
+        UniversalClassifierModel concurrentModel = concurrent.train(trainingSet);
+        assertEquals(serialModel.getCategories(), concurrentModel.getCategories());
+
+        List<CategoryEntries> batchResults = concurrent.classify(testVectors, concurrentModel);
+        for (int i = 0; i < testVectors.size(); i++) {
+            CategoryEntries expected = serial.classify(testVectors.get(i), serialModel);
+            CategoryEntries actual = concurrent.classify(testVectors.get(i), concurrentModel);
+            for (String category : serialModel.getCategories()) {
+                assertEquals(expected.getProbability(category), actual.getProbability(category), 0.0001);
+                assertEquals(expected.getProbability(category), batchResults.get(i).getProbability(category), 0.0001);
+            }
+        }
+
+        assertEquals(2 * testVectors.size(), concurrent.getTimings().get(KNN).getClassificationCount());
+        assertEquals(2 * testVectors.size(), concurrent.getTimings().get(BAYES).getClassificationCount());
+        assertEquals(0, concurrent.getTimings().get(TEXT).getClassificationCount());
+    }
+
 }
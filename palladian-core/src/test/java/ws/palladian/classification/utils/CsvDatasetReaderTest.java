@@ -1,6 +1,8 @@
 package ws.palladian.classification.utils;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import ws.palladian.classification.utils.CsvDatasetReaderConfig.Builder;
 import ws.palladian.core.Instance;
 import ws.palladian.core.value.ImmutableStringValue;
@@ -8,7 +10,11 @@ import ws.palladian.helper.collection.CollectionHelper;
 import ws.palladian.helper.functional.Predicates;
 import ws.palladian.helper.io.CloseableIterator;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -20,6 +26,9 @@ public class CsvDatasetReaderTest {
 
     private static final double DELTA = 0.1;
 
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
     @Test
     public void testCsvReading() throws IOException {
         Builder config = CsvDatasetReaderConfig.filePath(getResourceFile("/classifier/adultData.txt"));
@@ -201,4 +210,28 @@ public class CsvDatasetReaderTest {
         }
     }
 
+    @Test
+    public void testCsvReading_parallel() throws IOException {
+        File file = tempFolder.newFile("parallel.csv");
+        Random random = new Random(1);
+        try (PrintWriter writer = new PrintWriter(file)) {
+            writer.println("number;text;class");
+            for (int i = 0; i < 5000; i++) {
+                String number = i % 100 == 0 ? "?" : String.valueOf(random.nextGaussian());
+                String text = i % 7 == 0 ? "\"line " + i + ";\nnext line\"" : "text " + i;
+                writer.print(number + ";" + text + ";class" + (i % 3) + "\n");
+            }
+        }
+        Builder config = CsvDatasetReaderConfig.filePath(file).quoteCharacter('"');
+        List<Instance> expected = config.create().readAll();
+        assertEquals(5000, expected.size());
+
+        List<Instance> instances = config.numThreads(3).chunkSize(1000).create().readAll();
+        assertEquals(expected.toString(), instances.toString());
+        assertTrue(instances.get(0).getVector().get("number").isNull());
+        assertEquals("line 0;\nnext line", instances.get(0).getVector().getNominal("text").getString());
+
+        assertEquals(11, config.limit(10).create().readAll().size());
+    }
+
 }
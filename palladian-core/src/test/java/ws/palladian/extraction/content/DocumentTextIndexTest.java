@@ -0,0 +1,55 @@
+package ws.palladian.extraction.content;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import ws.palladian.extraction.token.Tokenizer;
+import ws.palladian.helper.html.HtmlHelper;
+import ws.palladian.helper.io.ResourceHelper;
+import ws.palladian.retrieval.PageAnalyzer;
+import ws.palladian.retrieval.parser.ParserFactory;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DocumentTextIndexTest {
+
+    @Test
+    public void testGetXPaths() throws Exception {
+        String html = "<html><body><div id=\"a\"><p>The quick brown fox</p><p>jumps over <b>the lazy</b> dog.</p></div>"
+                + "<div><p>THE QUICK brown fox</p></div></body></html>";
+        Document document = ParserFactory.createHtmlParser().parse(new ByteArrayInputStream(html.getBytes(StandardCharsets.UTF_8)));
+        DocumentTextIndex index = new DocumentTextIndex(document);
+        assertEquals(new ArrayList<>(PageAnalyzer.constructAllXPaths(document, "quick brown")),
+                new ArrayList<>(index.getXPaths("quick brown")));
+        // spans several text nodes
+        Set<String> xPaths = index.getXPaths("over the lazy dog");
+        assertEquals(new ArrayList<>(PageAnalyzer.constructAllXPaths(document, "over the lazy dog")), new ArrayList<>(xPaths));
+        assertEquals(1, xPaths.size());
+        assertTrue(xPaths.iterator().next().endsWith("div[1]/xhtml:p[2]"));
+        assertTrue(index.getXPaths("not in the document").isEmpty());
+        assertTrue(index.getText().contains("jumps over the lazy dog."));
+    }
+
+    @Test
+    public void testEqualsPageAnalyzer() throws Exception {
+        for (String page : Arrays.asList("news-bbc.html", "news-foxnews.html", "news-telegraaf.html", "test001.html",
+                "test015.html")) {
+            Document document = ParserFactory.createHtmlParser().parse(ResourceHelper.getResourceFile("/pageContentExtractor/" + page));
+            DocumentTextIndex index = new DocumentTextIndex(document);
+            Set<String> sentences = new LinkedHashSet<>(Tokenizer.getSentences(HtmlHelper.documentToText(document), true));
+            int count = 0;
+            for (String sentence : sentences) {
+                assertEquals(page + ": " + sentence, new ArrayList<>(PageAnalyzer.constructAllXPaths(document, sentence)),
+                        new ArrayList<>(index.getXPaths(sentence)));
+                if (++count == 50) {
+                    break;
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+package ws.palladian.extraction.location;
+
+import org.junit.Test;
+import ws.palladian.extraction.location.disambiguation.HeuristicDisambiguation;
+import ws.palladian.extraction.location.sources.CollectionLocationStore;
+import ws.palladian.helper.constants.Language;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class GazetteerCandidateExtractorTest {
+
+    private static CollectionLocationStore createStore() {
+        return fill(new CollectionLocationStore());
+    }
+
+    private static <S extends CollectionLocationStore> S fill(S store) {
+        store.save(new LocationBuilder().setId(1).setPrimaryName("Frankfurt").setType(LocationType.CITY).setCoordinate(50.11552, 8.68417).setPopulation(650000L).create());
+        store.save(new LocationBuilder().setId(2).setPrimaryName("Frankfurt am Main").setType(LocationType.CITY).setCoordinate(50.11552, 8.68417).setPopulation(650000L).create());
+        store.save(new LocationBuilder().setId(3).setPrimaryName("Bath").setType(LocationType.CITY).setCoordinate(51.3751, -2.36172).setPopulation(94782L).create());
+        store.save(new LocationBuilder().setId(4).setPrimaryName("Munich").setType(LocationType.CITY).setCoordinate(48.13743, 11.57549).setPopulation(1260391L) //
+                .setAlternativeNames(Arrays.asList(new AlternativeName("München", Language.GERMAN), new AlternativeName("Monaco di Baviera", Language.ITALIAN))).create());
+        store.save(new LocationBuilder().setId(5).setPrimaryName("X").setType(LocationType.CITY).create());
+        return store;
+    }
+
+    private static List<String> values(List<ClassifiedAnnotation> annotations) {
+        return annotations.stream().map(ClassifiedAnnotation::getValue).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testGetAnnotations() {
+        GazetteerCandidateExtractor extractor = GazetteerCandidateExtractor.builder(createStore()).setLanguages(EnumSet.of(Language.ENGLISH, Language.GERMAN)).create();
+        assertEquals(5, extractor.getNumNames());
+
+        String text = "From Frankfurt am Main via MÜNCHEN to Frankfurt; a bath in Bath, not in Bathurst, nor in X or Monaco di Baviera.";
+        List<ClassifiedAnnotation> annotations = extractor.getAnnotations(text);
+        assertEquals(Arrays.asList("Frankfurt am Main", "MÜNCHEN", "Frankfurt", "Bath"), values(annotations));
+        assertEquals(5, annotations.get(0).getStartPosition());
+        assertEquals(text.indexOf("Bath"), annotations.get(3).getStartPosition());
+
+        extractor = GazetteerCandidateExtractor.builder(createStore()).setRequireUppercase(false).setMinLength(1).create();
+        annotations = extractor.getAnnotations(text);
+        assertEquals(Arrays.asList("Frankfurt am Main", "Frankfurt", "bath", "Bath", "X"), values(annotations));
+    }
+
+    @Test
+    public void testLocationExtraction() {
+        CollectionLocationStore store = createStore();
+        GazetteerCandidateExtractor candidateExtractor = GazetteerCandidateExtractor.builder(store).create();
+        PalladianLocationExtractor extractor = new PalladianLocationExtractor(store, candidateExtractor, new HeuristicDisambiguation());
+        List<LocationAnnotation> annotations = extractor.getAnnotations("The conference moves from Bath to Munich.");
+        assertEquals(2, annotations.size());
+        assertEquals(3, annotations.get(0).getLocation().getId());
+        assertEquals(4, annotations.get(1).getLocation().getId());
+    }
+
+    @Test
+    public void testLocationExtractionWithLanguages() {
+        Set<Set<Language>> lookupLanguages = new HashSet<>();
+        CollectionLocationStore store = fill(new CollectionLocationStore() {
+            @Override
+            public Collection<Location> getLocations(String locationName, Set<Language> languages) {
+                lookupLanguages.add(languages);
+                return super.getLocations(locationName, languages);
+            }
+        });
+        GazetteerCandidateExtractor candidateExtractor = GazetteerCandidateExtractor.builder(store).setLanguages(EnumSet.of(Language.ENGLISH, Language.GERMAN)).create();
+        PalladianLocationExtractor extractor = new PalladianLocationExtractor(store, candidateExtractor, new HeuristicDisambiguation(), candidateExtractor.getLanguages());
+        List<LocationAnnotation> annotations = extractor.getAnnotations("The conference moves from Bath to München.");
+        assertEquals(2, annotations.size());
+        assertEquals(4, annotations.get(1).getLocation().getId());
+        // the names of the candidate extractor are looked up with the same languages
+        assertEquals(Collections.singleton(EnumSet.of(Language.ENGLISH, Language.GERMAN)), lookupLanguages);
+    }
+
+}
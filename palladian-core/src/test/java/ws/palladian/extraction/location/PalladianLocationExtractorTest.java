@@ -0,0 +1,67 @@
+package ws.palladian.extraction.location;
+
+import org.junit.Test;
+import ws.palladian.extraction.location.sources.CollectionLocationStore;
+import ws.palladian.helper.constants.Language;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PalladianLocationExtractorTest {
+
+    /** Counts the queries for each name. */
+    private static final class CountingLocationStore extends CollectionLocationStore {
+        final Map<String, AtomicInteger> queries = new ConcurrentHashMap<>();
+
+        @Override
+        public Collection<Location> getLocations(String locationName, Set<Language> languages) {
+            queries.computeIfAbsent(locationName, name -> new AtomicInteger()).incrementAndGet();
+            return super.getLocations(locationName, languages);
+        }
+    }
+
+    private static CountingLocationStore createStore() {
+        CountingLocationStore store = new CountingLocationStore();
+        store.save(new LocationBuilder().setId(1).setPrimaryName("Stuttgart").setType(LocationType.CITY).setCoordinate(48.78232, 9.17702).setPopulation(589793L).create());
+        store.save(new LocationBuilder().setId(2).setPrimaryName("Berlin").setType(LocationType.CITY).setCoordinate(52.52437, 13.41053).setPopulation(3426354L).create());
+        store.save(new LocationBuilder().setId(3).setPrimaryName("Paris").setType(LocationType.CITY).setCoordinate(48.85341, 2.3488).setPopulation(2138551L).create());
+        store.save(new LocationBuilder().setId(4).setPrimaryName("Paris").setType(LocationType.CITY).setCoordinate(33.66094, -95.55551).setPopulation(25171L).create());
+        return store;
+    }
+
+    @Test
+    public void testBatch() {
+        List<String> texts = Arrays.asList( //
+                "The train from Stuttgart to Berlin was late.", //
+                "Paris and Berlin signed the agreement, it was announced in Stuttgart.", //
+                "", //
+                "Nothing happened at 40.446195,-79.948862 today.", //
+                "Berlin is larger than Stuttgart.");
+
+        CountingLocationStore store = createStore();
+        PalladianLocationExtractor extractor = new PalladianLocationExtractor(store);
+        List<List<LocationAnnotation>> expected = new ArrayList<>();
+        for (String text : texts) {
+            expected.add(extractor.getAnnotations(text));
+        }
+
+        CountingLocationStore batchStore = createStore();
+        PalladianLocationExtractor batchExtractor = new PalladianLocationExtractor(batchStore);
+        PalladianLocationExtractor.BatchResult result = batchExtractor.getAnnotations(texts, 3);
+        assertEquals(expected, result.getAnnotations());
+        assertTrue(result.getAnnotations().get(0).size() >= 2);
+        assertEquals(1, result.getAnnotations().get(3).size());
+
+        // each name is queried only once for the whole batch
+        assertEquals(result.getNumLookedUpNames(), batchStore.queries.size());
+        for (AtomicInteger count : batchStore.queries.values()) {
+            assertEquals(1, count.get());
+        }
+        assertTrue(store.queries.get("berlin").get() > 1);
+    }
+
+}
@@ -0,0 +1,78 @@
+package ws.palladian.extraction.location.disambiguation;
+
+import org.junit.Test;
+import ws.palladian.extraction.location.Location;
+import ws.palladian.extraction.location.LocationBuilder;
+import ws.palladian.extraction.location.LocationSet;
+import ws.palladian.extraction.location.LocationType;
+import ws.palladian.helper.geo.GeoCoordinate;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static ws.palladian.extraction.location.LocationFilters.population;
+import static ws.palladian.extraction.location.LocationFilters.radius;
+import static ws.palladian.helper.collection.CollectionHelper.coalesce;
+import static ws.palladian.helper.functional.Predicates.equal;
+import static ws.palladian.helper.functional.Predicates.not;
+
+public class CandidateIndexTest {
+
+    private static List<Location> createLocations(Random random, int numLocations) {
+        List<Location> locations = new ArrayList<>();
+        for (int i = 0; i < numLocations; i++) {
+            LocationBuilder builder = new LocationBuilder().setId(i).setPrimaryName("location" + i).setType(LocationType.CITY);
+            int coordinateType = random.nextInt(10);
+            if (coordinateType == 0) {
+                builder.setCoordinate(GeoCoordinate.NULL);
+            } else if (coordinateType > 1) {
+                // clustered around a few centers, also close to the poles and the date line
+                double lat = Math.max(-90, Math.min(90, (random.nextInt(5) - 2) * 40 + random.nextGaussian() * 2));
+                double lng = Math.max(-180, Math.min(180, (random.nextInt(5) - 2) * 89.5 + random.nextGaussian() * 2));
+                builder.setCoordinate(lat, lng);
+            }
+            if (random.nextInt(5) > 0) {
+                builder.setPopulation((long) random.nextInt(300000));
+            }
+            locations.add(builder.create());
+        }
+        return locations;
+    }
+
+    @Test
+    public void testSameAsLocationSet() {
+        Random random = new Random(1);
+        int[] distanceValues = {250, 10, 50, 1000};
+        int[] populationValues = {100000, 0, 5000};
+        for (int run = 0; run < 5; run++) {
+            List<Location> locationList = createLocations(random, 300);
+            LocationSet allLocations = new LocationSet(locationList);
+            Set<Location> uniqueLocations = new HashSet<>(locationList.subList(0, 30));
+            LocationSet uniqLocations = new LocationSet(uniqueLocations);
+            CandidateIndex index = new CandidateIndex(allLocations, uniqueLocations, distanceValues, populationValues);
+            for (int i = 0; i < locationList.size(); i += 10) {
+                List<Location> candidates = locationList.subList(i, i + 10);
+                LocationSet otherLocations = allLocations.where(not(equal(candidates)));
+                boolean[] othersMask = index.othersMask(candidates);
+                for (Location location : candidates) {
+                    GeoCoordinate coordinate = coalesce(location.getCoordinate(), GeoCoordinate.NULL);
+                    CandidateIndex.Result result = index.query(coordinate, othersMask);
+                    for (int k = 0; k < distanceValues.length; k++) {
+                        int d = distanceValues[k];
+                        LocationSet otherInDist = otherLocations.where(radius(coordinate, d));
+                        assertEquals(otherInDist.size(), result.numOthersWithin[k]);
+                        assertEquals(allLocations.where(radius(coordinate, d)).totalPopulation(), result.populationWithin[k]);
+                        assertEquals(otherInDist.where(not(equal(location))).totalPopulation(), result.populationOthersWithin[k]);
+                        assertEquals(uniqLocations.where(radius(coordinate, d)).size() > 0, result.uniqueWithin[k]);
+                    }
+                    for (int k = 0; k < populationValues.length; k++) {
+                        int p = populationValues[k];
+                        assertEquals(allLocations.where(population(p)).minDistance(coordinate), result.minDistance[k], 0);
+                        assertEquals(otherLocations.where(population(p)).where(not(equal(location))).minDistance(coordinate), result.minDistanceOthers[k], 0);
+                    }
+                }
+            }
+        }
+    }
+
+}
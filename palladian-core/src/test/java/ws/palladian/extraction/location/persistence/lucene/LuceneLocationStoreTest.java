@@ -0,0 +1,70 @@
+package ws.palladian.extraction.location.persistence.lucene;
+
+import org.apache.lucene.store.FSDirectory;
+import org.junit.Test;
+import ws.palladian.extraction.location.AlternativeName;
+import ws.palladian.extraction.location.Location;
+import ws.palladian.extraction.location.LocationBuilder;
+import ws.palladian.extraction.location.LocationType;
+import ws.palladian.helper.constants.Language;
+import ws.palladian.helper.io.FileHelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class LuceneLocationStoreTest {
+
+    private static Location createLocation(int id, String name) {
+        LocationBuilder builder = new LocationBuilder();
+        builder.setId(id);
+        builder.setPrimaryName(name);
+        builder.setType(LocationType.CITY);
+        return builder.create();
+    }
+
+    private static Set<String> getAlternativeNames(Location location) {
+        Set<String> names = new HashSet<>();
+        for (AlternativeName alternativeName : location.getAlternativeNames()) {
+            names.add(alternativeName.getName());
+        }
+        return names;
+    }
+
+    /**
+     * The temporary index contains the documents: location 1, three name documents of location 1, location 2, one name
+     * document of location 2, location 3; with small ranges, the names of a location are split across ranges.
+     */
+    @Test
+    public void testAlternativeNamesAcrossRanges() throws IOException {
+        for (int documentsPerTask = 1; documentsPerTask <= 4; documentsPerTask++) {
+            File indexFile = FileHelper.getTempFile();
+            LuceneLocationStore store = new LuceneLocationStore(indexFile, 2, documentsPerTask);
+            store.startImport();
+            store.save(createLocation(1, "Stuttgart"));
+            store.addAlternativeNames(1, Collections.singletonList(new AlternativeName("Stoccarda", Language.ITALIAN)));
+            store.addAlternativeNames(1, Collections.singletonList(new AlternativeName("Stuttgarda", Language.CZECH)));
+            store.addAlternativeNames(1, Collections.singletonList(new AlternativeName("Shtutgarti", Language.ALBANIAN)));
+            store.save(createLocation(2, "Flein"));
+            store.addAlternativeNames(2, Collections.singletonList(new AlternativeName("Fleyn", Language.ENGLISH)));
+            store.save(createLocation(3, "Heilbronn"));
+            store.finishImport();
+
+            try (LuceneLocationSource source = new LuceneLocationSource(FSDirectory.open(indexFile.toPath()))) {
+                String message = "documentsPerTask=" + documentsPerTask;
+                assertEquals(message, 3, source.size());
+                assertEquals(message, new HashSet<>(Arrays.asList("Stoccarda", "Stuttgarda", "Shtutgarti")), getAlternativeNames(source.getLocation(1)));
+                assertEquals(message, Collections.singleton("Fleyn"), getAlternativeNames(source.getLocation(2)));
+                assertEquals(message, Collections.emptySet(), getAlternativeNames(source.getLocation(3)));
+            } finally {
+                FileHelper.delete(indexFile.getPath(), true);
+            }
+        }
+    }
+
+}
@@ -14,6 +14,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
@@ -460,4 +461,23 @@ public class GeonamesImporterTest {
         assertTrue(alternativeNames.contains(new AlternativeName("Stuttgart", Language.SPANISH)));
         assertTrue(alternativeNames.contains(new AlternativeName("Shtutgarti", Language.ALBANIAN)));
     }
+
+    @Test
+    public void testParallelImport() throws IOException {
+        CollectionLocationStore parallelStore = new CollectionLocationStore();
+        GeonamesImporter importer = new GeonamesImporter(parallelStore, null, 4);
+        InputStreamProvider hierarchyFile = new FileInputStreamProvider(getResourceFile("/geonames.org/hierarchy.txt"));
+        InputStreamProvider locationFile = new FileInputStreamProvider(getResourceFile("/geonames.org/locationData.txt"));
+        InputStreamProvider alternateNamesFile = new FileInputStreamProvider(getResourceFile("/geonames.org/alternateNames.txt"));
+        importer.importLocations(locationFile, hierarchyFile, alternateNamesFile);
+        assertEquals(locationStore.toString(), parallelStore.toString());
+        for (int locationId : new int[]{2926304, 2825297, 2953481, 7268814, 6547539, 5410563, 4147702, 7729881, 6632604}) {
+            Location expected = locationStore.getLocation(locationId);
+            Location actual = parallelStore.getLocation(locationId);
+            assertEquals(expected.getPrimaryName(), actual.getPrimaryName());
+            assertEquals(expected.getType(), actual.getType());
+            assertEquals(expected.getAncestorIds(), actual.getAncestorIds());
+            assertEquals(new HashSet<>(expected.getAlternativeNames()), new HashSet<>(actual.getAlternativeNames()));
+        }
+    }
 }
@@ -0,0 +1,131 @@
+package ws.palladian.extraction.text.similarity;
+
+import org.junit.Test;
+import ws.palladian.extraction.text.similarity.WordMoverSimilarity.Match;
+import ws.palladian.extraction.text.vector.FloatVectorUtil;
+import ws.palladian.extraction.text.vector.WordVectorDictionary;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+public class WordMoverSimilarityTest {
+
+    private static final int NUM_WORDS = 300;
+
+    private static final Map<String, float[]> VECTORS = new HashMap<>();
+
+    private static final WordVectorDictionary DICTIONARY = new WordVectorDictionary() {
+        @Override
+        public float[] getVector(String word) {
+            return VECTORS.get(word);
+        }
+
+        @Override
+        public int size() {
+            return VECTORS.size();
+        }
+
+        @Override
+        public int vectorSize() {
+            return 20;
+        }
+
+        @Override
+        public boolean isCaseSensitive() {
+            return false;
+        }
+    };
+
+    static {
+        Random random = new Random(1);
+        for (int i = 0; i < NUM_WORDS; i++) {
+            float[] vector = new float[20];
+            // some structure, so that there is something to prune
+            int cluster = i % 5;
+            for (int j = 0; j < vector.length; j++) {
+                vector[j] = (float) random.nextGaussian() * 0.3f + (j % 5 == cluster ? 1 : 0);
+            }
+            VECTORS.put("word" + i, vector);
+        }
+    }
+
+    private static List<String> createTexts(int count, Random random) {
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder text = new StringBuilder();
+            int cluster = random.nextInt(5);
+            int numTokens = 1 + random.nextInt(8);
+            for (int j = 0; j < numTokens; j++) {
+                int word = random.nextInt(10) == 0 ? NUM_WORDS + j : 5 * random.nextInt(NUM_WORDS / 5) + cluster;
+                text.append("word").append(word).append(' ');
+            }
+            texts.add(text.toString());
+        }
+        return texts;
+    }
+
+    /** The original, unoptimized implementation. */
+    private static double legacySimilarity(WordMoverSimilarity similarity, String i1, String i2) {
+        List<String> tokens1 = similarity.preprocess(i1);
+        List<String> tokens2 = similarity.preprocess(i2);
+        if (tokens1.size() > tokens2.size()) {
+            List<String> temp = tokens1;
+            tokens1 = tokens2;
+            tokens2 = temp;
+        }
+        double result = 0;
+        for (String token1 : tokens1) {
+            double maxSimilarity = 0;
+            float[] vector1 = DICTIONARY.getVector(token1);
+            if (vector1 == null) {
+                continue;
+            }
+            for (String token2 : tokens2) {
+                float[] vector2 = DICTIONARY.getVector(token2);
+                if (vector2 == null) {
+                    continue;
+                }
+                maxSimilarity = Math.max(maxSimilarity, FloatVectorUtil.cosine(vector1, vector2));
+            }
+            result += maxSimilarity;
+        }
+        return result / tokens1.size();
+    }
+
+    @Test
+    public void testGetSimilarities() {
+        WordMoverSimilarity similarity = new WordMoverSimilarity(DICTIONARY);
+        Random random = new Random(2);
+        List<String> candidates = createTexts(200, random);
+        String query = createTexts(1, random).get(0);
+        double[] similarities = similarity.getSimilarities(query, candidates);
+        for (int i = 0; i < candidates.size(); i++) {
+            double expected = legacySimilarity(similarity, query, candidates.get(i));
+            assertEquals(expected, similarities[i], 0.00001);
+            assertEquals(expected, similarity.getSimilarity(query, candidates.get(i)), 0.00001);
+        }
+        // cached
+        assertEquals(similarities[0], similarity.getSimilarities(query, candidates)[0], 0);
+    }
+
+    @Test
+    public void testMostSimilar() {
+        WordMoverSimilarity similarity = new WordMoverSimilarity(DICTIONARY, 100);
+        Random random = new Random(3);
+        List<String> candidates = createTexts(2000, random);
+        for (String query : createTexts(10, random)) {
+            double[] similarities = similarity.getSimilarities(query, candidates);
+            double[] sorted = similarities.clone();
+            Arrays.sort(sorted);
+            List<Match> matches = similarity.mostSimilar(query, candidates, 5);
+            assertEquals(5, matches.size());
+            for (int i = 0; i < matches.size(); i++) {
+                assertEquals(sorted[sorted.length - 1 - i], matches.get(i).getSimilarity(), 0);
+                assertEquals(similarities[matches.get(i).getIndex()], matches.get(i).getSimilarity(), 0);
+            }
+        }
+        assertEquals(3, similarity.mostSimilar("word1", candidates.subList(0, 3), 10).size());
+    }
+
+}
@@ -0,0 +1,40 @@
+package ws.palladian.extraction.text.vector;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class MapWordVectorDictionaryTest {
+
+    /** Enough lines to be parsed in several chunks. */
+    private static final int NUM_LINES = 300000;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testReadFromVecFileDuplicates() throws IOException {
+        File file = tempFolder.newFile();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            for (int i = 0; i < NUM_LINES; i++) {
+                // the duplicate token appears in the first, a middle, and the last line
+                if (i == 0 || i == NUM_LINES / 2 || i == NUM_LINES - 1) {
+                    writer.write("duplicate " + i + " " + i + "\n");
+                } else {
+                    writer.write("word" + i + " 0.5 0.5\n");
+                }
+            }
+        }
+        MapWordVectorDictionary dictionary = MapWordVectorDictionary.readFromVecFile(file);
+        assertEquals(NUM_LINES - 2, dictionary.size());
+        assertEquals(2, dictionary.vectorSize());
+        assertArrayEquals(new float[]{NUM_LINES - 1, NUM_LINES - 1}, dictionary.getVector("duplicate"), 0);
+        assertArrayEquals(new float[]{0.5f, 0.5f}, dictionary.getVector("word1"), 0);
+    }
+
+}
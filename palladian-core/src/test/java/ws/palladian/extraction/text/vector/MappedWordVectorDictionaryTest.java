@@ -0,0 +1,172 @@
+package ws.palladian.extraction.text.vector;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ws.palladian.core.FeatureVector;
+import ws.palladian.core.InstanceBuilder;
+import ws.palladian.core.value.NumericValue;
+import ws.palladian.extraction.text.vector.MappedWordVectorDictionary.Neighbor;
+import ws.palladian.helper.io.FileHelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class MappedWordVectorDictionaryTest {
+
+    private static final int NUM_WORDS = 2000;
+
+    private static final int VECTOR_SIZE = 25;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static Map<String, float[]> createVectors() {
+        Random random = new Random(1);
+        Map<String, float[]> vectors = new LinkedHashMap<>();
+        for (int i = 0; i < NUM_WORDS; i++) {
+            float[] vector = new float[VECTOR_SIZE];
+            for (int j = 0; j < VECTOR_SIZE; j++) {
+                vector[j] = (float) random.nextGaussian();
+            }
+            vectors.put("wörd" + i, vector);
+        }
+        return vectors;
+    }
+
+    private File write(Map<String, float[]> vectors, boolean quantize) throws IOException {
+        File file = tempFolder.newFile();
+        try (MappedWordVectorDictionary.Writer writer = new MappedWordVectorDictionary.Writer(file, quantize)) {
+            for (Map.Entry<String, float[]> entry : vectors.entrySet()) {
+                writer.add(entry.getKey(), entry.getValue());
+            }
+        }
+        return file;
+    }
+
+    @Test
+    public void testLookup() throws IOException {
+        Map<String, float[]> vectors = createVectors();
+        try (MappedWordVectorDictionary dictionary = MappedWordVectorDictionary.open(write(vectors, false))) {
+            assertEquals(NUM_WORDS, dictionary.size());
+            assertEquals(VECTOR_SIZE, dictionary.vectorSize());
+            assertFalse(dictionary.isCaseSensitive());
+            assertFalse(dictionary.isQuantized());
+            for (Map.Entry<String, float[]> entry : vectors.entrySet()) {
+                assertArrayEquals(entry.getValue(), dictionary.getVector(entry.getKey()), 0);
+                assertEquals(entry.getKey(), dictionary.getWord(dictionary.getRow(entry.getKey())));
+            }
+            assertNull(dictionary.getVector("unknown"));
+            assertEquals(-1, dictionary.getRow("wörd"));
+            float[] vector1 = vectors.get("wörd1");
+            float[] vector2 = vectors.get("wörd2");
+            assertEquals(FloatVectorUtil.cosine(vector1, vector2), dictionary.cosine("wörd1", "wörd2"), 0.0001);
+            assertEquals(FloatVectorUtil.dot(vector1, vector2), dictionary.dot(dictionary.getRow("wörd1"), vector2), 0.0001);
+            assertTrue(Float.isNaN(dictionary.cosine("wörd1", "unknown")));
+        }
+    }
+
+    @Test
+    public void testQuantized() throws IOException {
+        Map<String, float[]> vectors = createVectors();
+        try (MappedWordVectorDictionary dictionary = MappedWordVectorDictionary.open(write(vectors, true))) {
+            assertTrue(dictionary.isQuantized());
+            for (Map.Entry<String, float[]> entry : vectors.entrySet()) {
+                float[] vector = dictionary.getVector(entry.getKey());
+                assertTrue(FloatVectorUtil.cosine(entry.getValue(), vector) > 0.999);
+            }
+            assertEquals(1, dictionary.cosine("wörd1", "wörd1"), 0.0001);
+            assertEquals(FloatVectorUtil.cosine(vectors.get("wörd1"), vectors.get("wörd2")),
+                    dictionary.cosine("wörd1", "wörd2"), 0.01);
+        }
+    }
+
+    @Test
+    public void testMostSimilar() throws IOException {
+        Map<String, float[]> vectors = createVectors();
+        try (MappedWordVectorDictionary dictionary = MappedWordVectorDictionary.open(write(vectors, false))) {
+            int numQueries = 50;
+            int k = 10;
+            int found = 0;
+            List<List<String>> expected = new ArrayList<>();
+            for (int i = 0; i < numQueries; i++) {
+                List<String> exhaustive = exhaustiveMostSimilar(vectors, "wörd" + i, k);
+                List<Neighbor> neighbors = dictionary.mostSimilar("wörd" + i, k);
+                assertEquals(new HashSet<>(exhaustive), new HashSet<>(words(neighbors)));
+                for (int j = 1; j < neighbors.size(); j++) {
+                    assertTrue(neighbors.get(j - 1).getSimilarity() >= neighbors.get(j).getSimilarity());
+                }
+                expected.add(exhaustive);
+            }
+            assertTrue(dictionary.mostSimilar("unknown", k).isEmpty());
+
+            // the approximate results should contain most of the exact ones
+            dictionary.buildIndex(20, 5, 1);
+            assertTrue(dictionary.hasIndex());
+            for (int i = 0; i < numQueries; i++) {
+                List<String> approximate = words(dictionary.mostSimilar("wörd" + i, k));
+                assertEquals(k, approximate.size());
+                approximate.retainAll(expected.get(i));
+                found += approximate.size();
+            }
+            assertTrue("recall was " + (double) found / (numQueries * k), found > 0.5 * numQueries * k);
+
+            // probing all lists is exact
+            dictionary.buildIndex(20, 20, 1);
+            assertEquals(new HashSet<>(expected.get(0)), new HashSet<>(words(dictionary.mostSimilar("wörd0", k))));
+            dictionary.clearIndex();
+            assertFalse(dictionary.hasIndex());
+        }
+    }
+
+    @Test
+    public void testConvertVecFile() throws IOException {
+        File vecFile = tempFolder.newFile("vectors.vec");
+        FileHelper.writeToFile(vecFile.getPath(), "3 2\nthe 0.5 1.0\nCar -1.0 2.5\nhouse 0.0 0.25\n");
+        File file = tempFolder.newFile();
+        MappedWordVectorDictionary.convertVecFile(vecFile, file, false);
+        try (MappedWordVectorDictionary dictionary = MappedWordVectorDictionary.open(file)) {
+            assertEquals(3, dictionary.size());
+            assertEquals(2, dictionary.vectorSize());
+            assertTrue(dictionary.isCaseSensitive());
+            assertArrayEquals(new float[]{-1, 2.5f}, dictionary.getVector("Car"), 0);
+
+            // usable for vectorizing text
+            EmbeddingTextVectorizer vectorizer = new EmbeddingTextVectorizer("text", dictionary);
+            FeatureVector vector = vectorizer.apply(new InstanceBuilder().set("text", "the house").create());
+            assertEquals(0.25, ((NumericValue) vector.get("embedding-0")).getDouble(), 0.0001);
+            assertEquals(0.625, ((NumericValue) vector.get("embedding-1")).getDouble(), 0.0001);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidFile() throws IOException {
+        File file = tempFolder.newFile();
+        FileHelper.writeToFile(file.getPath(), "this is not a word vector file");
+        MappedWordVectorDictionary.open(file);
+    }
+
+    private static List<String> exhaustiveMostSimilar(Map<String, float[]> vectors, String word, int k) {
+        float[] query = vectors.get(word);
+        List<Map.Entry<String, float[]>> entries = new ArrayList<>(vectors.entrySet());
+        entries.removeIf(entry -> entry.getKey().equals(word));
+        entries.sort(Comparator.comparingDouble(entry -> -FloatVectorUtil.cosine(query, entry.getValue())));
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < k; i++) {
+            words.add(entries.get(i).getKey());
+        }
+        return words;
+    }
+
+    private static List<String> words(List<Neighbor> neighbors) {
+        List<String> words = new ArrayList<>();
+        for (Neighbor neighbor : neighbors) {
+            words.add(neighbor.getWord());
+        }
+        return words;
+    }
+
+}
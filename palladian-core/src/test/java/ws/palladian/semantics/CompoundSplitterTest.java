@@ -0,0 +1,70 @@
+package ws.palladian.semantics;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CompoundSplitterTest {
+
+    private static final List<String> WORDS = Arrays.asList("bach", "forelle", "forellen", "filet", "tinte", "tinten",
+            "strahl", "drucker", "strahldrucker", "tintenstrahl", "schuh", "gold", "kette", "fahrrad", "rad", "schloss",
+            "fahrradschloss");
+
+    @Test
+    public void testSuffixes() {
+        CompoundSplitter splitter = new CompoundSplitter(WORDS);
+        assertEquals(WORDS.size(), splitter.size());
+        assertTrue(splitter.contains("forellen"));
+        assertFalse(splitter.contains("orellen"));
+        assertFalse(splitter.contains(""));
+
+        assertArrayEquals(new int[]{7, 13}, splitter.suffixLengths("tintenstrahldrucker", 19));
+        assertArrayEquals(new int[]{6, 12}, splitter.suffixLengths("tintenstrahldrucker", 12));
+        assertArrayEquals(new int[0], splitter.suffixLengths("tintenstrahldrucker", 11));
+
+        assertEquals(13, splitter.longestSuffix("tintenstrahldrucker", 1, 18));
+        assertEquals(7, splitter.longestSuffix("tintenstrahldrucker", 1, 12));
+        assertEquals(0, splitter.longestSuffix("tintenstrahldrucker", 8, 12));
+    }
+
+    @Test
+    public void testLongestSuffixEqualsScan() {
+        CompoundSplitter splitter = new CompoundSplitter(WORDS);
+        List<String> inputs = Arrays.asList("bachforellenfilet", "goldkette", "fahrradschloss", "xyz", "platouschuh",
+                "radrad", "tintenstrahldrucker");
+        for (String input : inputs) {
+            for (int maxLength = 1; maxLength <= input.length(); maxLength++) {
+                int expected = 0;
+                for (String word : WORDS) {
+                    if (word.length() <= maxLength && input.endsWith(word)) {
+                        expected = Math.max(expected, word.length());
+                    }
+                }
+                assertEquals(input + " @ " + maxLength, expected, splitter.longestSuffix(input, 1, maxLength));
+            }
+        }
+    }
+
+    @Test
+    public void testSplit() {
+        CompoundSplitter splitter = new CompoundSplitter(WORDS);
+        // fewest parts, then longest parts
+        assertEquals(Arrays.asList("tinten", "strahldrucker"), splitter.split("tintenstrahldrucker", false));
+        assertEquals(Arrays.asList("gold", "kette"), splitter.split("goldkette", false));
+        assertEquals(Arrays.asList("bach", "forellen", "filet"), splitter.split("bachforellenfilet", false));
+        // the whole word is in the dictionary
+        assertEquals(Arrays.asList("fahrradschloss"), splitter.split("fahrradschloss", false));
+        assertEquals(Arrays.asList("fahrrad", "schloss"), splitter.split("fahrradschloss", true));
+        // "rad" is shorter than the minimum part length
+        assertEquals(Arrays.asList("radrad"), splitter.split("radrad", false));
+        assertEquals(Arrays.asList("rad", "rad"), new CompoundSplitter(WORDS, 3).split("radrad", false));
+        // unknown characters at the beginning
+        assertEquals(Arrays.asList("platou", "schuh"), splitter.split("platouschuh", false));
+        assertEquals(Arrays.asList("hadny"), splitter.split("hadny", false));
+        assertEquals(Arrays.asList(""), splitter.split("", false));
+    }
+
+}
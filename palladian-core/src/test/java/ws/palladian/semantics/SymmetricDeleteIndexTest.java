@@ -0,0 +1,146 @@
+package ws.palladian.semantics;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ws.palladian.helper.io.FileHelper;
+import ws.palladian.semantics.SymmetricDeleteIndex.Suggestion;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SymmetricDeleteIndexTest {
+
+    private static final List<String> WORDS = Arrays.asList("the", "this", "is", "how", "text", "supposed", "to", "be",
+            "car", "cart", "care", "scar", "orange", "handy", "hand", "spelling", "correction", "accommodation");
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static Object2IntOpenHashMap<String> createDictionary() {
+        Object2IntOpenHashMap<String> dictionary = new Object2IntOpenHashMap<>();
+        for (int i = 0; i < WORDS.size(); i++) {
+            dictionary.put(WORDS.get(i), i + 1);
+        }
+        return dictionary;
+    }
+
+    @Test
+    public void testLookup() {
+        SymmetricDeleteIndex index = SymmetricDeleteIndex.build(createDictionary(), 2);
+        assertEquals(WORDS.size(), index.size());
+
+        List<Suggestion> suggestions = index.lookup("caar", 1);
+        assertEquals(new HashSet<>(Arrays.asList("car")), words(suggestions));
+
+        suggestions = index.lookup("hoow", 1);
+        assertEquals("how", suggestions.get(0).getWord());
+        assertEquals(1, suggestions.get(0).getDistance());
+
+        // transposition
+        suggestions = index.lookup("etxt", 1);
+        assertEquals(new HashSet<>(Arrays.asList("text")), words(suggestions));
+
+        // sorted by distance, then count
+        suggestions = index.lookup("car", 1);
+        assertEquals("car", suggestions.get(0).getWord());
+        assertEquals(0, suggestions.get(0).getDistance());
+        assertEquals(new HashSet<>(Arrays.asList("car", "cart", "care", "scar")), words(suggestions));
+
+        // longer than the prefix
+        suggestions = index.lookup("acommodatoin", 2);
+        assertEquals(new HashSet<>(Arrays.asList("accommodation")), words(suggestions));
+    }
+
+    @Test
+    public void testLookupEqualsBruteForce() {
+        SymmetricDeleteIndex index = SymmetricDeleteIndex.build(createDictionary(), 2);
+        List<String> inputs = Arrays.asList("teh", "thsi", "si", "hwo", "txet", "suposed", "ot", "eb", "crae", "sacr",
+                "ornage", "hnady", "hadn", "speling", "corection", "x", "");
+        for (String input : inputs) {
+            for (int maxDistance = 0; maxDistance <= 2; maxDistance++) {
+                Set<String> expected = new HashSet<>();
+                for (String word : WORDS) {
+                    if (osaDistance(input, word) <= maxDistance) {
+                        expected.add(word);
+                    }
+                }
+                assertEquals(input + " @ " + maxDistance, expected, words(index.lookup(input, maxDistance)));
+            }
+        }
+    }
+
+    @Test
+    public void testSerialization() throws IOException {
+        SymmetricDeleteIndex index = SymmetricDeleteIndex.build(createDictionary(), 2);
+        File file = new File(tempFolder.getRoot(), "index.ser.gz");
+        FileHelper.serialize(index, file.getPath());
+        SymmetricDeleteIndex deserialized = FileHelper.deserialize(file.getPath());
+        assertEquals(index.size(), deserialized.size());
+        assertEquals(words(index.lookup("speling", 2)), words(deserialized.lookup("speling", 2)));
+    }
+
+    @Test
+    public void testSpellCheckerWithIndex() throws IOException {
+        File dictionaryFile = tempFolder.newFile("dictionary.txt");
+        FileHelper.writeToFile(dictionaryFile.getPath(), "This is how the text is supposed to be. The car is orange.");
+        PalladianSpellChecker spellChecker = new PalladianSpellChecker(dictionaryFile.getPath(), false, false);
+        String expected = spellChecker.autoCorrect("Thiss is hoow the etxt is supposd to be");
+        spellChecker.buildCandidateIndex(2);
+        assertEquals(expected, spellChecker.autoCorrect("Thiss is hoow the etxt is supposd to be"));
+        assertEquals("This is how the text is supposed to be", expected);
+        assertTrue(spellChecker.getCandidateIndex().size() > 0);
+    }
+
+    @Test
+    public void testSpellCheckerDistanceTwo() throws IOException {
+        File dictionaryFile = tempFolder.newFile("dictionary.txt");
+        FileHelper.writeToFile(dictionaryFile.getPath(), "This is how the text is supposed to be.");
+        PalladianSpellChecker spellChecker = new PalladianSpellChecker(dictionaryFile.getPath(), false, false);
+        // without an index and with an index of distance one, only distance one is considered
+        assertEquals("supposed", spellChecker.autoCorrect("suposed"));
+        assertEquals("suposd", spellChecker.autoCorrect("suposd"));
+        spellChecker.buildCandidateIndex(1);
+        assertEquals("supposed", spellChecker.autoCorrect("suposed"));
+        assertEquals("suposd", spellChecker.autoCorrect("suposd"));
+        // "suposd" has no suggestion with distance one, the index of distance two finds "supposed"
+        spellChecker.buildCandidateIndex(2);
+        assertEquals("supposed", spellChecker.autoCorrect("suposed"));
+        assertEquals("supposed", spellChecker.autoCorrect("suposd"));
+    }
+
+    private static Set<String> words(List<Suggestion> suggestions) {
+        Set<String> words = new HashSet<>();
+        for (Suggestion suggestion : suggestions) {
+            words.add(suggestion.getWord());
+        }
+        return words;
+    }
+
+    /** Straightforward optimal string alignment distance for comparison. */
+    private static int osaDistance(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+
+}
@@ -0,0 +1,102 @@
+package ws.palladian.semantics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class WordDBSnapshotTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private Connection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        connection = DriverManager.getConnection("jdbc:h2:mem:wordDbSnapshotTest;MODE=MySQL", "root", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE words (id int NOT NULL auto_increment PRIMARY KEY, `word` varchar(30) NOT NULL, `plural` varchar(30) NOT NULL, `type` varchar(25) NOT NULL, `language` varchar(20) NOT NULL)");
+            statement.execute("CREATE TABLE synonyms (wordId1 int NOT NULL, wordId2 int NOT NULL, relevance double NOT NULL, PRIMARY KEY (wordId1, wordId2))");
+            statement.execute("CREATE TABLE hypernyms (wordId1 int NOT NULL, wordId2 int NOT NULL, relevance double NOT NULL, PRIMARY KEY (wordId1, wordId2))");
+            statement.execute("INSERT INTO words VALUES (1, 'beer', 'beers', 'noun', 'en'), (2, 'ale', '', 'noun', 'en'), "
+                    + "(3, 'lager', 'lagers', 'noun', 'en'), (5, 'beverage', '', 'noun', 'en'), (7, 'Bier', '', 'noun', 'de'), "
+                    + "(8, 'cold', '', 'adjective', 'en'), (9, 'drink', '', 'verb', 'en')");
+            // synonyms are stored in one direction only; 'cold' has a different type, 99 does not exist
+            statement.execute("INSERT INTO synonyms VALUES (1, 2, 0.5), (1, 8, 0.5), (3, 1, 0.5), (1, 99, 0.5)");
+            statement.execute("INSERT INTO hypernyms VALUES (1, 5, 0.5), (2, 5, 0.5), (3, 5, 0.5), (1, 9, 0.5)");
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    private static List<String> toStrings(Iterable<Word> words) {
+        List<String> strings = new ArrayList<>();
+        for (Word word : words) {
+            strings.add(word.getWord());
+        }
+        return strings;
+    }
+
+    @Test
+    public void testLookups() throws Exception {
+        WordDBSnapshot snapshot = WordDBSnapshot.create(connection);
+        File file = tempFolder.newFile("words.snapshot");
+        snapshot.write(file);
+
+        for (WordDBSnapshot currentSnapshot : Arrays.asList(snapshot, WordDBSnapshot.read(file))) {
+            assertEquals(7, currentSnapshot.size());
+            Word beer = currentSnapshot.getWord("beer");
+            assertEquals(1, beer.getId());
+            assertEquals("beers", beer.getPlural());
+            assertEquals("noun", beer.getType());
+            assertEquals(beer, currentSnapshot.getWord("beers"));
+            assertNull(currentSnapshot.getWord("bier"));
+            assertEquals(7, currentSnapshot.getWord("bier", true).getId());
+            assertNull(currentSnapshot.getWord("unknown", true));
+
+            // like the database: first where the word is second, then where it is first, only the same type
+            assertEquals(Arrays.asList("lager", "ale"), toStrings(currentSnapshot.getSynonyms(beer)));
+            assertEquals(Arrays.asList("beer"), toStrings(currentSnapshot.getSynonyms(currentSnapshot.getWord("ale"))));
+            assertEquals(Arrays.asList("beverage", "drink"), toStrings(currentSnapshot.getHypernyms(beer)));
+            assertEquals(Arrays.asList("beer", "ale", "lager"), toStrings(currentSnapshot.getHyponyms(currentSnapshot.getWord("beverage"))));
+            assertTrue(currentSnapshot.getHyponyms(beer).isEmpty());
+
+            // words which are not in the snapshot
+            assertTrue(currentSnapshot.getSynonyms(new Word(42, "wine", "", "noun", "en")).isEmpty());
+            assertTrue(currentSnapshot.getHypernyms(null).isEmpty());
+
+            Word lager = currentSnapshot.aggregateInformation("lagers");
+            assertEquals(Arrays.asList("beer"), toStrings(lager.getSynonyms()));
+            assertEquals(Arrays.asList("beverage"), toStrings(lager.getHypernyms()));
+        }
+    }
+
+    @Test
+    public void testSnapshotIsImmutable() throws Exception {
+        WordDBSnapshot snapshot = WordDBSnapshot.create(connection);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO words VALUES (10, 'wine', '', 'noun', 'en')");
+        }
+        assertNull(snapshot.getWord("wine"));
+        assertNotNull(WordDBSnapshot.create(connection).getWord("wine"));
+    }
+
+}
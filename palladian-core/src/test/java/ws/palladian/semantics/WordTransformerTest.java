@@ -7,7 +7,9 @@ import ws.palladian.helper.collection.CollectionHelper;
 import ws.palladian.helper.constants.Language;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 
@@ -85,6 +87,27 @@ public class WordTransformerTest {
         assertEquals("tisch", words.get(1));
     }
 
+    @Test
+    public void testSplitGermanCompoundsBatch() {
+        // make sure the parts are known, independent of the German dictionary on the class path
+        WordTransformer.addGermanWords(Arrays.asList("tintenstrahl", "drucker", "bach", "forellen", "filet", "forellenfilet"));
+        List<String> words = Arrays.asList("Tintenstrahldrucker", "bachforellenfilet", "tintenstrahldrucker", "hadny");
+        Map<String, List<String>> result = WordTransformer.splitGermanCompoundWords(words, false, false);
+        assertEquals(Arrays.asList("tintenstrahldrucker", "bachforellenfilet", "hadny"), new ArrayList<>(result.keySet()));
+        assertEquals(Arrays.asList("tintenstrahl", "drucker"), result.get("tintenstrahldrucker"));
+        assertEquals(Arrays.asList("bach", "forellenfilet"), result.get("bachforellenfilet"));
+        assertEquals(Arrays.asList("hadny"), result.get("hadny"));
+        for (Map.Entry<String, List<String>> entry : result.entrySet()) {
+            assertEquals(WordTransformer.splitGermanCompoundWords(entry.getKey(), false), entry.getValue());
+        }
+        result = WordTransformer.splitGermanCompoundWords(words, true, true);
+        assertEquals(Arrays.asList("tintenstrahl", "drucker"), result.get("tintenstrahldrucker"));
+        assertEquals(Arrays.asList("hadny"), result.get("hadny"));
+        for (Map.Entry<String, List<String>> entry : result.entrySet()) {
+            assertEquals(WordTransformer.splitGermanCompoundWordsBest(entry.getKey(), true), entry.getValue());
+        }
+    }
+
     @Test
     public void testWordToSingularEnglish() {
         assertEquals("clove", WordTransformer.wordToSingular("cloves", Language.ENGLISH));
@@ -0,0 +1,385 @@
+package ws.palladian.persistence;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ws.palladian.helper.NoProgress;
+import ws.palladian.helper.ProgressReporter;
+import ws.palladian.helper.StopWatch;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Loads large amounts of rows into the database. In contrast to
+ * {@link DatabaseManager#runBatchInsert(String, BatchDataProvider)}, where one thread prepares the data and performs
+ * the JDBC calls, the rows are pulled by the calling thread and split into sub batches, which are written by several
+ * threads in parallel, each one with its own pooled connection. Every sub batch is sent with
+ * {@link PreparedStatement#executeBatch()} and committed separately, so the load as a whole is <b>not</b> atomic, and
+ * the order in which the rows are inserted is not defined. A failed sub batch is rolled back and retried on a new
+ * connection; when all retries are exhausted, the rows of the sub batch are counted as failed and the load continues.
+ * Generated IDs are not reported.
+ * </p>
+ *
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * BulkLoader loader = BulkLoader.builder(databaseManager, &quot;INSERT INTO items (name, value) VALUES (?, ?)&quot;)
+ *         .setBatchSize(1000).setNumThreads(4).create();
+ * BulkLoader.Result result = loader.load(rows.iterator());
+ * System.out.println(result.getRowsPerSecond() + &quot; rows/s&quot;);
+ * </pre>
+ * </p>
+ */
+public final class BulkLoader {
+
+    /** The logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkLoader.class);
+
+    /** Marks the end of the rows in the queue. */
+    private static final List<List<?>> END = new ArrayList<>();
+
+    public static final class Builder {
+        private final DatabaseManager databaseManager;
+        private final String sql;
+        private int batchSize = 1000;
+        private int numThreads = 4;
+        private int maxRetries = 3;
+        private long retryDelay = 500;
+        private ProgressReporter progress = NoProgress.INSTANCE;
+
+        private Builder(DatabaseManager databaseManager, String sql) {
+            this.databaseManager = databaseManager;
+            this.sql = sql;
+        }
+
+        /**
+         * @param batchSize The number of rows which are sent and committed at once, greater zero; default 1000.
+         * @return The builder.
+         */
+        public Builder setBatchSize(int batchSize) {
+            Validate.isTrue(batchSize > 0, "batchSize must be greater zero");
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * @param numThreads The number of threads (and connections) which write the batches, greater zero; default 4.
+         *                   This should not exceed the size of the connection pool.
+         * @return The builder.
+         */
+        public Builder setNumThreads(int numThreads) {
+            Validate.isTrue(numThreads > 0, "numThreads must be greater zero");
+            this.numThreads = numThreads;
+            return this;
+        }
+
+        /**
+         * @param maxRetries The number of retries for a failed batch, zero or greater; default 3.
+         * @return The builder.
+         */
+        public Builder setMaxRetries(int maxRetries) {
+            Validate.isTrue(maxRetries >= 0, "maxRetries must be zero or greater");
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        /**
+         * @param retryDelay The time in milliseconds to wait before the first retry, which is doubled for every
+         *                   further retry, zero or greater; default 500.
+         * @return The builder.
+         */
+        public Builder setRetryDelay(long retryDelay) {
+            Validate.isTrue(retryDelay >= 0, "retryDelay must be zero or greater");
+            this.retryDelay = retryDelay;
+            return this;
+        }
+
+        /**
+         * @param progress The progress reporter, which is incremented by the number of inserted or failed rows, not
+         *                 <code>null</code>.
+         * @return The builder.
+         */
+        public Builder setProgress(ProgressReporter progress) {
+            Validate.notNull(progress, "progress must not be null");
+            this.progress = progress;
+            return this;
+        }
+
+        public BulkLoader create() {
+            return new BulkLoader(this);
+        }
+    }
+
+    /** The result of a load. */
+    public static final class Result {
+        private final long numRows;
+        private final long numFailedRows;
+        private final long numBatches;
+        private final long numRetries;
+        private final long elapsedTime;
+
+        private Result(long numRows, long numFailedRows, long numBatches, long numRetries, long elapsedTime) {
+            this.numRows = numRows;
+            this.numFailedRows = numFailedRows;
+            this.numBatches = numBatches;
+            this.numRetries = numRetries;
+            this.elapsedTime = elapsedTime;
+        }
+
+        /** @return The number of rows which were inserted. */
+        public long getNumRows() {
+            return numRows;
+        }
+
+        /** @return The number of rows which could not be inserted. */
+        public long getNumFailedRows() {
+            return numFailedRows;
+        }
+
+        /** @return The number of batches. */
+        public long getNumBatches() {
+            return numBatches;
+        }
+
+        /** @return The number of retries of failed batches. */
+        public long getNumRetries() {
+            return numRetries;
+        }
+
+        /** @return The time in milliseconds, which the load took. */
+        public long getElapsedTime() {
+            return elapsedTime;
+        }
+
+        /** @return The number of inserted rows per second. */
+        public double getRowsPerSecond() {
+            return numRows * 1000. / Math.max(1, elapsedTime);
+        }
+
+        @Override
+        public String toString() {
+            return "Result [numRows=" + numRows + ", numFailedRows=" + numFailedRows + ", numBatches=" + numBatches
+                    + ", numRetries=" + numRetries + ", elapsedTime=" + elapsedTime + ", rowsPerSecond="
+                    + Math.round(getRowsPerSecond()) + "]";
+        }
+    }
+
+    /** Writes the batches from the queue on its own connection. */
+    private final class Writer implements Callable<Void> {
+        private final BlockingQueue<List<List<?>>> queue;
+        private final Counters counters;
+        private Connection connection;
+        private PreparedStatement statement;
+
+        Writer(BlockingQueue<List<List<?>>> queue, Counters counters) {
+            this.queue = queue;
+            this.counters = counters;
+        }
+
+        @Override
+        public Void call() throws InterruptedException {
+            try {
+                for (List<List<?>> batch; (batch = queue.take()) != END; ) {
+                    write(batch);
+                }
+                // let the other writers know
+                queue.put(END);
+            } finally {
+                DatabaseManager.close(connection, statement);
+            }
+            return null;
+        }
+
+        private void write(List<List<?>> batch) throws InterruptedException {
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    if (connection == null) {
+                        connection = databaseManager.getConnection();
+                        DatabaseManager.setAutoCommit(connection, false);
+                        statement = connection.prepareStatement(sql);
+                    }
+                    for (List<?> row : batch) {
+                        DatabaseManager.fillPreparedStatement(statement, row);
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                    connection.commit();
+                    counters.numRows.addAndGet(batch.size());
+                    break;
+                } catch (SQLException e) {
+                    // start over with a new connection
+                    DatabaseManager.rollback(connection);
+                    DatabaseManager.close(connection, statement);
+                    connection = null;
+                    statement = null;
+                    if (attempt >= maxRetries) {
+                        DatabaseManager.logError(e, sql);
+                        LOGGER.error("Giving up batch of {} rows after {} retries", batch.size(), maxRetries);
+                        counters.numFailedRows.addAndGet(batch.size());
+                        break;
+                    }
+                    counters.numRetries.incrementAndGet();
+                    long delay = retryDelay << Math.min(attempt, 16);
+                    LOGGER.warn("Batch of {} rows failed ({}), retry {} of {} in {} ms", batch.size(), e.getMessage(), attempt + 1, maxRetries, delay);
+                    Thread.sleep(delay);
+                }
+            }
+            synchronized (progress) {
+                progress.increment(batch.size());
+            }
+        }
+    }
+
+    private static final class Counters {
+        final AtomicLong numRows = new AtomicLong();
+        final AtomicLong numFailedRows = new AtomicLong();
+        final AtomicLong numRetries = new AtomicLong();
+    }
+
+    private final DatabaseManager databaseManager;
+    private final String sql;
+    private final int batchSize;
+    private final int numThreads;
+    private final int maxRetries;
+    private final long retryDelay;
+    private final ProgressReporter progress;
+
+    /**
+     * Create a builder for a {@link BulkLoader}.
+     *
+     * @param databaseManager The database manager which provides the connections, not <code>null</code>.
+     * @param sql             The update statement with parameter markers, not <code>null</code> or empty.
+     * @return The builder.
+     */
+    public static Builder builder(DatabaseManager databaseManager, String sql) {
+        Validate.notNull(databaseManager, "databaseManager must not be null");
+        Validate.notEmpty(sql, "sql must not be empty");
+        return new Builder(databaseManager, sql);
+    }
+
+    private BulkLoader(Builder builder) {
+        this.databaseManager = builder.databaseManager;
+        this.sql = builder.sql;
+        this.batchSize = builder.batchSize;
+        this.numThreads = builder.numThreads;
+        this.maxRetries = builder.maxRetries;
+        this.retryDelay = builder.retryDelay;
+        this.progress = builder.progress;
+    }
+
+    /**
+     * Load the rows from a {@link BatchDataProvider}. The provider's data is retrieved from the calling thread; the
+     * callbacks for inserted items are not invoked.
+     *
+     * @param provider The provider, not <code>null</code>.
+     * @return The result.
+     */
+    public Result load(BatchDataProvider provider) {
+        Validate.notNull(provider, "provider must not be null");
+        int count = provider.getCount();
+        return load(new Iterator<List<?>>() {
+            int number = 0;
+
+            @Override
+            public boolean hasNext() {
+                return number < count;
+            }
+
+            @Override
+            public List<?> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return provider.getData(number++);
+            }
+        }, count);
+    }
+
+    /**
+     * Load the rows. The rows are retrieved from the calling thread, while the writer threads insert the previous
+     * batches.
+     *
+     * @param rows The rows, each one is a list with the parameters for the statement, not <code>null</code>.
+     * @return The result.
+     */
+    public Result load(Iterator<? extends List<?>> rows) {
+        Validate.notNull(rows, "rows must not be null");
+        return load(rows, -1);
+    }
+
+    private Result load(Iterator<? extends List<?>> rows, long totalRows) {
+        StopWatch stopWatch = new StopWatch();
+        progress.startTask("Bulk loading", totalRows);
+        // bounded, so that the rows are not produced much faster than they can be written
+        BlockingQueue<List<List<?>>> queue = new ArrayBlockingQueue<>(2 * numThreads);
+        Counters counters = new Counters();
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads, runnable -> {
+            Thread thread = new Thread(runnable, "BulkLoader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<Void>> writers = new ArrayList<>();
+        for (int i = 0; i < numThreads; i++) {
+            writers.add(executor.submit(new Writer(queue, counters)));
+        }
+        long numBatches = 0;
+        try {
+            List<List<?>> batch = new ArrayList<>(batchSize);
+            while (rows.hasNext()) {
+                batch.add(rows.next());
+                if (batch.size() == batchSize) {
+                    put(queue, batch, writers);
+                    numBatches++;
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                put(queue, batch, writers);
+                numBatches++;
+            }
+            put(queue, END, writers);
+            for (Future<Void> writer : writers) {
+                writer.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error while loading", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        progress.finishTask();
+        Result result = new Result(counters.numRows.get(), counters.numFailedRows.get(), numBatches, counters.numRetries.get(), stopWatch.getElapsedTime());
+        LOGGER.info("Loaded {} rows in {} ({} rows/s, {} failed)", result.getNumRows(), stopWatch.getElapsedTimeString(), Math.round(result.getRowsPerSecond()), result.getNumFailedRows());
+        return result;
+    }
+
+    /** Put a batch into the queue, unless all writers died. */
+    private static void put(BlockingQueue<List<List<?>>> queue, List<List<?>> batch, List<Future<Void>> writers) throws InterruptedException, ExecutionException {
+        while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+            for (Future<Void> writer : writers) {
+                if (writer.isDone()) {
+                    writer.get(); // throws, in case the writer failed
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BulkLoader [sql=" + sql + ", batchSize=" + batchSize + ", numThreads=" + numThreads + ", maxRetries="
+                + maxRetries + "]";
+    }
+
+}
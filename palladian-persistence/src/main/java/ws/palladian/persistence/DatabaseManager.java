@@ -107,6 +107,7 @@ public class DatabaseManager {
      * @param sql      Update statement which may contain parameter markers, not <code>null</code> or empty.
      * @param provider A callback, which provides the necessary data for the insertion, not <code>null</code>.
      * @return The number of inserted rows.
+     * @see BulkLoader BulkLoader for large amounts of data, which do not need the generated IDs.
      */
     public final int runBatchInsert(String sql, BatchDataProvider provider) {
         Validate.notEmpty(sql, "sql must not be empty");
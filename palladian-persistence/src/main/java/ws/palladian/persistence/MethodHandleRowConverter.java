@@ -0,0 +1,469 @@
+package ws.palladian.persistence;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.RecordComponent;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * {@link RowConverter} which maps the columns of a row to the properties of a class, like the
+ * {@link ReflectionRowConverter}, but considerably faster: the bindings from columns to properties are resolved only
+ * once per shape of the result (i.e. the column labels which the query returns) and then invoked through
+ * {@link MethodHandle}s, and values are read with the typed getters of the {@link ResultSet}, so that primitive
+ * properties are set without boxing.
+ * </p>
+ *
+ * <p>
+ * Columns are mapped by their label (so aliases in the query can be used), case insensitively; <code>snake_case</code>
+ * labels also map to <code>camelCase</code> properties. Columns without a property are ignored, <code>NULL</code>
+ * values for primitive properties leave the default value. Three kinds of classes are supported:
+ * <ul>
+ * <li>beans with a zero-argument constructor, properties are set via their setters,</li>
+ * <li>records, which are created with their canonical constructor, mapping columns to the components by name,</li>
+ * <li>classes with one constructor, mapping columns to the parameters by name in case the class was compiled with
+ * <code>-parameters</code>, or by position otherwise.</li>
+ * </ul>
+ * Instances are cached per class, see {@link #create(Class)}, and are thread safe.
+ * </p>
+ *
+ * @param <T> Type of the objects to create.
+ */
+public final class MethodHandleRowConverter<T> implements RowConverter<T> {
+
+    /** The logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandleRowConverter.class);
+
+    private static final ClassValue<MethodHandleRowConverter<?>> CONVERTERS = new ClassValue<>() {
+        @Override
+        protected MethodHandleRowConverter<?> computeValue(Class<?> type) {
+            return new MethodHandleRowConverter<>(type);
+        }
+    };
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    /** Reads the value of one column of the current row. */
+    private interface ColumnReader {
+        Object read(ResultSet resultSet) throws SQLException;
+    }
+
+    /** Transfers the value of one column of the current row to an instance. */
+    private interface PropertySetter {
+        void set(Object instance, ResultSet resultSet) throws Throwable;
+    }
+
+    /** Creates an instance from the current row, for one shape of result. */
+    private interface Mapping {
+        Object map(ResultSet resultSet) throws Throwable;
+    }
+
+    /** The mapping for the result which was converted last. */
+    private static final class BoundResult {
+        final ResultSet resultSet;
+        final Mapping mapping;
+
+        BoundResult(ResultSet resultSet, Mapping mapping) {
+            this.resultSet = resultSet;
+            this.mapping = mapping;
+        }
+    }
+
+    /** The class of instances, which this RowConverter creates. */
+    private final Class<T> clazz;
+
+    /** The zero-argument constructor, or <code>null</code> in case instances are created with the binding constructor. */
+    private final MethodHandle defaultConstructor;
+
+    /** The setters by their normalized property name, for beans. */
+    private final Map<String, Method> setters;
+
+    /** The constructor to which the columns are bound, for records and classes without zero-argument constructor. */
+    private final Constructor<?> bindingConstructor;
+
+    /** The normalized names of the binding constructor's parameters, or <code>null</code> to bind by position. */
+    private final String[] parameterNames;
+
+    /** The mappings, by the column labels of the result. */
+    private final ConcurrentMap<List<String>, Mapping> mappings = new ConcurrentHashMap<>();
+
+    private volatile BoundResult lastResult;
+
+    /**
+     * <p>
+     * Get the {@link MethodHandleRowConverter} of the specified type.
+     * </p>
+     *
+     * @param clazz The type for which to get the {@link MethodHandleRowConverter}, not <code>null</code>.
+     * @return The {@link MethodHandleRowConverter} instance for the specified type.
+     * @throws IllegalArgumentException In case the type has neither a zero-argument constructor nor exactly one
+     *                                  constructor to which the columns can be bound.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> MethodHandleRowConverter<T> create(Class<T> clazz) {
+        Validate.notNull(clazz, "clazz must not be null");
+        return (MethodHandleRowConverter<T>) CONVERTERS.get(clazz);
+    }
+
+    private MethodHandleRowConverter(Class<T> clazz) {
+        Validate.isTrue(!clazz.isInterface() && !Modifier.isAbstract(clazz.getModifiers()), "%s cannot be instantiated", clazz.getName());
+        this.clazz = clazz;
+        Constructor<?> constructor = null;
+        String[] names = null;
+        MethodHandle zeroArgumentConstructor = null;
+        if (clazz.isRecord()) {
+            RecordComponent[] components = clazz.getRecordComponents();
+            Class<?>[] types = new Class<?>[components.length];
+            names = new String[components.length];
+            for (int i = 0; i < components.length; i++) {
+                types[i] = components[i].getType();
+                names[i] = normalize(components[i].getName());
+            }
+            try {
+                constructor = clazz.getDeclaredConstructor(types);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException("No canonical constructor for " + clazz.getName(), e);
+            }
+        } else {
+            try {
+                Constructor<T> defaultConstructor = clazz.getDeclaredConstructor();
+                defaultConstructor.trySetAccessible();
+                zeroArgumentConstructor = LOOKUP.unreflectConstructor(defaultConstructor).asType(MethodType.methodType(Object.class));
+            } catch (NoSuchMethodException e) {
+                Constructor<?>[] constructors = clazz.getDeclaredConstructors();
+                Validate.isTrue(constructors.length == 1, "%s needs a zero-argument constructor or exactly one constructor", clazz.getName());
+                constructor = constructors[0];
+                Parameter[] parameters = constructor.getParameters();
+                if (parameters.length > 0 && parameters[0].isNamePresent()) {
+                    names = new String[parameters.length];
+                    for (int i = 0; i < parameters.length; i++) {
+                        names[i] = normalize(parameters[i].getName());
+                    }
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Cannot access the constructor of " + clazz.getName(), e);
+            }
+        }
+        this.defaultConstructor = zeroArgumentConstructor;
+        this.bindingConstructor = constructor;
+        this.parameterNames = names;
+        this.setters = zeroArgumentConstructor != null ? getSetters(clazz) : Collections.emptyMap();
+    }
+
+    /**
+     * Get the setters of the class and its super classes. These are typical Java beans setters, i.e. their names start
+     * with "set" and they take one argument.
+     */
+    private static Map<String, Method> getSetters(Class<?> clazz) {
+        Map<String, Method> setters = new HashMap<>();
+        for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Method method : current.getDeclaredMethods()) {
+                String methodName = method.getName();
+                if (methodName.startsWith("set") && methodName.length() > 3 && method.getParameterCount() == 1 && !Modifier.isStatic(method.getModifiers())) {
+                    // methods in sub classes take precedence
+                    setters.putIfAbsent(normalize(methodName.substring(3)), method);
+                }
+            }
+        }
+        return setters;
+    }
+
+    private static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public T convert(ResultSet resultSet) throws SQLException {
+        BoundResult bound = lastResult;
+        if (bound == null || bound.resultSet != resultSet) {
+            bound = new BoundResult(resultSet, getMapping(resultSet.getMetaData()));
+            lastResult = bound;
+        }
+        try {
+            return clazz.cast(bound.mapping.map(resultSet));
+        } catch (SQLException | RuntimeException e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Error creating " + clazz.getName() + ": " + t.getMessage(), t);
+        }
+    }
+
+    private Mapping getMapping(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        List<String> labels = new ArrayList<>(columnCount);
+        for (int i = 1; i <= columnCount; i++) {
+            labels.add(metaData.getColumnLabel(i));
+        }
+        Mapping mapping = mappings.get(labels);
+        if (mapping == null) {
+            mapping = defaultConstructor != null ? createBeanMapping(labels) : createConstructorMapping(labels);
+            Mapping existing = mappings.putIfAbsent(labels, mapping);
+            if (existing != null) {
+                mapping = existing;
+            }
+        }
+        return mapping;
+    }
+
+    /**
+     * Find the property for a column label; labels match case insensitively, and also with underscores removed.
+     */
+    private static <V> V lookup(Map<String, V> properties, String label) {
+        String name = normalize(label);
+        V property = properties.get(name);
+        if (property == null && name.indexOf('_') != -1) {
+            property = properties.get(name.replace("_", ""));
+        }
+        return property;
+    }
+
+    private Mapping createBeanMapping(List<String> labels) {
+        List<PropertySetter> propertySetters = new ArrayList<>();
+        for (int i = 0; i < labels.size(); i++) {
+            Method setter = lookup(setters, labels.get(i));
+            if (setter == null) {
+                LOGGER.debug("No property for column \"{}\" in {}", labels.get(i), clazz.getName());
+                continue;
+            }
+            propertySetters.add(createSetter(setter, i + 1));
+        }
+        PropertySetter[] setterArray = propertySetters.toArray(new PropertySetter[0]);
+        MethodHandle constructor = defaultConstructor;
+        return resultSet -> {
+            Object instance = (Object) constructor.invokeExact();
+            for (PropertySetter setter : setterArray) {
+                setter.set(instance, resultSet);
+            }
+            return instance;
+        };
+    }
+
+    private Mapping createConstructorMapping(List<String> labels) {
+        Class<?>[] parameterTypes = bindingConstructor.getParameterTypes();
+        int numParameters = parameterTypes.length;
+        ColumnReader[] readers = new ColumnReader[numParameters];
+        if (parameterNames != null) {
+            Map<String, Integer> parameterIndices = new HashMap<>();
+            for (int i = 0; i < numParameters; i++) {
+                parameterIndices.put(parameterNames[i], i);
+            }
+            for (int i = 0; i < labels.size(); i++) {
+                Integer parameterIndex = lookup(parameterIndices, labels.get(i));
+                if (parameterIndex == null) {
+                    LOGGER.debug("No parameter for column \"{}\" in {}", labels.get(i), clazz.getName());
+                } else if (readers[parameterIndex] == null) {
+                    readers[parameterIndex] = createReader(parameterTypes[parameterIndex], i + 1);
+                }
+            }
+        } else {
+            Validate.isTrue(labels.size() == numParameters, "%s takes %s parameters, but the result has %s columns", clazz.getName(), numParameters, labels.size());
+            for (int i = 0; i < numParameters; i++) {
+                readers[i] = createReader(parameterTypes[i], i + 1);
+            }
+        }
+        // parameters without a column get the default value
+        for (int i = 0; i < numParameters; i++) {
+            if (readers[i] == null) {
+                Object defaultValue = getDefaultValue(parameterTypes[i]);
+                readers[i] = resultSet -> defaultValue;
+            }
+        }
+        MethodHandle constructor;
+        try {
+            bindingConstructor.trySetAccessible();
+            constructor = LOOKUP.unreflectConstructor(bindingConstructor) //
+                    .asSpreader(Object[].class, numParameters) //
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access the constructor of " + clazz.getName(), e);
+        }
+        return resultSet -> {
+            Object[] arguments = new Object[numParameters];
+            for (int i = 0; i < numParameters; i++) {
+                arguments[i] = readers[i].read(resultSet);
+            }
+            return (Object) constructor.invokeExact(arguments);
+        };
+    }
+
+    /** @return The default value of a field of the type, i.e. <code>null</code> or the primitive's zero value. */
+    private static Object getDefaultValue(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return null;
+        } else if (type == boolean.class) {
+            return false;
+        } else if (type == char.class) {
+            return '\0';
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else if (type == short.class) {
+            return (short) 0;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == float.class) {
+            return 0f;
+        }
+        return 0d;
+    }
+
+    /**
+     * Create a setter for a property of primitive type, which does not box the value and keeps the default value in
+     * case of <code>NULL</code>; or a setter which passes the value from a {@link ColumnReader}.
+     */
+    private PropertySetter createSetter(Method method, int column) {
+        MethodHandle handle;
+        try {
+            method.trySetAccessible();
+            handle = LOOKUP.unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access " + method, e);
+        }
+        Class<?> type = method.getParameterTypes()[0];
+        if (type.isPrimitive()) {
+            MethodHandle setter = handle.asType(MethodType.methodType(void.class, Object.class, type));
+            if (type == int.class) {
+                return (instance, resultSet) -> {
+                    int value = resultSet.getInt(column);
+                    if (!resultSet.wasNull()) {
+                        setter.invokeExact(instance, value);
+                    }
+                };
+            } else if (type == long.class) {
+                return (instance, resultSet) -> {
+                    long value = resultSet.getLong(column);
+                    if (!resultSet.wasNull()) {
+                        setter.invokeExact(instance, value);
+                    }
+                };
+            } else if (type == double.class) {
+                return (instance, resultSet) -> {
+                    double value = resultSet.getDouble(column);
+                    if (!resultSet.wasNull()) {
+                        setter.invokeExact(instance, value);
+                    }
+                };
+            } else if (type == float.class) {
+                return (instance, resultSet) -> {
+                    float value = resultSet.getFloat(column);
+                    if (!resultSet.wasNull()) {
+                        setter.invokeExact(instance, value);
+                    }
+                };
+            } else if (type == boolean.class) {
+                return (instance, resultSet) -> {
+                    boolean value = resultSet.getBoolean(column);
+                    if (!resultSet.wasNull()) {
+                        setter.invokeExact(instance, value);
+                    }
+                };
+            } else if (type == short.class) {
+                return (instance, resultSet) -> {
+                    short value = resultSet.getShort(column);
+                    if (!resultSet.wasNull()) {
+                        setter.invokeExact(instance, value);
+                    }
+                };
+            } else if (type == byte.class) {
+                return (instance, resultSet) -> {
+                    byte value = resultSet.getByte(column);
+                    if (!resultSet.wasNull()) {
+                        setter.invokeExact(instance, value);
+                    }
+                };
+            }
+        }
+        MethodHandle setter = handle.asType(MethodType.methodType(void.class, Object.class, Object.class));
+        ColumnReader reader = createReader(type, column);
+        return (instance, resultSet) -> {
+            setter.invokeExact(instance, reader.read(resultSet));
+        };
+    }
+
+    /**
+     * Create a reader for a column, which uses the {@link ResultSet}'s getter for the type. For primitive types, the
+     * reader gives the default value instead of <code>null</code>.
+     */
+    private static ColumnReader createReader(Class<?> type, int column) {
+        if (type == String.class) {
+            return resultSet -> resultSet.getString(column);
+        } else if (type == int.class || type == Integer.class) {
+            Object nullValue = getDefaultValue(type);
+            return resultSet -> {
+                int value = resultSet.getInt(column);
+                return resultSet.wasNull() ? nullValue : value;
+            };
+        } else if (type == long.class || type == Long.class) {
+            Object nullValue = getDefaultValue(type);
+            return resultSet -> {
+                long value = resultSet.getLong(column);
+                return resultSet.wasNull() ? nullValue : value;
+            };
+        } else if (type == double.class || type == Double.class) {
+            Object nullValue = getDefaultValue(type);
+            return resultSet -> {
+                double value = resultSet.getDouble(column);
+                return resultSet.wasNull() ? nullValue : value;
+            };
+        } else if (type == float.class || type == Float.class) {
+            Object nullValue = getDefaultValue(type);
+            return resultSet -> {
+                float value = resultSet.getFloat(column);
+                return resultSet.wasNull() ? nullValue : value;
+            };
+        } else if (type == boolean.class || type == Boolean.class) {
+            Object nullValue = getDefaultValue(type);
+            return resultSet -> {
+                boolean value = resultSet.getBoolean(column);
+                return resultSet.wasNull() ? nullValue : value;
+            };
+        } else if (type == short.class || type == Short.class) {
+            Object nullValue = getDefaultValue(type);
+            return resultSet -> {
+                short value = resultSet.getShort(column);
+                return resultSet.wasNull() ? nullValue : value;
+            };
+        } else if (type == byte.class || type == Byte.class) {
+            Object nullValue = getDefaultValue(type);
+            return resultSet -> {
+                byte value = resultSet.getByte(column);
+                return resultSet.wasNull() ? nullValue : value;
+            };
+        } else if (type == BigDecimal.class) {
+            return resultSet -> resultSet.getBigDecimal(column);
+        } else if (type == java.sql.Date.class) {
+            return resultSet -> resultSet.getDate(column);
+        } else if (type == java.sql.Time.class) {
+            return resultSet -> resultSet.getTime(column);
+        } else if (type == java.sql.Timestamp.class || type == Date.class) {
+            return resultSet -> resultSet.getTimestamp(column);
+        } else if (type == byte[].class) {
+            return resultSet -> resultSet.getBytes(column);
+        } else if (type.getName().startsWith("java.time.")) {
+            return resultSet -> resultSet.getObject(column, type);
+        }
+        return resultSet -> resultSet.getObject(column);
+    }
+
+    @Override
+    public String toString() {
+        return "MethodHandleRowConverter [clazz=" + clazz.getName() + ", mappings=" + mappings.size() + "]";
+    }
+
+}
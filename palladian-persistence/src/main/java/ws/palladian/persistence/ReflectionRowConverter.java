@@ -14,6 +14,11 @@ import java.util.Map;
  * implementation, has not yet been tested extensively, and can be regarded as experimental currently.
  * </p>
  *
+ * <p>
+ * For large results, use the {@link MethodHandleRowConverter}, which resolves the properties once per query instead of
+ * once per row.
+ * </p>
+ *
  * @param <T>
  * @author Philipp Katz
  */
@@ -0,0 +1,117 @@
+package ws.palladian.persistence;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class BulkLoaderTest {
+
+    private static final String JDBC_URL = "jdbc:h2:mem:bulkLoaderTest;DB_CLOSE_DELAY=-1";
+
+    private static final String INSERT = "INSERT INTO test (name, age) VALUES (?, ?)";
+
+    private DatabaseManager databaseManager;
+
+    @Before
+    public void before() {
+        databaseManager = DatabaseManagerFactory.create(DatabaseManager.class, JDBC_URL, "sa", "");
+        databaseManager.runUpdate("CREATE TABLE test (id INTEGER NOT NULL AUTO_INCREMENT, name VARCHAR(255) UNIQUE, age INTEGER, PRIMARY KEY (id));");
+    }
+
+    @After
+    public void after() {
+        databaseManager.runUpdate("DROP TABLE test");
+    }
+
+    private static List<List<?>> createRows(int numRows) {
+        List<List<?>> rows = new ArrayList<>();
+        for (int i = 0; i < numRows; i++) {
+            rows.add(Arrays.asList("name" + i, i));
+        }
+        return rows;
+    }
+
+    private int count() {
+        return databaseManager.runAggregateQuery("SELECT COUNT(*) FROM test");
+    }
+
+    @Test
+    public void testLoad() {
+        BulkLoader loader = BulkLoader.builder(databaseManager, INSERT).setBatchSize(1000).setNumThreads(3).create();
+        BulkLoader.Result result = loader.load(createRows(10050).iterator());
+        assertEquals(10050, result.getNumRows());
+        assertEquals(0, result.getNumFailedRows());
+        assertEquals(11, result.getNumBatches());
+        assertEquals(10050, count());
+        assertEquals(10049 * 10050 / 2, (int) databaseManager.runAggregateQuery("SELECT SUM(age) FROM test"));
+    }
+
+    @Test
+    public void testFailedBatch() {
+        List<List<?>> rows = createRows(100);
+        // duplicate in the second batch violates the unique constraint
+        rows.set(15, Arrays.asList("name11", 15));
+        BulkLoader loader = BulkLoader.builder(databaseManager, INSERT).setBatchSize(10).setNumThreads(2).setMaxRetries(1).setRetryDelay(0).create();
+        BulkLoader.Result result = loader.load(rows.iterator());
+        assertEquals(90, result.getNumRows());
+        assertEquals(10, result.getNumFailedRows());
+        assertEquals(1, result.getNumRetries());
+        assertEquals(90, count());
+    }
+
+    @Test
+    public void testRetry() {
+        DataSource dataSource = SimpleDataSourceFactory.INSTANCE.createDataSource(JDBC_URL, "sa", "");
+        AtomicInteger numConnections = new AtomicInteger();
+        // the first connection fails
+        DataSource failingDataSource = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+            if (method.getName().equals("getConnection") && numConnections.getAndIncrement() == 0) {
+                throw new SQLException("connection refused");
+            }
+            try {
+                return method.invoke(dataSource, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+        DatabaseManager failingDatabaseManager = new DatabaseManager(failingDataSource);
+        BulkLoader loader = BulkLoader.builder(failingDatabaseManager, INSERT).setBatchSize(7).setNumThreads(1).setRetryDelay(0).create();
+        BulkLoader.Result result = loader.load(createRows(50).iterator());
+        assertEquals(50, result.getNumRows());
+        assertEquals(0, result.getNumFailedRows());
+        assertEquals(1, result.getNumRetries());
+        assertEquals(50, count());
+    }
+
+    @Test
+    public void testLoadFromProvider() {
+        List<List<?>> rows = createRows(25);
+        BulkLoader loader = BulkLoader.builder(databaseManager, INSERT).setBatchSize(10).create();
+        BulkLoader.Result result = loader.load(new CollectionBatchDataProvider<List<?>>(rows) {
+            @Override
+            public List<?> getData(List<?> next, int number) {
+                return next;
+            }
+
+            @Override
+            public void insertedItemLongId(int number, long generatedId) {
+                // not invoked
+            }
+        });
+        assertEquals(25, result.getNumRows());
+        assertEquals(3, result.getNumBatches());
+        assertEquals(25, count());
+    }
+
+}
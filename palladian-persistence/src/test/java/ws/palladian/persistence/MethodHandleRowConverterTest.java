@@ -0,0 +1,96 @@
+package ws.palladian.persistence;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class MethodHandleRowConverterTest {
+
+    private static final String JDBC_URL = "jdbc:h2:mem:methodHandleRowConverterTest;DB_CLOSE_DELAY=-1";
+
+    private static final String GET_TEST = "SELECT * FROM test ORDER BY id";
+
+    public record SampleRecord(int id, String name, Integer age, double weight, boolean cool) {
+    }
+
+    public static final class SampleValue {
+        private final String name;
+        private final long age;
+
+        public SampleValue(String name, long age) {
+            this.name = name;
+            this.age = age;
+        }
+    }
+
+    private DatabaseManager databaseManager;
+
+    @Before
+    public void before() {
+        databaseManager = DatabaseManagerFactory.create(DatabaseManager.class, JDBC_URL, "sa", "");
+        databaseManager.runUpdate("CREATE TABLE test (id INTEGER NOT NULL AUTO_INCREMENT, name VARCHAR(255), age INTEGER, weight REAL, cool BOOLEAN, PRIMARY KEY (id));");
+        databaseManager.runInsertReturnId("INSERT INTO test (name, age, weight, cool) VALUES (?, ?, ?, ?)", "bob", 30, 70, true);
+        databaseManager.runInsertReturnId("INSERT INTO test (name, age, weight, cool) VALUES (?, ?, ?, ?)", "mary", null, 45, false);
+    }
+
+    @After
+    public void after() {
+        databaseManager.runUpdate("DROP TABLE test");
+    }
+
+    @Test
+    public void testBean() {
+        MethodHandleRowConverter<SampleClazz> rowConverter = MethodHandleRowConverter.create(SampleClazz.class);
+        assertSame(rowConverter, MethodHandleRowConverter.create(SampleClazz.class));
+        List<SampleClazz> result = databaseManager.runQuery(rowConverter, GET_TEST);
+        assertEquals(2, result.size());
+        assertEquals(1, (int) result.get(0).getId());
+        assertEquals("bob", result.get(0).getName());
+        assertEquals(30, result.get(0).getAge());
+        assertEquals(70., result.get(0).getWeight(), 0);
+        assertTrue(result.get(0).isCool());
+        // null value for primitive property keeps the default
+        assertEquals(0, result.get(1).getAge());
+        assertFalse(result.get(1).isCool());
+
+        // other shape of result, with alias and a column without property
+        SampleClazz sample = databaseManager.runSingleQuery(rowConverter, "SELECT name AS NAME, age * 2 AS age, 'x' AS other FROM test WHERE id = 1");
+        assertEquals("bob", sample.getName());
+        assertEquals(60, sample.getAge());
+        assertNull(sample.getId());
+
+        // same results as the ReflectionRowConverter
+        List<SampleClazz> reflectionResult = databaseManager.runQuery(ReflectionRowConverter.create(SampleClazz.class), GET_TEST);
+        assertEquals(reflectionResult.toString(), result.toString());
+    }
+
+    @Test
+    public void testRecord() {
+        List<SampleRecord> result = databaseManager.runQuery(MethodHandleRowConverter.create(SampleRecord.class), GET_TEST);
+        assertEquals(new SampleRecord(1, "bob", 30, 70, true), result.get(0));
+        assertEquals(new SampleRecord(2, "mary", null, 45, false), result.get(1));
+
+        // missing columns get the default value
+        SampleRecord sample = databaseManager.runSingleQuery(MethodHandleRowConverter.create(SampleRecord.class), "SELECT name FROM test WHERE id = 2");
+        assertEquals(new SampleRecord(0, "mary", null, 0, false), sample);
+    }
+
+    @Test
+    public void testConstructor() {
+        List<SampleValue> result = databaseManager.runQuery(MethodHandleRowConverter.create(SampleValue.class), "SELECT name, age FROM test ORDER BY id");
+        assertEquals("bob", result.get(0).name);
+        assertEquals(30, result.get(0).age);
+        assertEquals(0, result.get(1).age);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotInstantiable() {
+        MethodHandleRowConverter.create(Map.class);
+    }
+
+}
@@ -0,0 +1,59 @@
+package ws.palladian.persistence;
+
+import ws.palladian.helper.StopWatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Benchmark for bulk exports with {@link DatabaseManager#runQueryWithIterator(RowConverter, String, Object...)} on an
+ * in-memory H2 database; compares the {@link ReflectionRowConverter} with the {@link MethodHandleRowConverter} and a
+ * hand written {@link RowConverter}.
+ */
+class RowConverterBenchmark {
+
+    private static final String JDBC_URL = "jdbc:h2:mem:rowConverterBenchmark;DB_CLOSE_DELAY=-1";
+
+    private static final int NUM_ROWS = 200000;
+
+    private static long export(DatabaseManager databaseManager, RowConverter<SampleClazz> rowConverter) {
+        StopWatch stopWatch = new StopWatch();
+        long checksum = 0;
+        try (ResultIterator<SampleClazz> iterator = databaseManager.runQueryWithIterator(rowConverter, "SELECT * FROM test")) {
+            while (iterator.hasNext()) {
+                checksum += iterator.next().getAge();
+            }
+        }
+        if (checksum == 0) {
+            throw new IllegalStateException();
+        }
+        return stopWatch.getElapsedTime();
+    }
+
+    public static void main(String[] args) {
+        DatabaseManager databaseManager = DatabaseManagerFactory.create(DatabaseManager.class, JDBC_URL, "sa", "");
+        databaseManager.runUpdate("CREATE TABLE test (id INTEGER NOT NULL AUTO_INCREMENT, name VARCHAR(255), age INTEGER, weight REAL, cool BOOLEAN, PRIMARY KEY (id));");
+        List<List<Object>> rows = new ArrayList<>();
+        for (int i = 0; i < NUM_ROWS; i++) {
+            rows.add(Arrays.asList("name" + i, i % 100, i % 80 + 0.5, i % 2 == 0));
+            if (rows.size() == 10000) {
+                databaseManager.runBatchInsert("INSERT INTO test (name, age, weight, cool) VALUES (?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+
+        // warm up, then measure
+        for (int round = 0; round < 5; round++) {
+            long reflectionTime = export(databaseManager, ReflectionRowConverter.create(SampleClazz.class));
+            long methodHandleTime = export(databaseManager, MethodHandleRowConverter.create(SampleClazz.class));
+            long manualTime = export(databaseManager, new SampleClazzRowConverter());
+            if (round >= 2) {
+                System.out.println(NUM_ROWS + " rows: ReflectionRowConverter " + reflectionTime
+                        + " ms, MethodHandleRowConverter " + methodHandleTime + " ms, hand written " + manualTime + " ms");
+            }
+        }
+        databaseManager.runUpdate("DROP TABLE test");
+    }
+
+}
@@ -140,7 +140,7 @@ public class Crawler {
     protected void crawl(String currentUrl) {
         LOGGER.info("catch from stack: {}", currentUrl);
 
-        requestThrottle.hold();
+        requestThrottle.hold(UrlHelper.getDomain(currentUrl, false));
 
         // file type consumers?
         if (getFileTypeConsumers() != null) {
@@ -3,6 +3,7 @@ package ws.palladian.retrieval;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
+import ws.palladian.helper.UrlHelper;
 import ws.palladian.helper.collection.CollectionHelper;
 import ws.palladian.helper.functional.Predicates;
 import ws.palladian.helper.html.HtmlHelper;
@@ -56,7 +57,7 @@ public class HttpCrawler {
                 LOGGER.debug("Fetching {}", url);
                 for (int attempt = 1; ; attempt++) {
                     try {
-                        throttle.hold();
+                        throttle.hold(UrlHelper.getDomain(url, false));
                         HttpResult result = httpRetriever.httpGet(url);
                         if (result.errorStatus()) {
                             if (retryPolicy.shouldRetry(attempt, result)) {
@@ -200,7 +200,7 @@ public abstract class WebDocumentRetriever {
                     public void run() {
                         Thread.currentThread().setName("Retrieving: " + url);
 
-                        getRequestThrottle().hold();
+                        getRequestThrottle().hold(UrlHelper.getDomain(url, false));
 
                         // react file fileTypeConsumer?
                         boolean consumerFound = reactToFileTypeConsumer(url, getFileTypeConsumers());
@@ -255,7 +255,7 @@ public abstract class WebDocumentRetriever {
         Set<Document> documents = new HashSet<>();
 
         for (String url : urls) {
-            getRequestThrottle().hold();
+            getRequestThrottle().hold(UrlHelper.getDomain(url, false));
             Document document = getWebDocument(url);
             documents.add(document);
         }
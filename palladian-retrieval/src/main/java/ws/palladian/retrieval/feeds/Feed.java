@@ -44,6 +44,9 @@ public class Feed {
      */
     private List<FeedItem> newItems = new ArrayList<>();
 
+    /** The index of items seen before, which are not new even if they are not in the {@link #itemCache}, or null. */
+    private transient SeenItemIndex seenItemIndex;
+
     /**
      * The total number of unique items downloaded so far. This value may differ from {@link #items}.size() since
      * {@link #items} may have been reseted by calling {@link #freeMemory()}.
@@ -214,7 +217,7 @@ public class Feed {
                 itemCacheTemp.put(hash, feedItem.getCorrectedPublishedDate());
                 newItemsTemp.add(feedItem);
             } else {
-                itemCacheTemp.put(hash, getCachedItemTimestamp(hash));
+                itemCacheTemp.put(hash, getKnownItemTimestamp(feedItem));
             }
         }
 
@@ -229,6 +232,72 @@ public class Feed {
         this.items = items;
     }
 
+    /**
+     * Set the items of a poll which was only parsed up to a known item (see
+     * {@link ws.palladian.retrieval.feeds.parser.FeedParser#KNOWN_ITEM_REACHED}). In contrast to
+     * {@link #setItems(List)}, the cache is not replaced, as the rest of the window still contains known items; instead,
+     * the oldest cached items are removed, so that the cache does not grow beyond the window size. Afterwards,
+     * {@link #getItems()} returns the whole window, that is, the given items followed by the known items in the cache
+     * (newest first), so that the update strategies see the same window as after a complete parse. Known items which
+     * are not available from the previous poll are represented by their hash and timestamp only.
+     *
+     * @param items The first items of the window, up to and including the known item.
+     */
+    public void setLeadingItems(List<FeedItem> items) {
+        ArrayList<FeedItem> newItemsTemp = new ArrayList<>();
+        Set<String> hashes = new HashSet<>();
+        recalculateDates = true;
+
+        for (FeedItem feedItem : items) {
+            feedItem.setFeed(this);
+            String hash = feedItem.getHash();
+            hashes.add(hash);
+            if (isNewItem(hash)) {
+                Date correctedTimestamp = correctedTimestamp(feedItem.getPublished(), getLastPollTime(), getLastButOnePollTime(), feedItem.toString());
+                feedItem.setCorrectedPublishedDate(correctedTimestamp);
+                addCacheItem(hash, feedItem.getCorrectedPublishedDate());
+                newItemsTemp.add(feedItem);
+            }
+        }
+
+        int maxCacheSize = Math.max(windowSize != null ? windowSize : 0, items.size());
+        if (itemCache.size() > maxCacheSize) {
+            List<Map.Entry<String, Date>> entries = new ArrayList<>(itemCache.entrySet());
+            entries.removeIf(entry -> hashes.contains(entry.getKey()));
+            entries.sort(Comparator.comparing(Map.Entry::getValue, Comparator.nullsFirst(Comparator.naturalOrder())));
+            int numToRemove = itemCache.size() - maxCacheSize;
+            for (int i = 0; i < numToRemove && i < entries.size(); i++) {
+                itemCache.remove(entries.get(i).getKey());
+            }
+        }
+
+        // complete the window with the known items, use the items of the previous poll where available
+        Map<String, FeedItem> previousItems = new HashMap<>();
+        if (this.items != null) {
+            for (FeedItem feedItem : this.items) {
+                previousItems.put(feedItem.getHash(), feedItem);
+            }
+        }
+        List<Map.Entry<String, Date>> knownEntries = new ArrayList<>(itemCache.entrySet());
+        knownEntries.removeIf(entry -> hashes.contains(entry.getKey()));
+        knownEntries.sort(Comparator.comparing(Map.Entry::getValue, Comparator.nullsLast(Comparator.reverseOrder())));
+        List<FeedItem> window = new ArrayList<>(items);
+        for (Map.Entry<String, Date> entry : knownEntries) {
+            FeedItem knownItem = previousItems.get(entry.getKey());
+            if (knownItem == null) {
+                knownItem = new FeedItem();
+                knownItem.setHash(entry.getKey());
+                knownItem.setPublished(entry.getValue());
+                knownItem.setCorrectedPublishedDate(entry.getValue());
+                knownItem.setFeed(this);
+            }
+            window.add(knownItem);
+        }
+
+        setNewItems(newItemsTemp);
+        this.items = window;
+    }
+
     public void addItem(FeedItem item) {
         if (items == null) {
             items = new ArrayList<>();
@@ -247,7 +316,7 @@ public class Feed {
             addCacheItem(hash, item.getCorrectedPublishedDate());
             addNewItem(item);
         } else {
-            addCacheItem(hash, getCachedItemTimestamp(hash));
+            addCacheItem(hash, getKnownItemTimestamp(item));
         }
 
     }
@@ -365,13 +434,37 @@ public class Feed {
     }
 
     /**
-     * Checks whether the provided item hash is already in the cache. If so, the item is already known.
+     * Get the timestamp of a known item from the cache; items which are only known from the {@link SeenItemIndex} get
+     * a corrected timestamp, as they were evicted from the cache.
+     */
+    private Date getKnownItemTimestamp(FeedItem item) {
+        Date timestamp = getCachedItemTimestamp(item.getHash());
+        if (timestamp == null && seenItemIndex != null) {
+            timestamp = correctedTimestamp(item.getPublished(), getLastPollTime(), getLastButOnePollTime(), item.toString());
+            item.setCorrectedPublishedDate(timestamp);
+        }
+        return timestamp;
+    }
+
+    /**
+     * Checks whether the provided item hash is already in the cache or in the {@link SeenItemIndex}. If so, the item is
+     * already known.
      *
      * @param hash The item's hash to check.
-     * @return <code>true</code> if the hash is already in {@link #itemCache}, <code>false</code> else wise.
+     * @return <code>false</code> if the hash is already in {@link #itemCache} or the index, <code>true</code> else wise.
      */
     private boolean isNewItem(String hash) {
-        return !itemCache.containsKey(hash);
+        return !itemCache.containsKey(hash) && (seenItemIndex == null || !seenItemIndex.contains(id, hash));
+    }
+
+    /**
+     * Set an index of items seen before, which is consulted in addition to the cache when setting items, so that items
+     * which reappear after they were removed from the cache are not considered new. The index is not persisted.
+     *
+     * @param seenItemIndex The index, or <code>null</code> to use the cache only.
+     */
+    public void setSeenItemIndex(SeenItemIndex seenItemIndex) {
+        this.seenItemIndex = seenItemIndex;
     }
 
     /**
@@ -420,6 +513,49 @@ public class Feed {
         incrementNumberOfItemsReceived(1);
     }
 
+    /**
+     * Create a copy of the feed's state which is written by a {@link ws.palladian.retrieval.feeds.persistence.FeedStore}
+     * (the feed's properties and meta information, but neither items nor cached items), which is not affected by
+     * subsequent polls of this feed.
+     *
+     * @return The copy.
+     */
+    public Feed snapshot() {
+        Feed snapshot = new Feed(feedUrl);
+        snapshot.id = id;
+        snapshot.numberOfItemsReceived = numberOfItemsReceived;
+        snapshot.windowSize = windowSize;
+        snapshot.variableWindowSize = variableWindowSize;
+        snapshot.benchmarkLookupTime = benchmarkLookupTime;
+        snapshot.benchmarkLastLookupTime = benchmarkLastLookupTime;
+        snapshot.checks = checks;
+        snapshot.updateInterval = updateInterval;
+        snapshot.unreachableCount = unreachableCount;
+        snapshot.unparsableCount = unparsableCount;
+        // the item dates are calculated from the cache, which is not copied
+        snapshot.lastFeedEntry = copy(getLastFeedEntry());
+        snapshot.lastButOneFeedEntry = copy(getLastButOneFeedEntry());
+        snapshot.oldestFeedEntryCurrentWindow = copy(getOldestFeedEntryCurrentWindow());
+        snapshot.recalculateDates = false;
+        snapshot.httpLastModified = copy(httpLastModified);
+        snapshot.activityPattern = activityPattern;
+        snapshot.lastETag = lastETag;
+        snapshot.lastPollTime = copy(lastPollTime);
+        snapshot.lastButOnePollTime = copy(lastButOnePollTime);
+        snapshot.totalProcessingTimeMS = totalProcessingTimeMS;
+        snapshot.misses = misses;
+        snapshot.lastMissTime = copy(lastMissTime);
+        snapshot.blocked = blocked;
+        snapshot.lastSuccessfulCheckTime = copy(lastSuccessfulCheckTime);
+        snapshot.feedMetaInfo = new FeedMetaInformation(feedMetaInfo);
+        snapshot.lastFeedTaskResult = lastFeedTaskResult;
+        return snapshot;
+    }
+
+    private static Date copy(Date date) {
+        return date != null ? new Date(date.getTime()) : null;
+    }
+
     /**
      * Free the memory because feed objects might be held in memory. Free the memory whenever you get the feed only once
      * and won't let the garbage collector take care of it.
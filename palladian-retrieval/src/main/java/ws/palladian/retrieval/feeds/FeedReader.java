@@ -6,6 +6,7 @@ import org.slf4j.LoggerFactory;
 import ws.palladian.helper.constants.SizeUnit;
 import ws.palladian.retrieval.HttpRetriever;
 
+import java.io.IOException;
 import java.util.Timer;
 
 /**
@@ -54,6 +55,14 @@ public final class FeedReader {
      */
     public void stop() {
         checkScheduler.cancel();
+        SeenItemIndex seenItemIndex = settings.getSeenItemIndex();
+        if (seenItemIndex != null) {
+            try {
+                seenItemIndex.close();
+            } catch (IOException e) {
+                LOGGER.error("Could not write snapshot of the seen item index", e);
+            }
+        }
         LOGGER.info("Cancelled all scheduled readings, total size downloaded ({}): {} MB", settings.getUpdateStrategy(), HttpRetriever.getTraffic(SizeUnit.MEGABYTES));
     }
 }
@@ -104,6 +104,15 @@ public interface FeedReaderSettings {
 
     Factory<? extends FeedParser> getParserFactory();
 
+    /**
+     * @return The index of seen items which decides whether items are new in addition to the feeds' caches, or
+     * <code>null</code> in case only the caches are used (the default). With an index, the caches are kept in memory
+     * between the polls instead of being loaded from the store, and only their changes are written back.
+     */
+    default SeenItemIndex getSeenItemIndex() {
+        return null;
+    }
+
     /**
      * <p>
      * A builder for {@link FeedReaderSettings} instances.
@@ -123,6 +132,7 @@ public interface FeedReaderSettings {
         long maximumFeedSize = DEFAULT_MAXIMUM_FEED_SIZE;
         long executionWarnTime = DEFAULT_EXECUTION_WARN_TIME;
         Factory<? extends FeedParser> parserFactory = DEFAULT_PARSER_FACTORY;
+        SeenItemIndex seenItemIndex;
 
         public Builder setStore(FeedStore store) {
             this.store = store;
@@ -184,6 +194,11 @@ public interface FeedReaderSettings {
             return this;
         }
 
+        public Builder setSeenItemIndex(SeenItemIndex seenItemIndex) {
+            this.seenItemIndex = seenItemIndex;
+            return this;
+        }
+
         @Override
         public FeedReaderSettings create() {
             Validate.notNull(store, "store must not be null");
@@ -7,13 +7,12 @@ import ws.palladian.helper.StopWatch;
 import ws.palladian.retrieval.*;
 import ws.palladian.retrieval.feeds.parser.FeedParser;
 import ws.palladian.retrieval.feeds.parser.FeedParserException;
+import ws.palladian.retrieval.feeds.persistence.CachedItem;
+import ws.palladian.retrieval.feeds.persistence.FeedStore;
 import ws.palladian.retrieval.helper.HttpHelper;
 
 import java.net.HttpURLConnection;
-import java.util.Arrays;
-import java.util.Date;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
 import java.util.concurrent.Callable;
 
 import static ws.palladian.retrieval.feeds.FeedTaskResult.*;
@@ -40,6 +39,12 @@ class FeedTask implements Callable<FeedTaskResult> {
 
     private final FeedReaderSettings settings;
 
+    /**
+     * A copy of the feed's cached items before the poll in case a {@link SeenItemIndex} is configured, so that only the
+     * changes are written; <code>null</code> otherwise.
+     */
+    private Map<String, Date> previousCachedItems;
+
     /**
      * Creates a new retrieval task for a provided feed.
      *
@@ -57,6 +62,9 @@ class FeedTask implements Callable<FeedTaskResult> {
         try {
             LOGGER.debug("Start processing of feed id " + feed.getId() + " (" + feed.getFeedUrl() + ")");
             int recentMisses = feed.getMisses();
+            if (settings.getSeenItemIndex() != null) {
+                previousCachedItems = new HashMap<>(feed.getCachedItems());
+            }
 
             HttpResult httpResult;
             try {
@@ -112,7 +120,7 @@ class FeedTask implements Callable<FeedTaskResult> {
                     try {
                         // parse the feed and get all its entries, do that here since that takes some time and this is a
                         // thread so it can be done in parallel
-                        downloadedFeed = feedParser.getFeed(httpResult);
+                        downloadedFeed = feedParser.getFeed(httpResult, feed.getCachedItems().keySet());
                     } catch (FeedParserException e) {
                         LOGGER.error("update items of feed id " + feed.getId() + " didn't work well, " + e.getMessage());
                         feed.incrementUnparsableCount();
@@ -127,9 +135,24 @@ class FeedTask implements Callable<FeedTaskResult> {
                         doFinalStuff(timer);
                         return getResult();
                     }
-                    feed.setItems(downloadedFeed.getItems());
+                    SeenItemIndex seenItemIndex = settings.getSeenItemIndex();
+                    feed.setSeenItemIndex(seenItemIndex);
+                    Map<String, Object> parserData = downloadedFeed.getAdditionalData();
+                    if (parserData != null && Boolean.TRUE.equals(parserData.get(FeedParser.KNOWN_ITEM_REACHED))) {
+                        // only the leading items have been parsed, the window size is still the same, unless it grew
+                        feed.setLeadingItems(downloadedFeed.getItems());
+                        int windowSize = feed.getWindowSize() != null ? feed.getWindowSize() : 0;
+                        feed.setWindowSize(Math.max(windowSize, downloadedFeed.getItems().size()));
+                    } else {
+                        feed.setItems(downloadedFeed.getItems());
+                        feed.setWindowSize(downloadedFeed.getItems().size());
+                    }
+                    if (seenItemIndex != null) {
+                        for (FeedItem item : feed.getNewItems()) {
+                            seenItemIndex.add(feed.getId(), item.getHash());
+                        }
+                    }
                     feed.setLastSuccessfulCheckTime(feed.getLastPollTime());
-                    feed.setWindowSize(downloadedFeed.getItems().size());
                     feed.setFeedMetaInformation(downloadedFeed.getMetaInformation());
                     // if (LOGGER.isDebugEnabled()) {
                     // LOGGER.debug("Activity Pattern: " + feed.getActivityPattern());
@@ -256,12 +279,39 @@ class FeedTask implements Callable<FeedTaskResult> {
      * Save the feed back to the database. In case of database errors, add error to {@link #resultSet}.
      */
     private void updateFeed() {
-        boolean dbSuccess = settings.getStore().updateFeed(feed, feed.hasNewItem());
+        FeedStore store = settings.getStore();
+        boolean dbSuccess;
+        if (previousCachedItems == null) {
+            dbSuccess = store.updateFeed(feed, feed.hasNewItem());
+        } else {
+            // the cached items are kept in memory, only write the ones which were removed or added by this poll
+            dbSuccess = store.updateFeed(feed, false) && updateCachedItems(store);
+        }
         if (!dbSuccess) {
             resultSet.add(FeedTaskResult.ERROR);
         }
     }
 
+    private boolean updateCachedItems(FeedStore store) {
+        Map<String, Date> cachedItems = feed.getCachedItems();
+        List<CachedItem> removedItems = new ArrayList<>();
+        for (Map.Entry<String, Date> entry : previousCachedItems.entrySet()) {
+            if (!cachedItems.containsKey(entry.getKey())) {
+                removedItems.add(new CachedItem(feed.getId(), entry.getKey(), entry.getValue()));
+            }
+        }
+        List<CachedItem> addedItems = new ArrayList<>();
+        for (Map.Entry<String, Date> entry : cachedItems.entrySet()) {
+            if (!previousCachedItems.containsKey(entry.getKey())) {
+                addedItems.add(new CachedItem(feed.getId(), entry.getKey(), entry.getValue()));
+            }
+        }
+        if (removedItems.isEmpty() && addedItems.isEmpty()) {
+            return true;
+        }
+        return store.updateCachedItems(removedItems, addedItems);
+    }
+
     /**
      * Update the check interval depending on the chosen approach. Update the feed accordingly and return it.
      *
@@ -19,6 +19,7 @@ final class ImmutableFeedReaderSettings implements FeedReaderSettings {
     private long maximumFeedSize;
     private long executionWarnTime;
     private Factory<? extends FeedParser> parserFactory;
+    private SeenItemIndex seenItemIndex;
 
     ImmutableFeedReaderSettings(Builder builder) {
         store = builder.store;
@@ -33,6 +34,7 @@ final class ImmutableFeedReaderSettings implements FeedReaderSettings {
         maximumFeedSize = builder.maximumFeedSize;
         executionWarnTime = builder.executionWarnTime;
         parserFactory = builder.parserFactory;
+        seenItemIndex = builder.seenItemIndex;
     }
 
     @Override
@@ -95,4 +97,9 @@ final class ImmutableFeedReaderSettings implements FeedReaderSettings {
         return parserFactory;
     }
 
+    @Override
+    public SeenItemIndex getSeenItemIndex() {
+        return seenItemIndex;
+    }
+
 }
@@ -31,6 +31,15 @@ public class SchedulerTask extends TimerTask {
 
     protected final FeedReaderSettings settings;
 
+    /** The feeds of the scheduled tasks. */
+    private final Map<Integer, Feed> scheduledFeeds = new HashMap<>();
+
+    /**
+     * The cached items of the feeds after their last poll, which are kept in memory in case a {@link SeenItemIndex} is
+     * configured, instead of loading them from the store on every wake up.
+     */
+    private final Map<Integer, Map<String, Date>> itemCaches = new HashMap<>();
+
     /**
      * <p>
      * Creates a new {@code SchedulerTask} for a feed reader.
@@ -53,6 +62,11 @@ public class SchedulerTask extends TimerTask {
             removeFeedTaskIfDone(feed.getId());
             if (needsLookup(feed)) {
                 if (!scheduledTasks.containsKey(feed.getId())) {
+                    SeenItemIndex seenItemIndex = settings.getSeenItemIndex();
+                    if (seenItemIndex != null) {
+                        feed.setCachedItems(getItemCache(feed.getId(), seenItemIndex));
+                    }
+                    scheduledFeeds.put(feed.getId(), feed);
                     scheduledTasks.put(feed.getId(), threadPool.submit(new FeedTask(settings, feed)));
                     numScheduled++;
                 }
@@ -71,16 +85,36 @@ public class SchedulerTask extends TimerTask {
      * </p>
      */
     protected Collection<Feed> getFeeds() {
+        // with an index, the cached items are kept in memory, see #getItemCache
+        boolean withCachedItems = settings.getSeenItemIndex() == null;
         if (lastWakeUpTime == null) {
             List<Feed> feedList = new ArrayList<>();
-            feedList.addAll(settings.getStore().getFeeds());
+            feedList.addAll(settings.getStore().getFeeds(withCachedItems));
             Collections.shuffle(feedList);
             return feedList;
         } else {
-            return settings.getStore().getFeeds();
+            return settings.getStore().getFeeds(withCachedItems);
         }
     }
 
+    /**
+     * Get the cached items of a feed from its last poll. When the feed is polled the first time, they are loaded from
+     * the store once, and added to the index, in case it does not know the feed yet.
+     *
+     * @param feedId        The feed id.
+     * @param seenItemIndex The index of seen items.
+     * @return The cached items of the feed.
+     */
+    private Map<String, Date> getItemCache(int feedId, SeenItemIndex seenItemIndex) {
+        Map<String, Date> itemCache = itemCaches.get(feedId);
+        if (itemCache == null) {
+            itemCache = new HashMap<>(settings.getStore().getCachedItems(feedId));
+            seenItemIndex.addAll(feedId, itemCache.keySet());
+            itemCaches.put(feedId, itemCache);
+        }
+        return itemCache;
+    }
+
     /**
      * Returns whether the last time the provided feed was checked for updates
      * is further in the past than its update interval.
@@ -105,19 +139,19 @@ public class SchedulerTask extends TimerTask {
                 LOGGER.error("Feed id " + feed.getId() + " (" + feed.getFeedUrl() + ") takes on average too long to process and is therefore blocked (never scheduled again)!"
                         + " Average processing time was " + feed.getAverageProcessingTime() + " milliseconds.");
                 feed.setBlocked(true);
-                settings.getStore().updateFeed(feed);
+                settings.getStore().updateFeed(feed, false);
             } else if (feed.getChecks() < feed.getUnreachableCount() / settings.getChecksToUnreachableRatio()) {
                 LOGGER.error(
                         "Feed id " + feed.getId() + " (" + feed.getFeedUrl() + ") has been unreachable too often and is therefore blocked (never scheduled again)!" + " checks = "
                                 + feed.getChecks() + ", unreachableCount = " + feed.getUnreachableCount());
                 feed.setBlocked(true);
-                settings.getStore().updateFeed(feed);
+                settings.getStore().updateFeed(feed, false);
             } else if (feed.getChecks() < feed.getUnparsableCount() / settings.getChecksToUnparsableRatio()) {
                 LOGGER.error(
                         "Feed id " + feed.getId() + " (" + feed.getFeedUrl() + ") has been unparsable too often and is therefore blocked (never scheduled again)!" + " checks = "
                                 + feed.getChecks() + ", unparsableCount = " + feed.getUnparsableCount());
                 feed.setBlocked(true);
-                settings.getStore().updateFeed(feed);
+                settings.getStore().updateFeed(feed, false);
             }
         }
 
@@ -145,6 +179,10 @@ public class SchedulerTask extends TimerTask {
         final Future<FeedTaskResult> future = scheduledTasks.get(feedId);
         if (future != null && future.isDone()) {
             scheduledTasks.remove(feedId);
+            Feed feed = scheduledFeeds.remove(feedId);
+            if (feed != null && settings.getSeenItemIndex() != null) {
+                itemCaches.put(feedId, feed.getCachedItems());
+            }
         }
     }
 }
@@ -0,0 +1,318 @@
+package ws.palladian.retrieval.feeds;
+
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * An in-memory index of the items which have been seen per feed, to decide whether an item is new without going to the
+ * database. Instead of the SHA-1 strings from the {@link FeedItemHashGenerator}, the index keeps the first 64 bits of
+ * the hashes in a primitive open addressing set per feed, which needs about a fifth of the memory. The sets keep the
+ * insertion order, and when a feed exceeds the maximum number of items, the items which were seen first are removed.
+ * </p>
+ *
+ * <p>
+ * When the index is set in the {@link FeedReaderSettings}, the {@link FeedReader} keeps the feeds' cached items in
+ * memory between polls; they are loaded from the store only on the first poll of a feed, which also adds them to the
+ * index, and afterwards only the cached items which were removed or added by a poll are written.
+ * </p>
+ *
+ * <p>
+ * The index can be saved to and loaded from a snapshot file; with {@link #scheduleSnapshots(File, long)}, snapshots
+ * are written periodically and by {@link #close()}. Snapshots are written to a temporary file first and then moved,
+ * so that a crash while writing does not destroy the previous snapshot.
+ * </p>
+ */
+public final class SeenItemIndex implements Closeable {
+
+    /** The logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SeenItemIndex.class);
+
+    /** The default maximum number of items per feed. */
+    public static final int DEFAULT_MAX_ITEMS_PER_FEED = 1000;
+
+    private static final int MAGIC = 0x50534949;
+
+    private static final int VERSION = 1;
+
+    private final int maxItemsPerFeed;
+
+    private final Map<Integer, LongLinkedOpenHashSet> feeds = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService snapshotExecutor;
+
+    private File snapshotFile;
+
+    /** Create a new, empty index with {@link #DEFAULT_MAX_ITEMS_PER_FEED}. */
+    public SeenItemIndex() {
+        this(DEFAULT_MAX_ITEMS_PER_FEED);
+    }
+
+    /**
+     * Create a new, empty index.
+     *
+     * @param maxItemsPerFeed The maximum number of items to keep per feed, greater zero.
+     */
+    public SeenItemIndex(int maxItemsPerFeed) {
+        Validate.isTrue(maxItemsPerFeed > 0, "maxItemsPerFeed must be greater zero");
+        this.maxItemsPerFeed = maxItemsPerFeed;
+    }
+
+    /**
+     * Get the 64 bit hash for an item hash from the {@link FeedItemHashGenerator}.
+     *
+     * @param itemHash The item hash, not <code>null</code>.
+     * @return The first 64 bits of the hash in case it is a hexadecimal hash, a 64 bit hash of the string otherwise.
+     */
+    public static long longHash(String itemHash) {
+        if (itemHash.length() >= 16) {
+            long hash = 0;
+            for (int i = 0; i < 16; i++) {
+                int digit = Character.digit(itemHash.charAt(i), 16);
+                if (digit < 0) {
+                    return fnvHash(itemHash);
+                }
+                hash = hash << 4 | digit;
+            }
+            return hash;
+        }
+        return fnvHash(itemHash);
+    }
+
+    private static long fnvHash(String string) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < string.length(); i++) {
+            hash ^= string.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Check whether an item has been seen.
+     *
+     * @param feedId   The id of the feed.
+     * @param itemHash The hash of the item.
+     * @return <code>true</code> in case the item has been added for the feed before.
+     */
+    public boolean contains(int feedId, String itemHash) {
+        LongLinkedOpenHashSet items = feeds.get(feedId);
+        if (items == null || itemHash == null) {
+            return false;
+        }
+        synchronized (items) {
+            return items.contains(longHash(itemHash));
+        }
+    }
+
+    /**
+     * Add an item.
+     *
+     * @param feedId   The id of the feed.
+     * @param itemHash The hash of the item.
+     * @return <code>true</code> in case the item has not been seen before.
+     */
+    public boolean add(int feedId, String itemHash) {
+        if (itemHash == null) {
+            return false;
+        }
+        LongLinkedOpenHashSet items = feeds.computeIfAbsent(feedId, id -> new LongLinkedOpenHashSet());
+        synchronized (items) {
+            return add(items, longHash(itemHash));
+        }
+    }
+
+    /**
+     * Add items of a feed.
+     *
+     * @param feedId     The id of the feed.
+     * @param itemHashes The hashes of the items.
+     * @return The number of items which have not been seen before.
+     */
+    public int addAll(int feedId, Collection<String> itemHashes) {
+        LongLinkedOpenHashSet items = feeds.computeIfAbsent(feedId, id -> new LongLinkedOpenHashSet());
+        int added = 0;
+        synchronized (items) {
+            for (String itemHash : itemHashes) {
+                if (itemHash != null && add(items, longHash(itemHash))) {
+                    added++;
+                }
+            }
+        }
+        return added;
+    }
+
+    private boolean add(LongLinkedOpenHashSet items, long hash) {
+        // re-adding moves the item to the end, so that it is removed last
+        if (!items.addAndMoveToLast(hash)) {
+            return false;
+        }
+        while (items.size() > maxItemsPerFeed) {
+            items.removeFirstLong();
+        }
+        return true;
+    }
+
+    /**
+     * Remove all items of a feed.
+     *
+     * @param feedId The id of the feed.
+     */
+    public void remove(int feedId) {
+        feeds.remove(feedId);
+    }
+
+    /** @return The number of feeds in the index. */
+    public int getNumFeeds() {
+        return feeds.size();
+    }
+
+    /** @return The number of items in the index. */
+    public long getNumItems() {
+        long numItems = 0;
+        for (LongLinkedOpenHashSet items : feeds.values()) {
+            synchronized (items) {
+                numItems += items.size();
+            }
+        }
+        return numItems;
+    }
+
+    /**
+     * Write a snapshot of the index.
+     *
+     * @param file The file, not <code>null</code>.
+     * @throws IOException In case writing failed.
+     */
+    public void saveSnapshot(File file) throws IOException {
+        Validate.notNull(file, "file must not be null");
+        File tempFile = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(maxItemsPerFeed);
+            // the number of feeds may change while writing, so end with a marker
+            for (Map.Entry<Integer, LongLinkedOpenHashSet> entry : feeds.entrySet()) {
+                LongLinkedOpenHashSet items = entry.getValue();
+                synchronized (items) {
+                    out.writeBoolean(true);
+                    out.writeInt(entry.getKey());
+                    out.writeInt(items.size());
+                    for (LongIterator iterator = items.iterator(); iterator.hasNext(); ) {
+                        out.writeLong(iterator.nextLong());
+                    }
+                }
+            }
+            out.writeBoolean(false);
+        }
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Load an index from a snapshot.
+     *
+     * @param file The file, not <code>null</code>.
+     * @return The index.
+     * @throws IOException In case reading failed, or the file is no snapshot.
+     */
+    public static SeenItemIndex loadSnapshot(File file) throws IOException {
+        Validate.notNull(file, "file must not be null");
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is no seen item index snapshot");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + " in " + file);
+            }
+            SeenItemIndex index = new SeenItemIndex(in.readInt());
+            while (in.readBoolean()) {
+                int feedId = in.readInt();
+                int size = in.readInt();
+                LongLinkedOpenHashSet items = new LongLinkedOpenHashSet(size);
+                for (int i = 0; i < size; i++) {
+                    items.add(in.readLong());
+                }
+                index.feeds.put(feedId, items);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Load an index from a snapshot if it exists, and write snapshots to it periodically.
+     *
+     * @param file     The snapshot file, not <code>null</code>.
+     * @param interval The interval between snapshots in milliseconds, greater zero.
+     * @return The loaded index, or a new index with {@link #DEFAULT_MAX_ITEMS_PER_FEED} if the file does not exist.
+     * @throws IOException In case the file exists, but could not be read.
+     */
+    public static SeenItemIndex open(File file, long interval) throws IOException {
+        SeenItemIndex index = file.isFile() ? loadSnapshot(file) : new SeenItemIndex();
+        index.scheduleSnapshots(file, interval);
+        return index;
+    }
+
+    /**
+     * Write snapshots periodically; the last snapshot is written by {@link #close()}.
+     *
+     * @param file     The snapshot file, not <code>null</code>.
+     * @param interval The interval between snapshots in milliseconds, greater zero.
+     */
+    public synchronized void scheduleSnapshots(File file, long interval) {
+        Validate.notNull(file, "file must not be null");
+        Validate.isTrue(interval > 0, "interval must be greater zero");
+        Validate.validState(snapshotExecutor == null, "snapshots are already scheduled");
+        snapshotFile = file;
+        snapshotExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SeenItemIndex-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                saveSnapshot(file);
+                LOGGER.debug("Wrote snapshot of {} feeds to {}", getNumFeeds(), file);
+            } catch (IOException e) {
+                LOGGER.error("Could not write snapshot to {}", file, e);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the periodic snapshots and write a final one, in case they were scheduled.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (snapshotExecutor == null) {
+            return;
+        }
+        snapshotExecutor.shutdown();
+        try {
+            snapshotExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        snapshotExecutor = null;
+        saveSnapshot(snapshotFile);
+    }
+
+    @Override
+    public String toString() {
+        return "SeenItemIndex [numFeeds=" + getNumFeeds() + ", numItems=" + getNumItems() + "]";
+    }
+
+}
@@ -98,6 +98,40 @@ public class FeedMetaInformation {
      */
     private Boolean hasPublished = null;
 
+    public FeedMetaInformation() {
+    }
+
+    /**
+     * Create a copy of the given meta information.
+     *
+     * @param metaInformation The meta information to copy, not <code>null</code>.
+     */
+    public FeedMetaInformation(FeedMetaInformation metaInformation) {
+        siteUrl = metaInformation.siteUrl;
+        isAccessible = metaInformation.isAccessible;
+        supportsPubSubHubBub = metaInformation.supportsPubSubHubBub;
+        feedFormat = metaInformation.feedFormat;
+        hasItemIds = metaInformation.hasItemIds;
+        added = copy(metaInformation.added);
+        title = metaInformation.title;
+        description = metaInformation.description;
+        imageUrl = metaInformation.imageUrl;
+        language = metaInformation.language;
+        byteSize = metaInformation.byteSize;
+        cgHeaderSize = metaInformation.cgHeaderSize;
+        hasPubDate = metaInformation.hasPubDate;
+        hasCloud = metaInformation.hasCloud;
+        ttl = metaInformation.ttl;
+        hasSkipHours = metaInformation.hasSkipHours;
+        hasSkipDays = metaInformation.hasSkipDays;
+        hasUpdated = metaInformation.hasUpdated;
+        hasPublished = metaInformation.hasPublished;
+    }
+
+    private static Date copy(Date date) {
+        return date != null ? new Date(date.getTime()) : null;
+    }
+
     /**
      * @return <code>true</code> if feed is accessible, <code>false</code> if not, <code>null</code> if unknown.
      */
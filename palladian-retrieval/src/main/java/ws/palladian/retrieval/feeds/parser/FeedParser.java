@@ -6,6 +6,7 @@ import ws.palladian.retrieval.feeds.Feed;
 
 import java.io.File;
 import java.io.InputStream;
+import java.util.Set;
 
 /**
  * <p>
@@ -16,6 +17,14 @@ import java.io.InputStream;
  * @author Philipp Katz
  */
 public interface FeedParser {
+
+    /**
+     * Key in the additional data of a {@link Feed} returned by {@link #getFeed(HttpResult, Set)}, which is set to
+     * <code>true</code> in case parsing stopped at a known item, so that the feed only contains the first part of the
+     * items.
+     */
+    String KNOWN_ITEM_REACHED = "knownItemReached";
+
     /**
      * <p>
      * Parse a feed from a gzipped {@link HttpResult}. These gzips are available for example in the <a
@@ -62,6 +71,22 @@ public interface FeedParser {
      */
     Feed getFeed(HttpResult httpResult) throws FeedParserException;
 
+    /**
+     * <p>
+     * Parse a feed from the specified {@link HttpResult}, given the hashes of the items which are already known (see
+     * {@link ws.palladian.retrieval.feeds.FeedItemHashGenerator}). Parsers may stop at the first known item and mark
+     * this with {@link #KNOWN_ITEM_REACHED}; the default implementation parses the whole feed.
+     * </p>
+     *
+     * @param httpResult      The httpResult from the request.
+     * @param knownItemHashes The hashes of the known items, not <code>null</code>.
+     * @return The parsed feed.
+     * @throws FeedParserException
+     */
+    default Feed getFeed(HttpResult httpResult, Set<String> knownItemHashes) throws FeedParserException {
+        return getFeed(httpResult);
+    }
+
     /**
      * <p>
      * Parse a feed from the specified {@link Document}.
@@ -0,0 +1,563 @@
+package ws.palladian.retrieval.feeds.parser;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import ws.palladian.helper.UrlHelper;
+import ws.palladian.helper.date.DateParser;
+import ws.palladian.helper.date.ExtractedDate;
+import ws.palladian.retrieval.HttpResult;
+import ws.palladian.retrieval.feeds.Feed;
+import ws.palladian.retrieval.feeds.FeedItem;
+import ws.palladian.retrieval.feeds.FeedItemHashGenerator;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * <p>
+ * A {@link FeedParser} which streams RSS (0.9x, 1.0, 2.0) and Atom (0.3, 1.0) feeds with StAX, instead of building a
+ * DOM and converting it with ROME like the {@link RomeFeedParser}. Only the fields which are needed for the
+ * {@link FeedItem}s are extracted, which are the same as in the {@link RomeFeedParser}.
+ * </p>
+ *
+ * <p>
+ * Usually, only a few items of a feed are new on a poll, while the rest of the window is already known. When given
+ * the hashes of the known items (see {@link FeedItemHashGenerator}), the parser stops reading after the first known
+ * item via {@link #getFeed(HttpResult, Set)}; the feed then only contains the items up to there and the additional
+ * data key {@link FeedParser#KNOWN_ITEM_REACHED} is set. This assumes that the items are ordered from newest to oldest,
+ * which is the case for the vast majority of feeds; use {@link #setStopAfterKnownItems(int)} to require several
+ * consecutive known items before stopping.
+ * </p>
+ *
+ * <p>
+ * StAX requires well-formed XML; if a feed cannot be read, parsing falls back to the {@link RomeFeedParser}, which
+ * can deal with some more errors.
+ * </p>
+ */
+public class StaxFeedParser extends AbstractFeedParser {
+
+    /** The logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(StaxFeedParser.class);
+
+    /** If we cant find a pubdate in this many consecutive items, give up. */
+    private static final int MAX_DATE_RETRIES = 5;
+
+    private static final String NS_RSS_10 = "http://purl.org/rss/1.0/";
+    private static final String NS_ATOM_10 = "http://www.w3.org/2005/Atom";
+    private static final String NS_ATOM_03 = "http://purl.org/atom/ns#";
+    private static final String NS_CONTENT = "http://purl.org/rss/1.0/modules/content/";
+    private static final String NS_DC = "http://purl.org/dc/elements/1.1/";
+    private static final String NS_ITUNES = "http://www.itunes.com/dtds/podcast-1.0.dtd";
+    private static final String NS_XML = "http://www.w3.org/XML/1998/namespace";
+
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    /** Whether to use additional date parsing techniques provided by Palladian. */
+    private boolean useDateRecognition = true;
+
+    /** The number of consecutive known items after which parsing stops. */
+    private int stopAfterKnownItems = 1;
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    // ///////////////////////////////////////////////////
+    // FeedParser API
+    // ///////////////////////////////////////////////////
+
+    /**
+     * A DOM has already been built, so there is nothing to gain from streaming; this delegates to the
+     * {@link RomeFeedParser}.
+     */
+    @Override
+    public Feed getFeed(Document document) throws FeedParserException {
+        return createRomeFeedParser().getFeed(document);
+    }
+
+    @Override
+    public Feed getFeed(InputStream inputStream) throws FeedParserException {
+        try {
+            return parse(inputStream.readAllBytes(), Collections.emptySet());
+        } catch (IOException e) {
+            throw new FeedParserException("Encountered IOException", e);
+        }
+    }
+
+    @Override
+    public Feed getFeed(HttpResult httpResult) throws FeedParserException {
+        return getFeed(httpResult, Collections.emptySet());
+    }
+
+    @Override
+    public Feed getFeed(HttpResult httpResult, Set<String> knownItemHashes) throws FeedParserException {
+        Validate.notNull(knownItemHashes, "knownItemHashes must not be null");
+        Feed feed = parse(httpResult.getContent(), knownItemHashes);
+        feed.setFeedUrl(httpResult.getUrl());
+        return feed;
+    }
+
+    // ///////////////////////////////////////////////////
+    // Settings
+    // ///////////////////////////////////////////////////
+
+    public void setUseDateRecognition(boolean useDateRecognition) {
+        this.useDateRecognition = useDateRecognition;
+    }
+
+    public boolean isUseDateRecognition() {
+        return useDateRecognition;
+    }
+
+    /**
+     * @param stopAfterKnownItems The number of consecutive known items after which parsing stops, greater zero. Use a
+     *                            value greater one for feeds which occasionally re-order their items.
+     */
+    public void setStopAfterKnownItems(int stopAfterKnownItems) {
+        Validate.isTrue(stopAfterKnownItems > 0, "stopAfterKnownItems must be greater zero");
+        this.stopAfterKnownItems = stopAfterKnownItems;
+    }
+
+    public int getStopAfterKnownItems() {
+        return stopAfterKnownItems;
+    }
+
+    // ///////////////////////////////////////////////////
+    // streaming
+    // ///////////////////////////////////////////////////
+
+    private RomeFeedParser createRomeFeedParser() {
+        RomeFeedParser romeFeedParser = new RomeFeedParser();
+        romeFeedParser.setUseDateRecognition(useDateRecognition);
+        return romeFeedParser;
+    }
+
+    /** The raw values of an item, collected while streaming. */
+    private static final class ItemValues {
+        String title;
+        String link;
+        String description;
+        String text;
+        String id;
+        boolean permaLink;
+        String published;
+        String updated;
+        /** The first element with "date" in its name, for the date recognition like in {@link RomeFeedParser}. */
+        String rawDate;
+        final List<String> authors = new ArrayList<>();
+        final List<String> creators = new ArrayList<>();
+        final Map<String, Object> additionalData = new HashMap<>();
+    }
+
+    private Feed parse(byte[] content, Set<String> knownItemHashes) throws FeedParserException {
+        try {
+            return parse(new ByteArrayInputStream(content), knownItemHashes);
+        } catch (XMLStreamException e) {
+            LOGGER.debug("Could not stream feed ({}), falling back to ROME", e.getMessage());
+            return createRomeFeedParser().getFeed(new ByteArrayInputStream(content));
+        }
+    }
+
+    private Feed parse(InputStream inputStream, Set<String> knownItemHashes) throws XMLStreamException {
+        Feed feed = new Feed();
+        Map<String, Object> additionalData = new HashMap<>();
+        feed.setAdditionalData(additionalData);
+        String feedLink = null;
+        List<String> feedAuthors = new ArrayList<>();
+
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(inputStream);
+        try {
+            // the local names of the open elements which were not consumed as a whole
+            Deque<String> path = new ArrayDeque<>();
+            ItemValues item = null;
+            int dateRetries = 0;
+            int knownItems = 0;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    String name = path.pop();
+                    if (item != null && isItem(reader)) {
+                        FeedItem feedItem = createItem(item, feedLink, feedAuthors, dateRetries < MAX_DATE_RETRIES);
+                        if (dateRetries < MAX_DATE_RETRIES) {
+                            dateRetries = feedItem.getPublished() == null ? dateRetries + 1 : 0;
+                        }
+                        feed.addItem(feedItem);
+                        item = null;
+                        knownItems = knownItemHashes.contains(feedItem.getHash()) ? knownItems + 1 : 0;
+                        if (knownItems >= stopAfterKnownItems) {
+                            LOGGER.trace("Stopping at known item {}", feedItem);
+                            additionalData.put(KNOWN_ITEM_REACHED, true);
+                            break;
+                        }
+                    }
+                    LOGGER.trace("End of {}", name);
+                    continue;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                String name = reader.getLocalName();
+                String namespace = StringUtils.defaultString(reader.getNamespaceURI());
+                String parent = path.peek();
+                boolean core = isCore(namespace);
+
+                if (path.isEmpty()) {
+                    // root element, Atom declares the language here
+                    feed.getMetaInformation().setLanguage(reader.getAttributeValue(NS_XML, "lang"));
+                } else if (item == null && core && (name.equals("item") || name.equals("entry"))) {
+                    item = new ItemValues();
+                } else if (item != null && "author".equals(parent) && name.equals("name")) {
+                    addIfNotEmpty(item.authors, readText(reader));
+                    continue;
+                } else if (item != null && (parent.equals("item") || parent.equals("entry"))) {
+                    if (readItemElement(reader, name, namespace, item)) {
+                        continue;
+                    }
+                } else if (item == null && (parent.equals("channel") || parent.equals("feed"))) {
+                    if (name.equals("link") && core) {
+                        String link = readLink(reader, null);
+                        if (link != null && feedLink == null) {
+                            feedLink = link;
+                            feed.getMetaInformation().setSiteUrl(link.trim());
+                        }
+                        continue;
+                    } else if (name.equals("title") && core) {
+                        feed.getMetaInformation().setTitle(StringUtils.trimToNull(readContent(reader)));
+                        continue;
+                    } else if (core && (name.equals("description") || name.equals("subtitle") || name.equals("tagline"))) {
+                        feed.getMetaInformation().setDescription(StringUtils.trimToNull(readContent(reader)));
+                        continue;
+                    } else if ((name.equals("language") && core) || (name.equals("language") && namespace.equals(NS_DC))) {
+                        feed.getMetaInformation().setLanguage(StringUtils.trimToNull(readText(reader)));
+                        continue;
+                    } else if (core && (name.equals("logo") || name.equals("icon"))) {
+                        String imageUrl = StringUtils.trimToNull(readText(reader));
+                        if (imageUrl != null && (name.equals("logo") || feed.getMetaInformation().getImageUrl() == null)) {
+                            feed.getMetaInformation().setImageUrl(imageUrl);
+                        }
+                        continue;
+                    } else if (name.equals("image") && namespace.equals(NS_ITUNES)) {
+                        String href = StringUtils.trimToNull(reader.getAttributeValue(null, "href"));
+                        if (href != null && feed.getMetaInformation().getImageUrl() == null) {
+                            feed.getMetaInformation().setImageUrl(href);
+                        }
+                    } else if ((name.equals("managingEditor") && core) || (name.equals("creator") && namespace.equals(NS_DC))) {
+                        addIfNotEmpty(feedAuthors, readText(reader));
+                        continue;
+                    }
+                } else if (item == null && "author".equals(parent) && name.equals("name") && path.size() > 1) {
+                    addIfNotEmpty(feedAuthors, readText(reader));
+                    continue;
+                } else if (item == null && "image".equals(parent) && name.equals("url")) {
+                    // the RSS image takes precedence over the iTunes image
+                    String imageUrl = StringUtils.trimToNull(readText(reader));
+                    if (imageUrl != null) {
+                        feed.getMetaInformation().setImageUrl(imageUrl);
+                    }
+                    continue;
+                }
+                path.push(name);
+            }
+        } finally {
+            reader.close();
+        }
+        return feed;
+    }
+
+    /**
+     * Read an element within an item.
+     *
+     * @return <code>true</code> in case the element was consumed up to its end.
+     */
+    private static boolean readItemElement(XMLStreamReader reader, String name, String namespace, ItemValues item)
+            throws XMLStreamException {
+        boolean dateElement = item.rawDate == null && name.toLowerCase().contains("date");
+        if (dateElement && !name.equals("pubDate") && !(name.equals("date") && namespace.equals(NS_DC))) {
+            item.rawDate = readText(reader);
+            return true;
+        }
+        if (isCore(namespace)) {
+            switch (name) {
+                case "title":
+                    item.title = readContent(reader);
+                    return true;
+                case "link":
+                    String link = readLink(reader, item.additionalData);
+                    if (link != null && item.link == null) {
+                        item.link = link;
+                    }
+                    return true;
+                case "description":
+                case "summary":
+                    item.description = readContent(reader);
+                    return true;
+                case "content":
+                    if (reader.getAttributeValue(null, "src") != null) {
+                        return false;
+                    }
+                    item.text = longer(item.text, readContent(reader));
+                    return true;
+                case "guid":
+                    item.permaLink = !"false".equals(reader.getAttributeValue(null, "isPermaLink"));
+                    item.id = readText(reader);
+                    return true;
+                case "id":
+                    item.id = readText(reader);
+                    return true;
+                case "pubDate":
+                case "published":
+                case "issued":
+                    item.published = readText(reader);
+                    if (dateElement) {
+                        item.rawDate = item.published;
+                    }
+                    return true;
+                case "updated":
+                case "modified":
+                    item.updated = readText(reader);
+                    return true;
+                case "author":
+                    if (namespace.isEmpty()) {
+                        // RSS; Atom authors have child elements
+                        addIfNotEmpty(item.authors, readText(reader));
+                        return true;
+                    }
+                    return false;
+                case "enclosure":
+                    addEnclosure(item.additionalData, reader.getAttributeValue(null, "type"), reader.getAttributeValue(null, "url"));
+                    return false;
+                default:
+                    return false;
+            }
+        } else if (namespace.equals(NS_CONTENT) && name.equals("encoded")) {
+            item.text = longer(item.text, readText(reader));
+            return true;
+        } else if (namespace.equals(NS_DC)) {
+            if (name.equals("creator")) {
+                addIfNotEmpty(item.creators, readText(reader));
+                return true;
+            } else if (name.equals("date")) {
+                String date = readText(reader);
+                if (item.published == null) {
+                    item.published = date;
+                }
+                if (dateElement) {
+                    item.rawDate = date;
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private FeedItem createItem(ItemValues values, String feedLink, List<String> feedAuthors, boolean parseDate) {
+        FeedItem item = new FeedItem();
+        item.setTitle(values.title != null ? values.title.trim() : null);
+        // like ROME, take a permanent guid as link if there is none
+        String link = values.link == null && values.permaLink ? values.id : values.link;
+        if (link != null && link.length() > 0) {
+            link = UrlHelper.makeFullUrl(feedLink, link.trim());
+        }
+        item.setLink(link);
+        item.setDescription(values.description != null ? values.description.trim() : null);
+        item.setText(values.text != null ? values.text.trim() : null);
+        String id = values.id != null ? values.id : link;
+        item.setIdentifier(id != null ? id.trim() : null);
+        // Dublin Core creators take precedence over the RSS author, which is usually an email address
+        List<String> authors = !values.creators.isEmpty() ? values.creators : values.authors;
+        if (authors.isEmpty()) {
+            authors = feedAuthors;
+        }
+        item.setAuthors(authors.isEmpty() ? null : StringUtils.join(authors, "; "));
+        if (parseDate) {
+            item.setPublished(parseDate(values));
+        }
+        item.setAdditionalData(values.additionalData);
+        return item;
+    }
+
+    /**
+     * Parse the publish date, or the updated date, and use Palladian's date recognition for the raw date in case
+     * neither can be parsed, the same as {@link RomeFeedParser}.
+     */
+    private Date parseDate(ItemValues values) {
+        Date date = parseFeedDate(values.published);
+        if (date == null) {
+            date = parseFeedDate(values.updated);
+        }
+        String rawDate = values.rawDate;
+        if (date == null && useDateRecognition && rawDate != null) {
+            try {
+                ExtractedDate extractedDate = DateParser.findDate(rawDate);
+                if (extractedDate != null) {
+                    date = extractedDate.getNormalizedDate();
+                }
+            } catch (Throwable th) {
+                LOGGER.warn("date format could not be parsed correctly: " + rawDate + ", " + th.getMessage());
+            }
+        }
+        return date;
+    }
+
+    private static Date parseFeedDate(String date) {
+        date = StringUtils.trimToNull(date);
+        return date != null ? com.rometools.rome.io.impl.DateParser.parseDate(date, Locale.US) : null;
+    }
+
+    /**
+     * Read the URL of a link element, which is either the text (RSS) or the href attribute (Atom). Atom enclosures are
+     * added to the given data.
+     *
+     * @return The URL, or <code>null</code> in case this is not an alternate link.
+     */
+    private static String readLink(XMLStreamReader reader, Map<String, Object> additionalData) throws XMLStreamException {
+        String href = reader.getAttributeValue(null, "href");
+        if (href == null) {
+            return readText(reader);
+        }
+        String rel = reader.getAttributeValue(null, "rel");
+        String type = reader.getAttributeValue(null, "type");
+        skipElement(reader);
+        if ("enclosure".equals(rel) && additionalData != null) {
+            addEnclosure(additionalData, type, href);
+        }
+        return rel == null || rel.equals("alternate") ? href : null;
+    }
+
+    private static void addEnclosure(Map<String, Object> additionalData, String type, String url) {
+        if (type == null) {
+            return;
+        }
+        type = type.toLowerCase();
+        if (type.contains("image")) {
+            additionalData.put("image", url);
+        } else if (type.contains("video")) {
+            additionalData.put("video", url);
+        } else if (type.contains("audio")) {
+            additionalData.put("audio", url);
+        }
+    }
+
+    /**
+     * Read the content of a text construct; Atom allows inline XHTML, which is returned as markup.
+     */
+    private static String readContent(XMLStreamReader reader) throws XMLStreamException {
+        if (!"xhtml".equals(reader.getAttributeValue(null, "type"))) {
+            return readText(reader);
+        }
+        StringBuilder markup = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                // the wrapping div is not part of the content
+                if (depth > 2) {
+                    markup.append('<').append(reader.getLocalName());
+                    for (int i = 0; i < reader.getAttributeCount(); i++) {
+                        markup.append(' ').append(reader.getAttributeLocalName(i)).append("=\"")
+                                .append(escape(reader.getAttributeValue(i))).append('"');
+                    }
+                    markup.append('>');
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if (depth > 2) {
+                    markup.append("</").append(reader.getLocalName()).append('>');
+                }
+                depth--;
+            } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                    || event == XMLStreamConstants.SPACE || event == XMLStreamConstants.ENTITY_REFERENCE) {
+                markup.append(depth > 1 ? escape(reader.getText()) : "");
+            }
+        }
+        return markup.toString();
+    }
+
+    /**
+     * Read the text of the current element up to its end, the text of nested elements is included.
+     */
+    private static String readText(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder text = null;
+        String first = null;
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                    || event == XMLStreamConstants.SPACE || event == XMLStreamConstants.ENTITY_REFERENCE) {
+                // most elements have a single text event, avoid copying in this case
+                if (first == null) {
+                    first = reader.getText();
+                } else {
+                    if (text == null) {
+                        text = new StringBuilder(first);
+                    }
+                    text.append(reader.getText());
+                }
+            }
+        }
+        if (text != null) {
+            return text.toString();
+        }
+        return first != null ? first : "";
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static boolean isItem(XMLStreamReader reader) {
+        String name = reader.getLocalName();
+        return (name.equals("item") || name.equals("entry")) && isCore(StringUtils.defaultString(reader.getNamespaceURI()));
+    }
+
+    /** Elements of RSS or Atom itself, as opposed to elements from modules. */
+    private static boolean isCore(String namespace) {
+        return namespace.isEmpty() || namespace.equals(NS_ATOM_10) || namespace.equals(NS_RSS_10)
+                || namespace.equals(NS_ATOM_03);
+    }
+
+    private static void addIfNotEmpty(List<String> values, String value) {
+        value = StringUtils.trimToNull(value);
+        if (value != null) {
+            values.add(value);
+        }
+    }
+
+    private static String longer(String current, String candidate) {
+        if (candidate == null || candidate.isEmpty()) {
+            return current;
+        }
+        return current == null || candidate.length() > current.length() ? candidate : current;
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+}
@@ -13,6 +13,8 @@ import ws.palladian.retrieval.feeds.FeedItem;
 import ws.palladian.retrieval.feeds.meta.PollMetaInformation;
 
 import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
@@ -47,6 +49,7 @@ public class FeedDatabase extends DatabaseManager implements FeedStore {
     private static final String ADD_CACHE_ITEMS = "INSERT IGNORE INTO feed_item_cache SET id = ?, itemHash = ?, correctedPollTime = ?";
     private static final String GET_CACHE_ITEMS_BY_ID = "SELECT * FROM feed_item_cache WHERE id = ?";
     private static final String DELETE_CACHE_ITEMS_BY_ID = "DELETE FROM feed_item_cache WHERE id = ?";
+    private static final String DELETE_CACHE_ITEM = "DELETE FROM feed_item_cache WHERE id = ? AND itemHash = ?";
 
     private static final String GET_INDHIST_MODEL_BY_ID = "SELECT * FROM feed_indhist_model WHERE feedId = ?;";
 
@@ -186,9 +189,16 @@ public class FeedDatabase extends DatabaseManager implements FeedStore {
 
     @Override
     public List<Feed> getFeeds() {
+        return getFeeds(true);
+    }
+
+    @Override
+    public List<Feed> getFeeds(boolean withCachedItems) {
         List<Feed> feeds = runQuery(FeedRowConverter.INSTANCE, GET_FEEDS);
-        for (Feed feed : feeds) {
-            feed.setCachedItems(getCachedItemsById(feed.getId()));
+        if (withCachedItems) {
+            for (Feed feed : feeds) {
+                feed.setCachedItems(getCachedItems(feed.getId()));
+            }
         }
         return feeds;
     }
@@ -221,8 +231,146 @@ public class FeedDatabase extends DatabaseManager implements FeedStore {
             return addFeed(feed);
         }
 
-        boolean updated;
+        boolean updated = runUpdate(UPDATE_FEED, getUpdateParameters(feed)) != -1;
+
+        if (updated) {
+            updated = updateMetaInformation(feed);
+            if (!updated) {
+                LOGGER.error("Updating meta information for feed id " + feed.getId() + " (" + feed.getFeedUrl() + ") failed.");
+            }
+        }
+
+        if (updated && replaceCachedItems) {
+            updated = deleteCachedItemById(feed.getId());
+            if (!updated) {
+                LOGGER.error("Deleting cached items for feed id " + feed.getId() + " (" + feed.getFeedUrl() + ") failed.");
+            }
+            if (updated) {
+                updated = addCacheItems(feed);
+                if (!updated) {
+                    LOGGER.error("Adding new cached items for feed id " + feed.getId() + " (" + feed.getFeedUrl() + ") failed.");
+                }
+            }
+        }
+
+        return updated;
+    }
+
+    @Override
+    public boolean updateFeed(Feed feed) {
+        return updateFeed(feed, true);
+    }
+
+    /**
+     * Update feeds in database using JDBC batches: one batch for the feeds, one for their meta information, and two
+     * for deleting and inserting the cached items, which run in one transaction.
+     */
+    @Override
+    public int updateFeeds(List<Feed> feeds, Map<Integer, List<CachedItem>> cachedItems) {
+        int updated = 0;
+        List<List<Object>> feedArgs = new ArrayList<>();
+        List<List<Object>> metaInformationArgs = new ArrayList<>();
+        List<List<Object>> deleteCacheArgs = new ArrayList<>();
+        List<List<Object>> addCacheArgs = new ArrayList<>();
+        for (Feed feed : feeds) {
+            if (feed.getId() == -1) {
+                LOGGER.debug("feed does not exist and is added therefore");
+                updated += addFeed(feed) ? 1 : 0;
+                continue;
+            }
+            feedArgs.add(getUpdateParameters(feed));
+            metaInformationArgs.add(getMetaInformationParameters(feed));
+            List<CachedItem> feedCachedItems = cachedItems.get(feed.getId());
+            if (feedCachedItems != null) {
+                deleteCacheArgs.add(Collections.singletonList(feed.getId()));
+                for (CachedItem cachedItem : feedCachedItems) {
+                    addCacheArgs.add(Arrays.asList(feed.getId(), cachedItem.getHash(), cachedItem.getCorrectedPublishDate()));
+                }
+            }
+        }
+        if (feedArgs.isEmpty()) {
+            return updated;
+        }
+        if (runBatchUpdate(UPDATE_FEED, feedArgs).length != feedArgs.size()) {
+            LOGGER.error("Batch update of {} feeds failed.", feedArgs.size());
+            return updated;
+        }
+        if (runBatchUpdate(UPDATE_FEED_META_INFORMATION, metaInformationArgs).length != metaInformationArgs.size()) {
+            LOGGER.error("Batch update of meta information for {} feeds failed.", metaInformationArgs.size());
+            return updated;
+        }
+        if (!deleteCacheArgs.isEmpty() && !writeCachedItems(DELETE_CACHE_ITEMS_BY_ID, deleteCacheArgs, addCacheArgs)) {
+            LOGGER.error("Replacing {} cached items for {} feeds failed.", addCacheArgs.size(), deleteCacheArgs.size());
+            return updated;
+        }
+        return updated + feedArgs.size();
+    }
+
+    /**
+     * Remove and add the given cached items in one transaction using JDBC batches.
+     */
+    @Override
+    public boolean updateCachedItems(List<CachedItem> removedItems, List<CachedItem> addedItems) {
+        if (removedItems.isEmpty() && addedItems.isEmpty()) {
+            return true;
+        }
+        List<List<Object>> deleteCacheArgs = new ArrayList<>();
+        for (CachedItem cachedItem : removedItems) {
+            deleteCacheArgs.add(Arrays.asList(cachedItem.getId(), cachedItem.getHash()));
+        }
+        List<List<Object>> addCacheArgs = new ArrayList<>();
+        for (CachedItem cachedItem : addedItems) {
+            addCacheArgs.add(Arrays.asList(cachedItem.getId(), cachedItem.getHash(), cachedItem.getCorrectedPublishDate()));
+        }
+        if (!writeCachedItems(DELETE_CACHE_ITEM, deleteCacheArgs, addCacheArgs)) {
+            LOGGER.error("Removing {} and adding {} cached items failed.", removedItems.size(), addedItems.size());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Delete cached items and insert the new ones in one transaction, so that the old items are kept in case the
+     * insert fails.
+     *
+     * @param deleteSql The statement to delete the cached items, either by feed or by feed and hash.
+     * @return <code>true</code> in case the transaction was committed.
+     */
+    private boolean writeCachedItems(String deleteSql, List<List<Object>> deleteCacheArgs, List<List<Object>> addCacheArgs) {
+        Connection connection = null;
+        PreparedStatement deleteStatement = null;
+        PreparedStatement addStatement = null;
+        try {
+            connection = getConnection();
+            setAutoCommit(connection, false);
+            deleteStatement = connection.prepareStatement(deleteSql);
+            for (List<Object> args : deleteCacheArgs) {
+                fillPreparedStatement(deleteStatement, args);
+                deleteStatement.addBatch();
+            }
+            deleteStatement.executeBatch();
+            if (!addCacheArgs.isEmpty()) {
+                addStatement = connection.prepareStatement(ADD_CACHE_ITEMS);
+                for (List<Object> args : addCacheArgs) {
+                    fillPreparedStatement(addStatement, args);
+                    addStatement.addBatch();
+                }
+                addStatement.executeBatch();
+            }
+            connection.commit();
+            setAutoCommit(connection, true);
+            return true;
+        } catch (SQLException e) {
+            rollback(connection);
+            LOGGER.error("Writing cached items failed, rolled back: {}", e.getMessage());
+            return false;
+        } finally {
+            close(addStatement);
+            close(connection, deleteStatement);
+        }
+    }
 
+    private List<Object> getUpdateParameters(Feed feed) {
         List<Object> parameters = new ArrayList<>();
         parameters.add(truncateToVarchar255(feed.getFeedUrl(), "feedUrl", feed.getId() + ""));
         parameters.add(feed.getChecks());
@@ -250,34 +398,7 @@ public class FeedDatabase extends DatabaseManager implements FeedStore {
         parameters.add(feed.getNumberOfItemsReceived());
         parameters.add(feed.getId());
 
-        updated = runUpdate(UPDATE_FEED, parameters) != -1;
-
-        if (updated) {
-            updated = updateMetaInformation(feed);
-            if (!updated) {
-                LOGGER.error("Updating meta information for feed id " + feed.getId() + " (" + feed.getFeedUrl() + ") failed.");
-            }
-        }
-
-        if (updated && replaceCachedItems) {
-            updated = deleteCachedItemById(feed.getId());
-            if (!updated) {
-                LOGGER.error("Deleting cached items for feed id " + feed.getId() + " (" + feed.getFeedUrl() + ") failed.");
-            }
-            if (updated) {
-                updated = addCacheItems(feed);
-                if (!updated) {
-                    LOGGER.error("Adding new cached items for feed id " + feed.getId() + " (" + feed.getFeedUrl() + ") failed.");
-                }
-            }
-        }
-
-        return updated;
-    }
-
-    @Override
-    public boolean updateFeed(Feed feed) {
-        return updateFeed(feed, true);
+        return parameters;
     }
 
     // @Override
@@ -298,6 +419,10 @@ public class FeedDatabase extends DatabaseManager implements FeedStore {
 
     // @Override
     private boolean updateMetaInformation(Feed feed) {
+        return runUpdate(UPDATE_FEED_META_INFORMATION, getMetaInformationParameters(feed)) != -1;
+    }
+
+    private List<Object> getMetaInformationParameters(Feed feed) {
         List<Object> parameters = new ArrayList<>();
 
         // truncateToVarchar255(, "feedUrl", feed.getId()+"")
@@ -321,7 +446,7 @@ public class FeedDatabase extends DatabaseManager implements FeedStore {
         parameters.add(feed.getMetaInformation().hasPublished());
 
         parameters.add(feed.getId());
-        return runUpdate(UPDATE_FEED_META_INFORMATION, parameters) != -1;
+        return parameters;
     }
 
     /**
@@ -329,7 +454,26 @@ public class FeedDatabase extends DatabaseManager implements FeedStore {
      */
     @Override
     public boolean addFeedPoll(PollMetaInformation pollMetaInfo) {
+        return runInsertReturnId(ADD_FEED_POLL, getPollParameters(pollMetaInfo)) != -1;
+    }
 
+    /**
+     * Add the poll information in one JDBC batch.
+     */
+    @Override
+    public int addFeedPolls(List<PollMetaInformation> pollMetaInfos) {
+        if (pollMetaInfos.isEmpty()) {
+            return 0;
+        }
+        List<List<Object>> batchArgs = new ArrayList<>();
+        for (PollMetaInformation pollMetaInfo : pollMetaInfos) {
+            batchArgs.add(getPollParameters(pollMetaInfo));
+        }
+        int[] result = runBatchUpdate(ADD_FEED_POLL, batchArgs);
+        return result.length == batchArgs.size() ? result.length : 0;
+    }
+
+    private List<Object> getPollParameters(PollMetaInformation pollMetaInfo) {
         List<Object> parameters = new ArrayList<>();
         parameters.add(pollMetaInfo.getFeedID());
         parameters.add(pollMetaInfo.getPollSQLTimestamp());
@@ -342,8 +486,7 @@ public class FeedDatabase extends DatabaseManager implements FeedStore {
         parameters.add(pollMetaInfo.getWindowSize());
         parameters.add(pollMetaInfo.getHttpStatusCode());
         parameters.add(pollMetaInfo.getResponseSize());
-
-        return runInsertReturnId(ADD_FEED_POLL, parameters) != -1;
+        return parameters;
     }
 
     /**
@@ -374,7 +517,8 @@ public class FeedDatabase extends DatabaseManager implements FeedStore {
      * @param feedId The feed id.
      * @return All cached items (hash, publish date) or empty map if no item is cached. Never <code>null</code>.
      */
-    protected Map<String, Date> getCachedItemsById(int feedId) {
+    @Override
+    public Map<String, Date> getCachedItems(int feedId) {
         Map<String, Date> cachedItems = new HashMap<>();
 
         List<CachedItem> itemList = runQuery(FeedCacheItemRowConverter.INSTANCE, GET_CACHE_ITEMS_BY_ID, feedId);
@@ -4,7 +4,7 @@ import ws.palladian.retrieval.feeds.Feed;
 import ws.palladian.retrieval.feeds.FeedItem;
 import ws.palladian.retrieval.feeds.meta.PollMetaInformation;
 
-import java.util.List;
+import java.util.*;
 
 /**
  * <p>
@@ -48,6 +48,61 @@ public interface FeedStore {
      */
     boolean updateFeed(Feed feed, boolean replaceCachedItems);
 
+    /**
+     * <p>
+     * Update several feeds at once. The default implementation updates the feeds one by one using
+     * {@link #updateFeed(Feed, boolean)} (and thus their current cached items); stores which support batch updates
+     * should override this.
+     * </p>
+     *
+     * @param feeds       The feeds to update.
+     * @param cachedItems The cached items by feed id, for the feeds whose cached items are replaced; the cached items of
+     *                    feeds without entry are kept.
+     * @return The number of successfully updated feeds.
+     */
+    default int updateFeeds(List<Feed> feeds, Map<Integer, List<CachedItem>> cachedItems) {
+        int updated = 0;
+        for (Feed feed : feeds) {
+            if (updateFeed(feed, cachedItems.containsKey(feed.getId()))) {
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * <p>
+     * Remove and add cached items, instead of replacing all cached items of a feed like
+     * {@link #updateFeed(Feed, boolean)}, so that only the changes are written. The removals are applied before the
+     * additions. The default implementation applies the changes to the cached items of each feed from
+     * {@link #getCachedItems(int)} and replaces them using {@link #updateFeed(Feed, boolean)}; stores which can write
+     * the changes directly should override this.
+     * </p>
+     *
+     * @param removedItems The cached items to remove, only their feed id and hash are used.
+     * @param addedItems   The cached items to add.
+     * @return <code>true</code> if the cached items were updated successfully.
+     */
+    default boolean updateCachedItems(List<CachedItem> removedItems, List<CachedItem> addedItems) {
+        Set<Integer> feedIds = new LinkedHashSet<>();
+        removedItems.forEach(item -> feedIds.add(item.getId()));
+        addedItems.forEach(item -> feedIds.add(item.getId()));
+        boolean updated = true;
+        for (int feedId : feedIds) {
+            Feed feed = getFeedById(feedId);
+            if (feed == null) {
+                updated = false;
+                continue;
+            }
+            Map<String, Date> cachedItems = new HashMap<>(getCachedItems(feedId));
+            removedItems.stream().filter(item -> item.getId() == feedId).forEach(item -> cachedItems.remove(item.getHash()));
+            addedItems.stream().filter(item -> item.getId() == feedId).forEach(item -> cachedItems.put(item.getHash(), item.getCorrectedPublishDate()));
+            feed.setCachedItems(cachedItems);
+            updated &= updateFeed(feed, true);
+        }
+        return updated;
+    }
+
     //    /**
     //     * <p>
     //     * Remove a feed by its feedUrl
@@ -77,6 +132,33 @@ public interface FeedStore {
      */
     List<Feed> getFeeds();
 
+    /**
+     * <p>
+     * Get all feeds, optionally without loading their cached items, which is not necessary in case the cached items
+     * are kept in memory (see {@link ws.palladian.retrieval.feeds.SeenItemIndex}). The default implementation always
+     * returns the feeds from {@link #getFeeds()}.
+     * </p>
+     *
+     * @param withCachedItems <code>true</code> to load the cached items of the feeds.
+     * @return A list of all feeds from the store.
+     */
+    default List<Feed> getFeeds(boolean withCachedItems) {
+        return getFeeds();
+    }
+
+    /**
+     * <p>
+     * Get the cached items of a feed. The default implementation takes them from {@link #getFeedById(int)}.
+     * </p>
+     *
+     * @param feedId The feed id.
+     * @return The cached item hashes and their corrected publish dates, empty map if the feed does not exist.
+     */
+    default Map<String, Date> getCachedItems(int feedId) {
+        Feed feed = getFeedById(feedId);
+        return feed != null ? feed.getCachedItems() : Collections.emptyMap();
+    }
+
     /**
      * <p>
      * Get a feed by its feedUrl.
@@ -138,4 +220,20 @@ public interface FeedStore {
      */
     boolean addFeedPoll(PollMetaInformation pollMetaInfo);
 
+    /**
+     * Add information related to several polls. The default implementation adds them one by one.
+     *
+     * @param pollMetaInfos The poll meta information to insert.
+     * @return The number of inserted poll information.
+     */
+    default int addFeedPolls(List<PollMetaInformation> pollMetaInfos) {
+        int added = 0;
+        for (PollMetaInformation pollMetaInfo : pollMetaInfos) {
+            if (addFeedPoll(pollMetaInfo)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
 }
\ No newline at end of file
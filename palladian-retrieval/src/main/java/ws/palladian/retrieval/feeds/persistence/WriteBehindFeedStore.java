@@ -0,0 +1,479 @@
+package ws.palladian.retrieval.feeds.persistence;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ws.palladian.retrieval.feeds.Feed;
+import ws.palladian.retrieval.feeds.FeedItem;
+import ws.palladian.retrieval.feeds.meta.PollMetaInformation;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * A {@link FeedStore} decorator which writes feed updates and poll information behind: instead of updating the
+ * underlying store for every poll, the updates are queued, coalesced per feed (only the latest state of a feed is
+ * written), and flushed in batches via {@link FeedStore#updateFeeds(List, Map)} and
+ * {@link FeedStore#addFeedPolls(List)}, which the {@link FeedDatabase} runs as JDBC batches. A flush happens when the
+ * number of queued updates reaches the batch size, or after the flush interval at the latest.
+ * </p>
+ *
+ * <p>
+ * A snapshot of the feed (see {@link Feed#snapshot()}) and its cached items is queued, as the feed is modified by the
+ * next poll while the update waits. Methods which read from the store flush before, so that they see all updates;
+ * adding feeds and items is passed through directly, as the generated IDs are needed. Changes of cached items (see
+ * {@link #updateCachedItems(List, List)}) are merged per feed, or into the queued cached items in case they are
+ * replaced anyway.
+ * {@link #updateFeed(Feed, boolean)} returns <code>true</code> after queueing. In case a batch fails, its feeds or
+ * polls are written one by one, so that one bad row does not discard the whole batch; the updates which still fail
+ * are logged and counted (see {@link #getNumFailedUpdates()}).
+ * </p>
+ *
+ * <p>
+ * {@link #close()} flushes the remaining updates; in case the store is not closed, the remaining updates are flushed
+ * by a shutdown hook.
+ * </p>
+ */
+public class WriteBehindFeedStore implements FeedStore, Closeable {
+
+    /** The logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindFeedStore.class);
+
+    /** The default number of queued updates which triggers a flush. */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    /** The default maximum time in milliseconds which updates stay in the queue. */
+    public static final long DEFAULT_FLUSH_INTERVAL = TimeUnit.SECONDS.toMillis(5);
+
+    /** When the queue grows to this multiple of the batch size, callers flush themselves, to slow them down. */
+    private static final int MAX_QUEUE_FACTOR = 4;
+
+    private final FeedStore store;
+
+    private final int batchSize;
+
+    /** The snapshots of the queued feeds by id, the latest update of a feed replaces the previous. */
+    private final Map<Integer, Feed> pendingFeeds = new LinkedHashMap<>();
+
+    /** Copies of the cached items for the queued feeds whose cached items are to be replaced. */
+    private final Map<Integer, List<CachedItem>> pendingCachedItems = new HashMap<>();
+
+    /** The cached items to remove by feed id and hash, for the feeds whose cached items are not replaced. */
+    private final Map<Integer, Map<String, CachedItem>> pendingRemovedItems = new HashMap<>();
+
+    /** The cached items to add by feed id and hash, for the feeds whose cached items are not replaced. */
+    private final Map<Integer, Map<String, CachedItem>> pendingAddedItems = new HashMap<>();
+
+    private final List<PollMetaInformation> pendingPolls = new ArrayList<>();
+
+    /** Guards the pending updates. */
+    private final Object queueLock = new Object();
+
+    /** Makes flushes sequential, so that updates of a feed are written in order. */
+    private final Object flushLock = new Object();
+
+    private final ScheduledExecutorService executor;
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private final Thread shutdownHook;
+
+    private volatile boolean closed;
+
+    private final AtomicLong numFlushes = new AtomicLong();
+    private final AtomicLong numFlushedUpdates = new AtomicLong();
+    private final AtomicLong numFailedUpdates = new AtomicLong();
+    private final AtomicLong totalFlushTime = new AtomicLong();
+    private final AtomicLong maxFlushTime = new AtomicLong();
+
+    /**
+     * Create a new write-behind store with {@link #DEFAULT_BATCH_SIZE} and {@link #DEFAULT_FLUSH_INTERVAL}.
+     *
+     * @param store The store to write to, not <code>null</code>.
+     */
+    public WriteBehindFeedStore(FeedStore store) {
+        this(store, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * Create a new write-behind store.
+     *
+     * @param store         The store to write to, not <code>null</code>.
+     * @param batchSize     The number of queued updates which triggers a flush, greater zero.
+     * @param flushInterval The maximum time in milliseconds which updates stay in the queue, greater zero.
+     */
+    public WriteBehindFeedStore(FeedStore store, int batchSize, long flushInterval) {
+        Validate.notNull(store, "store must not be null");
+        Validate.isTrue(batchSize > 0, "batchSize must be greater zero");
+        Validate.isTrue(flushInterval > 0, "flushInterval must be greater zero");
+        this.store = store;
+        this.batchSize = batchSize;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "WriteBehindFeedStore");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flushQuietly, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        this.shutdownHook = new Thread(this::flush, "WriteBehindFeedStore-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    @Override
+    public boolean addFeed(Feed feed) {
+        return store.addFeed(feed);
+    }
+
+    @Override
+    public boolean updateFeed(Feed feed) {
+        return updateFeed(feed, true);
+    }
+
+    @Override
+    public boolean updateFeed(Feed feed, boolean replaceCachedItems) {
+        if (feed.getId() == -1 || closed) {
+            // new feeds are added directly, as they need an ID
+            return store.updateFeed(feed, replaceCachedItems);
+        }
+        Feed snapshot = feed.snapshot();
+        List<CachedItem> cachedItems = null;
+        if (replaceCachedItems) {
+            cachedItems = new ArrayList<>();
+            for (Map.Entry<String, Date> entry : feed.getCachedItems().entrySet()) {
+                cachedItems.add(new CachedItem(feed.getId(), entry.getKey(), entry.getValue()));
+            }
+        }
+        int queueSize;
+        synchronized (queueLock) {
+            pendingFeeds.remove(feed.getId());
+            pendingFeeds.put(feed.getId(), snapshot);
+            if (cachedItems != null) {
+                pendingCachedItems.put(feed.getId(), cachedItems);
+                pendingRemovedItems.remove(feed.getId());
+                pendingAddedItems.remove(feed.getId());
+            }
+            queueSize = getQueueSizeUnsynchronized();
+        }
+        afterQueued(queueSize);
+        return true;
+    }
+
+    @Override
+    public boolean updateCachedItems(List<CachedItem> removedItems, List<CachedItem> addedItems) {
+        if (closed) {
+            return store.updateCachedItems(removedItems, addedItems);
+        }
+        synchronized (queueLock) {
+            for (CachedItem item : removedItems) {
+                List<CachedItem> cachedItems = pendingCachedItems.get(item.getId());
+                if (cachedItems != null) {
+                    cachedItems.removeIf(cachedItem -> cachedItem.getHash().equals(item.getHash()));
+                } else {
+                    // an item which was added and removed again is deleted in case it existed before
+                    Map<String, CachedItem> addedFeedItems = pendingAddedItems.get(item.getId());
+                    if (addedFeedItems != null) {
+                        addedFeedItems.remove(item.getHash());
+                    }
+                    pendingRemovedItems.computeIfAbsent(item.getId(), id -> new LinkedHashMap<>()).put(item.getHash(), item);
+                }
+            }
+            for (CachedItem item : addedItems) {
+                List<CachedItem> cachedItems = pendingCachedItems.get(item.getId());
+                if (cachedItems != null) {
+                    cachedItems.removeIf(cachedItem -> cachedItem.getHash().equals(item.getHash()));
+                    cachedItems.add(item);
+                } else {
+                    // removals are written first, so an item which was removed and added again is kept
+                    pendingAddedItems.computeIfAbsent(item.getId(), id -> new LinkedHashMap<>()).put(item.getHash(), item);
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public List<Feed> getFeeds() {
+        flush();
+        return store.getFeeds();
+    }
+
+    @Override
+    public List<Feed> getFeeds(boolean withCachedItems) {
+        flush();
+        return store.getFeeds(withCachedItems);
+    }
+
+    @Override
+    public Map<String, Date> getCachedItems(int feedId) {
+        flush();
+        return store.getCachedItems(feedId);
+    }
+
+    @Override
+    public Feed getFeedByUrl(String feedUrl) {
+        flush();
+        return store.getFeedByUrl(feedUrl);
+    }
+
+    @Override
+    public int addFeedItems(List<FeedItem> items) {
+        return store.addFeedItems(items);
+    }
+
+    @Override
+    public Feed getFeedById(int feedID) {
+        flush();
+        return store.getFeedById(feedID);
+    }
+
+    @Override
+    public boolean addFeedPoll(PollMetaInformation pollMetaInfo) {
+        if (closed) {
+            return store.addFeedPoll(pollMetaInfo);
+        }
+        int queueSize;
+        synchronized (queueLock) {
+            pendingPolls.add(pollMetaInfo);
+            queueSize = getQueueSizeUnsynchronized();
+        }
+        afterQueued(queueSize);
+        return true;
+    }
+
+    private int getQueueSizeUnsynchronized() {
+        return pendingFeeds.size() + pendingPolls.size();
+    }
+
+    private void afterQueued(int queueSize) {
+        if (queueSize >= MAX_QUEUE_FACTOR * batchSize) {
+            // the store does not keep up, write in the caller's thread
+            flush();
+        } else if (queueSize >= batchSize && flushScheduled.compareAndSet(false, true)) {
+            executor.execute(this::flushQuietly);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            LOGGER.error("Error while flushing feed updates", e);
+        }
+    }
+
+    /**
+     * Write all queued updates to the underlying store.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            flushScheduled.set(false);
+            List<Feed> feeds;
+            Map<Integer, List<CachedItem>> cachedItems;
+            List<PollMetaInformation> polls;
+            Map<Integer, Map<String, CachedItem>> removedItems;
+            Map<Integer, Map<String, CachedItem>> addedItems;
+            synchronized (queueLock) {
+                if (pendingFeeds.isEmpty() && pendingPolls.isEmpty() && pendingRemovedItems.isEmpty() && pendingAddedItems.isEmpty()) {
+                    return;
+                }
+                feeds = new ArrayList<>(pendingFeeds.values());
+                cachedItems = new HashMap<>(pendingCachedItems);
+                polls = new ArrayList<>(pendingPolls);
+                removedItems = new HashMap<>(pendingRemovedItems);
+                addedItems = new HashMap<>(pendingAddedItems);
+                pendingFeeds.clear();
+                pendingCachedItems.clear();
+                pendingPolls.clear();
+                pendingRemovedItems.clear();
+                pendingAddedItems.clear();
+            }
+            long start = System.currentTimeMillis();
+            int failed = 0;
+            for (int i = 0; i < feeds.size(); i += batchSize) {
+                failed += writeFeeds(feeds.subList(i, Math.min(i + batchSize, feeds.size())), cachedItems);
+            }
+            failed += writeCachedItems(removedItems, addedItems);
+            for (int i = 0; i < polls.size(); i += batchSize) {
+                failed += writePolls(polls.subList(i, Math.min(i + batchSize, polls.size())));
+            }
+            long flushTime = System.currentTimeMillis() - start;
+            numFlushes.incrementAndGet();
+            numFlushedUpdates.addAndGet(feeds.size() + polls.size());
+            numFailedUpdates.addAndGet(failed);
+            totalFlushTime.addAndGet(flushTime);
+            maxFlushTime.accumulateAndGet(flushTime, Math::max);
+            if (failed > 0) {
+                LOGGER.error("{} of {} feed updates and polls could not be written", failed, feeds.size() + polls.size());
+            }
+            LOGGER.debug("Flushed {} feed updates and {} polls in {} ms", feeds.size(), polls.size(), flushTime);
+        }
+    }
+
+    /**
+     * Write a batch of feed updates; in case the batch fails, update the feeds one by one.
+     *
+     * @return The number of feeds which could not be updated.
+     */
+    private int writeFeeds(List<Feed> batch, Map<Integer, List<CachedItem>> cachedItems) {
+        try {
+            if (store.updateFeeds(batch, cachedItems) == batch.size()) {
+                return 0;
+            }
+            LOGGER.warn("Batch update of {} feeds failed, updating them one by one", batch.size());
+        } catch (RuntimeException e) {
+            LOGGER.warn("Batch update of {} feeds failed, updating them one by one", batch.size(), e);
+        }
+        int failed = 0;
+        for (Feed feed : batch) {
+            try {
+                if (store.updateFeeds(Collections.singletonList(feed), cachedItems) != 1) {
+                    failed++;
+                }
+            } catch (RuntimeException e) {
+                LOGGER.error("Updating feed id {} failed", feed.getId(), e);
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Write the changes of cached items; in case this fails, write the changes feed by feed.
+     *
+     * @return The number of feeds whose cached items could not be updated.
+     */
+    private int writeCachedItems(Map<Integer, Map<String, CachedItem>> removedItems, Map<Integer, Map<String, CachedItem>> addedItems) {
+        Set<Integer> feedIds = new LinkedHashSet<>(removedItems.keySet());
+        feedIds.addAll(addedItems.keySet());
+        if (feedIds.isEmpty()) {
+            return 0;
+        }
+        try {
+            if (store.updateCachedItems(values(removedItems.values()), values(addedItems.values()))) {
+                return 0;
+            }
+            LOGGER.warn("Updating cached items of {} feeds failed, updating them one by one", feedIds.size());
+        } catch (RuntimeException e) {
+            LOGGER.warn("Updating cached items of {} feeds failed, updating them one by one", feedIds.size(), e);
+        }
+        int failed = 0;
+        for (Integer feedId : feedIds) {
+            List<CachedItem> removed = new ArrayList<>(removedItems.getOrDefault(feedId, Collections.emptyMap()).values());
+            List<CachedItem> added = new ArrayList<>(addedItems.getOrDefault(feedId, Collections.emptyMap()).values());
+            try {
+                if (!store.updateCachedItems(removed, added)) {
+                    failed++;
+                }
+            } catch (RuntimeException e) {
+                LOGGER.error("Updating cached items of feed id {} failed", feedId, e);
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    private static List<CachedItem> values(Collection<Map<String, CachedItem>> itemsByHash) {
+        List<CachedItem> items = new ArrayList<>();
+        for (Map<String, CachedItem> feedItems : itemsByHash) {
+            items.addAll(feedItems.values());
+        }
+        return items;
+    }
+
+    /**
+     * Write a batch of polls; in case the batch fails, add the polls one by one.
+     *
+     * @return The number of polls which could not be added.
+     */
+    private int writePolls(List<PollMetaInformation> batch) {
+        try {
+            if (store.addFeedPolls(batch) == batch.size()) {
+                return 0;
+            }
+            LOGGER.warn("Batch insert of {} polls failed, adding them one by one", batch.size());
+        } catch (RuntimeException e) {
+            LOGGER.warn("Batch insert of {} polls failed, adding them one by one", batch.size(), e);
+        }
+        int failed = 0;
+        for (PollMetaInformation poll : batch) {
+            try {
+                if (!store.addFeedPoll(poll)) {
+                    failed++;
+                }
+            } catch (RuntimeException e) {
+                LOGGER.error("Adding poll of feed id {} failed", poll.getFeedID(), e);
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Flush the remaining updates and stop the background flushing; subsequent updates are written directly.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // shutdown is in progress already
+        }
+    }
+
+    /** @return The number of queued feed updates and polls. */
+    public int getQueueDepth() {
+        synchronized (queueLock) {
+            return getQueueSizeUnsynchronized();
+        }
+    }
+
+    /** @return The number of flushes which wrote updates. */
+    public long getNumFlushes() {
+        return numFlushes.get();
+    }
+
+    /** @return The number of written feed updates and polls; coalesced updates of a feed are counted once. */
+    public long getNumFlushedUpdates() {
+        return numFlushedUpdates.get();
+    }
+
+    /** @return The number of feed updates and polls which could not be written. */
+    public long getNumFailedUpdates() {
+        return numFailedUpdates.get();
+    }
+
+    /** @return The average time of a flush in milliseconds. */
+    public double getAverageFlushLatency() {
+        long flushes = numFlushes.get();
+        return flushes > 0 ? (double) totalFlushTime.get() / flushes : 0;
+    }
+
+    /** @return The maximum time of a flush in milliseconds. */
+    public long getMaxFlushLatency() {
+        return maxFlushTime.get();
+    }
+
+    @Override
+    public String toString() {
+        return "WriteBehindFeedStore [store=" + store + ", queueDepth=" + getQueueDepth() + ", flushes=" + getNumFlushes()
+                + ", flushedUpdates=" + getNumFlushedUpdates() + ", failedUpdates=" + getNumFailedUpdates()
+                + ", averageFlushLatency=" + getAverageFlushLatency() + "]";
+    }
+
+}
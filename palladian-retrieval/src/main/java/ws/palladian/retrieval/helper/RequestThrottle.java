@@ -18,4 +18,16 @@ public interface RequestThrottle {
      */
     void hold();
 
+    /**
+     * <p>
+     * Like {@link #hold()}, for throttles which limit the requests per key, e.g. per host or API key, such as the
+     * {@link TokenBucketRequestThrottle}. By default, the key is ignored.
+     * </p>
+     *
+     * @param key The key, e.g. the host name.
+     */
+    default void hold(String key) {
+        hold();
+    }
+
 }
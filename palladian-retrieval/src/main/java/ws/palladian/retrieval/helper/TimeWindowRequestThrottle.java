@@ -26,7 +26,7 @@ public class TimeWindowRequestThrottle implements RequestThrottle {
 
     private final Queue<Long> requestTimestamps;
 
-    private long totalThrottledTime;
+    private volatile long totalThrottledTime;
 
     /**
      * <p>
@@ -49,12 +49,22 @@ public class TimeWindowRequestThrottle implements RequestThrottle {
     }
 
     @Override
-    public synchronized void hold() {
-        // if maximum request counts would be exceeded, we need to wait
-        if (getNumRequestsInWindow() >= maximumRequests) {
-            Long oldestTimestamp = requestTimestamps.poll();
-            long timeToWait = Math.max(0, oldestTimestamp - (System.currentTimeMillis() - timeWindow));
+    public void hold() {
+        long timeToWait;
+        synchronized (this) {
+            // if maximum request counts would be exceeded, we need to wait; the slot is reserved before waiting, so
+            // that other threads do not wait for the lock while this one sleeps
+            long now = System.currentTimeMillis();
+            long requestTime = now;
+            if (getNumRequestsInWindow() >= maximumRequests) {
+                Long oldestTimestamp = requestTimestamps.poll();
+                requestTime = Math.max(now, oldestTimestamp + timeWindow);
+            }
+            timeToWait = requestTime - now;
             totalThrottledTime += timeToWait;
+            requestTimestamps.add(requestTime);
+        }
+        if (timeToWait > 0) {
             if (timeToWait > 5000) { // show info, when we have to wait long
                 LOGGER.info("Waiting for {}", DateHelper.getTimeString(timeToWait));
             } else {
@@ -66,7 +76,6 @@ public class TimeWindowRequestThrottle implements RequestThrottle {
                 Thread.currentThread().interrupt();
             }
         }
-        requestTimestamps.add(System.currentTimeMillis());
     }
 
     /**
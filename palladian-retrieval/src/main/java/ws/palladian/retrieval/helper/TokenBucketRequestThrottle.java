@@ -0,0 +1,301 @@
+package ws.palladian.retrieval.helper;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ws.palladian.helper.date.DateHelper;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * <p>
+ * Request throttle with token bucket semantics and a separate bucket per key (e.g. host name or API key), so that one
+ * instance can be shared by several crawlers, retrievers and searchers. Each bucket holds up to <code>burst</code>
+ * tokens and is refilled with <code>permits</code> tokens per period; every request takes one token.
+ * </p>
+ *
+ * <p>
+ * In contrast to the {@link TimeWindowRequestThrottle}, waiting threads do not hold a lock: a request reserves the next
+ * free slot of its bucket, which takes a short critical section on the bucket only, and then sleeps (or, with
+ * {@link #acquireAsync(String)}, gets a future which completes at the slot). As slots are handed out in the order of
+ * the reservations, requests for a key are served first come, first served, and requests for other keys are not delayed
+ * at all. {@link #tryAcquire(String)} takes a token only in case one is available immediately.
+ * </p>
+ *
+ * <p>
+ * Buckets which were idle for longer than the refill time (that is, which are full again) are evicted at most once per
+ * refill time, so that the number of buckets does not grow with every key ever seen. As a new bucket is full, this does
+ * not change the throttling; only the per key statistics of evicted keys are reset.
+ * </p>
+ */
+public class TokenBucketRequestThrottle implements RequestThrottle {
+
+    /** The logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(TokenBucketRequestThrottle.class);
+
+    /** The key which is used by {@link #hold()}. */
+    public static final String DEFAULT_KEY = "";
+
+    /** Completes the futures of {@link #acquireAsync(String)}. */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "TokenBucketRequestThrottle");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Returned by {@link Bucket#reserve(boolean)} in case the bucket was evicted. */
+    private static final long EVICTED = Long.MIN_VALUE;
+
+    private final class Bucket {
+        /** The time in nanoseconds at which the next token is available; new buckets are full. */
+        long nextFreeTime = clock.getAsLong() - (burst - 1) * nanosPerToken;
+
+        /** Set when the bucket is removed from the map, so that late reservations go to the new bucket. */
+        boolean evicted;
+
+        final LongAdder numRequests = new LongAdder();
+
+        final LongAdder throttledNanos = new LongAdder();
+
+        /**
+         * Reserve a token.
+         *
+         * @param onlyIfAvailable Reserve only, in case the token is available now.
+         * @return The time in nanoseconds to wait for the token, -1 in case no token is available now and
+         * onlyIfAvailable was set, or {@link #EVICTED}.
+         */
+        long reserve(boolean onlyIfAvailable) {
+            long now = clock.getAsLong();
+            synchronized (this) {
+                if (evicted) {
+                    return EVICTED;
+                }
+                // the bucket does not fill up beyond the burst size
+                long earliest = now - (burst - 1) * nanosPerToken;
+                if (nextFreeTime - earliest < 0) {
+                    nextFreeTime = earliest;
+                }
+                long waitTime = Math.max(0, nextFreeTime - now);
+                if (waitTime > 0 && onlyIfAvailable) {
+                    return -1;
+                }
+                nextFreeTime += nanosPerToken;
+                numRequests.increment();
+                throttledNanos.add(waitTime);
+                return waitTime;
+            }
+        }
+
+        /**
+         * Mark the bucket as evicted, in case it is full, i.e. it was idle for the refill time.
+         *
+         * @return <code>true</code> in case the bucket was marked.
+         */
+        synchronized boolean evictIfIdle(long now) {
+            if (nextFreeTime - (now - (burst - 1) * nanosPerToken) > 0) {
+                return false;
+            }
+            evicted = true;
+            return true;
+        }
+    }
+
+    private final int burst;
+
+    private final long nanosPerToken;
+
+    /** The time source in nanoseconds. */
+    private final LongSupplier clock;
+
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    /** The time in nanoseconds of the last check for idle buckets. */
+    private final AtomicLong lastEvictionTime;
+
+    /** The throttled time in nanoseconds of the evicted buckets, which is kept for the total. */
+    private final LongAdder evictedThrottledNanos = new LongAdder();
+
+    /**
+     * Create a new {@link TokenBucketRequestThrottle} which allows bursts of the number of permits.
+     *
+     * @param permits The number of requests per period and key, greater zero.
+     * @param period  The period, greater zero.
+     * @param unit    The time unit of the period, not <code>null</code>.
+     */
+    public TokenBucketRequestThrottle(int permits, long period, TimeUnit unit) {
+        this(permits, period, unit, permits);
+    }
+
+    /**
+     * Create a new {@link TokenBucketRequestThrottle}.
+     *
+     * @param permits The number of requests per period and key, greater zero.
+     * @param period  The period, greater zero.
+     * @param unit    The time unit of the period, not <code>null</code>.
+     * @param burst   The maximum number of requests which can be made at once after a pause, greater zero.
+     */
+    public TokenBucketRequestThrottle(int permits, long period, TimeUnit unit, int burst) {
+        this(permits, period, unit, burst, System::nanoTime);
+    }
+
+    /** Constructor with a custom time source in nanoseconds, for testing. */
+    TokenBucketRequestThrottle(int permits, long period, TimeUnit unit, int burst, LongSupplier clock) {
+        Validate.isTrue(permits > 0, "permits must be greater zero");
+        Validate.isTrue(period > 0, "period must be greater zero");
+        Validate.notNull(unit, "unit must not be null");
+        Validate.isTrue(burst > 0, "burst must be greater zero");
+        Validate.notNull(clock, "clock must not be null");
+        this.nanosPerToken = Math.max(1, unit.toNanos(period) / permits);
+        this.burst = burst;
+        this.clock = clock;
+        this.lastEvictionTime = new AtomicLong(clock.getAsLong());
+    }
+
+    /**
+     * Reserve a token in the key's bucket; in case the bucket is evicted concurrently, in the new one.
+     *
+     * @return The time in nanoseconds to wait for the token, or -1 (see {@link Bucket#reserve(boolean)}).
+     */
+    private long reserve(String key, boolean onlyIfAvailable) {
+        evictIdleBuckets();
+        String bucketKey = key != null ? key : DEFAULT_KEY;
+        for (; ; ) {
+            long waitTime = buckets.computeIfAbsent(bucketKey, k -> new Bucket()).reserve(onlyIfAvailable);
+            if (waitTime != EVICTED) {
+                return waitTime;
+            }
+        }
+    }
+
+    /**
+     * Remove the buckets which were idle for longer than the refill time; this is done at most once per refill time.
+     */
+    private void evictIdleBuckets() {
+        long now = clock.getAsLong();
+        long lastEviction = lastEvictionTime.get();
+        if (now - lastEviction < burst * nanosPerToken || !lastEvictionTime.compareAndSet(lastEviction, now)) {
+            return;
+        }
+        int numEvicted = 0;
+        for (Map.Entry<String, Bucket> entry : buckets.entrySet()) {
+            Bucket bucket = entry.getValue();
+            if (bucket.evictIfIdle(now)) {
+                buckets.remove(entry.getKey(), bucket);
+                evictedThrottledNanos.add(bucket.throttledNanos.sum());
+                numEvicted++;
+            }
+        }
+        LOGGER.debug("Evicted {} idle buckets, {} remaining", numEvicted, buckets.size());
+    }
+
+    @Override
+    public void hold() {
+        hold(DEFAULT_KEY);
+    }
+
+    @Override
+    public void hold(String key) {
+        long waitTime = reserve(key);
+        if (waitTime > 0) {
+            long waitMillis = TimeUnit.NANOSECONDS.toMillis(waitTime);
+            if (waitMillis > 5000) { // show info, when we have to wait long
+                LOGGER.info("Waiting for {} ({})", DateHelper.getTimeString(waitMillis), key);
+            } else {
+                LOGGER.debug("Waiting for {} ({})", DateHelper.getTimeString(waitMillis), key);
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitTime);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Take a token for the key, in case one is available immediately. Never blocks.
+     *
+     * @param key The key, e.g. the host name.
+     * @return <code>true</code> in case the request can be performed now, <code>false</code> otherwise.
+     */
+    public boolean tryAcquire(String key) {
+        return reserve(key, true) == 0;
+    }
+
+    /**
+     * Reserve a token for the key without blocking.
+     *
+     * @param key The key, e.g. the host name.
+     * @return A future which completes, when the request can be performed.
+     */
+    public CompletableFuture<Void> acquireAsync(String key) {
+        long waitTime = reserve(key);
+        if (waitTime == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        SCHEDULER.schedule(() -> future.complete(null), waitTime, TimeUnit.NANOSECONDS);
+        return future;
+    }
+
+    /**
+     * Reserve a token for the key.
+     *
+     * @param key The key.
+     * @return The time in nanoseconds until the token is available.
+     */
+    long reserve(String key) {
+        return reserve(key, false);
+    }
+
+    /** @return The keys for which requests were made, and whose buckets were not evicted. */
+    public Set<String> getKeys() {
+        return Collections.unmodifiableSet(buckets.keySet());
+    }
+
+    /**
+     * @param key The key.
+     * @return The number of requests which were made for the key since its bucket was created.
+     */
+    public long getNumRequests(String key) {
+        Bucket bucket = buckets.get(key);
+        return bucket != null ? bucket.numRequests.sum() : 0;
+    }
+
+    /**
+     * @param key The key.
+     * @return The total time in milliseconds, which requests for the key were throttled since its bucket was created.
+     */
+    public long getThrottledTime(String key) {
+        Bucket bucket = buckets.get(key);
+        return bucket != null ? TimeUnit.NANOSECONDS.toMillis(bucket.throttledNanos.sum()) : 0;
+    }
+
+    /** @return The total time in milliseconds, which requests for all keys were throttled. */
+    public long getTotalThrottledTime() {
+        long throttledNanos = evictedThrottledNanos.sum();
+        for (Bucket bucket : buckets.values()) {
+            throttledNanos += bucket.throttledNanos.sum();
+        }
+        return TimeUnit.NANOSECONDS.toMillis(throttledNanos);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("TokenBucketRequestThrottle [millisPerToken=");
+        builder.append(TimeUnit.NANOSECONDS.toMillis(nanosPerToken));
+        builder.append(", burst=");
+        builder.append(burst);
+        builder.append(", keys=");
+        builder.append(buckets.size());
+        builder.append("]");
+        return builder.toString();
+    }
+
+}
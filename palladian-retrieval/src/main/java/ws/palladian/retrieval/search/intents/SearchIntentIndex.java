@@ -0,0 +1,376 @@
+package ws.palladian.retrieval.search.intents;
+
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ws.palladian.helper.nlp.AhoCorasickAutomaton;
+import ws.palladian.helper.nlp.StringHelper;
+import ws.palladian.persistence.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * <p>
+ * Index over the triggers of a list of {@link SearchIntent}s, so that the {@link SearchIntentParser} does not need to
+ * test every trigger against every query. For each {@link QueryMatchType}, the index gives the triggers which can
+ * possibly match a query, and only those are verified:
+ * <ul>
+ * <li>{@link QueryMatchType#MATCH}: a hash map from trigger text to triggers,</li>
+ * <li>{@link QueryMatchType#PHRASE_MATCH}: a hash map from the first token of the trigger text to triggers, which is
+ * looked up with the tokens of the query,</li>
+ * <li>{@link QueryMatchType#CONTAINS}: an {@link AhoCorasickAutomaton} over the trigger texts,</li>
+ * <li>{@link QueryMatchType#REGEX}: an {@link AhoCorasickAutomaton} over a literal which every match of the expression
+ * must start with; expressions without such a literal are always verified.</li>
+ * </ul>
+ * Intents with equal contexts share a partition, so that the {@link SearchIntentContextMatcher} is invoked once per
+ * distinct context and query, instead of once per intent.
+ * </p>
+ *
+ * <p>
+ * Triggers are identified by the position of the intent in the list (upper 32 bits) and the position of the trigger
+ * within the intent (lower 32 bits), so sorting the candidates gives the order in which the parser used to check them.
+ * The index is immutable and can be used by several threads.
+ * </p>
+ */
+final class SearchIntentIndex {
+
+    /** The logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SearchIntentIndex.class);
+
+    private static final long[] EMPTY = new long[0];
+
+    /** A trigger which matched a query. */
+    static final class Match {
+        final SearchIntent intent;
+        final SearchIntentTrigger trigger;
+        /** The matcher, for {@link QueryMatchType#REGEX} only. */
+        final Matcher matcher;
+
+        Match(SearchIntent intent, SearchIntentTrigger trigger, Matcher matcher) {
+            this.intent = intent;
+            this.trigger = trigger;
+            this.matcher = matcher;
+        }
+    }
+
+    /**
+     * Caches the results of the {@link SearchIntentContextMatcher} for the partitions, valid for one parsed query.
+     */
+    final class ContextFilter {
+        private final SearchIntentContextMatcher contextMatcher;
+        /** 0 = unknown, 1 = accepted, 2 = rejected. */
+        private final byte[] states;
+
+        ContextFilter(SearchIntentContextMatcher contextMatcher) {
+            this.contextMatcher = contextMatcher;
+            this.states = contextMatcher != null ? new byte[numPartitions] : null;
+        }
+
+        boolean accept(int intentIndex) {
+            if (contextMatcher == null) {
+                return true;
+            }
+            int partition = partitions[intentIndex];
+            if (states[partition] == 0) {
+                states[partition] = contextMatcher.match(intents.get(intentIndex).getContext()) ? (byte) 1 : 2;
+            }
+            return states[partition] == 1;
+        }
+    }
+
+    private final List<SearchIntent> intents;
+
+    /** The context partition of each intent. */
+    private final int[] partitions;
+
+    private final int numPartitions;
+
+    private final Map<String, long[]> exactTriggers;
+
+    private final Map<String, long[]> phraseTriggers;
+
+    /** Phrase triggers which do not start with a letter or digit. */
+    private final long[] unindexedPhraseTriggers;
+
+    private final AhoCorasickAutomaton containsAutomaton;
+
+    private final long[][] containsTriggers;
+
+    /** Contains triggers with an empty text, which match every query. */
+    private final long[] emptyContainsTriggers;
+
+    private final Long2ObjectOpenHashMap<Pattern> regexPatterns = new Long2ObjectOpenHashMap<>();
+
+    private final AhoCorasickAutomaton regexLiteralAutomaton;
+
+    private final long[][] regexTriggers;
+
+    /** Regex triggers without a literal, which are verified for every query. */
+    private final long[] unfilteredRegexTriggers;
+
+    SearchIntentIndex(List<SearchIntent> intents) {
+        this.intents = new ArrayList<>(intents);
+        this.partitions = new int[intents.size()];
+
+        Object2IntOpenHashMap<JsonObject> partitionIds = new Object2IntOpenHashMap<>();
+        Map<String, LongArrayList> exact = new HashMap<>();
+        Map<String, LongArrayList> phrase = new HashMap<>();
+        LongArrayList unindexedPhrase = new LongArrayList();
+        AhoCorasickAutomaton.Builder containsBuilder = new AhoCorasickAutomaton.Builder(false);
+        List<LongArrayList> contains = new ArrayList<>();
+        LongArrayList emptyContains = new LongArrayList();
+        AhoCorasickAutomaton.Builder regexBuilder = new AhoCorasickAutomaton.Builder(true);
+        List<LongArrayList> regex = new ArrayList<>();
+        LongArrayList unfilteredRegex = new LongArrayList();
+
+        for (int i = 0; i < intents.size(); i++) {
+            SearchIntent intent = intents.get(i);
+            partitions[i] = partitionIds.computeIntIfAbsent(intent.getContext(), c -> partitionIds.size());
+            List<SearchIntentTrigger> triggers = intent.getIntentTriggers();
+            for (int j = 0; j < triggers.size(); j++) {
+                SearchIntentTrigger trigger = triggers.get(j);
+                String text = trigger.getText();
+                long position = (long) i << 32 | j;
+                if (trigger.getMatchType() == null) {
+                    continue;
+                }
+                switch (trigger.getMatchType()) {
+                    case MATCH:
+                        exact.computeIfAbsent(text, k -> new LongArrayList()).add(position);
+                        break;
+                    case PHRASE_MATCH:
+                        if (text.isEmpty()) {
+                            break; // never matches
+                        }
+                        String firstToken = getFirstToken(text);
+                        if (firstToken.isEmpty()) {
+                            unindexedPhrase.add(position);
+                        } else {
+                            phrase.computeIfAbsent(firstToken, k -> new LongArrayList()).add(position);
+                        }
+                        break;
+                    case CONTAINS:
+                        if (text.isEmpty()) {
+                            emptyContains.add(position);
+                        } else {
+                            addToList(contains, containsBuilder.add(text), position);
+                        }
+                        break;
+                    case REGEX:
+                        // for URL replacements we want to replace the entire query, not just the matching part
+                        String expression = intent.getIntentAction() != null && intent.getIntentAction().getRedirect() != null ? ".*" + text + ".*" : text;
+                        try {
+                            regexPatterns.put(position, Pattern.compile(expression, Pattern.CASE_INSENSITIVE));
+                        } catch (PatternSyntaxException e) {
+                            LOGGER.warn("Invalid regular expression \"{}\" in intent {}: {}", text, intent.getId(), e.getMessage());
+                            break;
+                        }
+                        String literal = getRequiredLiteral(text);
+                        if (literal.isEmpty()) {
+                            unfilteredRegex.add(position);
+                        } else {
+                            addToList(regex, regexBuilder.add(literal), position);
+                        }
+                        break;
+                }
+            }
+        }
+
+        this.numPartitions = partitionIds.size();
+        this.exactTriggers = toArrays(exact);
+        this.phraseTriggers = toArrays(phrase);
+        this.unindexedPhraseTriggers = unindexedPhrase.toLongArray();
+        this.containsAutomaton = containsBuilder.create();
+        this.containsTriggers = toArrays(contains);
+        this.emptyContainsTriggers = emptyContains.toLongArray();
+        this.regexLiteralAutomaton = regexBuilder.create();
+        this.regexTriggers = toArrays(regex);
+        this.unfilteredRegexTriggers = unfilteredRegex.toLongArray();
+        LOGGER.debug("Indexed {} intents with {} context partitions", intents.size(), numPartitions);
+    }
+
+    private static void addToList(List<LongArrayList> lists, int index, long position) {
+        if (index == lists.size()) {
+            lists.add(new LongArrayList());
+        }
+        lists.get(index).add(position);
+    }
+
+    private static Map<String, long[]> toArrays(Map<String, LongArrayList> map) {
+        Map<String, long[]> result = new HashMap<>(map.size() * 4 / 3 + 1);
+        map.forEach((key, list) -> result.put(key, list.toLongArray()));
+        return result;
+    }
+
+    private static long[][] toArrays(List<LongArrayList> lists) {
+        long[][] result = new long[lists.size()][];
+        for (int i = 0; i < lists.size(); i++) {
+            result[i] = lists.get(i).toLongArray();
+        }
+        return result;
+    }
+
+    /** Same definition of word characters as {@link StringHelper#containsWordCaseSensitive(String, String)}. */
+    private static boolean isWordCharacter(char c) {
+        return Character.isLetter(c) || Character.isDigit(c);
+    }
+
+    /**
+     * Get the leading run of word characters of a phrase. A phrase can only occur in a query at a word border, so the
+     * query must have a token which equals this run.
+     *
+     * @param text The phrase.
+     * @return The first token, or an empty string in case the phrase does not start with a word character.
+     */
+    static String getFirstToken(String text) {
+        int end = 0;
+        while (end < text.length() && isWordCharacter(text.charAt(end))) {
+            end++;
+        }
+        return text.substring(0, end);
+    }
+
+    /**
+     * Get a literal which every match of the (case insensitive) regular expression starts with. The extraction is
+     * conservative: it stops at the first character which is not a plain or escaped literal, and gives up for
+     * expressions with alternatives.
+     *
+     * @param regex The regular expression.
+     * @return The literal, or an empty string, in case the expression does not start with a literal.
+     */
+    static String getRequiredLiteral(String regex) {
+        if (regex.indexOf('|') != -1) {
+            return "";
+        }
+        StringBuilder literal = new StringBuilder();
+        int i = regex.startsWith("^") ? 1 : 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            int length = 1;
+            if (c == '\\') {
+                if (i + 1 >= regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                    break; // character classes, back references, quotations, ...
+                }
+                c = regex.charAt(i + 1);
+                length = 2;
+            } else if (".[](){}^$?*+".indexOf(c) != -1) {
+                break;
+            }
+            // the character might be optional or repeated
+            char next = i + length < regex.length() ? regex.charAt(i + length) : 0;
+            if (next == '?' || next == '*' || next == '{') {
+                break;
+            }
+            literal.append(c);
+            if (next == '+') {
+                break;
+            }
+            i += length;
+        }
+        return literal.toString();
+    }
+
+    /**
+     * Find the first trigger of the given type which matches the query, in the order of the intents and the triggers
+     * within the intents.
+     *
+     * @param matchType        The type of triggers to check.
+     * @param query            The query.
+     * @param matchedIntentIds Ids of intents which are skipped.
+     * @param contextFilter    The filter for the intents' context.
+     * @return The match, or <code>null</code>.
+     */
+    Match findFirst(QueryMatchType matchType, String query, IntSet matchedIntentIds, ContextFilter contextFilter) {
+        LongArrayList candidates = new LongArrayList();
+        switch (matchType) {
+            case MATCH:
+                candidates.addElements(0, exactTriggers.getOrDefault(query, EMPTY));
+                break;
+            case PHRASE_MATCH:
+                candidates.addElements(0, unindexedPhraseTriggers);
+                for (int start = 0; start < query.length(); ) {
+                    if (!isWordCharacter(query.charAt(start))) {
+                        start++;
+                        continue;
+                    }
+                    int end = start + 1;
+                    while (end < query.length() && isWordCharacter(query.charAt(end))) {
+                        end++;
+                    }
+                    long[] positions = phraseTriggers.get(query.substring(start, end));
+                    if (positions != null) {
+                        candidates.addElements(candidates.size(), positions);
+                    }
+                    start = end;
+                }
+                break;
+            case CONTAINS:
+                candidates.addElements(0, emptyContainsTriggers);
+                containsAutomaton.find(query, (patternId, start, end) -> {
+                    candidates.addElements(candidates.size(), containsTriggers[patternId]);
+                    return true;
+                });
+                break;
+            case REGEX:
+                candidates.addElements(0, unfilteredRegexTriggers);
+                regexLiteralAutomaton.find(query, (patternId, start, end) -> {
+                    candidates.addElements(candidates.size(), regexTriggers[patternId]);
+                    return true;
+                });
+                break;
+            default:
+                return null;
+        }
+
+        long[] positions = candidates.elements();
+        int numCandidates = candidates.size();
+        LongArrays.quickSort(positions, 0, numCandidates);
+        for (int k = 0; k < numCandidates; k++) {
+            long position = positions[k];
+            if (k > 0 && positions[k - 1] == position) {
+                continue;
+            }
+            int intentIndex = (int) (position >>> 32);
+            SearchIntent intent = intents.get(intentIndex);
+            if (matchedIntentIds.contains(intent.getId()) || !contextFilter.accept(intentIndex)) {
+                continue;
+            }
+            SearchIntentTrigger trigger = intent.getIntentTriggers().get((int) position);
+            if (matchType == QueryMatchType.PHRASE_MATCH) {
+                if (!StringHelper.containsWordCaseSensitive(trigger.getText(), query)) {
+                    continue;
+                }
+            } else if (matchType == QueryMatchType.REGEX) {
+                Matcher matcher = regexPatterns.get(position).matcher(query);
+                if (!matcher.find()) {
+                    continue;
+                }
+                return new Match(intent, trigger, matcher);
+            }
+            return new Match(intent, trigger, null);
+        }
+        return null;
+    }
+
+    /** @return The number of indexed intents. */
+    int size() {
+        return intents.size();
+    }
+
+    @Override
+    public String toString() {
+        return "SearchIntentIndex [intents=" + intents.size() + ", partitions=" + numPartitions + ", containsAutomaton="
+                + containsAutomaton + ", regexLiteralAutomaton=" + regexLiteralAutomaton + "]";
+    }
+
+}
@@ -19,7 +19,6 @@ import java.util.List;
 import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
 
 /**
  * A generic intent parser. For example, query = "under 100€" + intent is "under \d+€" => action sort price < 100€.
@@ -66,8 +65,13 @@ import java.util.regex.PatternSyntaxException;
  * ]
  */
 public class SearchIntentParser {
+    private static final QueryMatchType[] MATCH_TYPE_PRIORITY = {QueryMatchType.MATCH, QueryMatchType.PHRASE_MATCH, QueryMatchType.CONTAINS, QueryMatchType.REGEX};
+
     List<SearchIntent> intents = new ArrayList<>();
 
+    /** The index over the intents' triggers; created lazily and re-created when intents are added. */
+    private volatile SearchIntentIndex index;
+
     public SearchIntentParser(List<? extends SearchIntent> intents) {
         this.intents.addAll(intents);
     }
@@ -145,6 +149,23 @@ public class SearchIntentParser {
         }
     }
 
+    private SearchIntentIndex getIndex() {
+        SearchIntentIndex currentIndex = index;
+        if (currentIndex == null || currentIndex.size() != intents.size()) {
+            currentIndex = new SearchIntentIndex(intents);
+            index = currentIndex;
+        }
+        return currentIndex;
+    }
+
+    /**
+     * Re-create the index over the intents' triggers. This is necessary after the triggers, contexts or actions of
+     * the intents were modified; added intents are picked up automatically.
+     */
+    public void reindex() {
+        index = new SearchIntentIndex(intents);
+    }
+
     // TODO option to rewrite only matching part or entire query
     public List<ActivatedSearchIntentAction> parse(String query) {
         return parse(query, null);
@@ -160,109 +181,24 @@ public class SearchIntentParser {
         // make sure we don't match the same intent multiple times
         IntOpenHashSet matchedIntentIds = new IntOpenHashSet();
 
+        SearchIntentIndex triggerIndex = getIndex();
+        SearchIntentIndex.ContextFilter contextFilter = triggerIndex.new ContextFilter(contextMatcher);
+
         ol:
         do {
-            // XXX this could be slightly faster if we index actions by their match type so we don't have to iterate through all intents all the time
-            for (SearchIntent intent : intents) {
-                if (matchedIntentIds.contains(intent.getId())) {
-                    continue;
-                }
-
-                if (contextMatcher != null && !contextMatcher.match(intent.getContext())) {
-                    continue;
-                }
-                for (SearchIntentTrigger intentTrigger : intent.getIntentTriggers()) {
-                    if (intentTrigger.getMatchType() == QueryMatchType.MATCH && intentTrigger.getText().equals(query)) {
-                        intentMatchFound = true;
-                        ActivatedSearchIntentAction im = processMatch(QueryMatchType.MATCH, intent, query, null, intentTrigger);
-                        intentActions.add(im);
-                        matchedIntentIds.add(intent.getId());
-                        query = im.getModifiedQuery();
-                        if (im.getRedirect() != null) {
-                            return intentActions;
-                        }
-                        continue ol;
-                    }
-                }
-            }
-
-            for (SearchIntent intent : intents) {
-                if (matchedIntentIds.contains(intent.getId())) {
-                    continue;
-                }
-                if (contextMatcher != null && !contextMatcher.match(intent.getContext())) {
-                    continue;
-                }
-                for (SearchIntentTrigger intentTrigger : intent.getIntentTriggers()) {
-                    if (intentTrigger.getMatchType() == QueryMatchType.PHRASE_MATCH && StringHelper.containsWordCaseSensitive(intentTrigger.getText(), query)) {
-                        intentMatchFound = true;
-                        ActivatedSearchIntentAction im = processMatch(QueryMatchType.PHRASE_MATCH, intent, query, null, intentTrigger);
-                        intentActions.add(im);
-                        matchedIntentIds.add(intent.getId());
-                        query = im.getModifiedQuery();
-                        if (im.getRedirect() != null) {
-                            return intentActions;
-                        }
-                        continue ol;
-                    }
-                }
-            }
-
-            for (SearchIntent intent : intents) {
-                if (matchedIntentIds.contains(intent.getId())) {
-                    continue;
-                }
-                if (contextMatcher != null && !contextMatcher.match(intent.getContext())) {
-                    continue;
-                }
-                for (SearchIntentTrigger intentTrigger : intent.getIntentTriggers()) {
-                    if (intentTrigger.getMatchType() == QueryMatchType.CONTAINS && query.contains(intentTrigger.getText())) {
-                        intentMatchFound = true;
-                        ActivatedSearchIntentAction im = processMatch(QueryMatchType.CONTAINS, intent, query, null, intentTrigger);
-                        intentActions.add(im);
-                        matchedIntentIds.add(intent.getId());
-                        query = im.getModifiedQuery();
-                        if (im.getRedirect() != null) {
-                            return intentActions;
-                        }
-                        continue ol;
-                    }
-                }
-            }
-
-            for (SearchIntent intent : intents) {
-                if (matchedIntentIds.contains(intent.getId())) {
-                    continue;
-                }
-                if (contextMatcher != null && !contextMatcher.match(intent.getContext())) {
-                    continue;
-                }
-                for (SearchIntentTrigger intentTrigger : intent.getIntentTriggers()) {
-                    String regex = intentTrigger.getText();
-
-                    // for URL replacements we want to replace the entire query, not just the matching part
-                    if (intent.getIntentAction().getRedirect() != null) {
-                        regex = ".*" + regex + ".*";
-                    }
-                    try {
-                        if (intentTrigger.getMatchType() == QueryMatchType.REGEX) {
-                            Matcher matcher = PatternHelper.compileOrGet(regex, Pattern.CASE_INSENSITIVE).matcher(query);
-                            if (matcher.find()) {
-                                intentMatchFound = true;
-                                ActivatedSearchIntentAction im = processMatch(QueryMatchType.REGEX, intent, query, matcher, intentTrigger);
-                                intentActions.add(im);
-                                matchedIntentIds.add(intent.getId());
-                                query = im.getModifiedQuery();
-                                if (im.getRedirect() != null) {
-                                    return intentActions;
-                                }
-                                continue ol;
-                            }
-                        }
-                    } catch (PatternSyntaxException e) {
-                        e.printStackTrace();
-                        continue;
+            // check the match types in the order of their priority, after a match, start over with the modified query
+            for (QueryMatchType matchType : MATCH_TYPE_PRIORITY) {
+                SearchIntentIndex.Match match = triggerIndex.findFirst(matchType, query, matchedIntentIds, contextFilter);
+                if (match != null) {
+                    intentMatchFound = true;
+                    ActivatedSearchIntentAction im = processMatch(matchType, match.intent, query, match.matcher, match.trigger);
+                    intentActions.add(im);
+                    matchedIntentIds.add(match.intent.getId());
+                    query = im.getModifiedQuery();
+                    if (im.getRedirect() != null) {
+                        return intentActions;
                     }
+                    continue ol;
                 }
             }
             intentMatchFound = false;
@@ -1,9 +1,15 @@
 package ws.palladian.retrieval.feeds;
 
 import org.junit.Test;
+import ws.palladian.helper.io.ResourceHelper;
+import ws.palladian.retrieval.feeds.parser.StaxFeedParser;
+import ws.palladian.retrieval.feeds.updates.*;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 
@@ -60,4 +66,44 @@ public class FeedTest {
         assertEquals(baseTime + 4 * 3600000, feed.getLastFeedEntry().getTime());
     }
 
+    @Test
+    public void testLeadingItemsUpdateInterval() throws Exception {
+        List<UpdateStrategy> strategies = Arrays.asList( //
+                new MavUpdateStrategy(1, 10000, FeedUpdateMode.MIN_DELAY), //
+                new MavUpdateStrategy(1, 10000, FeedUpdateMode.MAX_COVERAGE), //
+                new MAVSynchronizationUpdateStrategy(1, 10000), //
+                new FixLearnedUpdateStrategy(1, 10000, 0, FeedUpdateMode.MIN_DELAY), //
+                new FixLearnedUpdateStrategy(1, 10000, 1, FeedUpdateMode.MIN_DELAY));
+        for (UpdateStrategy strategy : strategies) {
+            // the window slides by three items; a partial parse stops after the first known item
+            Feed completeFeed = createPolledFeed();
+            List<FeedItem> completeItems = parseItems();
+            completeFeed.setItems(completeItems.subList(0, completeItems.size() - 3));
+            strategy.update(completeFeed, new FeedPostStatistics(completeFeed), false);
+
+            Feed partialFeed = createPolledFeed();
+            partialFeed.setLeadingItems(new ArrayList<>(parseItems().subList(0, 4)));
+            assertEquals(completeFeed.getItems().size(), partialFeed.getItems().size());
+            strategy.update(partialFeed, new FeedPostStatistics(partialFeed), false);
+
+            assertEquals(strategy.getName(), completeFeed.getUpdateInterval(), partialFeed.getUpdateInterval());
+        }
+    }
+
+    private static List<FeedItem> parseItems() throws Exception {
+        File file = ResourceHelper.getResourceFile("/feeds/feed014.xml");
+        return new StaxFeedParser().getFeed(file).getItems();
+    }
+
+    /** A feed whose previous poll contained all but the three newest items, polled again two days later. */
+    private static Feed createPolledFeed() throws Exception {
+        List<FeedItem> items = parseItems();
+        Feed feed = new Feed();
+        feed.setLastPollTime(new Date(1296432000000L)); // 2011-01-31 00:00 UTC
+        feed.setItems(items.subList(3, items.size()));
+        feed.setWindowSize(items.size() - 3);
+        feed.setLastPollTime(new Date(1296691200000L)); // 2011-02-03 00:00 UTC
+        return feed;
+    }
+
 }
@@ -0,0 +1,97 @@
+package ws.palladian.retrieval.feeds;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ws.palladian.helper.io.ResourceHelper;
+import ws.palladian.retrieval.feeds.parser.StaxFeedParser;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SeenItemIndexTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static final String HASH_1 = "3c4f3c3f1e9a4d5f1b2a3c4d5e6f708192a3b4c5";
+    private static final String HASH_2 = "9e107d9d372bb6826bd81d3542a419d6e3b4c5d6";
+    private static final String HASH_3 = "2fd4e1c67a2d28fced849ee1bb76e7391b93eb12";
+
+    @Test
+    public void testAddAndEvict() {
+        SeenItemIndex index = new SeenItemIndex(2);
+        assertTrue(index.add(1, HASH_1));
+        assertFalse(index.add(1, HASH_1));
+        assertTrue(index.contains(1, HASH_1));
+        assertFalse(index.contains(2, HASH_1));
+        assertFalse(index.contains(1, HASH_2));
+
+        assertEquals(2, index.addAll(1, Arrays.asList(HASH_2, HASH_3)));
+        // the first item has been evicted
+        assertFalse(index.contains(1, HASH_1));
+        assertTrue(index.contains(1, HASH_2));
+        assertTrue(index.contains(1, HASH_3));
+        assertEquals(1, index.getNumFeeds());
+        assertEquals(2, index.getNumItems());
+
+        // strings which are no hexadecimal hashes work as well
+        assertTrue(index.add(2, "item"));
+        assertTrue(index.contains(2, "item"));
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+        SeenItemIndex index = new SeenItemIndex(10);
+        index.addAll(1, Arrays.asList(HASH_1, HASH_2));
+        index.add(2, HASH_3);
+        File file = new File(tempFolder.getRoot(), "seenItems.bin");
+        index.saveSnapshot(file);
+
+        SeenItemIndex loaded = SeenItemIndex.loadSnapshot(file);
+        assertEquals(2, loaded.getNumFeeds());
+        assertEquals(3, loaded.getNumItems());
+        assertTrue(loaded.contains(1, HASH_1));
+        assertTrue(loaded.contains(1, HASH_2));
+        assertTrue(loaded.contains(2, HASH_3));
+        assertFalse(loaded.contains(2, HASH_1));
+
+        // close writes the final snapshot
+        SeenItemIndex opened = SeenItemIndex.open(file, 60000);
+        opened.add(3, HASH_1);
+        opened.close();
+        assertTrue(SeenItemIndex.loadSnapshot(file).contains(3, HASH_1));
+    }
+
+    @Test
+    public void testFeedWithIndex() throws Exception {
+        File file = ResourceHelper.getResourceFile("/feeds/feed014.xml");
+        List<FeedItem> items = new StaxFeedParser().getFeed(file).getItems();
+        SeenItemIndex index = new SeenItemIndex();
+        for (FeedItem item : items) {
+            index.add(5, item.getHash());
+        }
+
+        // the cache is empty, but the items are known from the index
+        Feed feed = new Feed("http://example.com/feed.xml");
+        feed.setId(5);
+        feed.setLastPollTime(new Date());
+        feed.setSeenItemIndex(index);
+        feed.setItems(items);
+        assertTrue(feed.getNewItems().isEmpty());
+        assertFalse(feed.hasNewItem());
+        assertEquals(items.size(), feed.getCachedItems().size());
+        assertFalse(feed.getCachedItems().containsValue(null));
+
+        Feed otherFeed = new Feed("http://example.com/other.xml");
+        otherFeed.setId(6);
+        otherFeed.setSeenItemIndex(index);
+        otherFeed.setItems(items);
+        assertEquals(items.size(), otherFeed.getNewItems().size());
+    }
+
+}
@@ -0,0 +1,98 @@
+package ws.palladian.retrieval.feeds;
+
+import org.junit.Test;
+import ws.palladian.helper.io.FileHelper;
+import ws.palladian.helper.io.ResourceHelper;
+import ws.palladian.retrieval.HttpResult;
+import ws.palladian.retrieval.feeds.parser.FeedParser;
+import ws.palladian.retrieval.feeds.parser.RomeFeedParser;
+import ws.palladian.retrieval.feeds.parser.StaxFeedParser;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class StaxFeedParserTest {
+
+    @Test
+    public void testEqualsRomeFeedParser() throws Exception {
+        // RSS 1.0, RSS 2.0 with permanent guids instead of links, with authors, and Atom
+        for (String feedFile : Arrays.asList("feed001.xml", "feed014.xml", "feed070.xml", "feed4.xml", "feed10.xml",
+                "atomSample1.xml", "atomSample2.xml")) {
+            File file = ResourceHelper.getResourceFile("/feeds/" + feedFile);
+            List<FeedItem> expectedItems = new RomeFeedParser().getFeed(file).getItems();
+            List<FeedItem> items = new StaxFeedParser().getFeed(file).getItems();
+            assertEquals(feedFile, expectedItems.size(), items.size());
+            for (int i = 0; i < items.size(); i++) {
+                FeedItem expected = expectedItems.get(i);
+                FeedItem item = items.get(i);
+                assertEquals(feedFile, expected.getHash(), item.getHash());
+                assertEquals(feedFile, expected.getTitle(), item.getTitle());
+                assertEquals(feedFile, expected.getUrl(), item.getUrl());
+                assertEquals(feedFile, expected.getIdentifier(), item.getIdentifier());
+                assertEquals(feedFile, expected.getSummary(), item.getSummary());
+                assertEquals(feedFile, expected.getText(), item.getText());
+                assertEquals(feedFile, expected.getAuthors(), item.getAuthors());
+                assertEquals(feedFile, expected.getPublished(), item.getPublished());
+            }
+        }
+    }
+
+    @Test
+    public void testStopAtKnownItems() throws Exception {
+        File file = ResourceHelper.getResourceFile("/feeds/feed014.xml");
+        HttpResult httpResult = new HttpResult("http://example.com/feed.xml", Files.readAllBytes(file.toPath()),
+                Collections.emptyMap(), 200, file.length());
+        StaxFeedParser parser = new StaxFeedParser();
+        List<FeedItem> allItems = parser.getFeed(httpResult).getItems();
+        assertTrue(allItems.size() > 5);
+
+        // the first three items are new
+        Set<String> knownHashes = new HashSet<>();
+        for (FeedItem item : allItems.subList(3, allItems.size())) {
+            knownHashes.add(item.getHash());
+        }
+        Feed feed = parser.getFeed(httpResult, knownHashes);
+        assertEquals(4, feed.getItems().size());
+        assertEquals(true, feed.getAdditionalData().get(FeedParser.KNOWN_ITEM_REACHED));
+        assertEquals("http://example.com/feed.xml", feed.getFeedUrl());
+
+        parser.setStopAfterKnownItems(2);
+        assertEquals(5, parser.getFeed(httpResult, knownHashes).getItems().size());
+
+        // nothing known
+        feed = parser.getFeed(httpResult, Collections.emptySet());
+        assertEquals(allItems.size(), feed.getItems().size());
+        assertNull(feed.getAdditionalData().get(FeedParser.KNOWN_ITEM_REACHED));
+    }
+
+    @Test
+    public void testSetLeadingItems() throws Exception {
+        File file = ResourceHelper.getResourceFile("/feeds/feed014.xml");
+        List<FeedItem> allItems = new StaxFeedParser().getFeed(file).getItems();
+        Feed feed = new Feed();
+        feed.setItems(allItems.subList(3, allItems.size()));
+        feed.setWindowSize(allItems.size() - 3);
+        assertEquals(allItems.size() - 3, feed.getCachedItems().size());
+
+        // three new items and the first known one; the cache keeps the window size
+        feed.setLeadingItems(new ArrayList<>(allItems.subList(0, 4)));
+        assertEquals(3, feed.getNewItems().size());
+        assertEquals(allItems.size() - 3, feed.getCachedItems().size());
+        for (FeedItem item : allItems.subList(0, 4)) {
+            assertTrue(feed.getCachedItems().containsKey(item.getHash()));
+        }
+    }
+
+    @Test
+    public void testFallbackToRome() throws Exception {
+        // the XML declaration is preceded by white space, which is an error for StAX
+        File file = ResourceHelper.getResourceFile("/feeds/feed009.xml");
+        assertFalse(FileHelper.readFileToString(file).startsWith("<?xml"));
+        Feed feed = new StaxFeedParser().getFeed(file);
+        assertEquals(new RomeFeedParser().getFeed(file).getItems().size(), feed.getItems().size());
+    }
+
+}
@@ -0,0 +1,155 @@
+package ws.palladian.retrieval.feeds.persistence;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ws.palladian.persistence.DatabaseManagerFactory;
+import ws.palladian.retrieval.feeds.Feed;
+import ws.palladian.retrieval.feeds.meta.PollMetaInformation;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for the batch updates of the {@link FeedDatabase} using H2 in-memory database in MySQL mode.
+ */
+public class FeedDatabaseTest {
+
+    // simplified version of the tables in config/feedsDbSchema.sql
+    private static final String CREATE_FEEDS = "CREATE TABLE feeds (id INT NOT NULL AUTO_INCREMENT, feedUrl VARCHAR(255) NOT NULL, "
+            + "checks INT NOT NULL DEFAULT 0, unreachableCount INT NOT NULL DEFAULT 0, unparsableCount INT NOT NULL DEFAULT 0, "
+            + "misses INT NOT NULL DEFAULT 0, totalItems INT NOT NULL DEFAULT 0, windowSize INT DEFAULT NULL, "
+            + "hasVariableWindowSize BOOLEAN DEFAULT NULL, checkInterval INT DEFAULT NULL, lastPollTime DATETIME DEFAULT NULL, "
+            + "lastSuccessfulCheck DATETIME DEFAULT NULL, lastMissTimestamp TIMESTAMP NULL DEFAULT NULL, "
+            + "lastFeedEntry DATETIME DEFAULT NULL, isAccessibleFeed BOOLEAN DEFAULT NULL, blocked BOOLEAN NOT NULL DEFAULT FALSE, "
+            + "totalProcessingTime DOUBLE DEFAULT NULL, lastETag VARCHAR(255) DEFAULT NULL, lastModified DATETIME DEFAULT NULL, "
+            + "lastResult VARCHAR(255) DEFAULT NULL, activityPattern INT DEFAULT NULL, feedFormat CHAR(20) DEFAULT NULL, "
+            + "feedSize DOUBLE DEFAULT 0, siteUrl VARCHAR(255) DEFAULT NULL, title VARCHAR(255) DEFAULT NULL, "
+            + "added TIMESTAMP NULL DEFAULT NULL, `language` VARCHAR(255) DEFAULT NULL, "
+            + "hasItemIds BOOLEAN DEFAULT NULL, hasPubDate BOOLEAN DEFAULT NULL, hasCloud BOOLEAN DEFAULT NULL, ttl INT DEFAULT NULL, "
+            + "hasSkipHours BOOLEAN DEFAULT NULL, hasSkipDays BOOLEAN DEFAULT NULL, hasUpdated BOOLEAN DEFAULT NULL, "
+            + "hasPublished BOOLEAN DEFAULT NULL, supportsPubSubHubBub BOOLEAN DEFAULT NULL, httpHeaderSize INT DEFAULT NULL, "
+            + "PRIMARY KEY (id), UNIQUE (feedUrl))";
+    private static final String CREATE_FEED_POLLS = "CREATE TABLE feed_polls (id INT NOT NULL, pollTimestamp DATETIME NOT NULL, "
+            + "httpETag VARCHAR(255) DEFAULT NULL, httpDate DATETIME DEFAULT NULL, httpLastModified DATETIME DEFAULT NULL, "
+            + "httpExpires DATETIME DEFAULT NULL, newestItemTimestamp DATETIME DEFAULT NULL, numberNewItems INT DEFAULT NULL, "
+            + "windowSize INT DEFAULT NULL, httpStatusCode INT NOT NULL, responseSize INT DEFAULT NULL)";
+    private static final String CREATE_FEED_ITEM_CACHE = "CREATE TABLE feed_item_cache (id INT NOT NULL, itemHash CHAR(40) NOT NULL, "
+            + "correctedPollTime DATETIME NOT NULL, PRIMARY KEY (id, itemHash))";
+
+    private static final String JDBC_URL = "jdbc:h2:mem:feeds;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    private FeedDatabase feedDatabase;
+
+    @Before
+    public void before() {
+        feedDatabase = DatabaseManagerFactory.create(FeedDatabase.class, JDBC_URL, "sa", "");
+        feedDatabase.runUpdate(CREATE_FEEDS);
+        feedDatabase.runUpdate(CREATE_FEED_POLLS);
+        feedDatabase.runUpdate(CREATE_FEED_ITEM_CACHE);
+    }
+
+    @After
+    public void after() {
+        feedDatabase.runUpdate("DROP TABLE feeds");
+        feedDatabase.runUpdate("DROP TABLE feed_polls");
+        feedDatabase.runUpdate("DROP TABLE feed_item_cache");
+    }
+
+    private Feed addFeed(String feedUrl, String... cachedItemHashes) {
+        Feed feed = new Feed(feedUrl);
+        assertTrue(feedDatabase.addFeed(feed));
+        Map<String, Date> cachedItems = new HashMap<>();
+        for (String hash : cachedItemHashes) {
+            cachedItems.put(hash, new Date(1000000));
+        }
+        feed.setCachedItems(cachedItems);
+        assertTrue(feedDatabase.updateFeed(feed, true));
+        return feed;
+    }
+
+    private static List<CachedItem> cachedItems(Feed feed, String... hashes) {
+        List<CachedItem> cachedItems = new ArrayList<>();
+        for (String hash : hashes) {
+            cachedItems.add(new CachedItem(feed.getId(), hash, new Date(2000000)));
+        }
+        return cachedItems;
+    }
+
+    @Test
+    public void testUpdateFeeds() {
+        Feed feed1 = addFeed("http://example.com/feed1", "a", "b");
+        Feed feed2 = addFeed("http://example.com/feed2");
+        Feed feed3 = addFeed("http://example.com/feed3", "c");
+        feed1.setChecks(1);
+        feed2.setChecks(2);
+        feed3.setChecks(3);
+        Map<Integer, List<CachedItem>> cachedItems = new HashMap<>();
+        cachedItems.put(feed1.getId(), cachedItems(feed1, "b", "d"));
+        cachedItems.put(feed2.getId(), cachedItems(feed2, "e"));
+
+        assertEquals(3, feedDatabase.updateFeeds(Arrays.asList(feed1, feed2, feed3), cachedItems));
+        assertEquals(1, feedDatabase.getFeedById(feed1.getId()).getChecks());
+        assertEquals(2, feedDatabase.getFeedById(feed2.getId()).getChecks());
+        assertEquals(3, feedDatabase.getFeedById(feed3.getId()).getChecks());
+        assertEquals(new HashSet<>(Arrays.asList("b", "d")), feedDatabase.getCachedItems(feed1.getId()).keySet());
+        assertEquals(Collections.singleton("e"), feedDatabase.getCachedItems(feed2.getId()).keySet());
+        // without entry in the map, the cached items are kept
+        assertEquals(Collections.singleton("c"), feedDatabase.getCachedItems(feed3.getId()).keySet());
+    }
+
+    @Test
+    public void testUpdateFeedsFailedBatch() {
+        Feed feed1 = addFeed("http://example.com/feed1", "a");
+        Feed feed2 = addFeed("http://example.com/feed2");
+        feed1.setChecks(1);
+        // violates the unique feed URL, so the whole batch is rolled back
+        feed2.setFeedUrl(feed1.getFeedUrl());
+        Map<Integer, List<CachedItem>> cachedItems = Collections.singletonMap(feed1.getId(), cachedItems(feed1, "b"));
+
+        assertEquals(0, feedDatabase.updateFeeds(Arrays.asList(feed1, feed2), cachedItems));
+        assertEquals(0, feedDatabase.getFeedById(feed1.getId()).getChecks());
+        assertEquals(Collections.singleton("a"), feedDatabase.getCachedItems(feed1.getId()).keySet());
+        // the valid feed can still be updated on its own
+        assertEquals(1, feedDatabase.updateFeeds(Collections.singletonList(feed1), cachedItems));
+        assertEquals(1, feedDatabase.getFeedById(feed1.getId()).getChecks());
+        assertEquals(Collections.singleton("b"), feedDatabase.getCachedItems(feed1.getId()).keySet());
+    }
+
+    @Test
+    public void testUpdateCachedItems() {
+        Feed feed1 = addFeed("http://example.com/feed1", "a", "b");
+        Feed feed2 = addFeed("http://example.com/feed2", "c");
+        List<CachedItem> removedItems = Arrays.asList(new CachedItem(feed1.getId(), "a", null), new CachedItem(feed2.getId(), "c", null));
+        List<CachedItem> addedItems = cachedItems(feed1, "d");
+
+        assertTrue(feedDatabase.updateCachedItems(removedItems, addedItems));
+        assertEquals(new HashSet<>(Arrays.asList("b", "d")), feedDatabase.getCachedItems(feed1.getId()).keySet());
+        assertEquals(new Date(2000000), feedDatabase.getCachedItems(feed1.getId()).get("d"));
+        assertTrue(feedDatabase.getCachedItems(feed2.getId()).isEmpty());
+    }
+
+    @Test
+    public void testGetFeedsWithoutCachedItems() {
+        addFeed("http://example.com/feed1", "a", "b");
+        assertEquals(2, feedDatabase.getFeeds(true).get(0).getCachedItems().size());
+        assertTrue(feedDatabase.getFeeds(false).get(0).getCachedItems().isEmpty());
+    }
+
+    @Test
+    public void testAddFeedPolls() {
+        List<PollMetaInformation> polls = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            PollMetaInformation poll = new PollMetaInformation();
+            poll.setFeedID(i);
+            poll.setPollTimestamp(new Date(i * 1000000L));
+            poll.setHttpStatusCode(200);
+            polls.add(poll);
+        }
+        assertEquals(3, feedDatabase.addFeedPolls(polls));
+        assertEquals(3, (int) feedDatabase.runAggregateQuery("SELECT COUNT(*) FROM feed_polls"));
+        assertEquals(0, feedDatabase.addFeedPolls(Collections.emptyList()));
+    }
+
+}
@@ -0,0 +1,177 @@
+package ws.palladian.retrieval.feeds.persistence;
+
+import org.junit.Test;
+import ws.palladian.retrieval.feeds.Feed;
+import ws.palladian.retrieval.feeds.meta.PollMetaInformation;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class WriteBehindFeedStoreTest {
+
+    /** Records the batches written to it. */
+    private static class RecordingFeedStore extends CollectionFeedSource {
+        final List<List<Feed>> feedBatches = Collections.synchronizedList(new ArrayList<>());
+        final Map<Integer, List<CachedItem>> cachedItems = Collections.synchronizedMap(new HashMap<>());
+        final List<PollMetaInformation> polls = Collections.synchronizedList(new ArrayList<>());
+        final List<CachedItem> removedItems = Collections.synchronizedList(new ArrayList<>());
+        final List<CachedItem> addedItems = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public int updateFeeds(List<Feed> feeds, Map<Integer, List<CachedItem>> cachedItems) {
+            feedBatches.add(new ArrayList<>(feeds));
+            for (Feed feed : feeds) {
+                if (cachedItems.containsKey(feed.getId())) {
+                    this.cachedItems.put(feed.getId(), cachedItems.get(feed.getId()));
+                }
+            }
+            return feeds.size();
+        }
+
+        @Override
+        public boolean updateCachedItems(List<CachedItem> removedItems, List<CachedItem> addedItems) {
+            this.removedItems.addAll(removedItems);
+            this.addedItems.addAll(addedItems);
+            return true;
+        }
+
+        @Override
+        public int addFeedPolls(List<PollMetaInformation> pollMetaInfos) {
+            polls.addAll(pollMetaInfos);
+            return pollMetaInfos.size();
+        }
+    }
+
+    private static Feed createFeed(int id) {
+        Feed feed = new Feed("http://example.com/feed" + id);
+        feed.setId(id);
+        return feed;
+    }
+
+    @Test
+    public void testCoalesceAndFlushOnClose() {
+        RecordingFeedStore recordingStore = new RecordingFeedStore();
+        WriteBehindFeedStore store = new WriteBehindFeedStore(recordingStore, 100, 60000);
+        Feed feed1 = createFeed(1);
+        Feed feed2 = createFeed(2);
+        feed1.setCachedItems(new HashMap<>(Collections.singletonMap("hash1", new Date(1000))));
+        feed1.setChecks(1);
+        store.updateFeed(feed1, true);
+        store.updateFeed(feed2, false);
+        // the feed and its cached items are copied when queueing
+        feed1.setCachedItems(new HashMap<>(Collections.singletonMap("hash2", new Date(2000))));
+        store.updateFeed(feed1, false);
+        feed1.setChecks(2);
+        PollMetaInformation poll = new PollMetaInformation();
+        poll.setFeedID(1);
+        store.addFeedPoll(poll);
+        assertEquals(3, store.getQueueDepth());
+        assertTrue(recordingStore.feedBatches.isEmpty());
+
+        store.close();
+        assertEquals(0, store.getQueueDepth());
+        assertEquals(1, recordingStore.feedBatches.size());
+        assertEquals(Arrays.asList(feed2, feed1), recordingStore.feedBatches.get(0));
+        assertEquals(1, recordingStore.feedBatches.get(0).get(1).getChecks());
+        assertEquals(1, recordingStore.cachedItems.size());
+        assertEquals("hash1", recordingStore.cachedItems.get(1).get(0).getHash());
+        assertEquals(Collections.singletonList(poll), recordingStore.polls);
+        assertEquals(1, store.getNumFlushes());
+        assertEquals(3, store.getNumFlushedUpdates());
+        assertEquals(0, store.getNumFailedUpdates());
+    }
+
+    @Test
+    public void testFlushOnBatchSizeAndInterval() throws InterruptedException {
+        RecordingFeedStore recordingStore = new RecordingFeedStore();
+        WriteBehindFeedStore store = new WriteBehindFeedStore(recordingStore, 10, 50);
+        for (int i = 0; i < 25; i++) {
+            store.updateFeed(createFeed(i), true);
+        }
+        for (int i = 0; i < 100 && store.getQueueDepth() > 0; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, store.getQueueDepth());
+        int written = 0;
+        for (List<Feed> batch : recordingStore.feedBatches) {
+            assertTrue(batch.size() <= 10);
+            written += batch.size();
+        }
+        assertEquals(25, written);
+        assertEquals(25, store.getNumFlushedUpdates());
+        store.close();
+    }
+
+    @Test
+    public void testFallbackOnFailedBatch() {
+        // batches fail; single feed 3 fails with an exception, single poll of feed 4 is not added
+        RecordingFeedStore recordingStore = new RecordingFeedStore() {
+            @Override
+            public int updateFeeds(List<Feed> feeds, Map<Integer, List<CachedItem>> cachedItems) {
+                if (feeds.size() > 1) {
+                    throw new IllegalStateException("batch failed");
+                }
+                if (feeds.get(0).getId() == 3) {
+                    throw new IllegalStateException("feed failed");
+                }
+                return super.updateFeeds(feeds, cachedItems);
+            }
+
+            @Override
+            public int addFeedPolls(List<PollMetaInformation> pollMetaInfos) {
+                return 0;
+            }
+
+            @Override
+            public boolean addFeedPoll(PollMetaInformation pollMetaInfo) {
+                if (pollMetaInfo.getFeedID() == 4) {
+                    return false;
+                }
+                polls.add(pollMetaInfo);
+                return true;
+            }
+        };
+        WriteBehindFeedStore store = new WriteBehindFeedStore(recordingStore, 100, 60000);
+        for (int i = 1; i <= 5; i++) {
+            store.updateFeed(createFeed(i), true);
+            PollMetaInformation poll = new PollMetaInformation();
+            poll.setFeedID(i);
+            store.addFeedPoll(poll);
+        }
+        store.close();
+        assertEquals(4, recordingStore.feedBatches.size());
+        assertEquals(4, recordingStore.cachedItems.size());
+        assertFalse(recordingStore.cachedItems.containsKey(3));
+        assertEquals(4, recordingStore.polls.size());
+        assertEquals(10, store.getNumFlushedUpdates());
+        assertEquals(2, store.getNumFailedUpdates());
+    }
+
+    @Test
+    public void testMergeCachedItemChanges() {
+        RecordingFeedStore recordingStore = new RecordingFeedStore();
+        WriteBehindFeedStore store = new WriteBehindFeedStore(recordingStore, 100, 60000);
+        // feed 1: changes are merged, removals are written before additions
+        store.updateFeed(createFeed(1), false);
+        store.updateCachedItems(Collections.singletonList(new CachedItem(1, "a", null)), Arrays.asList(new CachedItem(1, "b", null), new CachedItem(1, "c", null)));
+        store.updateCachedItems(Collections.singletonList(new CachedItem(1, "b", null)), Collections.singletonList(new CachedItem(1, "a", null)));
+        // feed 2: changes are applied to the queued replacement of the cached items
+        Feed feed2 = createFeed(2);
+        feed2.setCachedItems(new HashMap<>(Collections.singletonMap("x", new Date(1000))));
+        store.updateFeed(feed2, true);
+        store.updateCachedItems(Collections.singletonList(new CachedItem(2, "x", null)), Collections.singletonList(new CachedItem(2, "y", null)));
+        store.close();
+
+        Set<String> removed = new HashSet<>();
+        recordingStore.removedItems.forEach(item -> removed.add(item.getId() + item.getHash()));
+        Set<String> added = new HashSet<>();
+        recordingStore.addedItems.forEach(item -> added.add(item.getId() + item.getHash()));
+        assertEquals(new HashSet<>(Arrays.asList("1a", "1b")), removed);
+        assertEquals(new HashSet<>(Arrays.asList("1a", "1c")), added);
+        assertEquals(1, recordingStore.cachedItems.get(2).size());
+        assertEquals("y", recordingStore.cachedItems.get(2).get(0).getHash());
+        assertEquals(0, store.getNumFailedUpdates());
+    }
+
+}
@@ -0,0 +1,95 @@
+package ws.palladian.retrieval.helper;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class TokenBucketRequestThrottleTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testTryAcquire() {
+        AtomicLong clock = new AtomicLong();
+        TokenBucketRequestThrottle throttle = new TokenBucketRequestThrottle(10, 1, TimeUnit.SECONDS, 2, clock::get);
+        // burst of two, then one token every 100 ms
+        assertTrue(throttle.tryAcquire("a"));
+        assertTrue(throttle.tryAcquire("a"));
+        assertFalse(throttle.tryAcquire("a"));
+        // other keys have their own bucket
+        assertTrue(throttle.tryAcquire("b"));
+        clock.addAndGet(99 * MILLIS);
+        assertFalse(throttle.tryAcquire("a"));
+        clock.addAndGet(MILLIS);
+        assertTrue(throttle.tryAcquire("a"));
+        assertFalse(throttle.tryAcquire("a"));
+        assertEquals(3, throttle.getNumRequests("a"));
+        assertEquals(1, throttle.getNumRequests("b"));
+        assertEquals(0, throttle.getTotalThrottledTime());
+    }
+
+    @Test
+    public void testReserve() {
+        AtomicLong clock = new AtomicLong();
+        TokenBucketRequestThrottle throttle = new TokenBucketRequestThrottle(10, 1, TimeUnit.SECONDS, 1, clock::get);
+        // slots are handed out every 100 ms
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i * 100 * MILLIS, throttle.reserve("a"));
+        }
+        assertEquals(1000, throttle.getThrottledTime("a"));
+
+        // a different key is not delayed
+        assertEquals(0, throttle.reserve("b"));
+
+        // after time has passed, the waiting time decreases accordingly
+        clock.addAndGet(450 * MILLIS);
+        assertEquals(50 * MILLIS, throttle.reserve("a"));
+
+        // after a long pause, the bucket does not fill up beyond the burst size
+        clock.addAndGet(10 * 1000 * MILLIS);
+        assertEquals(0, throttle.reserve("a"));
+        assertEquals(100 * MILLIS, throttle.reserve("a"));
+    }
+
+    @Test
+    public void testEvictIdleBuckets() {
+        AtomicLong clock = new AtomicLong();
+        TokenBucketRequestThrottle throttle = new TokenBucketRequestThrottle(10, 1, TimeUnit.SECONDS, 1, clock::get);
+        throttle.reserve("a");
+        // five tokens reserved in advance, the bucket is not idle before they are used
+        for (int i = 0; i < 5; i++) {
+            throttle.reserve("b");
+        }
+        clock.addAndGet(200 * MILLIS);
+        throttle.reserve("c");
+        assertEquals(new HashSet<>(Arrays.asList("b", "c")), throttle.getKeys());
+        // evicting does not change the throttling, and the total throttled time is kept
+        assertEquals(300 * MILLIS, throttle.reserve("b"));
+        clock.addAndGet(1000 * MILLIS);
+        assertEquals(0, throttle.reserve("d"));
+        assertEquals(Collections.singleton("d"), throttle.getKeys());
+        assertEquals(0, throttle.getThrottledTime("b"));
+        assertEquals(1300, throttle.getTotalThrottledTime());
+    }
+
+    @Test
+    public void testAcquireAsync() throws Exception {
+        TokenBucketRequestThrottle throttle = new TokenBucketRequestThrottle(10, 1, TimeUnit.SECONDS, 1);
+        // async callers get their slots in order, without blocking
+        CompletableFuture<Void> first = throttle.acquireAsync("c");
+        CompletableFuture<Void> second = throttle.acquireAsync("c");
+        CompletableFuture<Void> third = throttle.acquireAsync("c");
+        assertTrue(first.isDone());
+        third.get(10, TimeUnit.SECONDS);
+        assertTrue(second.isDone());
+        assertEquals(3, throttle.getNumRequests("c"));
+    }
+
+}
@@ -7,7 +7,10 @@ import org.junit.rules.ErrorCollector;
 import ws.palladian.helper.collection.CollectionHelper;
 import ws.palladian.persistence.json.JsonArray;
 import ws.palladian.persistence.json.JsonException;
+import ws.palladian.persistence.json.JsonObject;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class IntentParserTest {
@@ -104,4 +107,69 @@ public class IntentParserTest {
         intentAction = CollectionHelper.getFirst(intentActions);
         collector.checkThat(intentAction.getRedirect(), Matchers.is("https://helpcenter.com/tickets/C8788"));
     }
-}
\ No newline at end of file
+
+    private static SearchIntent createIntent(QueryMatchType matchType, String text, JsonObject context) {
+        SearchIntent intent = new SearchIntent();
+        intent.addIntentTrigger(new SearchIntentTrigger(matchType, text));
+        SearchIntentAction<SearchIntentFilter> action = new SearchIntentAction<>();
+        action.setType(SearchIntentActionType.DEFINITION);
+        action.setRemoveTrigger(false);
+        intent.setIntentAction(action);
+        intent.setContext(context);
+        return intent;
+    }
+
+    @Test
+    public void testParseOrderAndContext() {
+        JsonObject shopX = new JsonObject();
+        shopX.put("shop", "x");
+        JsonObject shopY = new JsonObject();
+        shopY.put("shop", "y");
+        SearchIntent containsBike = createIntent(QueryMatchType.CONTAINS, "bike", new JsonObject());
+        SearchIntent phraseMtb = createIntent(QueryMatchType.PHRASE_MATCH, "mtb", new JsonObject());
+        SearchIntent regexUnder = createIntent(QueryMatchType.REGEX, "UNDER (\\d+)", shopX);
+        SearchIntent matchQuery = createIntent(QueryMatchType.MATCH, "cheap mtb bike under 5", new JsonObject());
+        SearchIntent containsBikeY = createIntent(QueryMatchType.CONTAINS, "bike", shopY);
+        SearchIntent phraseNoWord = createIntent(QueryMatchType.PHRASE_MATCH, "ike", new JsonObject());
+        SearchIntentParser intentParser = new SearchIntentParser(Arrays.asList(containsBike, phraseMtb, regexUnder, matchQuery, containsBikeY, phraseNoWord));
+
+        // match types by priority, within a type by the order of the intents
+        List<Integer> ids = new ArrayList<>();
+        for (ActivatedSearchIntentAction action : intentParser.parse("cheap mtb bike under 5")) {
+            ids.add(action.getIntentId());
+        }
+        collector.checkThat(ids, Matchers.is(Arrays.asList(matchQuery.getId(), phraseMtb.getId(), containsBike.getId(), containsBikeY.getId(), regexUnder.getId())));
+
+        // the context matcher is invoked once per distinct context
+        List<JsonObject> checkedContexts = new ArrayList<>();
+        SearchIntentContextMatcher contextMatcher = context -> {
+            checkedContexts.add(context);
+            return !"y".equals(context.tryGetString("shop"));
+        };
+        ids.clear();
+        for (ActivatedSearchIntentAction action : intentParser.parse("cheap mtb bike under 5", contextMatcher)) {
+            ids.add(action.getIntentId());
+        }
+        collector.checkThat(ids, Matchers.is(Arrays.asList(matchQuery.getId(), phraseMtb.getId(), containsBike.getId(), regexUnder.getId())));
+        collector.checkThat(checkedContexts.size(), Matchers.is(3));
+
+        // intents which are added later are indexed
+        intentParser.intents.add(createIntent(QueryMatchType.CONTAINS, "e b", new JsonObject()));
+        collector.checkThat(intentParser.parse("bike bell").size(), Matchers.is(3));
+    }
+
+    @Test
+    public void testIndexHelpers() {
+        collector.checkThat(SearchIntentIndex.getRequiredLiteral("under \\$(\\d+)"), Matchers.is("under $"));
+        collector.checkThat(SearchIntentIndex.getRequiredLiteral("^gta (\\d+)"), Matchers.is("gta "));
+        collector.checkThat(SearchIntentIndex.getRequiredLiteral("cheap(ish)?"), Matchers.is("cheap"));
+        collector.checkThat(SearchIntentIndex.getRequiredLiteral("cheapo?"), Matchers.is("cheap"));
+        collector.checkThat(SearchIntentIndex.getRequiredLiteral("ab+c"), Matchers.is("ab"));
+        collector.checkThat(SearchIntentIndex.getRequiredLiteral("cheap|budget"), Matchers.is(""));
+        collector.checkThat(SearchIntentIndex.getRequiredLiteral("(?<=(?:^|[;. ]))cheap"), Matchers.is(""));
+        collector.checkThat(SearchIntentIndex.getRequiredLiteral("\\d+ inch"), Matchers.is(""));
+        collector.checkThat(SearchIntentIndex.getFirstToken("mtb shoes"), Matchers.is("mtb"));
+        collector.checkThat(SearchIntentIndex.getFirstToken("c++"), Matchers.is("c"));
+        collector.checkThat(SearchIntentIndex.getFirstToken("$100"), Matchers.is(""));
+    }
+}